@@ -0,0 +1,167 @@
+/*
+ * Copyright 2016 William Oemler, Blueprint Medicines
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.oncoblocks.centromere.core.dataimport;
+
+import org.oncoblocks.centromere.core.model.Model;
+import org.oncoblocks.centromere.core.repository.RepositoryOperations;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.List;
+
+/**
+ * Base {@link RecordWriter} for writers that buffer records and write them to a 
+ *   {@link RepositoryOperations} implementation in bulk.  Batches are flushed once they reach the 
+ *   configured record count, or byte size if a {@link RecordSizeEstimator} is set, and any 
+ *   remaining records are flushed in {@code doAfter}.  Failed batches are logged and reported 
+ *   through {@link #getFailures()}.  Subclasses implement {@link #flushBatch(List)} with the bulk
+ *   repository operation to use.
+ * 
+ * @author woemler
+ */
+public abstract class AbstractBatchingRepositoryRecordWriter<T extends Model<?>> 
+		implements FlushableRecordWriter<T> {
+	
+	private final RepositoryOperations<T, ?> repository;
+	private final RecordBatcher<T> batcher = new RecordBatcher<T>() {
+		@Override 
+		protected void writeBatch(List<T> records) {
+			flushBatch(records);
+		}
+	};
+	private static final Logger logger = LoggerFactory.getLogger(AbstractBatchingRepositoryRecordWriter.class);
+
+	public AbstractBatchingRepositoryRecordWriter(RepositoryOperations<T, ?> repository) {
+		this.repository = repository;
+	}
+
+	public AbstractBatchingRepositoryRecordWriter(RepositoryOperations<T, ?> repository, int batchSize) {
+		this.repository = repository;
+		batcher.setBatchSize(batchSize);
+	}
+
+	/**
+	 * Writes a full batch of records to the repository.  Exceptions are handled by the batcher, 
+	 *   according to {@code stopOnError}.
+	 * 
+	 * @param records records to write.
+	 */
+	protected abstract void flushBatch(List<T> records);
+
+	/**
+	 * Returns the past-tense name of the bulk operation, for logging, eg. {@code Inserted}.
+	 */
+	protected abstract String getOperationName();
+
+	/**
+	 * Adds the record to the current batch, which is written once it is full.
+	 * 
+	 * @param entity
+	 * @throws DataImportException if a batch write fails and {@code stopOnError} is true.
+	 */
+	@Override 
+	public void writeRecord(T entity) throws DataImportException {
+		batcher.add(entity);
+	}
+
+	/**
+	 * Writes any records that have been buffered, but not yet written.
+	 * 
+	 * @throws DataImportException
+	 */
+	public void flush() throws DataImportException {
+		batcher.flush();
+	}
+
+	/**
+	 * Clears any records and failures left over from a previous run.
+	 *
+	 * @param args an array of objects of any type.
+	 * @throws DataImportException
+	 */
+	@Override 
+	public void doBefore(Object... args) throws DataImportException {
+		batcher.reset();
+	}
+
+	/**
+	 * Writes any remaining buffered records.
+	 *
+	 * @param args an array of objects of any type.
+	 * @throws DataImportException
+	 */
+	@Override 
+	public void doAfter(Object... args) throws DataImportException {
+		batcher.flush();
+		logger.info(String.format("[CENTROMERE] %s %d records in %d batches, %d failed batches.", 
+				this.getOperationName(), batcher.getRecordCount(), batcher.getBatchCount(), 
+				batcher.getFailures().size()));
+	}
+
+	public RepositoryOperations<T, ?> getRepository() {
+		return repository;
+	}
+
+	public List<RecordBatcher.BatchFailure> getFailures(){
+		return batcher.getFailures();
+	}
+
+	public long getRecordCount(){
+		return batcher.getRecordCount();
+	}
+
+	public long getFailedRecordCount(){
+		return batcher.getFailedRecordCount();
+	}
+
+	public long getBatchCount(){
+		return batcher.getBatchCount();
+	}
+
+	public int getBatchSize() {
+		return batcher.getBatchSize();
+	}
+
+	public void setBatchSize(int batchSize) {
+		batcher.setBatchSize(batchSize);
+	}
+
+	public long getMaxBatchBytes() {
+		return batcher.getMaxBatchBytes();
+	}
+
+	public void setMaxBatchBytes(long maxBatchBytes) {
+		batcher.setMaxBatchBytes(maxBatchBytes);
+	}
+
+	public RecordSizeEstimator<T> getSizeEstimator() {
+		return batcher.getSizeEstimator();
+	}
+
+	public void setSizeEstimator(RecordSizeEstimator<T> sizeEstimator) {
+		batcher.setSizeEstimator(sizeEstimator);
+	}
+
+	public boolean isStopOnError() {
+		return batcher.isStopOnError();
+	}
+
+	public void setStopOnError(boolean stopOnError) {
+		batcher.setStopOnError(stopOnError);
+	}
+	
+}
@@ -0,0 +1,322 @@
+/*
+ * Copyright 2016 William Oemler, Blueprint Medicines
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.oncoblocks.centromere.core.dataimport;
+
+import org.oncoblocks.centromere.core.model.Model;
+import org.oncoblocks.centromere.core.model.support.FileDigest;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.util.Assert;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Alternative to {@link AbstractRecordFileReader} for large, delimited text files.  Opens the input
+ *   file with a memory-mapped {@link DelimitedLineReader}, so subclasses can parse each line from 
+ *   reusable {@link DelimitedField} views, rather than splitting {@link String} lines.  Compressed 
+ *   files are streamed through a decompressing channel instead of being mapped.  Handles the file 
+ *   opening and closing in the {@code doBefore} and {@code doAfter} methods, respectively.  
+ *   Subclasses that read more than one line per record must only do so within {@code readRecord}, 
+ *   so that {@link #getPosition()} always falls between records.  If {@code headerLineCount} is 
+ *   set, that many lines are read from the start of each file as its header, before any records.
+ * 
+ * @author woemler
+ */
+public abstract class AbstractDelimitedRecordFileReader<T extends Model<?>> 
+		implements SeekableRecordReader<T>, FileDigestSupport, HeaderSupport {
+	
+	private DelimitedLineReader lineReader;
+	private char delimiter = '\t';
+	private int headerLineCount = 0;
+	private List<String> header;
+	private long headerLength = 0L;
+	private int decompressionThreads = Runtime.getRuntime().availableProcessors();
+	private boolean fileDigestEnabled = false;
+	private FileDigester digester;
+	private static final Logger logger = LoggerFactory.getLogger(AbstractDelimitedRecordFileReader.class);
+
+	public AbstractDelimitedRecordFileReader() { }
+
+	public AbstractDelimitedRecordFileReader(char delimiter) {
+		this.delimiter = delimiter;
+	}
+
+	/**
+	 * Closes any open readers and opens the new target file.  If a {@link FileChunk} is passed as 
+	 *   the second argument, only that byte range of the file will be read.
+	 *
+	 * @param args
+	 * @throws DataImportException
+	 */
+	@Override
+	public void doBefore(Object... args) throws DataImportException {
+		this.close();
+		digester = null;
+		try {
+			Assert.notEmpty(args, "One or more arguments is required.");
+			Assert.isTrue(args[0] instanceof String, "The first argument must be a String.");
+		} catch (IllegalArgumentException e){
+			e.printStackTrace();
+			throw new DataImportException(e.getMessage());
+		}
+		if (args.length > 1 && args[1] instanceof FileChunk){
+			this.open((String) args[0], (FileChunk) args[1]);
+		} else {
+			this.open((String) args[0]);
+		}
+	}
+
+	/**
+	 * Calls the close method on the reader.
+	 */
+	@Override
+	public void doAfter(Object... args) {
+		this.close();
+	}
+
+	/**
+	 * Opens the target file and creates a {@link DelimitedLineReader}, which can be referenced via 
+	 *   its getter method.  The file's header is parsed, leaving the reader at the first record.
+	 *
+	 * @param inputFilePath
+	 * @throws DataImportException
+	 */
+	public void open(String inputFilePath) throws DataImportException {
+		File file = this.getInputFile(inputFilePath);
+		try {
+			CompressionType compressionType = CompressionUtils.detectCompression(file);
+			if (fileDigestEnabled) digester = new FileDigester(file);
+			if (compressionType == CompressionType.NONE) {
+				lineReader = new DelimitedLineReader(file, delimiter);
+				lineReader.setDigester(digester);
+			} else {
+				InputStream in = new FileInputStream(file);
+				if (digester != null) in = digester.wrap(in);
+				lineReader = new DelimitedLineReader(Channels.newChannel(
+						CompressionUtils.openInputStream(in, compressionType, decompressionThreads)), delimiter);
+			}
+		} catch (IOException e){
+			e.printStackTrace();
+			throw new DataImportException(String.format("Cannot read dataimport file: %s", inputFilePath));
+		}
+		this.parseHeader();
+	}
+
+	/**
+	 * Opens a single chunk of the target file, so that the reader only returns records from within
+	 *   the chunk's byte range.  Compressed files cannot be read in chunks.  Unless a header has 
+	 *   already been set, it is read from the start of the file first, and any part of the chunk 
+	 *   that overlaps it is skipped.
+	 * 
+	 * @param inputFilePath
+	 * @param chunk byte range of the file to read.
+	 * @throws DataImportException
+	 */
+	public void open(String inputFilePath, FileChunk chunk) throws DataImportException {
+		File file = this.getInputFile(inputFilePath);
+		try {
+			if (CompressionUtils.detectCompression(file) != CompressionType.NONE){
+				throw new DataImportException(String.format("Compressed files cannot be read in chunks: %s", 
+						inputFilePath));
+			}
+			if (header == null && headerLineCount > 0) this.readHeader(inputFilePath);
+			lineReader = new DelimitedLineReader(file, delimiter, StandardCharsets.UTF_8, chunk.getStart(), 
+					chunk.getEnd());
+			if (chunk.getStart() < headerLength) {
+				lineReader.skip(Math.min(headerLength, chunk.getEnd()) - chunk.getStart());
+			}
+		} catch (IOException e){
+			e.printStackTrace();
+			throw new DataImportException(String.format("Cannot read dataimport file: %s", inputFilePath));
+		}
+	}
+
+	/**
+	 * Reads the first {@code headerLineCount} lines of the open file as its header.
+	 * 
+	 * @throws DataImportException
+	 */
+	private void parseHeader() throws DataImportException {
+		header = new ArrayList<>();
+		while (header.size() < headerLineCount && this.nextLine()){
+			header.add(lineReader.getLine().toString());
+		}
+		headerLength = lineReader.getPosition();
+	}
+
+	/**
+	 * {@link HeaderSupport#readHeader(String)}
+	 */
+	@Override 
+	public long readHeader(String inputFilePath) throws DataImportException {
+		this.close();
+		this.open(inputFilePath);
+		this.close();
+		lineReader = null;
+		digester = null;
+		return headerLength;
+	}
+
+	/**
+	 * Returns the input file, falling back to a classpath resource with the same name if the path 
+	 *   does not refer to a readable file.
+	 * 
+	 * @param inputFilePath
+	 * @return
+	 * @throws DataImportException if the file cannot be found.
+	 */
+	protected File getInputFile(String inputFilePath) throws DataImportException {
+		File file = new File(inputFilePath);
+		if (!file.canRead() || !file.isFile()){
+			try {
+				file = new File(ClassLoader.getSystemClassLoader().getResource(inputFilePath).getPath());
+			} catch (NullPointerException e){
+				throw new DataImportException(String.format("Cannot locate dataimport file: %s", inputFilePath));
+			}
+		}
+		return file;
+	}
+
+	/**
+	 * Closes the target file, if a reader exists.
+	 */
+	public void close(){
+		if (lineReader != null){
+			try {
+				lineReader.close();
+			} catch (IOException e){
+				logger.debug(e.getMessage());
+			}
+		}
+	}
+
+	/**
+	 * Advances the line reader to the next line.  Wraps any {@link IOException} thrown.
+	 * 
+	 * @return true if a line was read, false at the end of the file.
+	 * @throws DataImportException
+	 */
+	protected boolean nextLine() throws DataImportException {
+		try {
+			return lineReader.nextLine();
+		} catch (IOException e){
+			e.printStackTrace();
+			throw new DataImportException(String.format("Cannot read line %d of dataimport file.", 
+					lineReader.getLineNumber() + 1));
+		}
+	}
+
+	/**
+	 * {@link SeekableRecordReader#getPosition()}
+	 */
+	@Override 
+	public long getPosition() {
+		return lineReader != null ? lineReader.getPosition() : 0L;
+	}
+
+	/**
+	 * {@link SeekableRecordReader#seek(long)}
+	 */
+	@Override 
+	public void seek(long position) throws DataImportException {
+		if (lineReader == null) throw new DataImportException("No dataimport file is open.");
+		long current = lineReader.getPosition();
+		if (position < current){
+			throw new DataImportException(String.format("Cannot seek backwards from position %d to %d.", 
+					current, position));
+		}
+		try {
+			lineReader.skip(position - current);
+		} catch (IOException e){
+			e.printStackTrace();
+			throw new DataImportException(String.format("Cannot seek to position %d of dataimport file.", 
+					position));
+		}
+	}
+
+	/**
+	 * {@link FileDigestSupport#getFileDigest()}
+	 */
+	@Override 
+	public FileDigest getFileDigest() {
+		return digester != null ? digester.getDigest() : null;
+	}
+
+	@Override 
+	public boolean isFileDigestEnabled() {
+		return fileDigestEnabled;
+	}
+
+	@Override 
+	public void setFileDigestEnabled(boolean fileDigestEnabled) {
+		this.fileDigestEnabled = fileDigestEnabled;
+	}
+
+	protected DelimitedLineReader getLineReader() {
+		return lineReader;
+	}
+
+	@Override 
+	public List<String> getHeader() {
+		return header;
+	}
+
+	@Override 
+	public void setHeader(List<String> header) {
+		this.header = header;
+		this.headerLength = 0L;
+	}
+
+	public int getHeaderLineCount() {
+		return headerLineCount;
+	}
+
+	/**
+	 * Sets the number of lines at the start of each file that make up its header.
+	 */
+	public void setHeaderLineCount(int headerLineCount) {
+		Assert.isTrue(headerLineCount >= 0, "Header line count must not be negative.");
+		this.headerLineCount = headerLineCount;
+	}
+
+	public char getDelimiter() {
+		return delimiter;
+	}
+
+	public void setDelimiter(char delimiter) {
+		this.delimiter = delimiter;
+	}
+
+	public int getDecompressionThreads() {
+		return decompressionThreads;
+	}
+
+	/**
+	 * Sets the number of threads used to decompress BGZF input files.
+	 */
+	public void setDecompressionThreads(int decompressionThreads) {
+		this.decompressionThreads = decompressionThreads;
+	}
+	
+}
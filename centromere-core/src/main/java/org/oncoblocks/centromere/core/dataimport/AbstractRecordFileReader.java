@@ -16,29 +16,43 @@
 
 package org.oncoblocks.centromere.core.dataimport;
 
+import com.google.common.io.ByteStreams;
 import org.oncoblocks.centromere.core.model.Model;
+import org.oncoblocks.centromere.core.model.support.FileDigest;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.util.Assert;
 
-import java.io.BufferedReader;
-import java.io.File;
-import java.io.FileReader;
-import java.io.IOException;
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
 
 /**
  * Simple abstract implementation of {@link RecordReader}, for reading input files.  Handles the 
  *   file object opening and closing in the {@code doBefore} and {@code doAfter} methods, respectively.
+ *   Gzip, BGZF, and Zstandard-compressed files are detected and decompressed transparently.  If 
+ *   file digests are enabled, the raw file bytes are hashed as they are read.  If 
+ *   {@code headerLineCount} is set, that many lines are read from the start of each file as its 
+ *   header, before any records.
  * 
  * @author woemler
  */
-public abstract class AbstractRecordFileReader<T extends Model<?>> implements RecordReader<T> {
+public abstract class AbstractRecordFileReader<T extends Model<?>> 
+		implements RecordReader<T>, FileDigestSupport, HeaderSupport {
 	
 	private BufferedReader reader;
+	private int headerLineCount = 0;
+	private List<String> header;
+	private long headerLength = 0L;
+	private int decompressionThreads = Runtime.getRuntime().availableProcessors();
+	private boolean fileDigestEnabled = false;
+	private FileDigester digester;
 	private static final Logger logger = LoggerFactory.getLogger(AbstractRecordFileReader.class);
 
 	/**
-	 * Closes any open readers and opens the new target file.
+	 * Closes any open readers and opens the new target file.  If a {@link FileChunk} is passed as 
+	 *   the second argument, only that byte range of the file will be read.
 	 * 
 	 * @param args
 	 * @throws DataImportException
@@ -46,6 +60,7 @@ public abstract class AbstractRecordFileReader<T extends Model<?>> implements Re
 	@Override
 	public void doBefore(Object... args) throws DataImportException{
 		this.close();
+		digester = null;
 		try {
 			Assert.notEmpty(args, "One or more arguments is required.");
 			Assert.isTrue(args[0] instanceof String, "The first argument must be a String.");
@@ -53,7 +68,11 @@ public abstract class AbstractRecordFileReader<T extends Model<?>> implements Re
 			e.printStackTrace();
 			throw new DataImportException(e.getMessage());
 		}
-		this.open((String) args[0]);
+		if (args.length > 1 && args[1] instanceof FileChunk){
+			this.open((String) args[0], (FileChunk) args[1]);
+		} else {
+			this.open((String) args[0]);
+		}
 	}
 
 	/**
@@ -66,12 +85,104 @@ public abstract class AbstractRecordFileReader<T extends Model<?>> implements Re
 
 	/**
 	 * Opens the target file and creates a {@link BufferedReader}, which can be referenced via its
-	 *   getter method.
+	 *   getter method.  The file's header is parsed, leaving the reader at the first record.
 	 * 
 	 * @param inputFilePath
 	 * @throws DataImportException
 	 */
 	public void open(String inputFilePath) throws DataImportException{
+		File file = this.getInputFile(inputFilePath);
+		try {
+			InputStream in = new FileInputStream(file);
+			if (fileDigestEnabled) {
+				digester = new FileDigester(file);
+				in = digester.wrap(in);
+			}
+			reader = new BufferedReader(new InputStreamReader(CompressionUtils.openInputStream(in, 
+					CompressionUtils.detectCompression(file), decompressionThreads)));
+			header = new ArrayList<>();
+			String line = header.size() < headerLineCount ? reader.readLine() : null;
+			while (line != null){
+				header.add(line);
+				line = header.size() < headerLineCount ? reader.readLine() : null;
+			}
+		} catch (IOException e){
+			e.printStackTrace();
+			throw new DataImportException(String.format("Cannot read dataimport file: %s", inputFilePath));
+		}
+	}
+
+	/**
+	 * Opens a single chunk of the target file, so that the reader only returns records from within
+	 *   the chunk's byte range.  Compressed files cannot be read in chunks.  Unless a header has 
+	 *   already been set, it is read from the start of the file first, and any part of the chunk 
+	 *   that overlaps it is skipped.
+	 * 
+	 * @param inputFilePath
+	 * @param chunk byte range of the file to read.
+	 * @throws DataImportException
+	 */
+	public void open(String inputFilePath, FileChunk chunk) throws DataImportException{
+		File file = this.getInputFile(inputFilePath);
+		try {
+			if (CompressionUtils.detectCompression(file) != CompressionType.NONE){
+				throw new DataImportException(String.format("Compressed files cannot be read in chunks: %s", 
+						inputFilePath));
+			}
+			if (header == null && headerLineCount > 0) this.readHeader(inputFilePath);
+			long start = Math.max(chunk.getStart(), Math.min(headerLength, chunk.getEnd()));
+			FileInputStream inputStream = new FileInputStream(file);
+			inputStream.getChannel().position(start);
+			reader = new BufferedReader(new InputStreamReader(ByteStreams.limit(inputStream, chunk.getEnd() - start)));
+		} catch (IOException e){
+			e.printStackTrace();
+			throw new DataImportException(String.format("Cannot read dataimport file: %s", inputFilePath));
+		}
+	}
+
+	/**
+	 * {@link HeaderSupport#readHeader(String)}.  Compressed files are not supported.
+	 */
+	@Override 
+	public long readHeader(String inputFilePath) throws DataImportException {
+		File file = this.getInputFile(inputFilePath);
+		header = new ArrayList<>();
+		headerLength = 0L;
+		try (InputStream in = new BufferedInputStream(new FileInputStream(file))){
+			if (CompressionUtils.detectCompression(file) != CompressionType.NONE){
+				throw new DataImportException(String.format("Cannot read header of compressed file: %s", 
+						inputFilePath));
+			}
+			ByteArrayOutputStream line = new ByteArrayOutputStream();
+			int b = header.size() < headerLineCount ? in.read() : -1;
+			while (b >= 0){
+				headerLength++;
+				if (b == '\n') {
+					header.add(new String(line.toByteArray(), StandardCharsets.UTF_8).replaceAll("\r$", ""));
+					line.reset();
+					b = header.size() < headerLineCount ? in.read() : -1;
+				} else {
+					line.write(b);
+					b = in.read();
+				}
+			}
+			if (line.size() > 0) header.add(new String(line.toByteArray(), StandardCharsets.UTF_8));
+		} catch (IOException e){
+			e.printStackTrace();
+			throw new DataImportException(String.format("Cannot read dataimport file: %s", inputFilePath));
+		}
+		return headerLength;
+	}
+
+	/**
+	 * Returns the input file, falling back to a classpath resource with the same name if the path 
+	 *   does not refer to a readable file.
+	 * 
+	 * @param inputFilePath
+	 * @return
+	 * @throws DataImportException if the file cannot be found.
+	 */
+	protected File getInputFile(String inputFilePath) throws DataImportException {
 		File file = new File(inputFilePath);
 		if (!file.canRead() || !file.isFile()){
 			try {
@@ -80,12 +191,7 @@ public abstract class AbstractRecordFileReader<T extends Model<?>> implements Re
 				throw new DataImportException(String.format("Cannot locate dataimport file: %s", inputFilePath));
 			}
 		}
-		try {
-			reader = new BufferedReader(new FileReader(file));
-		} catch (IOException e){
-			e.printStackTrace();
-			throw new DataImportException(String.format("Cannot read dataimport file: %s", inputFilePath));
-		}
+		return file;
 	}
 
 	/**
@@ -101,8 +207,60 @@ public abstract class AbstractRecordFileReader<T extends Model<?>> implements Re
 		}
 	}
 
+	/**
+	 * {@link FileDigestSupport#getFileDigest()}
+	 */
+	@Override 
+	public FileDigest getFileDigest() {
+		return digester != null ? digester.getDigest() : null;
+	}
+
+	@Override 
+	public boolean isFileDigestEnabled() {
+		return fileDigestEnabled;
+	}
+
+	@Override 
+	public void setFileDigestEnabled(boolean fileDigestEnabled) {
+		this.fileDigestEnabled = fileDigestEnabled;
+	}
+
 	protected BufferedReader getReader() {
 		return reader;
 	}
+
+	@Override 
+	public List<String> getHeader() {
+		return header;
+	}
+
+	@Override 
+	public void setHeader(List<String> header) {
+		this.header = header;
+		this.headerLength = 0L;
+	}
+
+	public int getHeaderLineCount() {
+		return headerLineCount;
+	}
+
+	/**
+	 * Sets the number of lines at the start of each file that make up its header.
+	 */
+	public void setHeaderLineCount(int headerLineCount) {
+		Assert.isTrue(headerLineCount >= 0, "Header line count must not be negative.");
+		this.headerLineCount = headerLineCount;
+	}
+
+	public int getDecompressionThreads() {
+		return decompressionThreads;
+	}
+
+	/**
+	 * Sets the number of threads used to decompress BGZF input files.
+	 */
+	public void setDecompressionThreads(int decompressionThreads) {
+		this.decompressionThreads = decompressionThreads;
+	}
 	
 }
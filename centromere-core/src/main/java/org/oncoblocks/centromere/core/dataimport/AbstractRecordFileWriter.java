@@ -21,18 +21,23 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.util.Assert;
 
-import java.io.FileWriter;
-import java.io.IOException;
+import java.io.*;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
 
 /**
  * Basic abstract implementation of {@link RecordWriter}, for writing records to temp files.  Handles the 
  *   file object opening and closing in the {@code doBefore} and {@code doAfter} methods, respectively.
+ *   Records can also be written to an arbitrary stream, such as the input of a 
+ *   {@link StreamingRecordImporter}, by calling {@link #open(OutputStream)} instead.  Both files and
+ *   streams are written using the same charset, which is UTF-8 unless set otherwise.
  * 
  * @author woemler
  */
 public abstract class AbstractRecordFileWriter<T extends Model<?>> implements RecordWriter<T> {
 	
-	private FileWriter writer;
+	private Writer writer;
+	private Charset charset = StandardCharsets.UTF_8;
 	private static final Logger logger = LoggerFactory.getLogger(AbstractRecordFileWriter.class);
 
 	/**
@@ -54,18 +59,20 @@ public abstract class AbstractRecordFileWriter<T extends Model<?>> implements Re
 	}
 
 	/**
-	 * Closes the open file writer.
+	 * Flushes and closes the open file writer.
 	 * 
 	 * @param args
- 	 * @throws DataImportException
+ 	 * @throws DataImportException if the outstanding records cannot be written.
 	 */
 	@Override
 	public void doAfter(Object... args) throws DataImportException {
-		this.close();
+		this.flushAndClose();
 	}
 
 	/**
-	 * Creates or overwrites an output file, creates a {@link FileWriter} for writing records to the file.
+	 * Creates or overwrites an output file, creates a {@link Writer} for writing records to the file.
+	 *   A {@link FileWriter} is used if the charset is the platform default, for compatibility with 
+	 *   {@link #getWriter()}.
 	 * 
 	 * @param outputFilePath
 	 * @throws DataImportException
@@ -73,26 +80,95 @@ public abstract class AbstractRecordFileWriter<T extends Model<?>> implements Re
 	public void open(String outputFilePath) throws DataImportException{
 		this.close();
 		try {
-			writer = new FileWriter(outputFilePath);
+			if (charset.equals(Charset.defaultCharset())){
+				writer = new FileWriter(outputFilePath);
+			} else {
+				writer = new OutputStreamWriter(new FileOutputStream(outputFilePath), charset);
+			}
 		} catch (IOException e){
 			e.printStackTrace();
 			throw new DataImportException(String.format("Cannot open output file: %s", outputFilePath));
 		}
 	}
 
+	/**
+	 * Opens a {@link Writer} over the given stream, so that records are written directly to it, 
+	 *   rather than to a file.  The stream will be closed by {@link #close()}.
+	 * 
+	 * @param outputStream stream to write records to.
+	 */
+	public void open(OutputStream outputStream){
+		this.close();
+		writer = new BufferedWriter(new OutputStreamWriter(outputStream, charset), 64 * 1024);
+	}
+
 	/**
 	 * Flushes outstanding records to the output file and then closes the file and its writer object.
+	 *   Failures are logged and ignored, so this is only suitable for discarding output; use 
+	 *   {@link #flushAndClose()} when the records must be written.
 	 */
 	public void close(){
 		try {
-			writer.flush();
-			writer.close();
-		} catch (Exception e){
+			this.flushAndClose();
+		} catch (DataImportException e){
 			logger.debug(e.getMessage());
 		}
 	}
 
-	protected FileWriter getWriter() {
+	/**
+	 * Flushes outstanding records and closes the writer, rethrowing any failure, such as a load error
+	 *   raised by the stream of a {@link StreamingRecordImporter}.  Has no effect if no writer is open.
+	 * 
+	 * @throws DataImportException
+	 */
+	public void flushAndClose() throws DataImportException {
+		if (writer == null) return;
+		Writer open = writer;
+		writer = null;
+		try {
+			try {
+				open.flush();
+			} finally {
+				open.close();
+			}
+		} catch (IOException e){
+			if (e.getCause() instanceof DataImportException) throw (DataImportException) e.getCause();
+			e.printStackTrace();
+			throw new DataImportException(String.format("Unable to write records: %s", e.getMessage()));
+		}
+	}
+
+	/**
+	 * Returns the writer for the open file or stream.
+	 */
+	protected Writer getOutputWriter() {
 		return writer;
 	}
+
+	/**
+	 * Returns the writer for the open output file.
+	 * 
+	 * @deprecated the writer is only a {@link FileWriter} when writing a file in the platform default
+	 *   charset; use {@link #getOutputWriter()}.
+	 * @throws IllegalStateException if the open writer is not a {@link FileWriter}.
+	 */
+	@Deprecated
+	protected FileWriter getWriter() {
+		if (writer != null && !(writer instanceof FileWriter)){
+			throw new IllegalStateException("Output is not being written with a FileWriter, use getOutputWriter().");
+		}
+		return (FileWriter) writer;
+	}
+
+	public Charset getCharset() {
+		return charset;
+	}
+
+	/**
+	 * Sets the charset used to write both files and streams.  Defaults to UTF-8.
+	 */
+	public void setCharset(Charset charset) {
+		Assert.notNull(charset, "Charset must not be null.");
+		this.charset = charset;
+	}
 }
@@ -34,6 +34,16 @@ public class BasicImportOptions implements ImportOptions {
 	private boolean skipInvalidRecords = false;
 	private boolean skipExistingFiles = false;
 	private String tempDirectoryPath = "/tmp";
+	private int pipelineThreads = 0;
+	private int pipelineQueueSize = 1000;
+	private int pipelineBatchSize = 100;
+	private boolean preserveRecordOrder = true;
+	private boolean streamingImport = false;
+	private int importChunks = 1;
+	private boolean resumeImport = false;
+	private long checkpointInterval = 0L;
+	private boolean deltaImport = false;
+	private long progressInterval = 60L;
 	
 	public BasicImportOptions(){ }
 
@@ -68,6 +78,36 @@ public class BasicImportOptions implements ImportOptions {
 		if (options.containsKey(ImportOptions.TEMP_DIRECTORY_PATH)){
 			this.tempDirectoryPath = options.get(ImportOptions.TEMP_DIRECTORY_PATH);
 		}
+		if (options.containsKey(ImportOptions.PIPELINE_THREADS)){
+			this.pipelineThreads = Integer.parseInt(options.get(ImportOptions.PIPELINE_THREADS));
+		}
+		if (options.containsKey(ImportOptions.PIPELINE_QUEUE_SIZE)){
+			this.pipelineQueueSize = Integer.parseInt(options.get(ImportOptions.PIPELINE_QUEUE_SIZE));
+		}
+		if (options.containsKey(ImportOptions.PIPELINE_BATCH_SIZE)){
+			this.pipelineBatchSize = Integer.parseInt(options.get(ImportOptions.PIPELINE_BATCH_SIZE));
+		}
+		if (options.containsKey(ImportOptions.PRESERVE_RECORD_ORDER)){
+			this.preserveRecordOrder = Boolean.parseBoolean(options.get(ImportOptions.PRESERVE_RECORD_ORDER));
+		}
+		if (options.containsKey(ImportOptions.STREAMING_IMPORT)){
+			this.streamingImport = Boolean.parseBoolean(options.get(ImportOptions.STREAMING_IMPORT));
+		}
+		if (options.containsKey(ImportOptions.IMPORT_CHUNKS)){
+			this.importChunks = Integer.parseInt(options.get(ImportOptions.IMPORT_CHUNKS));
+		}
+		if (options.containsKey(ImportOptions.RESUME_IMPORT)){
+			this.resumeImport = Boolean.parseBoolean(options.get(ImportOptions.RESUME_IMPORT));
+		}
+		if (options.containsKey(ImportOptions.CHECKPOINT_INTERVAL)){
+			this.checkpointInterval = Long.parseLong(options.get(ImportOptions.CHECKPOINT_INTERVAL));
+		}
+		if (options.containsKey(ImportOptions.DELTA_IMPORT)){
+			this.deltaImport = Boolean.parseBoolean(options.get(ImportOptions.DELTA_IMPORT));
+		}
+		if (options.containsKey(ImportOptions.PROGRESS_INTERVAL)){
+			this.progressInterval = Long.parseLong(options.get(ImportOptions.PROGRESS_INTERVAL));
+		}
 	}
 	
 	public Map<String,String> getOptions(){
@@ -160,6 +200,100 @@ public class BasicImportOptions implements ImportOptions {
 		return tempDirectoryPath;
 	}
 
+	public int getPipelineThreads() {
+		return pipelineThreads;
+	}
+
+	public void setPipelineThreads(int pipelineThreads) {
+		this.pipelineThreads = pipelineThreads;
+		this.options.put(ImportOptions.PIPELINE_THREADS, Integer.toString(pipelineThreads));
+	}
+
+	public int getPipelineQueueSize() {
+		return pipelineQueueSize;
+	}
+
+	public void setPipelineQueueSize(int pipelineQueueSize) {
+		this.pipelineQueueSize = pipelineQueueSize;
+		this.options.put(ImportOptions.PIPELINE_QUEUE_SIZE, Integer.toString(pipelineQueueSize));
+	}
+
+	public int getPipelineBatchSize() {
+		return pipelineBatchSize;
+	}
+
+	public void setPipelineBatchSize(int pipelineBatchSize) {
+		this.pipelineBatchSize = pipelineBatchSize;
+		this.options.put(ImportOptions.PIPELINE_BATCH_SIZE, Integer.toString(pipelineBatchSize));
+	}
+
+	public boolean isPreserveRecordOrder() {
+		return preserveRecordOrder;
+	}
+
+	public void setPreserveRecordOrder(boolean preserveRecordOrder) {
+		this.preserveRecordOrder = preserveRecordOrder;
+		this.options.put(ImportOptions.PRESERVE_RECORD_ORDER, Boolean.toString(preserveRecordOrder));
+	}
+
+	public boolean isStreamingImport() {
+		return streamingImport;
+	}
+
+	public void setStreamingImport(boolean streamingImport) {
+		this.streamingImport = streamingImport;
+		this.options.put(ImportOptions.STREAMING_IMPORT, Boolean.toString(streamingImport));
+	}
+
+	public int getImportChunks() {
+		return importChunks;
+	}
+
+	public void setImportChunks(int importChunks) {
+		this.importChunks = importChunks;
+		this.options.put(ImportOptions.IMPORT_CHUNKS, Integer.toString(importChunks));
+	}
+
+	public boolean isResumeImport() {
+		return resumeImport;
+	}
+
+	public void setResumeImport(boolean resumeImport) {
+		this.resumeImport = resumeImport;
+		this.options.put(ImportOptions.RESUME_IMPORT, Boolean.toString(resumeImport));
+	}
+
+	public long getCheckpointInterval() {
+		return checkpointInterval;
+	}
+
+	public void setCheckpointInterval(long checkpointInterval) {
+		this.checkpointInterval = checkpointInterval;
+		this.options.put(ImportOptions.CHECKPOINT_INTERVAL, Long.toString(checkpointInterval));
+	}
+
+	public boolean isDeltaImport() {
+		return deltaImport;
+	}
+
+	public void setDeltaImport(boolean deltaImport) {
+		this.deltaImport = deltaImport;
+		this.options.put(ImportOptions.DELTA_IMPORT, Boolean.toString(deltaImport));
+	}
+
+	public long getProgressInterval() {
+		return progressInterval;
+	}
+
+	/**
+	 * Sets the number of seconds between import progress log messages.  Set to 0 to disable progress
+	 *   logging.
+	 */
+	public void setProgressInterval(long progressInterval) {
+		this.progressInterval = progressInterval;
+		this.options.put(ImportOptions.PROGRESS_INTERVAL, Long.toString(progressInterval));
+	}
+
 	@Override 
 	public String toString() {
 		return "BasicImportOptions{" +
@@ -171,6 +305,16 @@ public class BasicImportOptions implements ImportOptions {
 				", skipInvalidRecords=" + skipInvalidRecords +
 				", skipExistingFiles=" + skipExistingFiles +
 				", tempDirectoryPath='" + tempDirectoryPath + '\'' +
+				", pipelineThreads=" + pipelineThreads +
+				", pipelineQueueSize=" + pipelineQueueSize +
+				", pipelineBatchSize=" + pipelineBatchSize +
+				", preserveRecordOrder=" + preserveRecordOrder +
+				", streamingImport=" + streamingImport +
+				", importChunks=" + importChunks +
+				", resumeImport=" + resumeImport +
+				", checkpointInterval=" + checkpointInterval +
+				", deltaImport=" + deltaImport +
+				", progressInterval=" + progressInterval +
 				'}';
 	}
 }
@@ -0,0 +1,58 @@
+/*
+ * Copyright 2016 William Oemler, Blueprint Medicines
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.oncoblocks.centromere.core.dataimport;
+
+import org.oncoblocks.centromere.core.model.Model;
+import org.oncoblocks.centromere.core.repository.RepositoryOperations;
+
+import java.io.Serializable;
+import java.util.List;
+
+/**
+ * {@link AbstractBatchingRepositoryRecordWriter} implementation that updates existing records in 
+ *   bulk, using {@link RepositoryOperations#update(Iterable)}.
+ * 
+ * @author woemler
+ */
+public class BatchingRepositoryRecordUpdater<T extends Model<ID>, ID extends Serializable>
+		extends AbstractBatchingRepositoryRecordWriter<T> {
+
+	public BatchingRepositoryRecordUpdater(RepositoryOperations<T, ID> repository) {
+		super(repository);
+	}
+
+	public BatchingRepositoryRecordUpdater(RepositoryOperations<T, ID> repository, int batchSize) {
+		super(repository, batchSize);
+	}
+
+	@Override 
+	protected void flushBatch(List<T> records) {
+		this.getRepository().update(records);
+	}
+
+	@Override 
+	protected String getOperationName() {
+		return "Updated";
+	}
+
+	@Override
+	@SuppressWarnings("unchecked")
+	public RepositoryOperations<T, ID> getRepository() {
+		return (RepositoryOperations<T, ID>) super.getRepository();
+	}
+	
+}
@@ -0,0 +1,51 @@
+/*
+ * Copyright 2016 William Oemler, Blueprint Medicines
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.oncoblocks.centromere.core.dataimport;
+
+import org.oncoblocks.centromere.core.model.Model;
+import org.oncoblocks.centromere.core.repository.RepositoryOperations;
+
+import java.util.List;
+
+/**
+ * {@link AbstractBatchingRepositoryRecordWriter} implementation that inserts records in bulk, 
+ *   using {@link RepositoryOperations#insert(Iterable)}.
+ * 
+ * @author woemler
+ */
+public class BatchingRepositoryRecordWriter<T extends Model<?>> 
+		extends AbstractBatchingRepositoryRecordWriter<T> {
+
+	public BatchingRepositoryRecordWriter(RepositoryOperations<T, ?> repository) {
+		super(repository);
+	}
+
+	public BatchingRepositoryRecordWriter(RepositoryOperations<T, ?> repository, int batchSize) {
+		super(repository, batchSize);
+	}
+
+	@Override 
+	protected void flushBatch(List<T> records) {
+		this.getRepository().insert(records);
+	}
+
+	@Override 
+	protected String getOperationName() {
+		return "Inserted";
+	}
+	
+}
@@ -0,0 +1,254 @@
+/*
+ * Copyright 2016 William Oemler, Blueprint Medicines
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.oncoblocks.centromere.core.dataimport;
+
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.*;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * {@link InputStream} that decompresses block-gzip (BGZF) data, as produced by {@code bgzip}, using
+ *   a pool of worker threads.  Compressed blocks are read sequentially from the underlying stream,
+ *   inflated concurrently, and returned in their original order.  The number of blocks being 
+ *   inflated at any time is limited, so memory use stays bounded regardless of the input size.
+ *   By default, each stream creates its own pool of daemon threads, which is shut down when the 
+ *   stream is closed.  When many streams are open at once, a shared {@link ExecutorService} can be
+ *   given instead, which is left running when the stream is closed.
+ * 
+ * @author woemler
+ */
+public class BgzfInputStream extends InputStream {
+	
+	private static final int HEADER_LENGTH = 18;
+	private static final int TRAILER_LENGTH = 8;
+	
+	private final InputStream in;
+	private final ExecutorService executor;
+	private final boolean sharedExecutor;
+	private final int maxPendingBlocks;
+	private final Queue<Future<byte[]>> pending = new ArrayDeque<>();
+	private byte[] current = new byte[0];
+	private int position = 0;
+	private boolean endOfInput = false;
+	private boolean closed = false;
+
+	/**
+	 * Creates a stream with its own pool of worker threads.
+	 * 
+	 * @param in compressed input stream.
+	 * @param threads number of worker threads to inflate blocks with.
+	 */
+	public BgzfInputStream(InputStream in, int threads) {
+		this.in = in;
+		CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("centromere-bgzf-");
+		threadFactory.setDaemon(true);
+		this.executor = Executors.newFixedThreadPool(threads, threadFactory);
+		this.sharedExecutor = false;
+		this.maxPendingBlocks = threads * 4;
+	}
+
+	/**
+	 * Creates a stream that inflates blocks using a shared executor, which is not shut down when the
+	 *   stream is closed.
+	 * 
+	 * @param in compressed input stream.
+	 * @param executor executor to inflate blocks with.
+	 * @param threads number of blocks to inflate concurrently, normally the executor's thread count.
+	 */
+	public BgzfInputStream(InputStream in, ExecutorService executor, int threads) {
+		this.in = in;
+		this.executor = executor;
+		this.sharedExecutor = true;
+		this.maxPendingBlocks = threads * 4;
+	}
+
+	@Override 
+	public int read() throws IOException {
+		if (!this.ensureAvailable()) return -1;
+		return current[position++] & 0xff;
+	}
+
+	@Override 
+	public int read(byte[] b, int off, int len) throws IOException {
+		if (len == 0) return 0;
+		if (!this.ensureAvailable()) return -1;
+		int count = Math.min(len, current.length - position);
+		System.arraycopy(current, position, b, off, count);
+		position += count;
+		return count;
+	}
+
+	@Override 
+	public int available() throws IOException {
+		return current.length - position;
+	}
+
+	/**
+	 * Makes sure there is decompressed data left in the current block, waiting on the next pending
+	 *   block if necessary.
+	 * 
+	 * @return false if all blocks have been read.
+	 * @throws IOException
+	 */
+	private boolean ensureAvailable() throws IOException {
+		if (closed) throw new IOException("Stream closed");
+		while (position >= current.length) {
+			this.submitBlocks();
+			Future<byte[]> next = pending.poll();
+			if (next == null) return false;
+			try {
+				current = next.get();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new IOException("Interrupted while decompressing BGZF block.");
+			} catch (ExecutionException e) {
+				if (e.getCause() instanceof IOException) throw (IOException) e.getCause();
+				throw new IOException("Failed to decompress BGZF block.", e.getCause());
+			}
+			position = 0;
+		}
+		return true;
+	}
+
+	/**
+	 * Reads compressed blocks and submits them for decompression, until the pending block limit is
+	 *   reached or the input is exhausted.
+	 * 
+	 * @throws IOException
+	 */
+	private void submitBlocks() throws IOException {
+		while (!endOfInput && pending.size() < maxPendingBlocks) {
+			final byte[] block = this.readBlock();
+			if (block == null) {
+				endOfInput = true;
+			} else {
+				pending.add(executor.submit(new Callable<byte[]>() {
+					@Override 
+					public byte[] call() throws Exception {
+						return inflate(block);
+					}
+				}));
+			}
+		}
+	}
+
+	/**
+	 * Reads one complete BGZF block from the input.
+	 * 
+	 * @return the raw block, or null at the end of the input.
+	 * @throws IOException if the input is truncated or is not BGZF.
+	 */
+	private byte[] readBlock() throws IOException {
+		byte[] header = new byte[HEADER_LENGTH];
+		int read = readFully(header, 0, HEADER_LENGTH);
+		if (read == 0) return null;
+		if (read < HEADER_LENGTH) throw new EOFException("Truncated BGZF block header.");
+		int blockSize = getBlockSize(header);
+		if (blockSize < 0) throw new IOException("Input is not in BGZF format.");
+		byte[] block = new byte[blockSize];
+		System.arraycopy(header, 0, block, 0, HEADER_LENGTH);
+		if (readFully(block, HEADER_LENGTH, blockSize - HEADER_LENGTH) < blockSize - HEADER_LENGTH) {
+			throw new EOFException("Truncated BGZF block.");
+		}
+		return block;
+	}
+
+	private int readFully(byte[] b, int off, int len) throws IOException {
+		int total = 0;
+		while (total < len) {
+			int count = in.read(b, off + total, len - total);
+			if (count < 0) break;
+			total += count;
+		}
+		return total;
+	}
+
+	/**
+	 * Inflates a single block and verifies its checksum and length.
+	 */
+	private static byte[] inflate(byte[] block) throws IOException {
+		int dataOffset = 12 + readUnsignedShort(block, 10);
+		int dataLength = block.length - dataOffset - TRAILER_LENGTH;
+		int expectedCrc = readInt(block, block.length - TRAILER_LENGTH);
+		int size = readInt(block, block.length - 4);
+		byte[] output = new byte[size];
+		Inflater inflater = new Inflater(true);
+		try {
+			inflater.setInput(block, dataOffset, dataLength);
+			int count = 0;
+			while (count < size) {
+				int n = inflater.inflate(output, count, size - count);
+				if (n == 0 && (inflater.finished() || inflater.needsInput())) break;
+				count += n;
+			}
+			if (count != size) throw new IOException("BGZF block length does not match its header.");
+		} catch (DataFormatException e) {
+			throw new IOException("Invalid BGZF block: " + e.getMessage());
+		} finally {
+			inflater.end();
+		}
+		CRC32 crc = new CRC32();
+		crc.update(output, 0, size);
+		if ((int) crc.getValue() != expectedCrc) throw new IOException("BGZF block checksum mismatch.");
+		return output;
+	}
+
+	/**
+	 * Returns the total size of the block described by the header, or -1 if the header does not 
+	 *   describe a BGZF block.
+	 * 
+	 * @param header at least the first 18 bytes of a block.
+	 * @return block size in bytes, or -1.
+	 */
+	static int getBlockSize(byte[] header){
+		if ((header[0] & 0xff) != 0x1f || (header[1] & 0xff) != 0x8b || header[2] != 8 
+				|| (header[3] & 4) == 0 || readUnsignedShort(header, 10) != 6 
+				|| header[12] != 'B' || header[13] != 'C' || readUnsignedShort(header, 14) != 2) {
+			return -1;
+		}
+		return readUnsignedShort(header, 16) + 1;
+	}
+
+	private static int readUnsignedShort(byte[] b, int offset){
+		return (b[offset] & 0xff) | ((b[offset + 1] & 0xff) << 8);
+	}
+
+	private static int readInt(byte[] b, int offset){
+		return readUnsignedShort(b, offset) | (readUnsignedShort(b, offset + 2) << 16);
+	}
+
+	@Override 
+	public void close() throws IOException {
+		if (closed) return;
+		closed = true;
+		for (Future<byte[]> future: pending) {
+			future.cancel(true);
+		}
+		pending.clear();
+		if (!sharedExecutor) executor.shutdownNow();
+		in.close();
+	}
+	
+}
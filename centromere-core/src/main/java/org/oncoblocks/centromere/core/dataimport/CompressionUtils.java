@@ -0,0 +1,161 @@
+/*
+ * Copyright 2016 William Oemler, Blueprint Medicines
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.oncoblocks.centromere.core.dataimport;
+
+import org.springframework.util.ClassUtils;
+
+import java.io.*;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationTargetException;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Utility methods for detecting the compression format of input files from their leading magic 
+ *   bytes, and for opening decompressing streams over them.  Zstandard input is supported when the
+ *   {@code com.github.luben:zstd-jni} library is on the classpath.
+ * 
+ * @author woemler
+ */
+public class CompressionUtils {
+	
+	private static final String ZSTD_STREAM_CLASS = "com.github.luben.zstd.ZstdInputStream";
+	private static final int BUFFER_SIZE = 64 * 1024;
+
+	/**
+	 * Inspects the first bytes of the file and returns its compression format.
+	 * 
+	 * @param file file to inspect.
+	 * @return detected {@link CompressionType}.
+	 * @throws IOException
+	 */
+	public static CompressionType detectCompression(File file) throws IOException {
+		byte[] header = new byte[18];
+		int read = 0;
+		try (InputStream in = new FileInputStream(file)){
+			while (read < header.length) {
+				int count = in.read(header, read, header.length - read);
+				if (count < 0) break;
+				read += count;
+			}
+		}
+		return detectCompression(header, read);
+	}
+
+	/**
+	 * Returns the compression format indicated by the leading bytes of a file.
+	 * 
+	 * @param header leading bytes of the file.
+	 * @param length number of valid bytes in the header array.
+	 * @return detected {@link CompressionType}.
+	 */
+	public static CompressionType detectCompression(byte[] header, int length){
+		if (length >= 2 && (header[0] & 0xff) == 0x1f && (header[1] & 0xff) == 0x8b) {
+			if (length >= 18 && BgzfInputStream.getBlockSize(header) > 0) {
+				return CompressionType.BGZF;
+			}
+			return CompressionType.GZIP;
+		}
+		if (length >= 4 && (header[0] & 0xff) == 0x28 && (header[1] & 0xff) == 0xb5 
+				&& (header[2] & 0xff) == 0x2f && (header[3] & 0xff) == 0xfd) {
+			return CompressionType.ZSTD;
+		}
+		return CompressionType.NONE;
+	}
+
+	/**
+	 * Opens a stream of the file's decompressed contents, detecting the compression format 
+	 *   automatically.  BGZF files are decompressed using the given number of worker threads.
+	 * 
+	 * @param file file to open.
+	 * @param threads number of threads to use for BGZF decompression.
+	 * @return decompressed input stream.
+	 * @throws IOException if the file cannot be read, or uses an unsupported format.
+	 */
+	public static InputStream openInputStream(File file, int threads) throws IOException {
+		return openInputStream(file, detectCompression(file), threads);
+	}
+
+	public static InputStream openInputStream(File file) throws IOException {
+		return openInputStream(file, Runtime.getRuntime().availableProcessors());
+	}
+
+	/**
+	 * Opens a stream of the file's decompressed contents, using the given compression format.
+	 * 
+	 * @param file file to open.
+	 * @param compressionType compression format of the file.
+	 * @param threads number of threads to use for BGZF decompression.
+	 * @return decompressed input stream.
+	 * @throws IOException if the file cannot be read, or uses an unsupported format.
+	 */
+	public static InputStream openInputStream(File file, CompressionType compressionType, int threads) 
+			throws IOException {
+		return openInputStream(new FileInputStream(file), compressionType, threads);
+	}
+
+	/**
+	 * Wraps a stream of raw file contents in a decompressing stream, using the given compression 
+	 *   format.  The raw stream is closed if the decompressing stream cannot be created.  Each BGZF 
+	 *   stream opened with more than one thread has its own thread pool, which is shut down when the
+	 *   stream is closed; use {@link BgzfInputStream} directly to share an executor between streams.
+	 * 
+	 * @param in raw input stream.
+	 * @param compressionType compression format of the stream.
+	 * @param threads number of threads to use for BGZF decompression.
+	 * @return decompressed input stream.
+	 * @throws IOException if the stream cannot be read, or uses an unsupported format.
+	 */
+	public static InputStream openInputStream(InputStream in, CompressionType compressionType, int threads) 
+			throws IOException {
+		try {
+			switch (compressionType) {
+				case GZIP:
+					return new GZIPInputStream(in, BUFFER_SIZE);
+				case BGZF:
+					if (threads > 1) {
+						return new BgzfInputStream(new BufferedInputStream(in, BUFFER_SIZE), threads);
+					}
+					return new GZIPInputStream(in, BUFFER_SIZE);
+				case ZSTD:
+					return createZstdInputStream(new BufferedInputStream(in, BUFFER_SIZE));
+				default:
+					return in;
+			}
+		} catch (IOException | RuntimeException e){
+			in.close();
+			throw e;
+		}
+	}
+
+	private static InputStream createZstdInputStream(InputStream in) throws IOException {
+		ClassLoader classLoader = CompressionUtils.class.getClassLoader();
+		if (!ClassUtils.isPresent(ZSTD_STREAM_CLASS, classLoader)) {
+			throw new IOException("Zstandard-compressed input requires the zstd-jni library on the classpath.");
+		}
+		try {
+			Constructor<?> constructor = ClassUtils.forName(ZSTD_STREAM_CLASS, classLoader)
+					.getConstructor(InputStream.class);
+			return (InputStream) constructor.newInstance(in);
+		} catch (InvocationTargetException e){
+			if (e.getCause() instanceof IOException) throw (IOException) e.getCause();
+			throw new IOException("Cannot open Zstandard stream.", e.getCause());
+		} catch (ReflectiveOperationException e){
+			throw new IOException("Cannot open Zstandard stream.", e);
+		}
+	}
+	
+}
@@ -0,0 +1,133 @@
+/*
+ * Copyright 2016 William Oemler, Blueprint Medicines
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.oncoblocks.centromere.core.dataimport;
+
+import org.oncoblocks.centromere.core.model.support.DigestedDataFileMetadata;
+import org.oncoblocks.centromere.core.model.support.FileDigest;
+import org.oncoblocks.centromere.core.repository.support.DataFileMetadataRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.util.Assert;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Serializable;
+
+/**
+ * Compares data files against the {@link FileDigest} stored on their 
+ *   {@link DigestedDataFileMetadata} record by the last import, so that unchanged files can be 
+ *   skipped.  Files whose size and modification time match are assumed to be unchanged.  Files of
+ *   the same size with a different modification time are hashed, and are unchanged if the hash 
+ *   matches.
+ * 
+ * @author woemler
+ */
+public class DataFileDigestChecker<T extends DigestedDataFileMetadata<ID>, ID extends Serializable> {
+	
+	private final DataFileMetadataRepository<T, ID> repository;
+	private static final Logger logger = LoggerFactory.getLogger(DataFileDigestChecker.class);
+
+	public DataFileDigestChecker(DataFileMetadataRepository<T, ID> repository) {
+		Assert.notNull(repository, "DataFileMetadataRepository must not be null.");
+		this.repository = repository;
+	}
+
+	/**
+	 * Tests whether the file is identical to the one last imported with the same path.
+	 * 
+	 * @param filePath input file path.
+	 * @return true if the file has a stored digest and has not changed.
+	 * @throws DataImportException if the file cannot be read.
+	 */
+	public boolean isUnchanged(String filePath) throws DataImportException {
+		T metadata = this.getMetadata(filePath);
+		if (metadata == null || metadata.getFileDigest() == null) return false;
+		FileDigest stored = metadata.getFileDigest();
+		File file = new File(filePath);
+		if (!file.isFile() || file.length() != stored.getSize()) return false;
+		if (stored.matches(file.length(), file.lastModified())) return true;
+		if (!FileDigester.ALGORITHM.equals(stored.getAlgorithm())) return false;
+		FileDigest current = this.computeDigest(file);
+		if (current == null || !current.getHash().equals(stored.getHash())) return false;
+		metadata.setFileDigest(current);
+		repository.update(metadata);
+		return true;
+	}
+
+	/**
+	 * Saves the digest on the file's metadata record, computing it from the file if none is given.  
+	 *   Does nothing if no metadata record exists for the file.
+	 * 
+	 * @param filePath input file path.
+	 * @param digest digest computed during the import, or null.
+	 * @throws DataImportException if the file cannot be read.
+	 */
+	public void saveDigest(String filePath, FileDigest digest) throws DataImportException {
+		T metadata = this.getMetadata(filePath);
+		if (metadata == null){
+			logger.warn(String.format("[CENTROMERE] No data file metadata record exists for file, "
+					+ "digest will not be saved: %s", filePath));
+			return;
+		}
+		if (digest == null) {
+			digest = this.computeDigest(new File(filePath));
+		}
+		metadata.setFileDigest(digest);
+		repository.update(metadata);
+	}
+
+	/**
+	 * Reads the entire file and computes its digest.
+	 * 
+	 * @param file
+	 * @return
+	 * @throws DataImportException
+	 */
+	protected FileDigest computeDigest(File file) throws DataImportException {
+		try {
+			return FileDigester.digest(file);
+		} catch (IOException e){
+			e.printStackTrace();
+			throw new DataImportException(String.format("Cannot compute digest of file: %s", file.getPath()));
+		}
+	}
+
+	/**
+	 * Returns the metadata record with a matching file path, or null if none exists.
+	 * 
+	 * @param filePath
+	 * @return
+	 * @throws DataImportException if more than one record matches, since the file could otherwise 
+	 *   be compared against a stale digest.
+	 */
+	protected T getMetadata(String filePath) throws DataImportException {
+		T match = null;
+		for (T metadata: repository.findByFilePath(filePath)){
+			if (match != null){
+				throw new DataImportException(String.format("More than one data file metadata record "
+						+ "exists for file: %s", filePath));
+			}
+			match = metadata;
+		}
+		return match;
+	}
+
+	public DataFileMetadataRepository<T, ID> getRepository() {
+		return repository;
+	}
+	
+}
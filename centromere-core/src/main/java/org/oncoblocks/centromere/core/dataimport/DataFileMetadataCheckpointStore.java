@@ -0,0 +1,94 @@
+/*
+ * Copyright 2016 William Oemler, Blueprint Medicines
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.oncoblocks.centromere.core.dataimport;
+
+import org.oncoblocks.centromere.core.model.support.ImportCheckpoint;
+import org.oncoblocks.centromere.core.model.support.ResumableDataFileMetadata;
+import org.oncoblocks.centromere.core.repository.support.DataFileMetadataRepository;
+import org.springframework.util.Assert;
+
+import java.io.Serializable;
+
+/**
+ * {@link ImportCheckpointStore} implementation that saves checkpoints on the 
+ *   {@link ResumableDataFileMetadata} record of the input file.  The metadata record must already 
+ *   exist, typically having been created in the processor's {@code doBefore} method, before a 
+ *   checkpoint can be saved.
+ * 
+ * @author woemler
+ */
+public class DataFileMetadataCheckpointStore<T extends ResumableDataFileMetadata<ID>, ID extends Serializable> 
+		implements ImportCheckpointStore {
+	
+	private final DataFileMetadataRepository<T, ID> repository;
+
+	public DataFileMetadataCheckpointStore(DataFileMetadataRepository<T, ID> repository) {
+		Assert.notNull(repository, "DataFileMetadataRepository must not be null.");
+		this.repository = repository;
+	}
+
+	@Override 
+	public ImportCheckpoint getCheckpoint(String filePath) throws DataImportException {
+		T metadata = this.getMetadata(filePath);
+		return metadata != null ? metadata.getImportCheckpoint() : null;
+	}
+
+	@Override 
+	public void saveCheckpoint(String filePath, ImportCheckpoint checkpoint) throws DataImportException {
+		T metadata = this.getMetadata(filePath);
+		if (metadata == null){
+			throw new DataImportException(String.format("No data file metadata record exists for file: %s", 
+					filePath));
+		}
+		metadata.setImportCheckpoint(checkpoint);
+		repository.update(metadata);
+	}
+
+	@Override 
+	public void clearCheckpoint(String filePath) throws DataImportException {
+		T metadata = this.getMetadata(filePath);
+		if (metadata != null && metadata.getImportCheckpoint() != null){
+			metadata.setImportCheckpoint(null);
+			repository.update(metadata);
+		}
+	}
+
+	/**
+	 * Returns the metadata record with a matching file path, or null if none exists.
+	 * 
+	 * @param filePath
+	 * @return
+	 * @throws DataImportException if more than one record matches, since it cannot be known which 
+	 *   one holds the checkpoint.
+	 */
+	protected T getMetadata(String filePath) throws DataImportException {
+		T match = null;
+		for (T metadata: repository.findByFilePath(filePath)){
+			if (match != null){
+				throw new DataImportException(String.format("More than one data file metadata record "
+						+ "exists for file: %s", filePath));
+			}
+			match = metadata;
+		}
+		return match;
+	}
+
+	public DataFileMetadataRepository<T, ID> getRepository() {
+		return repository;
+	}
+	
+}
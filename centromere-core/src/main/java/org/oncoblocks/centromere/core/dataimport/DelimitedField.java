@@ -0,0 +1,200 @@
+/*
+ * Copyright 2016 William Oemler, Blueprint Medicines
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.oncoblocks.centromere.core.dataimport;
+
+/**
+ * Reusable {@link CharSequence} view of a single field in the current line of a 
+ *   {@link DelimitedLineReader}.  The view points into the reader's line buffer, so it is only valid
+ *   until the next line is read; call {@link #toString()} to keep a copy of the value.  The numeric
+ *   and enum conversion methods parse the buffer directly, without creating intermediate 
+ *   {@link String} objects.
+ * 
+ * @author woemler
+ */
+public class DelimitedField implements CharSequence {
+	
+	private static final double[] POWERS_OF_TEN = {
+			1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11, 
+			1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+	};
+	
+	private char[] buffer;
+	private int offset;
+	private int length;
+
+	DelimitedField() { }
+
+	void set(char[] buffer, int offset, int length){
+		this.buffer = buffer;
+		this.offset = offset;
+		this.length = length;
+	}
+
+	@Override 
+	public int length() {
+		return length;
+	}
+
+	@Override 
+	public char charAt(int index) {
+		if (index < 0 || index >= length) throw new IndexOutOfBoundsException("Index: " + index);
+		return buffer[offset + index];
+	}
+
+	@Override 
+	public CharSequence subSequence(int start, int end) {
+		if (start < 0 || end > length || start > end) {
+			throw new IndexOutOfBoundsException(String.format("Range: %d-%d", start, end));
+		}
+		return new String(buffer, offset + start, end - start);
+	}
+
+	public boolean isEmpty(){
+		return length == 0;
+	}
+
+	/**
+	 * Tests whether the field has the same characters as the input sequence.
+	 * 
+	 * @param sequence sequence to compare.
+	 * @return true if the contents match.
+	 */
+	public boolean contentEquals(CharSequence sequence){
+		if (sequence == null || sequence.length() != length) return false;
+		for (int i = 0; i < length; i++){
+			if (buffer[offset + i] != sequence.charAt(i)) return false;
+		}
+		return true;
+	}
+
+	/**
+	 * Parses the field as a base-10 {@code int}.
+	 * 
+	 * @return parsed value.
+	 * @throws NumberFormatException if the field is not a valid integer.
+	 */
+	public int toInt(){
+		long value = this.toLong();
+		if (value < Integer.MIN_VALUE || value > Integer.MAX_VALUE) {
+			throw new NumberFormatException(String.format("Value out of range: %s", this.toString()));
+		}
+		return (int) value;
+	}
+
+	/**
+	 * Parses the field as a base-10 {@code long}.
+	 * 
+	 * @return parsed value.
+	 * @throws NumberFormatException if the field is not a valid integer.
+	 */
+	public long toLong(){
+		if (length == 0) throw new NumberFormatException("Empty field");
+		int i = offset;
+		int end = offset + length;
+		boolean negative = false;
+		char c = buffer[i];
+		if (c == '-' || c == '+') {
+			negative = c == '-';
+			i++;
+			if (i == end) throw new NumberFormatException(String.format("Invalid number: %s", this.toString()));
+		}
+		long limit = negative ? Long.MIN_VALUE : -Long.MAX_VALUE;
+		long multiplyLimit = limit / 10;
+		long value = 0;
+		for (; i < end; i++) {
+			int digit = buffer[i] - '0';
+			if (digit < 0 || digit > 9 || value < multiplyLimit) {
+				throw new NumberFormatException(String.format("Invalid number: %s", this.toString()));
+			}
+			value *= 10;
+			if (value < limit + digit) {
+				throw new NumberFormatException(String.format("Invalid number: %s", this.toString()));
+			}
+			value -= digit;
+		}
+		return negative ? value : -value;
+	}
+
+	/**
+	 * Parses the field as a {@code double}.  Plain decimal values with up to 15 significant digits 
+	 *   are parsed directly from the buffer; anything else (exponents, special values, very long 
+	 *   mantissas) falls back to {@link Double#parseDouble(String)}.
+	 * 
+	 * @return parsed value.
+	 * @throws NumberFormatException if the field is not a valid number.
+	 */
+	public double toDouble(){
+		int i = offset;
+		int end = offset + length;
+		boolean negative = false;
+		if (i < end && (buffer[i] == '-' || buffer[i] == '+')) {
+			negative = buffer[i] == '-';
+			i++;
+		}
+		long mantissa = 0;
+		int digits = 0;
+		int fractionDigits = -1;
+		for (; i < end; i++) {
+			char c = buffer[i];
+			if (c >= '0' && c <= '9') {
+				if (mantissa > 0 || c != '0') digits++;
+				mantissa = mantissa * 10 + (c - '0');
+				if (fractionDigits >= 0) fractionDigits++;
+				if (digits > 15) break;
+			} else if (c == '.' && fractionDigits < 0) {
+				fractionDigits = 0;
+			} else {
+				break;
+			}
+		}
+		if (i < end || fractionDigits >= POWERS_OF_TEN.length || (digits == 0 && !hasDigit())) {
+			return Double.parseDouble(this.toString());
+		}
+		double value = fractionDigits > 0 ? mantissa / POWERS_OF_TEN[fractionDigits] : (double) mantissa;
+		return negative ? -value : value;
+	}
+
+	/**
+	 * Returns the constant with a name matching the field contents, or {@code null} if the field is
+	 *   empty.  The constant array should be fetched once and reused, since 
+	 *   {@link Class#getEnumConstants()} returns a new copy on every call.
+	 * 
+	 * @param constants enum constants to search.
+	 * @return matching enum constant, or null.
+	 * @throws IllegalArgumentException if no constant matches.
+	 */
+	public <E extends Enum<E>> E toEnum(E[] constants){
+		if (length == 0) return null;
+		for (E constant: constants){
+			if (this.contentEquals(constant.name())) return constant;
+		}
+		throw new IllegalArgumentException(String.format("No enum constant matches: %s", this.toString()));
+	}
+
+	private boolean hasDigit(){
+		for (int i = offset; i < offset + length; i++){
+			if (buffer[i] >= '0' && buffer[i] <= '9') return true;
+		}
+		return false;
+	}
+
+	@Override 
+	public String toString() {
+		return new String(buffer, offset, length);
+	}
+	
+}
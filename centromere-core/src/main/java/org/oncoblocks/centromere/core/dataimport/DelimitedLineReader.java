@@ -0,0 +1,366 @@
+/*
+ * Copyright 2016 William Oemler, Blueprint Medicines
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.oncoblocks.centromere.core.dataimport;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Line reader for delimited text files, which avoids allocating a {@link String} for every line 
+ *   and field.  Regular files are memory-mapped in large windows, while other sources are read 
+ *   through a single direct buffer.  Each line is decoded into a reusable character buffer, and its
+ *   fields are exposed as {@link DelimitedField} views, which are only valid until the next call to
+ *   {@link #nextLine()}.  Lines may end with {@code \n} or {@code \r\n}.  Not thread-safe.
+ * 
+ * @author woemler
+ */
+public class DelimitedLineReader implements Closeable {
+	
+	public static final int DEFAULT_BUFFER_SIZE = 1024 * 1024;
+	public static final long DEFAULT_MAPPING_WINDOW = 64L * 1024 * 1024;
+	
+	private final char delimiter;
+	private final CharsetDecoder decoder;
+	private ReadableByteChannel channel;
+	private FileChannel fileChannel;
+	private long mappingWindow = DEFAULT_MAPPING_WINDOW;
+	private long mappedEnd = 0L;
+	private long fileEnd = -1L;
+	private ByteBuffer buffer;
+	private long position = 0L;
+	private long lineNumber = 0L;
+	private FileDigester digester;
+	
+	private byte[] lineBytes = new byte[4096];
+	private char[] chars = new char[4096];
+	private int lineLength = 0;
+	private int[] fieldOffsets = new int[64];
+	private int fieldCount = 0;
+	private DelimitedField[] fields = new DelimitedField[0];
+	private final DelimitedField line = new DelimitedField();
+
+	/**
+	 * Creates a reader that memory-maps the input file.
+	 * 
+	 * @param file file to read.
+	 * @param delimiter field delimiter character.
+	 * @param charset input character set.
+	 * @throws IOException
+	 */
+	public DelimitedLineReader(File file, char delimiter, Charset charset) throws IOException {
+		this(file, delimiter, charset, 0L, -1L);
+	}
+
+	/**
+	 * Creates a reader that memory-maps a byte range of the input file, such as a {@link FileChunk}.
+	 * 
+	 * @param file file to read.
+	 * @param delimiter field delimiter character.
+	 * @param charset input character set.
+	 * @param start offset of the first byte to read.
+	 * @param end offset just past the last byte to read, or -1 to read to the end of the file.
+	 * @throws IOException
+	 */
+	public DelimitedLineReader(File file, char delimiter, Charset charset, long start, long end) 
+			throws IOException {
+		this.delimiter = delimiter;
+		this.decoder = createDecoder(charset);
+		this.fileChannel = new RandomAccessFile(file, "r").getChannel();
+		this.channel = fileChannel;
+		this.buffer = ByteBuffer.allocate(0);
+		this.mappedEnd = start;
+		this.fileEnd = end;
+	}
+
+	public DelimitedLineReader(File file, char delimiter) throws IOException {
+		this(file, delimiter, StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * Creates a reader that reads from an arbitrary channel, such as a decompressing stream, using a
+	 *   direct buffer of the given size.
+	 * 
+	 * @param channel channel to read from.
+	 * @param delimiter field delimiter character.
+	 * @param charset input character set.
+	 * @param bufferSize size of the read buffer, in bytes.
+	 */
+	public DelimitedLineReader(ReadableByteChannel channel, char delimiter, Charset charset, int bufferSize){
+		this.delimiter = delimiter;
+		this.decoder = createDecoder(charset);
+		this.channel = channel;
+		this.buffer = ByteBuffer.allocateDirect(bufferSize);
+		this.buffer.flip();
+	}
+
+	public DelimitedLineReader(ReadableByteChannel channel, char delimiter){
+		this(channel, delimiter, StandardCharsets.UTF_8, DEFAULT_BUFFER_SIZE);
+	}
+	
+	private static CharsetDecoder createDecoder(Charset charset){
+		return charset.newDecoder()
+				.onMalformedInput(CodingErrorAction.REPLACE)
+				.onUnmappableCharacter(CodingErrorAction.REPLACE);
+	}
+
+	/**
+	 * Advances to the next line of input.
+	 * 
+	 * @return true if a line was read, false if the end of the input has been reached.
+	 * @throws IOException
+	 */
+	public boolean nextLine() throws IOException {
+		int length = 0;
+		boolean terminated = false;
+		boolean hasInput = false;
+		while (!terminated) {
+			if (!buffer.hasRemaining() && !this.fill()) break;
+			hasInput = true;
+			int start = buffer.position();
+			int limit = buffer.limit();
+			int i = start;
+			while (i < limit && buffer.get(i) != '\n') i++;
+			int count = i - start;
+			if (length + count > lineBytes.length) {
+				lineBytes = Arrays.copyOf(lineBytes, Math.max(lineBytes.length * 2, length + count));
+			}
+			buffer.get(lineBytes, length, count);
+			length += count;
+			if (i < limit) {
+				buffer.get();
+				terminated = true;
+			}
+		}
+		if (!hasInput) {
+			lineLength = 0;
+			fieldCount = 0;
+			return false;
+		}
+		position += length + (terminated ? 1 : 0);
+		lineNumber++;
+		if (length > 0 && lineBytes[length - 1] == '\r') length--;
+		this.decode(length);
+		this.split();
+		return true;
+	}
+
+	/**
+	 * Skips forward the given number of bytes, without decoding them.  Memory-mapped input jumps 
+	 *   directly to the new offset, while other sources are read and discarded.  The position 
+	 *   should fall at the start of a line, such as one returned by {@link #getPosition()}.  Line 
+	 *   numbers do not account for the skipped lines.
+	 * 
+	 * @param bytes number of bytes to skip.
+	 * @throws IOException if the end of the input is reached first.
+	 */
+	public void skip(long bytes) throws IOException {
+		if (bytes < 0) throw new IllegalArgumentException("Cannot skip a negative number of bytes.");
+		long remaining = bytes;
+		while (remaining > 0) {
+			if (!buffer.hasRemaining()) {
+				if (fileChannel != null) {
+					long size = fileEnd < 0 ? fileChannel.size() : Math.min(fileEnd, fileChannel.size());
+					if (mappedEnd + remaining > size) {
+						throw new EOFException(String.format("Cannot skip past the end of the input: %d", 
+								position + remaining));
+					}
+					mappedEnd += remaining;
+					position += remaining;
+					return;
+				}
+				if (!this.fill()) {
+					throw new EOFException(String.format("Cannot skip past the end of the input: %d", 
+							position + remaining));
+				}
+			}
+			int count = (int) Math.min(remaining, buffer.remaining());
+			buffer.position(buffer.position() + count);
+			position += count;
+			remaining -= count;
+		}
+	}
+
+	/**
+	 * Loads the next block of input into the buffer.
+	 * 
+	 * @return false if there is no more input.
+	 * @throws IOException
+	 */
+	private boolean fill() throws IOException {
+		if (fileChannel != null) {
+			long size = fileEnd < 0 ? fileChannel.size() : Math.min(fileEnd, fileChannel.size());
+			if (mappedEnd >= size) return false;
+			long length = Math.min(mappingWindow, size - mappedEnd);
+			buffer = fileChannel.map(FileChannel.MapMode.READ_ONLY, mappedEnd, length);
+			mappedEnd += length;
+			if (digester != null) digester.update(buffer);
+			return true;
+		}
+		buffer.clear();
+		int read = 0;
+		while (read == 0) {
+			read = channel.read(buffer);
+		}
+		buffer.flip();
+		return read > 0;
+	}
+
+	/**
+	 * Decodes the raw line bytes into the character buffer, skipping the charset decoder for 
+	 *   lines that are pure ASCII.
+	 */
+	private void decode(int length){
+		if (chars.length < length) {
+			chars = new char[Math.max(chars.length * 2, length)];
+		}
+		int i = 0;
+		while (i < length && lineBytes[i] >= 0) {
+			chars[i] = (char) lineBytes[i];
+			i++;
+		}
+		if (i == length) {
+			lineLength = length;
+			return;
+		}
+		decoder.reset();
+		CharBuffer out = CharBuffer.wrap(chars);
+		decoder.decode(ByteBuffer.wrap(lineBytes, 0, length), out, true);
+		decoder.flush(out);
+		lineLength = out.position();
+	}
+
+	/**
+	 * Records the start offset of each field in the line, and the end of the line.
+	 */
+	private void split(){
+		fieldCount = 0;
+		addFieldOffset(0);
+		for (int i = 0; i < lineLength; i++){
+			if (chars[i] == delimiter) addFieldOffset(i + 1);
+		}
+		addFieldOffset(lineLength + 1);
+		fieldCount--;
+		line.set(chars, 0, lineLength);
+	}
+	
+	private void addFieldOffset(int offset){
+		if (fieldCount == fieldOffsets.length) {
+			fieldOffsets = Arrays.copyOf(fieldOffsets, fieldOffsets.length * 2);
+		}
+		fieldOffsets[fieldCount++] = offset;
+	}
+
+	/**
+	 * Returns the number of fields in the current line.  An empty line has a single, empty field.
+	 */
+	public int getFieldCount(){
+		return fieldCount;
+	}
+
+	/**
+	 * Returns a view of the field at the given index in the current line.  The same view object is
+	 *   returned for an index on every line.
+	 * 
+	 * @param index zero-based field index.
+	 * @return field view.
+	 */
+	public DelimitedField getField(int index){
+		if (index < 0 || index >= fieldCount) {
+			throw new IndexOutOfBoundsException(String.format("Field %d does not exist in line %d", 
+					index, lineNumber));
+		}
+		if (index >= fields.length) {
+			int oldLength = fields.length;
+			fields = Arrays.copyOf(fields, Math.max(fieldCount, oldLength * 2));
+			for (int i = oldLength; i < fields.length; i++) fields[i] = new DelimitedField();
+		}
+		int start = fieldOffsets[index];
+		fields[index].set(chars, start, fieldOffsets[index + 1] - 1 - start);
+		return fields[index];
+	}
+
+	/**
+	 * Returns a view of the entire current line, without its line terminator.
+	 */
+	public DelimitedField getLine(){
+		return line;
+	}
+
+	/**
+	 * Returns the number of bytes consumed so far, which is the offset of the start of the next 
+	 *   line, relative to where reading began.
+	 */
+	public long getPosition() {
+		return position;
+	}
+
+	/**
+	 * Returns the number of lines read so far.
+	 */
+	public long getLineNumber() {
+		return lineNumber;
+	}
+
+	public char getDelimiter() {
+		return delimiter;
+	}
+
+	public FileDigester getDigester() {
+		return digester;
+	}
+
+	/**
+	 * Sets a digester to receive each memory-mapped region of the file as it is loaded.  Has no 
+	 *   effect on channel input, which should be digested before it reaches the reader.  Must be 
+	 *   set before reading starts.
+	 */
+	public void setDigester(FileDigester digester) {
+		this.digester = digester;
+	}
+
+	public long getMappingWindow() {
+		return mappingWindow;
+	}
+
+	/**
+	 * Sets the size of the memory-mapped region for file input.  Must be set before reading starts.
+	 */
+	public void setMappingWindow(long mappingWindow) {
+		this.mappingWindow = mappingWindow;
+	}
+
+	@Override 
+	public void close() throws IOException {
+		if (channel != null) {
+			channel.close();
+		}
+		buffer = ByteBuffer.allocate(0);
+	}
+	
+}
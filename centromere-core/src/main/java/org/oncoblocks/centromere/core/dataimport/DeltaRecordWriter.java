@@ -0,0 +1,266 @@
+/*
+ * Copyright 2016 William Oemler, Blueprint Medicines
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.oncoblocks.centromere.core.dataimport;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.MapperFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.ser.impl.SimpleBeanPropertyFilter;
+import com.fasterxml.jackson.databind.ser.impl.SimpleFilterProvider;
+import com.google.common.hash.Hashing;
+import org.oncoblocks.centromere.core.model.Model;
+import org.oncoblocks.centromere.core.repository.RepositoryOperations;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.util.Assert;
+
+import java.io.Serializable;
+import java.util.*;
+
+/**
+ * {@link RecordWriter} implementation that applies only the differences between the input file and
+ *   its previous import.  Each record is fingerprinted with a hash of its serialized content, and 
+ *   compared against the fingerprint with the same record ID from the previous import: new records 
+ *   are inserted, changed records are updated, and unchanged records are skipped.  Records from the
+ *   previous import that are missing from the input are deleted by ID in {@code doAfter}, unless 
+ *   stale record deletion has been disabled, in which case their previous fingerprints are carried
+ *   over, so that a later run may still delete them.  
+ *   Records with no previous fingerprint are checked for existence before being inserted, so the 
+ *   first delta import of a file, or a re-run after a failed import, updates existing records 
+ *   rather than duplicating them.  These checks are made a batch at a time, with a single 
+ *   {@code findAll} call for each batch of IDs.  Inserts and updates are written in batches, and 
+ *   any failed batch halts the import.  All records must have IDs.
+ * 
+ * @author woemler
+ */
+public class DeltaRecordWriter<T extends Model<ID>, ID extends Serializable> implements RecordWriter<T> {
+	
+	private final RepositoryOperations<T, ID> repository;
+	private final Map<Serializable, Long> previousFingerprints;
+	private final Map<ID, T> unknownRecords = new LinkedHashMap<>();
+	private final Map<Serializable, Long> fingerprints = new HashMap<>();
+	private final ObjectWriter objectWriter = new ObjectMapper()
+			.configure(MapperFeature.SORT_PROPERTIES_ALPHABETICALLY, true)
+			.configure(SerializationFeature.ORDER_MAP_ENTRIES_BY_KEYS, true)
+			.writer(new SimpleFilterProvider()
+					.addFilter("fieldFilter", SimpleBeanPropertyFilter.serializeAllExcept()));
+	private final RecordBatcher<T> inserts = new RecordBatcher<T>() {
+		@Override 
+		protected void writeBatch(List<T> records) {
+			repository.insert(records);
+		}
+	};
+	private final RecordBatcher<T> updates = new RecordBatcher<T>() {
+		@Override 
+		protected void writeBatch(List<T> records) {
+			repository.update(records);
+		}
+	};
+	private long unchangedCount = 0L;
+	private long deletedCount = 0L;
+	private boolean deleteStaleRecords = true;
+	private static final Logger logger = LoggerFactory.getLogger(DeltaRecordWriter.class);
+
+	/**
+	 * @param repository repository to write to.
+	 * @param previousFingerprints fingerprints from the previous import, keyed by record ID, or null
+	 *                             if there was no previous import.
+	 */
+	public DeltaRecordWriter(RepositoryOperations<T, ID> repository, Map<Serializable, Long> previousFingerprints) {
+		Assert.notNull(repository, "RepositoryOperations must not be null.");
+		this.repository = repository;
+		this.previousFingerprints = previousFingerprints != null 
+				? previousFingerprints : new HashMap<Serializable, Long>();
+		inserts.setStopOnError(true);
+		updates.setStopOnError(true);
+	}
+
+	/**
+	 * Compares the record's fingerprint to that of the previous import, and queues it for insert or
+	 *   update if it is new or has changed.  Records with no previous fingerprint are held until a 
+	 *   full batch of them can be checked for existence at once.
+	 * 
+	 * @param record
+	 * @throws DataImportException if the record has no ID, or a batch write fails.
+	 */
+	@Override 
+	public void writeRecord(T record) throws DataImportException {
+		ID id = record.getId();
+		if (id == null){
+			throw new DataImportException(String.format("Delta import requires records with IDs: %s", 
+					record.toString()));
+		}
+		long fingerprint = this.fingerprint(record);
+		if (fingerprints.put(id, fingerprint) != null){
+			this.checkUnknownRecords();
+			inserts.flush();
+			updates.add(record);
+			return;
+		}
+		Long previous = previousFingerprints.get(id);
+		if (previous == null){
+			unknownRecords.put(id, record);
+			if (unknownRecords.size() >= inserts.getBatchSize()) this.checkUnknownRecords();
+		} else if (previous != fingerprint){
+			updates.add(record);
+		} else {
+			unchangedCount++;
+		}
+	}
+
+	/**
+	 * Looks up which of the held records with no previous fingerprint already exist, and queues 
+	 *   them for update, or insert if they do not.
+	 * 
+	 * @throws DataImportException if a batch write fails.
+	 */
+	private void checkUnknownRecords() throws DataImportException {
+		if (unknownRecords.isEmpty()) return;
+		Set<ID> existing = new HashSet<>();
+		for (T record: repository.findAll(unknownRecords.keySet())){
+			existing.add(record.getId());
+		}
+		for (Map.Entry<ID, T> entry: unknownRecords.entrySet()){
+			if (existing.contains(entry.getKey())){
+				updates.add(entry.getValue());
+			} else {
+				inserts.add(entry.getValue());
+			}
+		}
+		unknownRecords.clear();
+	}
+
+	/**
+	 * Computes a content hash of the record, using its JSON representation with properties and map
+	 *   entries in sorted order.
+	 * 
+	 * @param record
+	 * @return 64-bit fingerprint.
+	 * @throws DataImportException
+	 */
+	protected long fingerprint(T record) throws DataImportException {
+		try {
+			return Hashing.murmur3_128().hashBytes(objectWriter.writeValueAsBytes(record)).asLong();
+		} catch (JsonProcessingException e){
+			e.printStackTrace();
+			throw new DataImportException(String.format("Cannot fingerprint record: %s", record.toString()));
+		}
+	}
+
+	/**
+	 * Clears any state left over from a previous run.
+	 *
+	 * @param args an array of objects of any type.
+	 * @throws DataImportException
+	 */
+	@Override 
+	public void doBefore(Object... args) throws DataImportException {
+		fingerprints.clear();
+		unknownRecords.clear();
+		inserts.reset();
+		updates.reset();
+		unchangedCount = 0L;
+		deletedCount = 0L;
+	}
+
+	/**
+	 * Writes any remaining inserts and updates, and deletes records from the previous import that 
+	 *   were not present in the input.  If stale record deletion is disabled, the fingerprints of
+	 *   these records are instead retained.
+	 *
+	 * @param args an array of objects of any type.
+	 * @throws DataImportException
+	 */
+	@Override 
+	@SuppressWarnings("unchecked")
+	public void doAfter(Object... args) throws DataImportException {
+		this.checkUnknownRecords();
+		inserts.flush();
+		updates.flush();
+		long retainedCount = 0L;
+		for (Map.Entry<Serializable, Long> entry: previousFingerprints.entrySet()){
+			if (fingerprints.containsKey(entry.getKey())) continue;
+			if (deleteStaleRecords){
+				repository.delete((ID) entry.getKey());
+				deletedCount++;
+			} else {
+				fingerprints.put(entry.getKey(), entry.getValue());
+				retainedCount++;
+			}
+		}
+		if (retainedCount > 0){
+			logger.info(String.format("[CENTROMERE] Stale record deletion is disabled, retaining %d "
+					+ "records missing from the input.", retainedCount));
+		}
+		logger.info(String.format("[CENTROMERE] Delta import inserted %d, updated %d, deleted %d, and "
+				+ "skipped %d unchanged records.", inserts.getRecordCount(), updates.getRecordCount(), 
+				deletedCount, unchangedCount));
+	}
+
+	/**
+	 * Returns the fingerprints of all records written in the current run, keyed by record ID, along
+	 *   with those of any retained stale records.
+	 */
+	public Map<Serializable, Long> getFingerprints() {
+		return fingerprints;
+	}
+
+	public long getInsertedCount() {
+		return inserts.getRecordCount();
+	}
+
+	public long getUpdatedCount() {
+		return updates.getRecordCount();
+	}
+
+	public long getUnchangedCount() {
+		return unchangedCount;
+	}
+
+	public long getDeletedCount() {
+		return deletedCount;
+	}
+
+	public int getBatchSize() {
+		return inserts.getBatchSize();
+	}
+
+	public void setBatchSize(int batchSize) {
+		inserts.setBatchSize(batchSize);
+		updates.setBatchSize(batchSize);
+	}
+
+	public boolean isDeleteStaleRecords() {
+		return deleteStaleRecords;
+	}
+
+	/**
+	 * Sets whether records from the previous import that are missing from the input should be 
+	 *   deleted.  This should be disabled when records may have been skipped, such as after failing
+	 *   validation, since they would otherwise be deleted.  Defaults to true.
+	 */
+	public void setDeleteStaleRecords(boolean deleteStaleRecords) {
+		this.deleteStaleRecords = deleteStaleRecords;
+	}
+
+	public RepositoryOperations<T, ID> getRepository() {
+		return repository;
+	}
+	
+}
@@ -0,0 +1,45 @@
+/*
+ * Copyright 2016 William Oemler, Blueprint Medicines
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.oncoblocks.centromere.core.dataimport;
+
+/**
+ * {@link RecordImporter} implementations that can drop, or delete all records from, their target 
+ *   collection or table before importing.  Allows the drop to be run once, separately from the 
+ *   imports themselves, so that several importers loading the same collection concurrently, such 
+ *   as the chunks of a chunked import, do not delete each other's records.
+ * 
+ * @author woemler
+ */
+public interface DropCollectionSupport {
+
+	/**
+	 * If set, the target collection is dropped at the start of each import.
+	 */
+	DropCollectionSupport setDropCollection(boolean dropCollection);
+
+	boolean isDropCollection();
+
+	/**
+	 * Drops the target collection immediately, regardless of {@link #isDropCollection()}.
+	 * 
+	 * @param filePath path of a temp file that would be imported into the collection, for importers 
+	 *                 that derive the collection name from the file name.
+	 * @throws DataImportException
+	 */
+	void dropCollection(String filePath) throws DataImportException;
+	
+}
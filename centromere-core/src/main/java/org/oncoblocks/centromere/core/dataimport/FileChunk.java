@@ -0,0 +1,145 @@
+/*
+ * Copyright 2016 William Oemler, Blueprint Medicines
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.oncoblocks.centromere.core.dataimport;
+
+import org.springframework.util.Assert;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Byte range of an input file, used to divide a single large file between several concurrent
+ *   reader, writer and importer chains.  Chunks created by {@link #split(File, int)} always start 
+ *   at the beginning of a line and end just after a line terminator (or at the end of the file), so
+ *   no record is ever divided between two chunks.
+ * 
+ * @author woemler
+ */
+public class FileChunk {
+	
+	private final int index;
+	private final long start;
+	private final long end;
+
+	public FileChunk(int index, long start, long end) {
+		Assert.isTrue(start >= 0 && end >= start, "Invalid chunk range.");
+		this.index = index;
+		this.start = start;
+		this.end = end;
+	}
+
+	/**
+	 * Divides the file into at most the requested number of chunks of roughly equal size, with each
+	 *   boundary moved forward to the start of the next line.  Small files may produce fewer chunks
+	 *   than requested, but never an empty one.
+	 * 
+	 * @param file file to divide.
+	 * @param chunks requested number of chunks.
+	 * @return list of chunks, in file order.
+	 * @throws IOException
+	 */
+	public static List<FileChunk> split(File file, int chunks) throws IOException {
+		return split(file, 0L, chunks);
+	}
+
+	/**
+	 * Divides the file, from the given offset to its end, into at most the requested number of 
+	 *   chunks, as with {@link #split(File, int)}.  Used to leave a header out of every chunk.
+	 * 
+	 * @param file file to divide.
+	 * @param offset offset of the first byte to include, which must be the start of a line.
+	 * @param chunks requested number of chunks.
+	 * @return list of chunks, in file order.
+	 * @throws IOException
+	 */
+	public static List<FileChunk> split(File file, long offset, int chunks) throws IOException {
+		Assert.isTrue(chunks > 0, "Number of chunks must be greater than zero.");
+		Assert.isTrue(offset >= 0, "Offset must not be negative.");
+		List<FileChunk> fileChunks = new ArrayList<>();
+		try (RandomAccessFile raf = new RandomAccessFile(file, "r")){
+			long length = raf.length();
+			long start = Math.min(offset, length);
+			long size = length - start;
+			for (int i = 1; i <= chunks && start < length; i++) {
+				long end = i == chunks ? length 
+						: findLineStart(raf, Math.max(start, offset + size * i / chunks), length);
+				if (end > start) {
+					fileChunks.add(new FileChunk(fileChunks.size(), start, end));
+					start = end;
+				}
+			}
+		}
+		return fileChunks;
+	}
+
+	/**
+	 * Returns the offset of the first line that starts at or after the given position.
+	 */
+	private static long findLineStart(RandomAccessFile raf, long position, long length) throws IOException {
+		if (position == 0L) return 0L;
+		byte[] buffer = new byte[8192];
+		long offset = position - 1;
+		while (offset < length) {
+			raf.seek(offset);
+			int count = raf.read(buffer, 0, (int) Math.min(buffer.length, length - offset));
+			if (count <= 0) break;
+			for (int i = 0; i < count; i++) {
+				if (buffer[i] == '\n') return offset + i + 1;
+			}
+			offset += count;
+		}
+		return length;
+	}
+
+	/**
+	 * Returns the position of the chunk in the file, starting from zero.
+	 */
+	public int getIndex() {
+		return index;
+	}
+
+	/**
+	 * Returns the offset of the first byte in the chunk.
+	 */
+	public long getStart() {
+		return start;
+	}
+
+	/**
+	 * Returns the offset just past the last byte in the chunk.
+	 */
+	public long getEnd() {
+		return end;
+	}
+
+	public long getLength(){
+		return end - start;
+	}
+
+	@Override 
+	public String toString() {
+		return "FileChunk{" +
+				"index=" + index +
+				", start=" + start +
+				", end=" + end +
+				'}';
+	}
+	
+}
@@ -0,0 +1,149 @@
+/*
+ * Copyright 2016 William Oemler, Blueprint Medicines
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.oncoblocks.centromere.core.dataimport;
+
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import org.oncoblocks.centromere.core.model.support.FileDigest;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+
+/**
+ * Computes a {@link FileDigest} incrementally, from the raw bytes of a file as they are read, so 
+ *   that the file does not need to be read a second time.  The digest is only available if every 
+ *   byte of the file was passed to the digester, in order.  Not thread-safe.
+ * 
+ * @author woemler
+ */
+public class FileDigester {
+	
+	public static final String ALGORITHM = "murmur3_128";
+	private static final int BUFFER_SIZE = 64 * 1024;
+	
+	private final File file;
+	private final Hasher hasher = Hashing.murmur3_128().newHasher();
+	private byte[] scratch;
+	private long byteCount = 0L;
+	private FileDigest digest;
+
+	public FileDigester(File file) {
+		this.file = file;
+	}
+
+	/**
+	 * Reads the entire file and returns its digest.
+	 * 
+	 * @param file file to digest.
+	 * @return file digest.
+	 * @throws IOException
+	 */
+	public static FileDigest digest(File file) throws IOException {
+		FileDigester digester = new FileDigester(file);
+		byte[] buffer = new byte[BUFFER_SIZE];
+		try (InputStream in = new FileInputStream(file)){
+			int read = in.read(buffer);
+			while (read >= 0) {
+				digester.update(buffer, 0, read);
+				read = in.read(buffer);
+			}
+		}
+		return digester.getDigest();
+	}
+
+	public void update(byte[] bytes, int offset, int length){
+		hasher.putBytes(bytes, offset, length);
+		byteCount += length;
+	}
+
+	/**
+	 * Adds the remaining bytes of the buffer to the digest, without changing the buffer's position.
+	 * 
+	 * @param buffer
+	 */
+	public void update(ByteBuffer buffer){
+		if (scratch == null) scratch = new byte[BUFFER_SIZE];
+		ByteBuffer view = buffer.duplicate();
+		while (view.hasRemaining()) {
+			int length = Math.min(view.remaining(), scratch.length);
+			view.get(scratch, 0, length);
+			this.update(scratch, 0, length);
+		}
+	}
+
+	/**
+	 * Wraps the stream, so that all bytes read from it are added to the digest.
+	 * 
+	 * @param in raw file input stream.
+	 * @return wrapped stream.
+	 */
+	public InputStream wrap(InputStream in){
+		return new FilterInputStream(in) {
+			@Override 
+			public int read() throws IOException {
+				int b = super.read();
+				if (b >= 0) {
+					hasher.putByte((byte) b);
+					byteCount++;
+				}
+				return b;
+			}
+			@Override 
+			public int read(byte[] b, int off, int len) throws IOException {
+				int read = super.read(b, off, len);
+				if (read > 0) update(b, off, read);
+				return read;
+			}
+			@Override 
+			public long skip(long n) throws IOException {
+				byte[] buffer = new byte[(int) Math.min(n, BUFFER_SIZE)];
+				long skipped = 0L;
+				while (skipped < n) {
+					int read = this.read(buffer, 0, (int) Math.min(n - skipped, buffer.length));
+					if (read < 0) break;
+					skipped += read;
+				}
+				return skipped;
+			}
+			@Override 
+			public boolean markSupported() {
+				return false;
+			}
+		};
+	}
+
+	/**
+	 * Returns the digest of the file, or null if fewer bytes have been read than the file contains.
+	 *   No further bytes may be added once the digest has been computed.
+	 */
+	public FileDigest getDigest(){
+		if (digest == null) {
+			if (byteCount != file.length()) return null;
+			digest = new FileDigest(byteCount, file.lastModified(), ALGORITHM, hasher.hash().toString());
+		}
+		return digest;
+	}
+
+	public long getByteCount() {
+		return byteCount;
+	}
+
+	public File getFile() {
+		return file;
+	}
+	
+}
@@ -0,0 +1,118 @@
+/*
+ * Copyright 2016 William Oemler, Blueprint Medicines
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.oncoblocks.centromere.core.dataimport;
+
+import com.google.common.hash.Hashing;
+import org.springframework.util.Assert;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * {@link FingerprintIndexStore} implementation that saves each file's fingerprints as a compressed
+ *   index file in a local directory.  Index files are named using a hash of the input file path, 
+ *   and are replaced atomically, so an interrupted save leaves the previous index intact.  Record 
+ *   IDs must be {@link Serializable}.
+ * 
+ * @author woemler
+ */
+public class FileFingerprintIndexStore implements FingerprintIndexStore {
+	
+	private static final int RESET_INTERVAL = 10000;
+	
+	private final File directory;
+
+	public FileFingerprintIndexStore(String directoryPath) {
+		Assert.notNull(directoryPath, "Directory path must not be null.");
+		this.directory = new File(directoryPath);
+	}
+
+	@Override 
+	public Map<Serializable, Long> getFingerprints(String filePath) throws DataImportException {
+		File indexFile = this.getIndexFile(filePath);
+		if (!indexFile.isFile()) return null;
+		try (ObjectInputStream in = new ObjectInputStream(new BufferedInputStream(
+				new GZIPInputStream(new FileInputStream(indexFile))))) {
+			int count = in.readInt();
+			Map<Serializable, Long> fingerprints = new HashMap<>(Math.max(16, (int) (count / 0.75f) + 1));
+			for (int i = 0; i < count; i++) {
+				Serializable id = (Serializable) in.readObject();
+				fingerprints.put(id, in.readLong());
+			}
+			return fingerprints;
+		} catch (IOException | ClassNotFoundException e){
+			e.printStackTrace();
+			throw new DataImportException(String.format("Cannot read fingerprint index file: %s", 
+					indexFile.getPath()));
+		}
+	}
+
+	@Override 
+	public void saveFingerprints(String filePath, Map<Serializable, Long> fingerprints) 
+			throws DataImportException {
+		if (!directory.isDirectory() && !directory.mkdirs()){
+			throw new DataImportException(String.format("Cannot create fingerprint index directory: %s", 
+					directory.getPath()));
+		}
+		File indexFile = this.getIndexFile(filePath);
+		File tempFile = new File(directory, indexFile.getName() + ".tmp");
+		try (ObjectOutputStream out = new ObjectOutputStream(new BufferedOutputStream(
+				new GZIPOutputStream(new FileOutputStream(tempFile))))) {
+			out.writeInt(fingerprints.size());
+			int written = 0;
+			for (Map.Entry<Serializable, Long> entry: fingerprints.entrySet()){
+				out.writeObject(entry.getKey());
+				out.writeLong(entry.getValue());
+				if (++written % RESET_INTERVAL == 0) out.reset();
+			}
+		} catch (IOException e){
+			e.printStackTrace();
+			throw new DataImportException(String.format("Cannot write fingerprint index file: %s", 
+					tempFile.getPath()));
+		}
+		try {
+			Files.move(tempFile.toPath(), indexFile.toPath(), StandardCopyOption.REPLACE_EXISTING, 
+					StandardCopyOption.ATOMIC_MOVE);
+		} catch (IOException e){
+			e.printStackTrace();
+			throw new DataImportException(String.format("Cannot replace fingerprint index file: %s", 
+					indexFile.getPath()));
+		}
+	}
+
+	/**
+	 * Returns the index file for the input file path.
+	 * 
+	 * @param filePath
+	 * @return
+	 */
+	protected File getIndexFile(String filePath){
+		String name = Hashing.sha1().hashString(filePath, StandardCharsets.UTF_8).toString();
+		return new File(directory, name + ".fingerprints.gz");
+	}
+
+	public File getDirectory() {
+		return directory;
+	}
+	
+}
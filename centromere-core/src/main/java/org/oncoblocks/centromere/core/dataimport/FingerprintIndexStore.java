@@ -0,0 +1,49 @@
+/*
+ * Copyright 2016 William Oemler, Blueprint Medicines
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.oncoblocks.centromere.core.dataimport;
+
+import java.io.Serializable;
+import java.util.Map;
+
+/**
+ * Persists the record fingerprints of the last import of each input file, which are used by 
+ *   {@link DeltaRecordWriter} to determine which records have changed since.
+ * 
+ * @author woemler
+ */
+public interface FingerprintIndexStore {
+
+	/**
+	 * Returns the record fingerprints, keyed by record ID, saved by the last import of the file, or
+	 *   null if there are none.
+	 * 
+	 * @param filePath input file path, as stored in the file's data file metadata.
+	 * @return map of record IDs to fingerprints, or null.
+	 * @throws DataImportException
+	 */
+	Map<Serializable, Long> getFingerprints(String filePath) throws DataImportException;
+
+	/**
+	 * Saves the record fingerprints for the file, replacing any previous fingerprints.
+	 * 
+	 * @param filePath input file path, as stored in the file's data file metadata.
+	 * @param fingerprints map of record IDs to fingerprints.
+	 * @throws DataImportException
+	 */
+	void saveFingerprints(String filePath, Map<Serializable, Long> fingerprints) throws DataImportException;
+	
+}
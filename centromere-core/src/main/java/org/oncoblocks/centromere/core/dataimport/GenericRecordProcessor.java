@@ -16,38 +16,57 @@
 
 package org.oncoblocks.centromere.core.dataimport;
 
+import com.google.common.io.CountingOutputStream;
 import com.google.common.reflect.TypeToken;
 import org.oncoblocks.centromere.core.model.Model;
+import org.oncoblocks.centromere.core.model.support.FileDigest;
+import org.oncoblocks.centromere.core.model.support.ImportCheckpoint;
+import org.oncoblocks.centromere.core.repository.RepositoryOperations;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectFactory;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
 import org.springframework.util.Assert;
-import org.springframework.validation.BindingResult;
-import org.springframework.validation.DataBinder;
+import org.springframework.validation.Errors;
 import org.springframework.validation.Validator;
 
 import javax.annotation.PostConstruct;
 import java.io.File;
-import java.util.ArrayList;
-import java.util.Arrays;
-import java.util.List;
+import java.io.IOException;
+import java.io.Serializable;
+import java.util.*;
+import java.util.concurrent.*;
 
 /**
  * Basic {@link RecordProcessor} implementation, which can be used to handle most file import jobs.
  *   The {@code doBefore} and {@code doAfter} methods can be overridden to handle data set or data
  *   file metadata persistence, pre/post-processing, or other maintenance tasks.  Uses a basic
  *   {@link BasicImportOptions} instance to set import parameters, and identify the directory to store
- *   all temporary files.
+ *   all temporary files.  Throughput of each stage of the import is recorded in its 
+ *   {@link ImportMetrics}, which are logged periodically while the import runs, and passed to any
+ *   components that are {@link ImportMetricsAware}.
  * 
  * @author woemler
  */
 public class GenericRecordProcessor<T extends Model<?>> 
-		implements RecordProcessor<T>, ImportOptionsAware, DataTypeSupport {
+		implements RecordProcessor<T>, ImportOptionsAware, ImportMetricsAware, DataTypeSupport, 
+		FileDigestSupport {
 
 	private Class<T> model = (Class<T>) new TypeToken<T>(getClass()) {}.getRawType();
 	private RecordReader<T> reader;
 	private Validator validator;
+	private RecordValidator<T> recordValidator;
+	private final ValidationReport validationReport = new ValidationReport();
+	private ImportMetrics metrics = new ImportMetrics();
 	private RecordWriter<T> writer;
 	private RecordImporter importer;
+	private ObjectFactory<? extends RecordReader<T>> readerFactory;
+	private ObjectFactory<? extends RecordWriter<T>> writerFactory;
+	private ObjectFactory<? extends RecordImporter> importerFactory;
+	private ImportCheckpointStore checkpointStore;
+	private FingerprintIndexStore fingerprintStore;
+	private boolean fileDigestEnabled = false;
+	private FileDigest fileDigest;
 	private BasicImportOptions options = new BasicImportOptions();
 	private List<String> supportedDataTypes = new ArrayList<>();
 	private boolean isConfigured = false;
@@ -83,14 +102,22 @@ public class GenericRecordProcessor<T extends Model<?>>
 	 *   them.  Should run in the {@code doBefore()} method.
 	 */
 	public void configureComponents() {
-		if (writer != null && writer instanceof ImportOptionsAware) {
-			((ImportOptionsAware) writer).setImportOptions(options);
-		}
-		if (reader != null && reader instanceof ImportOptionsAware) {
-			((ImportOptionsAware) reader).setImportOptions(options);
+		this.configureComponent(writer);
+		this.configureComponent(reader);
+		this.configureComponent(importer);
+	}
+
+	/**
+	 * Passes the import options and metrics to the component, if it is expecting them.
+	 * 
+	 * @param component data import component, or null.
+	 */
+	protected void configureComponent(DataImportComponent component){
+		if (component != null && component instanceof ImportOptionsAware) {
+			((ImportOptionsAware) component).setImportOptions(options);
 		}
-		if (importer != null && importer instanceof ImportOptionsAware) {
-			((ImportOptionsAware) importer).setImportOptions(options);
+		if (component != null && component instanceof ImportMetricsAware) {
+			((ImportMetricsAware) component).setImportMetrics(metrics);
 		}
 	}
 
@@ -121,32 +148,650 @@ public class GenericRecordProcessor<T extends Model<?>>
 			throw new DataImportException(e.getMessage());
 		}
 		String inputFilePath = (String) args[0];
+		fileDigest = null;
+		validationReport.reset();
+		recordValidator = validator != null ? new RecordValidator<T>(validator, validationReport) : null;
+		metrics.start();
+		ImportProgressReporter progressReporter = null;
+		if (options.getProgressInterval() > 0){
+			progressReporter = new ImportProgressReporter(metrics, options.getProgressInterval(), inputFilePath);
+			progressReporter.start();
+		}
+		try {
+			this.runImport(inputFilePath);
+		} finally {
+			if (progressReporter != null) progressReporter.close();
+			metrics.finish();
+			if (validationReport.getInvalidCount() > 0){
+				logger.warn(String.format("[CENTROMERE] %d records failed validation: %s", 
+						validationReport.getInvalidCount(), validationReport.toString()));
+			}
+			logger.info(String.format("[CENTROMERE] Import metrics for %s: %s", inputFilePath, 
+					metrics.toProgressString()));
+		}
+	}
+
+	/**
+	 * Chooses the import strategy for the file, based upon the import options and components.
+	 * 
+	 * @param inputFilePath path to the input file.
+	 * @throws DataImportException
+	 */
+	private void runImport(String inputFilePath) throws DataImportException {
+		if (this.isChunkedImport(inputFilePath)){
+			this.runChunkedImport(inputFilePath);
+			return;
+		}
+		if (reader instanceof FileDigestSupport){
+			((FileDigestSupport) reader).setFileDigestEnabled(fileDigestEnabled);
+		}
+		if (this.isDeltaImport()){
+			this.runDeltaImport(inputFilePath);
+		} else if (this.isCheckpointedImport()){
+			this.runCheckpointedImport(inputFilePath);
+		} else if (this.isStreamingImport()){
+			this.runStreamingImport(inputFilePath);
+		} else {
+			reader.doBefore(inputFilePath);
+			writer.doBefore(this.getTempFilePath(inputFilePath));
+			try {
+				this.processRecords(reader, writer);
+			} catch (DataImportException | RuntimeException e){
+				this.abortWriter(writer);
+				throw e;
+			}
+			writer.doAfter();
+			reader.doAfter();
+			this.importTempFile(importer, this.getTempFilePath(inputFilePath));
+		}
+		ImportMetrics.StageMetrics read = metrics.getStage(ImportMetrics.Stage.READ);
+		if (read.getBytes() == 0 && new File(inputFilePath).isFile()){
+			read.add(0, new File(inputFilePath).length(), 0);
+		}
+		if (fileDigestEnabled && reader instanceof FileDigestSupport){
+			fileDigest = ((FileDigestSupport) reader).getFileDigest();
+		}
+	}
+
+	/**
+	 * Records the size of the temp file written, and runs the importer on it, if there is one.
+	 * 
+	 * @param importer record importer, or null.
+	 * @param tempFilePath path to the temp file.
+	 * @throws DataImportException
+	 */
+	private void importTempFile(RecordImporter importer, String tempFilePath) throws DataImportException {
+		File tempFile = new File(tempFilePath);
+		long bytes = tempFile.isFile() ? tempFile.length() : 0L;
+		metrics.getStage(ImportMetrics.Stage.WRITE).add(0, bytes, 0);
+		if (importer != null) {
+			long start = System.nanoTime();
+			importer.importFile(tempFilePath);
+			metrics.getStage(ImportMetrics.Stage.IMPORT).add(0, bytes, System.nanoTime() - start);
+		}
+	}
+
+	/**
+	 * Reads, validates, and writes all of the records from the open reader to the open writer, 
+	 *   either sequentially or using a {@link RecordPipeline}.
+	 * 
+	 * @param reader open record reader.
+	 * @param writer open record writer.
+	 * @throws DataImportException
+	 */
+	protected void processRecords(RecordReader<T> reader, RecordWriter<T> writer) 
+			throws DataImportException {
+		if (options.getPipelineThreads() > 0){
+			this.runPipeline(reader, writer);
+		} else {
+			long position = this.getReaderPosition(reader);
+			long count = 0L;
+			T record = this.readRecord(reader);
+			while (record != null) {
+				if (this.validateRecord(record)) {
+					this.writeRecord(writer, record);
+				}
+				if (++count % 1000 == 0) position = this.addBytesRead(reader, position);
+				record = this.readRecord(reader);
+			}
+			this.addBytesRead(reader, position);
+		}
+	}
+
+	/**
+	 * Reads the next record, recording the time spent in the reader.
+	 */
+	private T readRecord(RecordReader<T> reader) throws DataImportException {
+		long start = System.nanoTime();
+		T record = reader.readRecord();
+		if (record != null) {
+			metrics.getStage(ImportMetrics.Stage.READ).add(1, 0, System.nanoTime() - start);
+		}
+		return record;
+	}
+
+	/**
+	 * Validates the record with {@link #isValidRecord(Model)}, recording the time spent.
+	 */
+	private boolean validateRecord(T record) throws DataImportException {
+		long start = System.nanoTime();
+		boolean valid = this.isValidRecord(record);
+		metrics.getStage(ImportMetrics.Stage.VALIDATE).add(1, 0, System.nanoTime() - start);
+		return valid;
+	}
+
+	/**
+	 * Writes the record, recording the time spent in the writer.
+	 */
+	private void writeRecord(RecordWriter<T> writer, T record) throws DataImportException {
+		long start = System.nanoTime();
+		writer.writeRecord(record);
+		metrics.getStage(ImportMetrics.Stage.WRITE).add(1, 0, System.nanoTime() - start);
+	}
+
+	/**
+	 * Records the bytes consumed by the reader since the last position, if it reports its position.
+	 * 
+	 * @return the reader's current position.
+	 */
+	private long addBytesRead(RecordReader<T> reader, long position){
+		long current = this.getReaderPosition(reader);
+		if (current > position) {
+			metrics.getStage(ImportMetrics.Stage.READ).add(0, current - position, 0);
+		}
+		return current;
+	}
+	
+	private long getReaderPosition(RecordReader<T> reader){
+		return reader instanceof SeekableRecordReader ? ((SeekableRecordReader<T>) reader).getPosition() : 0L;
+	}
+
+	/**
+	 * Tests whether only the records that changed since the file's previous import should be 
+	 *   written.  This requires that {@link BasicImportOptions#isDeltaImport()} be set, that a 
+	 *   {@link FingerprintIndexStore} be set, that there be no importer, and that the writer be a 
+	 *   {@link RepositoryRecordWriter}, {@link RepositoryRecordUpdater} or 
+	 *   {@link AbstractBatchingRepositoryRecordWriter}, whose repository will be written to.
+	 * 
+	 * @return true if delta import can be used.
+	 */
+	protected boolean isDeltaImport(){
+		if (!options.isDeltaImport()) return false;
+		if (fingerprintStore != null && importer == null 
+				&& (writer instanceof RepositoryRecordWriter || writer instanceof RepositoryRecordUpdater
+						|| writer instanceof AbstractBatchingRepositoryRecordWriter)){
+			return true;
+		}
+		logger.warn("[CENTROMERE] Delta import requires a FingerprintIndexStore, a repository record "
+				+ "writer, and no RecordImporter.  Falling back to full import.");
+		return false;
+	}
+
+	/**
+	 * Writes only the records that were added, changed, or removed since the previous import of the
+	 *   file, using a {@link DeltaRecordWriter} on the writer's repository in place of the writer 
+	 *   itself.  The new record fingerprints are saved once the import completes, so a failed delta 
+	 *   import can simply be run again.  If any records were skipped for failing validation, records
+	 *   missing from the file are not deleted, since the skipped records would be among them.
+	 * 
+	 * @param inputFilePath path to the input file.
+	 * @throws DataImportException
+	 */
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	protected void runDeltaImport(String inputFilePath) throws DataImportException {
+		RepositoryOperations<T, ?> repository;
+		if (writer instanceof RepositoryRecordWriter) {
+			repository = ((RepositoryRecordWriter<T>) writer).getRepository();
+		} else if (writer instanceof AbstractBatchingRepositoryRecordWriter) {
+			repository = ((AbstractBatchingRepositoryRecordWriter<T>) writer).getRepository();
+		} else {
+			repository = ((RepositoryRecordUpdater) writer).getRepository();
+		}
+		Map<Serializable, Long> previousFingerprints = fingerprintStore.getFingerprints(inputFilePath);
+		if (previousFingerprints == null){
+			logger.info(String.format("[CENTROMERE] No previous fingerprints found for file: %s", 
+					inputFilePath));
+		}
+		DeltaRecordWriter deltaWriter = new DeltaRecordWriter(repository, previousFingerprints);
+		reader.doBefore(inputFilePath);
+		deltaWriter.doBefore();
+		this.processRecords(reader, deltaWriter);
+		if (validationReport.getInvalidCount() > 0){
+			logger.warn(String.format("[CENTROMERE] %d invalid records were skipped, so records missing "
+					+ "from file will not be deleted: %s", validationReport.getInvalidCount(), inputFilePath));
+			deltaWriter.setDeleteStaleRecords(false);
+		}
+		deltaWriter.doAfter();
+		reader.doAfter();
+		fingerprintStore.saveFingerprints(inputFilePath, deltaWriter.getFingerprints());
+	}
+
+	/**
+	 * Tests whether import progress should be checkpointed, so that a failed import can be resumed.
+	 *   This requires that an {@link ImportCheckpointStore} be set, that 
+	 *   {@link BasicImportOptions#getCheckpointInterval()} be greater than zero, and that there be 
+	 *   no importer, since records are not persisted until the importer runs.  The interval is zero
+	 *   by default, so checkpointing must be enabled explicitly, even if a store is set.  
+	 *   Checkpointed imports are always processed sequentially.
+	 * 
+	 * @return true if checkpoints should be saved.
+	 */
+	protected boolean isCheckpointedImport(){
+		if (checkpointStore == null) return false;
+		if (options.getCheckpointInterval() <= 0){
+			if (options.isResumeImport()){
+				logger.warn("[CENTROMERE] Imports can only be resumed when a checkpoint interval is set.  "
+						+ "Importing the entire file.");
+			}
+			return false;
+		}
+		if (importer != null){
+			logger.warn("[CENTROMERE] Checkpoints cannot be saved for imports that use a RecordImporter.");
+			return false;
+		}
+		if (options.getPipelineThreads() > 0){
+			logger.warn("[CENTROMERE] Checkpointed imports do not use a record pipeline.  Processing "
+					+ "records sequentially.");
+		}
+		return true;
+	}
+
+	/**
+	 * Reads, validates, and writes records sequentially, saving an {@link ImportCheckpoint} to the 
+	 *   checkpoint store as records are persisted.  If the writer is a {@link FlushableRecordWriter},
+	 *   a checkpoint is saved after every batch flush, and a flush is forced if more than 
+	 *   {@link BasicImportOptions#getCheckpointInterval()} records have been read since the last 
+	 *   checkpoint, so resuming never writes a flushed record twice.  Other writers are 
+	 *   checkpointed every interval, and records written after the last checkpoint will be written 
+	 *   again on resume.  If {@link BasicImportOptions#isResumeImport()} is set, reading starts 
+	 *   from the last saved checkpoint; otherwise any existing checkpoint is discarded.  The 
+	 *   checkpoint is cleared once the import completes.
+	 * 
+	 * @param inputFilePath path to the input file.
+	 * @throws DataImportException
+	 */
+	protected void runCheckpointedImport(String inputFilePath) throws DataImportException {
+		ImportCheckpoint checkpoint = null;
+		if (options.isResumeImport()){
+			checkpoint = checkpointStore.getCheckpoint(inputFilePath);
+		} else {
+			checkpointStore.clearCheckpoint(inputFilePath);
+		}
 		reader.doBefore(inputFilePath);
 		writer.doBefore(this.getTempFilePath(inputFilePath));
-		T record = reader.readRecord();
+		try {
+			this.processCheckpointedRecords(inputFilePath, checkpoint);
+		} catch (DataImportException | RuntimeException e){
+			this.abortWriter(writer);
+			throw e;
+		}
+		writer.doAfter();
+		reader.doAfter();
+		checkpointStore.clearCheckpoint(inputFilePath);
+	}
+
+	/**
+	 * Reads, validates, and writes the records of a checkpointed import, starting from the 
+	 *   checkpoint, if there is one, and saving checkpoints as records are persisted.
+	 */
+	private void processCheckpointedRecords(String inputFilePath, ImportCheckpoint checkpoint) 
+			throws DataImportException {
+		long recordCount = 0L;
+		long previousBatchCount = 0L;
+		if (checkpoint != null){
+			this.resumeFromCheckpoint(reader, checkpoint);
+			recordCount = checkpoint.getRecordCount();
+			previousBatchCount = checkpoint.getBatchCount();
+		}
+		long checkpointRecordCount = recordCount;
+		long batchCount = 0L;
+		long position = this.getReaderPosition(reader);
+		T record = this.readRecord(reader);
 		while (record != null) {
-			if (validator != null) {
-				DataBinder dataBinder = new DataBinder(record);
-				dataBinder.setValidator(validator);
-				dataBinder.validate();
-				BindingResult bindingResult = dataBinder.getBindingResult();
-				if (bindingResult.hasErrors()){
-					logger.warn(String.format("Record failed validation: %s", record.toString()));
-					if (!options.isSkipInvalidRecords()){
-						throw new DataImportException(bindingResult.toString());
-					}
+			if (this.validateRecord(record)) {
+				this.writeRecord(writer, record);
+			}
+			recordCount++;
+			boolean due = recordCount - checkpointRecordCount >= options.getCheckpointInterval();
+			if (writer instanceof FlushableRecordWriter){
+				FlushableRecordWriter<T> flushableWriter = (FlushableRecordWriter<T>) writer;
+				if (due) flushableWriter.flush();
+				due = flushableWriter.getBatchCount() != batchCount;
+				batchCount = flushableWriter.getBatchCount();
+			}
+			if (due){
+				this.saveCheckpoint(inputFilePath, reader, recordCount, previousBatchCount + batchCount);
+				checkpointRecordCount = recordCount;
+				position = this.addBytesRead(reader, position);
+			}
+			record = this.readRecord(reader);
+		}
+		this.addBytesRead(reader, position);
+	}
+
+	/**
+	 * Advances the open reader past the records covered by the checkpoint, by seeking to the saved
+	 *   byte offset if the reader is a {@link SeekableRecordReader}, or by reading and discarding 
+	 *   the checkpoint's record count otherwise.  Readers with {@link HeaderSupport} parse the 
+	 *   file's header when they are opened, so it is not skipped by the seek.
+	 * 
+	 * @param reader open record reader.
+	 * @param checkpoint checkpoint to resume from.
+	 * @throws DataImportException
+	 */
+	protected void resumeFromCheckpoint(RecordReader<T> reader, ImportCheckpoint checkpoint) 
+			throws DataImportException {
+		logger.info(String.format("[CENTROMERE] Resuming import from %s", checkpoint.toString()));
+		if (reader instanceof SeekableRecordReader && checkpoint.getByteOffset() >= 0){
+			((SeekableRecordReader<T>) reader).seek(checkpoint.getByteOffset());
+		} else {
+			for (long i = 0; i < checkpoint.getRecordCount(); i++){
+				if (reader.readRecord() == null){
+					throw new DataImportException(String.format("Input file has fewer records than the "
+							+ "checkpoint: %s", checkpoint.toString()));
 				}
 			}
-			writer.writeRecord(record);
-			record = reader.readRecord();
+		}
+	}
+
+	/**
+	 * Saves a checkpoint at the reader's current position.
+	 */
+	private void saveCheckpoint(String inputFilePath, RecordReader<T> reader, long recordCount, 
+			long batchCount) throws DataImportException {
+		long byteOffset = reader instanceof SeekableRecordReader 
+				? ((SeekableRecordReader<T>) reader).getPosition() : -1L;
+		ImportCheckpoint checkpoint = new ImportCheckpoint(byteOffset, recordCount, batchCount);
+		checkpointStore.saveCheckpoint(inputFilePath, checkpoint);
+		logger.debug(String.format("[CENTROMERE] Saved %s", checkpoint.toString()));
+	}
+
+	/**
+	 * Tests whether records should be streamed directly into the importer.  This requires that 
+	 *   {@link BasicImportOptions#isStreamingImport()} be set, that the importer be a 
+	 *   {@link StreamingRecordImporter}, and that the writer be an {@link AbstractRecordFileWriter}.
+	 * 
+	 * @return true if streaming import can be used.
+	 */
+	protected boolean isStreamingImport(){
+		if (!options.isStreamingImport()) return false;
+		if (importer instanceof StreamingRecordImporter && writer instanceof AbstractRecordFileWriter){
+			return true;
+		}
+		logger.warn("[CENTROMERE] Streaming import requires a StreamingRecordImporter and an "
+				+ "AbstractRecordFileWriter.  Falling back to temp file import.");
+		return false;
+	}
+
+	/**
+	 * Writes records directly to the input stream of a {@link StreamingRecordImporter}, so that the
+	 *   import runs concurrently with parsing and no temp file is created.  If processing fails, or 
+	 *   the importer rejects the records flushed when the writer is closed, the import is aborted, 
+	 *   rather than finished, so that the records already streamed are not committed.
+	 * 
+	 * @param inputFilePath path to the input file.
+	 * @throws DataImportException
+	 */
+	protected void runStreamingImport(String inputFilePath) throws DataImportException {
+		StreamingRecordImporter streamingImporter = (StreamingRecordImporter) importer;
+		AbstractRecordFileWriter<T> fileWriter = (AbstractRecordFileWriter<T>) writer;
+		reader.doBefore(inputFilePath);
+		CountingOutputStream outputStream;
+		try {
+			outputStream = new CountingOutputStream(streamingImporter.startStreamingImport());
+		} catch (DataImportException | RuntimeException e){
+			reader.doAfter();
+			throw e;
+		}
+		try {
+			fileWriter.open(outputStream);
+			this.processRecords(reader, writer);
+			fileWriter.flushAndClose();
+		} catch (DataImportException | RuntimeException e){
+			logger.warn(String.format("[CENTROMERE] Aborting streaming import: %s", e.getMessage()));
+			streamingImporter.abortStreamingImport();
+			fileWriter.close();
+			reader.doAfter();
+			throw e;
 		}
 		writer.doAfter();
 		reader.doAfter();
-		if (importer != null) {
-			importer.importFile(this.getTempFilePath(inputFilePath));
+		long start = System.nanoTime();
+		streamingImporter.finishStreamingImport();
+		metrics.getStage(ImportMetrics.Stage.WRITE).add(0, outputStream.getCount(), 0);
+		metrics.getStage(ImportMetrics.Stage.IMPORT).add(0, outputStream.getCount(), System.nanoTime() - start);
+	}
+
+	/**
+	 * Tests whether the input file should be divided into chunks and imported concurrently.  This 
+	 *   requires that {@link BasicImportOptions#getImportChunks()} be greater than one, that reader,
+	 *   writer and importer factories be set, and that the file be uncompressed.  Chunks are never 
+	 *   imported with the shared importer, since most importers cannot run concurrently.  Streaming 
+	 *   import is not used for chunked imports.
+	 * 
+	 * @param inputFilePath path to the input file.
+	 * @return true if chunked import can be used.
+	 */
+	protected boolean isChunkedImport(String inputFilePath){
+		if (options.getImportChunks() <= 1) return false;
+		if (readerFactory == null || writerFactory == null || importerFactory == null){
+			logger.warn("[CENTROMERE] Chunked import requires reader, writer and importer factories.  "
+					+ "Falling back to single-chunk import.");
+			return false;
+		}
+		File file = new File(inputFilePath);
+		try {
+			if (!file.isFile() || CompressionUtils.detectCompression(file) != CompressionType.NONE){
+				logger.warn(String.format("[CENTROMERE] Input file cannot be split into chunks: %s", 
+						inputFilePath));
+				return false;
+			}
+		} catch (IOException e){
+			logger.warn(String.format("[CENTROMERE] Input file cannot be split into chunks: %s", 
+					e.getMessage()));
+			return false;
+		}
+		return true;
+	}
+
+	/**
+	 * Splits the input file into byte-range chunks, aligned to line boundaries, and runs each chunk 
+	 *   through its own reader, writer and importer chain concurrently.  Components are created 
+	 *   with the reader, writer and importer factories, and the factory must return a new importer
+	 *   for every chunk.  If the readers support {@link HeaderSupport}, the header is read once and 
+	 *   given to every chunk's reader, and left out of the chunks themselves.  If the importers 
+	 *   support {@link DropCollectionSupport}, the collection is dropped once, before any chunk is 
+	 *   imported, rather than by each chunk's importer.  Each chunk writes its temp file into its own
+	 *   subdirectory of the temp directory, so that the temp file names match those of a 
+	 *   single-chunk import.  If any chunk fails, the remaining chunks are cancelled, though chunks 
+	 *   that have already been imported are not rolled back.
+	 * 
+	 * @param inputFilePath path to the input file.
+	 * @throws DataImportException
+	 */
+	protected void runChunkedImport(final String inputFilePath) throws DataImportException {
+		RecordReader<T> headerReader = readerFactory.getObject();
+		this.configureComponent(headerReader);
+		final List<String> header;
+		long headerLength = 0L;
+		if (headerReader instanceof HeaderSupport){
+			headerLength = ((HeaderSupport) headerReader).readHeader(inputFilePath);
+			header = ((HeaderSupport) headerReader).getHeader();
+		} else {
+			header = null;
+		}
+		List<FileChunk> chunks;
+		try {
+			chunks = FileChunk.split(new File(inputFilePath), headerLength, options.getImportChunks());
+		} catch (IOException e){
+			e.printStackTrace();
+			throw new DataImportException(String.format("Cannot split input file: %s", inputFilePath));
+		}
+		List<RecordImporter> chunkImporters = this.createChunkImporters(chunks.size());
+		RecordImporter first = chunkImporters.isEmpty() ? null : chunkImporters.get(0);
+		if (first instanceof DropCollectionSupport && ((DropCollectionSupport) first).isDropCollection()){
+			((DropCollectionSupport) first).dropCollection(this.getTempFilePath(inputFilePath));
+		}
+		for (RecordImporter chunkImporter: chunkImporters){
+			if (chunkImporter instanceof DropCollectionSupport) {
+				((DropCollectionSupport) chunkImporter).setDropCollection(false);
+			}
+		}
+		logger.info(String.format("[CENTROMERE] Importing %s in %d chunks.", inputFilePath, chunks.size()));
+		ExecutorService executor = Executors.newFixedThreadPool(Math.max(chunks.size(), 1), 
+				new CustomizableThreadFactory("centromere-chunk-"));
+		List<Future<Object>> futures = new ArrayList<>();
+		try {
+			for (int i = 0; i < chunks.size(); i++){
+				final FileChunk chunk = chunks.get(i);
+				final RecordImporter chunkImporter = chunkImporters.get(i);
+				futures.add(executor.submit(new Callable<Object>() {
+					@Override 
+					public Object call() throws Exception {
+						runChunk(inputFilePath, chunk, header, chunkImporter);
+						return null;
+					}
+				}));
+			}
+			for (Future<Object> future: futures){
+				future.get();
+			}
+		} catch (InterruptedException e){
+			Thread.currentThread().interrupt();
+			throw new DataImportException("Interrupted while waiting for chunked import.");
+		} catch (ExecutionException e){
+			if (e.getCause() instanceof DataImportException) throw (DataImportException) e.getCause();
+			logger.error("[CENTROMERE] Chunked import failed.", e.getCause());
+			throw new DataImportException(String.format("Chunked import failed: %s", e.getCause().getMessage()));
+		} finally {
+			executor.shutdownNow();
 		}
 	}
 
+	/**
+	 * Creates a separate importer for each chunk with the importer factory, failing if the factory 
+	 *   returns the same instance, or the shared importer, more than once.
+	 * 
+	 * @param count number of chunks.
+	 * @return list of configured importers.
+	 * @throws DataImportException
+	 */
+	private List<RecordImporter> createChunkImporters(int count) throws DataImportException {
+		List<RecordImporter> chunkImporters = new ArrayList<>();
+		Set<RecordImporter> created = Collections.newSetFromMap(new IdentityHashMap<RecordImporter, Boolean>());
+		if (importer != null) created.add(importer);
+		for (int i = 0; i < count; i++){
+			RecordImporter chunkImporter = importerFactory.getObject();
+			if (chunkImporter == null || !created.add(chunkImporter)){
+				throw new DataImportException("Chunked import requires the importer factory to create a new "
+						+ "importer for each chunk.");
+			}
+			this.configureComponent(chunkImporter);
+			chunkImporters.add(chunkImporter);
+		}
+		return chunkImporters;
+	}
+
+	/**
+	 * Imports a single chunk of the input file, using newly created reader and writer components.
+	 * 
+	 * @param inputFilePath path to the input file.
+	 * @param chunk byte range to import.
+	 * @param header header read from the start of the file, or null if the reader does not support
+	 *               {@link HeaderSupport}.
+	 * @param chunkImporter importer used only by this chunk.
+	 * @throws DataImportException
+	 */
+	protected void runChunk(String inputFilePath, FileChunk chunk, List<String> header, 
+			RecordImporter chunkImporter) throws DataImportException {
+		RecordReader<T> chunkReader = readerFactory.getObject();
+		RecordWriter<T> chunkWriter = writerFactory.getObject();
+		this.configureComponent(chunkReader);
+		this.configureComponent(chunkWriter);
+		if (header != null && chunkReader instanceof HeaderSupport) {
+			((HeaderSupport) chunkReader).setHeader(header);
+		}
+		File chunkDirectory = new File(options.getTempDirectoryPath(), "chunk-" + chunk.getIndex());
+		if (!chunkDirectory.isDirectory() && !chunkDirectory.mkdirs()){
+			throw new DataImportException(String.format("Cannot create temp directory: %s", 
+					chunkDirectory.getPath()));
+		}
+		String tempFilePath = new File(chunkDirectory, new File(inputFilePath).getName() + ".tmp").getPath();
+		logger.debug(String.format("[CENTROMERE] Importing chunk %s of file %s", chunk.toString(), inputFilePath));
+		chunkReader.doBefore(inputFilePath, chunk);
+		chunkWriter.doBefore(tempFilePath);
+		try {
+			this.processRecords(chunkReader, chunkWriter);
+		} catch (DataImportException | RuntimeException e){
+			this.abortWriter(chunkWriter);
+			throw e;
+		}
+		chunkWriter.doAfter();
+		chunkReader.doAfter();
+		this.importTempFile(chunkImporter, tempFilePath);
+	}
+
+	/**
+	 * Releases the resources held by the writer after a failed import, if it is an 
+	 *   {@link AbortableRecordWriter}, since its {@code doAfter} method will not be called.
+	 * 
+	 * @param writer open record writer.
+	 */
+	protected void abortWriter(RecordWriter<T> writer){
+		if (writer instanceof AbortableRecordWriter) {
+			((AbortableRecordWriter<T>) writer).abort();
+		}
+	}
+
+	/**
+	 * Reads, validates, and writes records using a {@link RecordPipeline}, with validation spread
+	 *   across the number of worker threads set by {@link BasicImportOptions#getPipelineThreads()},
+	 *   in batches of {@link BasicImportOptions#getPipelineBatchSize()} records.  Records are written
+	 *   in input order, unless {@link BasicImportOptions#isPreserveRecordOrder()} is false.
+	 * 
+	 * @param reader open record reader.
+	 * @param writer open record writer.
+	 * @throws DataImportException
+	 */
+	protected void runPipeline(RecordReader<T> reader, RecordWriter<T> writer) throws DataImportException {
+		RecordPipeline<T> pipeline = new RecordPipeline<T>(reader, writer, options) {
+			@Override 
+			protected boolean accept(T record) throws DataImportException {
+				return isValidRecord(record);
+			}
+		};
+		pipeline.setMetrics(metrics);
+		long count = pipeline.run();
+		logger.info(String.format("[CENTROMERE] Pipeline wrote %d records using %d worker threads.", 
+				count, pipeline.getThreads()));
+	}
+
+	/**
+	 * Validates the record, if a {@link Validator} has been set, and adds the result to the 
+	 *   {@link ValidationReport}.  Invalid records will cause an exception to be thrown, unless 
+	 *   {@link BasicImportOptions#isSkipInvalidRecords()} is true.  Thread-safe, as long as the 
+	 *   validator is.
+	 * 
+	 * @param record record to validate.
+	 * @return true if the record is valid or there is no validator, false if it should be skipped.
+	 * @throws DataImportException
+	 */
+	protected boolean isValidRecord(T record) throws DataImportException {
+		RecordValidator<T> recordValidator = this.recordValidator;
+		if (recordValidator == null) return true;
+		Errors errors = recordValidator.validate(record);
+		if (errors != null){
+			metrics.addInvalidRecord();
+			logger.debug(String.format("[CENTROMERE] Record %s failed validation: %s", record.getId(), 
+					ValidationReport.summarize(errors)));
+			if (!options.isSkipInvalidRecords()){
+				throw new DataImportException(String.format("Record %s failed validation: %s", 
+						record.getId(), ValidationReport.summarize(errors)));
+			}
+			return false;
+		}
+		return true;
+	}
 
 	/**
 	 * Returns the path of the temporary file to be written, if necessary.  Uses the input file's name
@@ -218,6 +863,111 @@ public class GenericRecordProcessor<T extends Model<?>>
 		this.importer = importer;
 	}
 
+	public ObjectFactory<? extends RecordReader<T>> getReaderFactory() {
+		return readerFactory;
+	}
+
+	/**
+	 * Sets the factory used to create a separate {@link RecordReader} for each chunk of a chunked 
+	 *   import.  Chunked import requires the reader, writer and importer factories all to be set.
+	 */
+	public void setReaderFactory(ObjectFactory<? extends RecordReader<T>> readerFactory) {
+		this.readerFactory = readerFactory;
+	}
+
+	public ObjectFactory<? extends RecordWriter<T>> getWriterFactory() {
+		return writerFactory;
+	}
+
+	/**
+	 * Sets the factory used to create a separate {@link RecordWriter} for each chunk of a chunked 
+	 *   import.  Chunked import requires the reader, writer and importer factories all to be set.
+	 */
+	public void setWriterFactory(ObjectFactory<? extends RecordWriter<T>> writerFactory) {
+		this.writerFactory = writerFactory;
+	}
+
+	public ObjectFactory<? extends RecordImporter> getImporterFactory() {
+		return importerFactory;
+	}
+
+	/**
+	 * Sets the factory used to create a separate {@link RecordImporter} for each chunk of a chunked 
+	 *   import.  Required for chunked import, along with the reader and writer factories, since the 
+	 *   shared importer is never used concurrently.  The factory must return a new importer each time.
+	 */
+	public void setImporterFactory(ObjectFactory<? extends RecordImporter> importerFactory) {
+		this.importerFactory = importerFactory;
+	}
+
+	public ImportCheckpointStore getCheckpointStore() {
+		return checkpointStore;
+	}
+
+	/**
+	 * Sets the store used to save import checkpoints.  Checkpointing is disabled if not set.
+	 */
+	public void setCheckpointStore(ImportCheckpointStore checkpointStore) {
+		this.checkpointStore = checkpointStore;
+	}
+
+	public FingerprintIndexStore getFingerprintStore() {
+		return fingerprintStore;
+	}
+
+	/**
+	 * Sets the store used to save record fingerprints for delta imports.
+	 */
+	public void setFingerprintStore(FingerprintIndexStore fingerprintStore) {
+		this.fingerprintStore = fingerprintStore;
+	}
+
+	/**
+	 * Enables digest computation in the reader, if it implements {@link FileDigestSupport}.  Digests
+	 *   are not computed for chunked imports.
+	 */
+	@Override 
+	public void setFileDigestEnabled(boolean fileDigestEnabled) {
+		this.fileDigestEnabled = fileDigestEnabled;
+	}
+
+	@Override 
+	public boolean isFileDigestEnabled() {
+		return fileDigestEnabled;
+	}
+
+	/**
+	 * Returns the digest of the last input file computed by the reader, or null if none was computed.
+	 */
+	@Override 
+	public FileDigest getFileDigest() {
+		return fileDigest;
+	}
+
+	/**
+	 * Returns the throughput measurements of the current or last run.
+	 */
+	public ImportMetrics getImportMetrics() {
+		return metrics;
+	}
+
+	/**
+	 * Sets the metrics object that each run records its measurements to, so that they can be read by
+	 *   the caller once the run completes.
+	 */
+	@Override 
+	public void setImportMetrics(ImportMetrics importMetrics) {
+		Assert.notNull(importMetrics, "ImportMetrics must not be null.");
+		this.metrics = importMetrics;
+	}
+
+	/**
+	 * Returns the summary of validation results from the last run.
+	 */
+	public ValidationReport getValidationReport() {
+		return validationReport;
+	}
+
 	public ImportOptions getImportOptions() {
 		return options;
 	}
@@ -0,0 +1,50 @@
+/*
+ * Copyright 2016 William Oemler, Blueprint Medicines
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.oncoblocks.centromere.core.dataimport;
+
+import java.util.List;
+
+/**
+ * {@link RecordReader} implementations that parse a header from the start of the input file.  
+ *   Allows the header to be read once and shared between readers that only read part of the file, 
+ *   such as those for the chunks of a chunked import, which would otherwise never see it.
+ * 
+ * @author woemler
+ */
+public interface HeaderSupport {
+
+	/**
+	 * Reads and retains the header of the input file, without reading any records.
+	 * 
+	 * @param inputFilePath path to the input file.
+	 * @return the number of bytes occupied by the header at the start of the file.
+	 * @throws DataImportException
+	 */
+	long readHeader(String inputFilePath) throws DataImportException;
+
+	/**
+	 * Returns the header lines of the current input file, or null if none have been read or set.
+	 */
+	List<String> getHeader();
+
+	/**
+	 * Sets a header read by another reader, which is used in place of parsing the input file's own
+	 *   header.
+	 */
+	void setHeader(List<String> header);
+	
+}
@@ -0,0 +1,55 @@
+/*
+ * Copyright 2016 William Oemler, Blueprint Medicines
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.oncoblocks.centromere.core.dataimport;
+
+import org.oncoblocks.centromere.core.model.support.ImportCheckpoint;
+
+/**
+ * Persists {@link ImportCheckpoint} records for input files, so that interrupted imports can be
+ *   resumed by {@link GenericRecordProcessor}.
+ * 
+ * @author woemler
+ */
+public interface ImportCheckpointStore {
+
+	/**
+	 * Returns the last saved checkpoint for the file, or null if there is none.
+	 * 
+	 * @param filePath input file path.
+	 * @return checkpoint, or null.
+	 * @throws DataImportException
+	 */
+	ImportCheckpoint getCheckpoint(String filePath) throws DataImportException;
+
+	/**
+	 * Saves the checkpoint for the file, replacing any previous checkpoint.
+	 * 
+	 * @param filePath input file path.
+	 * @param checkpoint checkpoint to save.
+	 * @throws DataImportException
+	 */
+	void saveCheckpoint(String filePath, ImportCheckpoint checkpoint) throws DataImportException;
+
+	/**
+	 * Removes any saved checkpoint for the file.
+	 * 
+	 * @param filePath input file path.
+	 * @throws DataImportException
+	 */
+	void clearCheckpoint(String filePath) throws DataImportException;
+	
+}
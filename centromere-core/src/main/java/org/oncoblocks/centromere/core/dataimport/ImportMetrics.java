@@ -0,0 +1,303 @@
+/*
+ * Copyright 2016 William Oemler, Blueprint Medicines
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.oncoblocks.centromere.core.dataimport;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Collects throughput measurements for a single file import, as it passes through the 
+ *   {@link RecordReader}, validation, {@link RecordWriter} and {@link RecordImporter} stages.  Each 
+ *   {@link Stage} tracks the records and bytes it has handled and the time spent in it, from which
+ *   rates are derived.  Validation failures, {@link RecordPipeline} queue depths and peak heap usage
+ *   are tracked as well.  Thread-safe, so a single instance can be shared by concurrent chunks and 
+ *   pipeline workers, and read by an {@link ImportProgressReporter} while the import runs.  
+ *   
+ * Heap usage is sampled from the whole JVM, so when several imports run concurrently, each one's 
+ *   peak includes the memory used by the others, and is not a per-import figure.  The JVM's own 
+ *   peak usage counters are never reset, since they are shared by every import; their peak is 
+ *   available from {@link #getProcessPeakHeapBytes()}.
+ * 
+ * @author woemler
+ */
+public class ImportMetrics {
+	
+	public enum Stage { READ, VALIDATE, WRITE, IMPORT }
+	
+	private final Map<Stage, StageMetrics> stages = new EnumMap<>(Stage.class);
+	private final LongAdder invalidRecords = new LongAdder();
+	private final AtomicInteger inputQueueDepth = new AtomicInteger(0);
+	private final AtomicInteger outputQueueDepth = new AtomicInteger(0);
+	private final AtomicInteger peakInputQueueDepth = new AtomicInteger(0);
+	private final AtomicInteger peakOutputQueueDepth = new AtomicInteger(0);
+	private volatile long startTime = 0L;
+	private volatile long endTime = 0L;
+	private volatile long peakHeapBytes = 0L;
+
+	public ImportMetrics() {
+		for (Stage stage: Stage.values()){
+			stages.put(stage, new StageMetrics());
+		}
+	}
+
+	/**
+	 * Clears all measurements and starts the clock.
+	 */
+	public void start(){
+		for (StageMetrics stage: stages.values()){
+			stage.reset();
+		}
+		invalidRecords.reset();
+		inputQueueDepth.set(0);
+		outputQueueDepth.set(0);
+		peakInputQueueDepth.set(0);
+		peakOutputQueueDepth.set(0);
+		peakHeapBytes = 0L;
+		endTime = 0L;
+		startTime = System.currentTimeMillis();
+		this.sampleHeap();
+	}
+
+	/**
+	 * Stops the clock and records the final peak heap usage.
+	 */
+	public void finish(){
+		this.sampleHeap();
+		endTime = System.currentTimeMillis();
+	}
+
+	public boolean isStarted(){
+		return startTime > 0L;
+	}
+
+	/**
+	 * Returns the measurements for one stage of the import.
+	 */
+	public StageMetrics getStage(Stage stage){
+		return stages.get(stage);
+	}
+
+	public void addInvalidRecord(){
+		invalidRecords.increment();
+	}
+
+	/**
+	 * Records the current depths of the pipeline's input and output queues, in batches.
+	 */
+	public void recordQueueDepths(int inputDepth, int outputDepth){
+		inputQueueDepth.set(inputDepth);
+		outputQueueDepth.set(outputDepth);
+		updatePeak(peakInputQueueDepth, inputDepth);
+		updatePeak(peakOutputQueueDepth, outputDepth);
+	}
+	
+	private static void updatePeak(AtomicInteger peak, int value){
+		int current = peak.get();
+		while (value > current && !peak.compareAndSet(current, value)){
+			current = peak.get();
+		}
+	}
+
+	/**
+	 * Updates the peak heap usage with the JVM's current heap usage.  Called periodically while the
+	 *   import runs, so the peak is the highest usage sampled since {@link #start()}.
+	 */
+	public void sampleHeap(){
+		long used = ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+		if (used > peakHeapBytes) peakHeapBytes = used;
+	}
+
+	/**
+	 * Returns the sum of the peak usage of each heap memory pool since the JVM started.  Since pools
+	 *   peak at different times, this is an upper bound.  Covers every import run by the process, so
+	 *   should be reported once per run, rather than per import.
+	 */
+	public static long getProcessPeakHeapBytes(){
+		long peak = 0L;
+		for (MemoryPoolMXBean pool: ManagementFactory.getMemoryPoolMXBeans()){
+			if (pool.getType() == MemoryType.HEAP && pool.isValid() && pool.getPeakUsage() != null) {
+				peak += pool.getPeakUsage().getUsed();
+			}
+		}
+		return peak;
+	}
+
+	/**
+	 * Returns the time elapsed since {@link #start()}, up to {@link #finish()} if the import has 
+	 *   finished, in milliseconds.
+	 */
+	public long getElapsedMillis(){
+		if (startTime == 0L) return 0L;
+		return (endTime > 0L ? endTime : System.currentTimeMillis()) - startTime;
+	}
+
+	public long getInvalidRecordCount(){
+		return invalidRecords.sum();
+	}
+
+	public int getInputQueueDepth() {
+		return inputQueueDepth.get();
+	}
+
+	public int getOutputQueueDepth() {
+		return outputQueueDepth.get();
+	}
+
+	public int getPeakInputQueueDepth() {
+		return peakInputQueueDepth.get();
+	}
+
+	public int getPeakOutputQueueDepth() {
+		return peakOutputQueueDepth.get();
+	}
+
+	public long getPeakHeapBytes() {
+		return peakHeapBytes;
+	}
+
+	public long getStartTime() {
+		return startTime;
+	}
+
+	public long getEndTime() {
+		return endTime;
+	}
+
+	/**
+	 * Formats the current measurements as a single line, for progress logging.
+	 */
+	public String toProgressString(){
+		long elapsed = this.getElapsedMillis();
+		StringBuilder sb = new StringBuilder(String.format("elapsed=%.1fs", elapsed / 1000.0));
+		for (Stage stage: Stage.values()){
+			StageMetrics metrics = stages.get(stage);
+			if (metrics.getRecords() == 0 && metrics.getBytes() == 0) continue;
+			sb.append(String.format(", %s=%d records (%.0f/s)", stage.name().toLowerCase(), 
+					metrics.getRecords(), metrics.getRecordsPerSecond(elapsed)));
+			if (metrics.getBytes() > 0) {
+				sb.append(String.format(" %.1f MB (%.1f MB/s)", metrics.getBytes() / 1048576.0, 
+						metrics.getBytesPerSecond(elapsed) / 1048576.0));
+			}
+		}
+		sb.append(String.format(", invalid=%d", this.getInvalidRecordCount()));
+		if (peakInputQueueDepth.get() > 0 || peakOutputQueueDepth.get() > 0) {
+			sb.append(String.format(", queues=%d/%d", inputQueueDepth.get(), outputQueueDepth.get()));
+		}
+		sb.append(String.format(", peakHeap=%.1f MB", peakHeapBytes / 1048576.0));
+		return sb.toString();
+	}
+
+	/**
+	 * Returns all of the measurements as nested maps, for serialization as a machine-readable 
+	 *   summary.  Times are in milliseconds, and rates are per second of elapsed time.
+	 */
+	public Map<String, Object> toMap(){
+		long elapsed = this.getElapsedMillis();
+		Map<String, Object> map = new LinkedHashMap<>();
+		map.put("startTime", startTime);
+		map.put("endTime", endTime);
+		map.put("elapsedMillis", elapsed);
+		Map<String, Object> stageMap = new LinkedHashMap<>();
+		for (Stage stage: Stage.values()){
+			stageMap.put(stage.name().toLowerCase(), stages.get(stage).toMap(elapsed));
+		}
+		map.put("stages", stageMap);
+		map.put("invalidRecords", this.getInvalidRecordCount());
+		map.put("peakInputQueueDepth", peakInputQueueDepth.get());
+		map.put("peakOutputQueueDepth", peakOutputQueueDepth.get());
+		map.put("peakHeapBytes", peakHeapBytes);
+		return map;
+	}
+
+	@Override 
+	public String toString() {
+		return "ImportMetrics{" + this.toProgressString() + "}";
+	}
+
+	/**
+	 * Record, byte and time counters for a single stage of the import.  Counters are striped, so 
+	 *   that concurrent updates do not contend.
+	 */
+	public static class StageMetrics {
+		
+		private final LongAdder records = new LongAdder();
+		private final LongAdder bytes = new LongAdder();
+		private final LongAdder nanos = new LongAdder();
+
+		/**
+		 * Adds to the stage's counters.
+		 * 
+		 * @param records number of records handled.
+		 * @param bytes number of bytes handled, or zero if unknown.
+		 * @param nanos time spent in the stage, in nanoseconds.
+		 */
+		public void add(long records, long bytes, long nanos){
+			if (records != 0) this.records.add(records);
+			if (bytes != 0) this.bytes.add(bytes);
+			if (nanos != 0) this.nanos.add(nanos);
+		}
+		
+		void reset(){
+			records.reset();
+			bytes.reset();
+			nanos.reset();
+		}
+
+		public long getRecords() {
+			return records.sum();
+		}
+
+		public long getBytes() {
+			return bytes.sum();
+		}
+
+		/**
+		 * Returns the total time spent in the stage, which may exceed the elapsed time when the 
+		 *   stage runs on several threads.
+		 */
+		public long getMillis() {
+			return TimeUnit.NANOSECONDS.toMillis(nanos.sum());
+		}
+		
+		public double getRecordsPerSecond(long elapsedMillis){
+			return elapsedMillis > 0 ? this.getRecords() * 1000.0 / elapsedMillis : 0.0;
+		}
+
+		public double getBytesPerSecond(long elapsedMillis){
+			return elapsedMillis > 0 ? this.getBytes() * 1000.0 / elapsedMillis : 0.0;
+		}
+		
+		Map<String, Object> toMap(long elapsedMillis){
+			Map<String, Object> map = new LinkedHashMap<>();
+			map.put("records", this.getRecords());
+			map.put("bytes", this.getBytes());
+			map.put("millis", this.getMillis());
+			map.put("recordsPerSecond", this.getRecordsPerSecond(elapsedMillis));
+			map.put("bytesPerSecond", this.getBytesPerSecond(elapsedMillis));
+			return map;
+		}
+		
+	}
+	
+}
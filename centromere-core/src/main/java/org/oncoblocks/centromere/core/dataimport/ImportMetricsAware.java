@@ -0,0 +1,28 @@
+/*
+ * Copyright 2016 William Oemler, Blueprint Medicines
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.oncoblocks.centromere.core.dataimport;
+
+/**
+ * Data import components that implement this interface are given the {@link ImportMetrics} of the
+ *   running import, so that they can report their own measurements, such as the time spent in a
+ *   database driver.
+ * 
+ * @author woemler
+ */
+public interface ImportMetricsAware {
+	void setImportMetrics(ImportMetrics importMetrics);
+}
@@ -56,5 +56,15 @@ public interface ImportOptions {
 	String SKIP_INVALID_RECORDS = "skipInvalidRecords";
 	String TEMP_DIRECTORY_PATH = "tempDirectoryPath";
 	String SKIP_EXISTING_FILES = "skipExistingFiles";
+	String PIPELINE_THREADS = "pipelineThreads";
+	String PIPELINE_QUEUE_SIZE = "pipelineQueueSize";
+	String PIPELINE_BATCH_SIZE = "pipelineBatchSize";
+	String PRESERVE_RECORD_ORDER = "preserveRecordOrder";
+	String STREAMING_IMPORT = "streamingImport";
+	String IMPORT_CHUNKS = "importChunks";
+	String RESUME_IMPORT = "resumeImport";
+	String CHECKPOINT_INTERVAL = "checkpointInterval";
+	String DELTA_IMPORT = "deltaImport";
+	String PROGRESS_INTERVAL = "progressInterval";
 	
 }
@@ -0,0 +1,137 @@
+/*
+ * Copyright 2016 William Oemler, Blueprint Medicines
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.oncoblocks.centromere.core.dataimport;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.*;
+
+/**
+ * Wrapper for an external import utility process, such as {@code mongoimport}.  Standard output and 
+ *   standard error are drained on separate threads as soon as the process starts, so the process
+ *   can never block on a full output pipe, while its standard input remains available for streaming
+ *   records into it.
+ * 
+ * @author woemler
+ */
+public class ImportProcess {
+	
+	private final Process process;
+	private final StreamConsumer output;
+	private final StreamConsumer error;
+	private static final Logger logger = LoggerFactory.getLogger(ImportProcess.class);
+
+	private ImportProcess(Process process) {
+		this.process = process;
+		this.output = new StreamConsumer(process.getInputStream());
+		this.error = new StreamConsumer(process.getErrorStream());
+		output.start();
+		error.start();
+	}
+
+	/**
+	 * Starts the command and begins consuming its output.
+	 * 
+	 * @param commands command and arguments to execute.
+	 * @return the running process.
+	 * @throws DataImportException if the process cannot be started.
+	 */
+	public static ImportProcess start(String... commands) throws DataImportException {
+		try {
+			return new ImportProcess(Runtime.getRuntime().exec(commands));
+		} catch (IOException e){
+			e.printStackTrace();
+			throw new DataImportException(String.format("Unable to start import process: %s", e.getMessage()));
+		}
+	}
+
+	/**
+	 * Returns the standard input of the process.
+	 */
+	public OutputStream getInputStream(){
+		return process.getOutputStream();
+	}
+
+	/**
+	 * Waits for the process to exit, and for all of its output to be consumed.
+	 * 
+	 * @return exit value of the process.
+	 * @throws DataImportException if the thread is interrupted while waiting.
+	 */
+	public int waitFor() throws DataImportException {
+		try {
+			int exitValue = process.waitFor();
+			output.join();
+			error.join();
+			return exitValue;
+		} catch (InterruptedException e){
+			Thread.currentThread().interrupt();
+			process.destroy();
+			throw new DataImportException("Interrupted while waiting for import process.");
+		}
+	}
+
+	/**
+	 * Forcibly stops the process.
+	 */
+	public void destroy(){
+		process.destroy();
+	}
+
+	public String getOutput(){
+		return output.getContent();
+	}
+
+	public String getErrorOutput(){
+		return error.getContent();
+	}
+
+	/**
+	 * Reads all lines from a process stream, logging and collecting them.
+	 */
+	private static class StreamConsumer extends Thread {
+
+		private final InputStream inputStream;
+		private final StringBuffer content = new StringBuffer();
+
+		public StreamConsumer(InputStream inputStream) {
+			this.inputStream = inputStream;
+			this.setDaemon(true);
+		}
+
+		@Override 
+		public void run() {
+			try (BufferedReader reader = new BufferedReader(new InputStreamReader(inputStream))){
+				String line = reader.readLine();
+				while (line != null){
+					logger.debug(line);
+					content.append(line).append("\n");
+					line = reader.readLine();
+				}
+			} catch (IOException e){
+				logger.debug(e.getMessage());
+			}
+		}
+
+		public String getContent() {
+			return content.toString();
+		}
+		
+	}
+	
+}
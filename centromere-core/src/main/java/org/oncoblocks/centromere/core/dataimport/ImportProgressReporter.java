@@ -0,0 +1,87 @@
+/*
+ * Copyright 2016 William Oemler, Blueprint Medicines
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.oncoblocks.centromere.core.dataimport;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.util.Assert;
+
+import java.io.Closeable;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Periodically logs the {@link ImportMetrics} of a running import, on a background thread.
+ * 
+ * @author woemler
+ */
+public class ImportProgressReporter implements Closeable {
+	
+	private final ImportMetrics metrics;
+	private final long interval;
+	private final String label;
+	private ScheduledExecutorService executor;
+	private static final Logger logger = LoggerFactory.getLogger(ImportProgressReporter.class);
+
+	/**
+	 * @param metrics metrics of the import to report on.
+	 * @param interval time between reports, in seconds.
+	 * @param label name of the import, such as the input file path.
+	 */
+	public ImportProgressReporter(ImportMetrics metrics, long interval, String label) {
+		Assert.notNull(metrics, "ImportMetrics must not be null.");
+		Assert.isTrue(interval > 0, "Progress interval must be greater than zero.");
+		this.metrics = metrics;
+		this.interval = interval;
+		this.label = label;
+	}
+
+	/**
+	 * Starts logging progress, after the first interval has elapsed.
+	 */
+	public void start(){
+		if (executor != null) return;
+		executor = Executors.newSingleThreadScheduledExecutor(
+				new CustomizableThreadFactory("centromere-progress-"));
+		executor.scheduleAtFixedRate(new Runnable() {
+			@Override 
+			public void run() {
+				try {
+					metrics.sampleHeap();
+					logger.info(String.format("[CENTROMERE] Import progress for %s: %s", label, 
+							metrics.toProgressString()));
+				} catch (RuntimeException e){
+					logger.debug(e.getMessage());
+				}
+			}
+		}, interval, interval, TimeUnit.SECONDS);
+	}
+
+	/**
+	 * Stops logging progress.
+	 */
+	@Override 
+	public void close(){
+		if (executor != null) {
+			executor.shutdownNow();
+			executor = null;
+		}
+	}
+	
+}
@@ -0,0 +1,222 @@
+/*
+ * Copyright 2016 William Oemler, Blueprint Medicines
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.oncoblocks.centromere.core.dataimport;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.util.Assert;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Buffers records into batches and hands each batch off to {@link #writeBatch(List)} once it 
+ *   reaches the configured record count, or the configured size in bytes, if a 
+ *   {@link RecordSizeEstimator} is set.  Failed batches are logged and recorded as 
+ *   {@link BatchFailure} objects, and will halt the import unless {@code stopOnError} is false.
+ *   Not thread-safe.
+ * 
+ * @author woemler
+ */
+public abstract class RecordBatcher<T> {
+	
+	private int batchSize = 1000;
+	private long maxBatchBytes = 0L;
+	private RecordSizeEstimator<T> sizeEstimator;
+	private boolean stopOnError = true;
+	private List<T> batch = new ArrayList<>();
+	private long batchBytes = 0L;
+	private long batchCount = 0L;
+	private long recordCount = 0L;
+	private long failedRecordCount = 0L;
+	private final List<BatchFailure> failures = new ArrayList<>();
+	private static final Logger logger = LoggerFactory.getLogger(RecordBatcher.class);
+
+	/**
+	 * Writes a full batch of records to its destination.  Any {@link RuntimeException} thrown is 
+	 *   treated as a failure of the whole batch.
+	 * 
+	 * @param records records to write.
+	 * @throws DataImportException
+	 */
+	protected abstract void writeBatch(List<T> records) throws DataImportException;
+
+	/**
+	 * Adds the record to the current batch, flushing the batch if it is full.
+	 * 
+	 * @param record record to add.
+	 * @throws DataImportException if a flushed batch fails and {@code stopOnError} is true.
+	 */
+	public void add(T record) throws DataImportException {
+		batch.add(record);
+		if (sizeEstimator != null && maxBatchBytes > 0) {
+			batchBytes += sizeEstimator.estimateSize(record);
+		}
+		if (batch.size() >= batchSize || (maxBatchBytes > 0 && batchBytes >= maxBatchBytes)) {
+			this.flush();
+		}
+	}
+
+	/**
+	 * Writes any buffered records, regardless of the current batch size.
+	 * 
+	 * @throws DataImportException if the batch fails and {@code stopOnError} is true.
+	 */
+	public void flush() throws DataImportException {
+		if (batch.isEmpty()) return;
+		List<T> records = batch;
+		long batchNumber = ++batchCount;
+		long firstRecord = recordCount + failedRecordCount + 1;
+		batch = new ArrayList<>(Math.min(batchSize, 10000));
+		batchBytes = 0L;
+		try {
+			this.writeBatch(records);
+			recordCount += records.size();
+		} catch (DataImportException | RuntimeException e) {
+			failedRecordCount += records.size();
+			BatchFailure failure = new BatchFailure(batchNumber, firstRecord, records.size(), e.getMessage());
+			failures.add(failure);
+			logger.error(String.format("[CENTROMERE] Failed to write %s", failure.toString()));
+			if (stopOnError) {
+				throw new DataImportException(String.format("Failed to write %s", failure.toString()));
+			}
+		}
+	}
+
+	/**
+	 * Discards any buffered records and resets all counters.
+	 */
+	public void reset(){
+		batch = new ArrayList<>();
+		batchBytes = 0L;
+		batchCount = 0L;
+		recordCount = 0L;
+		failedRecordCount = 0L;
+		failures.clear();
+	}
+
+	public int getBatchSize() {
+		return batchSize;
+	}
+
+	public void setBatchSize(int batchSize) {
+		Assert.isTrue(batchSize > 0, "Batch size must be greater than zero.");
+		this.batchSize = batchSize;
+	}
+
+	public long getMaxBatchBytes() {
+		return maxBatchBytes;
+	}
+
+	public void setMaxBatchBytes(long maxBatchBytes) {
+		this.maxBatchBytes = maxBatchBytes;
+	}
+
+	public RecordSizeEstimator<T> getSizeEstimator() {
+		return sizeEstimator;
+	}
+
+	public void setSizeEstimator(RecordSizeEstimator<T> sizeEstimator) {
+		this.sizeEstimator = sizeEstimator;
+	}
+
+	public boolean isStopOnError() {
+		return stopOnError;
+	}
+
+	public void setStopOnError(boolean stopOnError) {
+		this.stopOnError = stopOnError;
+	}
+
+	/**
+	 * Returns the number of records currently buffered.
+	 */
+	public int getBufferedRecordCount(){
+		return batch.size();
+	}
+
+	/**
+	 * Returns the number of batches flushed, including failed batches.
+	 */
+	public long getBatchCount() {
+		return batchCount;
+	}
+
+	/**
+	 * Returns the number of records successfully written.
+	 */
+	public long getRecordCount() {
+		return recordCount;
+	}
+
+	/**
+	 * Returns the number of records in failed batches.
+	 */
+	public long getFailedRecordCount() {
+		return failedRecordCount;
+	}
+
+	public List<BatchFailure> getFailures() {
+		return Collections.unmodifiableList(failures);
+	}
+
+	/**
+	 * Describes a batch of records that could not be written.
+	 */
+	public static class BatchFailure {
+		
+		private final long batchNumber;
+		private final long firstRecord;
+		private final int size;
+		private final String message;
+
+		public BatchFailure(long batchNumber, long firstRecord, int size, String message) {
+			this.batchNumber = batchNumber;
+			this.firstRecord = firstRecord;
+			this.size = size;
+			this.message = message;
+		}
+
+		public long getBatchNumber() {
+			return batchNumber;
+		}
+
+		/**
+		 * Returns the position of the first record in the batch, counting from 1.
+		 */
+		public long getFirstRecord() {
+			return firstRecord;
+		}
+
+		public int getSize() {
+			return size;
+		}
+
+		public String getMessage() {
+			return message;
+		}
+
+		@Override 
+		public String toString() {
+			return String.format("batch %d (records %d-%d): %s", batchNumber, firstRecord, 
+					firstRecord + size - 1, message);
+		}
+		
+	}
+	
+}
@@ -0,0 +1,328 @@
+/*
+ * Copyright 2016 William Oemler, Blueprint Medicines
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.oncoblocks.centromere.core.dataimport;
+
+import org.oncoblocks.centromere.core.model.Model;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.util.Assert;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Runs the read-validate-write loop of a {@link RecordProcessor} as a three-stage pipeline: a single
+ *   reader thread, a pool of worker threads that run the {@link #accept(Model)} check, and a writer
+ *   stage that runs on the calling thread.  Records are passed between stages in batches, to limit
+ *   queue contention, and stages are connected by bounded queues, so a slow writer will block the 
+ *   workers, which will in turn block the reader.  When record order is preserved, the writer 
+ *   buffers out-of-order batches until their predecessors arrive, and the number of records in 
+ *   flight is capped at roughly the queue size, so the reorder buffer is bounded as well.
+ *   Neither the reader nor the writer need to be thread-safe, since each is only ever called from
+ *   one thread.  If {@link ImportMetrics} are set, the time spent in each stage and the queue 
+ *   depths are recorded for every batch.
+ *
+ * @author woemler
+ */
+public abstract class RecordPipeline<T extends Model<?>> {
+
+	private final RecordReader<T> reader;
+	private final RecordWriter<T> writer;
+	private final int threads;
+	private final int queueSize;
+	private final int batchSize;
+	private final boolean preserveOrder;
+	private ImportMetrics metrics;
+	private static final Logger logger = LoggerFactory.getLogger(RecordPipeline.class);
+
+	/**
+	 * @param reader open record reader.
+	 * @param writer open record writer.
+	 * @param threads number of worker threads.
+	 * @param queueSize maximum number of records queued between stages.
+	 * @param batchSize number of records passed between stages at a time.
+	 * @param preserveOrder whether records should be written in the order they were read.
+	 */
+	public RecordPipeline(RecordReader<T> reader, RecordWriter<T> writer, int threads, int queueSize,
+			int batchSize, boolean preserveOrder) {
+		Assert.notNull(reader, "RecordReader must not be null.");
+		Assert.notNull(writer, "RecordWriter must not be null.");
+		Assert.isTrue(threads > 0, "Number of pipeline threads must be greater than zero.");
+		Assert.isTrue(queueSize > 0, "Pipeline queue size must be greater than zero.");
+		Assert.isTrue(batchSize > 0, "Pipeline batch size must be greater than zero.");
+		this.reader = reader;
+		this.writer = writer;
+		this.threads = threads;
+		this.queueSize = queueSize;
+		this.batchSize = batchSize;
+		this.preserveOrder = preserveOrder;
+	}
+
+	public RecordPipeline(RecordReader<T> reader, RecordWriter<T> writer, int threads, int queueSize,
+			boolean preserveOrder) {
+		this(reader, writer, threads, queueSize, 1, preserveOrder);
+	}
+
+	public RecordPipeline(RecordReader<T> reader, RecordWriter<T> writer, BasicImportOptions options){
+		this(reader, writer, options.getPipelineThreads(), options.getPipelineQueueSize(),
+				options.getPipelineBatchSize(), options.isPreserveRecordOrder());
+	}
+
+	/**
+	 * Tests whether the record should be passed along to the writer.  Called concurrently from the
+	 *   worker threads, so implementations must be thread-safe.  Throwing an exception halts the
+	 *   pipeline.
+	 *
+	 * @param record record to test.
+	 * @return true if the record should be written, false if it should be skipped.
+	 * @throws DataImportException
+	 */
+	protected abstract boolean accept(T record) throws DataImportException;
+
+	/**
+	 * Reads all of the records from the reader, tests them, and writes the accepted records, in the
+	 *   order they were read if {@code preserveOrder} is set.  The reader and writer must already be
+	 *   open.
+	 *
+	 * @return the number of records written.
+	 * @throws DataImportException if any stage of the pipeline fails.
+	 */
+	public long run() throws DataImportException {
+
+		final int capacity = Math.max(1, queueSize / batchSize);
+		final BlockingQueue<Envelope<T>> inputQueue = new ArrayBlockingQueue<>(capacity);
+		final BlockingQueue<Envelope<T>> outputQueue = new ArrayBlockingQueue<>(capacity);
+		final Semaphore inFlight = new Semaphore(capacity);
+		final AtomicReference<Throwable> failure = new AtomicReference<>();
+		final ImportMetrics metrics = this.metrics;
+		ExecutorService executor = Executors.newFixedThreadPool(threads + 1,
+				new CustomizableThreadFactory("centromere-import-"));
+		long written = 0;
+
+		try {
+
+			executor.submit(new Runnable() {
+				@Override
+				public void run() {
+					long sequence = 0;
+					long position = getReaderPosition();
+					try {
+						List<T> batch = new ArrayList<>(batchSize);
+						long start = System.nanoTime();
+						T record = reader.readRecord();
+						while (record != null && failure.get() == null) {
+							batch.add(record);
+							if (batch.size() == batchSize) {
+								position = recordRead(metrics, batch.size(), position, start);
+								if (preserveOrder) inFlight.acquire();
+								inputQueue.put(new Envelope<>(sequence++, batch));
+								batch = new ArrayList<>(batchSize);
+								start = System.nanoTime();
+							}
+							record = reader.readRecord();
+						}
+						if (!batch.isEmpty() && failure.get() == null) {
+							recordRead(metrics, batch.size(), position, start);
+							if (preserveOrder) inFlight.acquire();
+							inputQueue.put(new Envelope<>(sequence, batch));
+						}
+						for (int i = 0; i < threads; i++) {
+							inputQueue.put(Envelope.<T>end());
+						}
+					} catch (InterruptedException e) {
+						Thread.currentThread().interrupt();
+					} catch (Throwable t) {
+						failure.compareAndSet(null, t);
+					}
+				}
+			});
+
+			for (int i = 0; i < threads; i++) {
+				executor.submit(new Runnable() {
+					@Override
+					public void run() {
+						try {
+							Envelope<T> envelope = inputQueue.take();
+							while (!envelope.isEnd()) {
+								List<T> records = envelope.getRecords();
+								long start = System.nanoTime();
+								for (int r = 0; r < records.size() && failure.get() == null; r++) {
+									if (!accept(records.get(r))) records.set(r, null);
+								}
+								if (metrics != null) {
+									metrics.getStage(ImportMetrics.Stage.VALIDATE)
+											.add(records.size(), 0, System.nanoTime() - start);
+								}
+								outputQueue.put(envelope);
+								envelope = inputQueue.take();
+							}
+							outputQueue.put(envelope);
+						} catch (InterruptedException e) {
+							Thread.currentThread().interrupt();
+						} catch (Throwable t) {
+							failure.compareAndSet(null, t);
+						}
+					}
+				});
+			}
+
+			Map<Long, Envelope<T>> pending = new HashMap<>();
+			long nextSequence = 0;
+			int finishedWorkers = 0;
+			while (finishedWorkers < threads && failure.get() == null) {
+				Envelope<T> envelope = outputQueue.poll(100, TimeUnit.MILLISECONDS);
+				if (metrics != null) metrics.recordQueueDepths(inputQueue.size(), outputQueue.size());
+				if (envelope == null) continue;
+				if (envelope.isEnd()) {
+					finishedWorkers++;
+				} else if (!preserveOrder) {
+					written += this.write(envelope);
+				} else {
+					pending.put(envelope.getSequence(), envelope);
+					Envelope<T> next = pending.remove(nextSequence);
+					while (next != null) {
+						written += this.write(next);
+						inFlight.release();
+						nextSequence++;
+						next = pending.remove(nextSequence);
+					}
+				}
+			}
+
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			failure.compareAndSet(null, e);
+		} catch (Throwable t) {
+			failure.compareAndSet(null, t);
+		} finally {
+			executor.shutdownNow();
+			try {
+				executor.awaitTermination(10, TimeUnit.SECONDS);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+
+		Throwable t = failure.get();
+		if (t != null) {
+			if (t instanceof DataImportException) throw (DataImportException) t;
+			logger.error("[CENTROMERE] Record pipeline failed.", t);
+			throw new DataImportException(String.format("Record pipeline failed: %s", t.getMessage()));
+		}
+		return written;
+
+	}
+
+	/**
+	 * Writes the accepted records of the batch.
+	 * 
+	 * @return the number of records written.
+	 */
+	private long write(Envelope<T> envelope) throws DataImportException {
+		long start = System.nanoTime();
+		long count = 0;
+		for (T record: envelope.getRecords()) {
+			if (record != null) {
+				writer.writeRecord(record);
+				count++;
+			}
+		}
+		if (metrics != null) {
+			metrics.getStage(ImportMetrics.Stage.WRITE).add(count, 0, System.nanoTime() - start);
+		}
+		return count;
+	}
+
+	/**
+	 * Records a batch of reads, including the bytes consumed if the reader reports its position.
+	 * 
+	 * @return the reader's current position.
+	 */
+	private long recordRead(ImportMetrics metrics, int records, long position, long start){
+		if (metrics == null) return position;
+		long current = this.getReaderPosition();
+		metrics.getStage(ImportMetrics.Stage.READ).add(records, Math.max(current - position, 0L), 
+				System.nanoTime() - start);
+		return current;
+	}
+	
+	private long getReaderPosition(){
+		return reader instanceof SeekableRecordReader ? ((SeekableRecordReader<T>) reader).getPosition() : 0L;
+	}
+
+	public int getThreads() {
+		return threads;
+	}
+
+	public int getQueueSize() {
+		return queueSize;
+	}
+
+	public int getBatchSize() {
+		return batchSize;
+	}
+
+	public boolean isPreserveOrder() {
+		return preserveOrder;
+	}
+
+	public ImportMetrics getMetrics() {
+		return metrics;
+	}
+
+	/**
+	 * Sets the metrics that pipeline throughput and queue depths are recorded to.  Optional.
+	 */
+	public void setMetrics(ImportMetrics metrics) {
+		this.metrics = metrics;
+	}
+
+	/**
+	 * Wraps batches of records passed between stages with their position in the input.  Rejected 
+	 *   records are replaced with {@code null}, so that the batch keeps its size.
+	 */
+	private static class Envelope<T> {
+
+		private final long sequence;
+		private final List<T> records;
+
+		public Envelope(long sequence, List<T> records) {
+			this.sequence = sequence;
+			this.records = records;
+		}
+
+		public static <T> Envelope<T> end(){
+			return new Envelope<>(-1L, Collections.<T>emptyList());
+		}
+
+		public long getSequence() {
+			return sequence;
+		}
+
+		public List<T> getRecords() {
+			return records;
+		}
+
+		public boolean isEnd(){
+			return sequence < 0;
+		}
+
+	}
+
+}
@@ -0,0 +1,35 @@
+/*
+ * Copyright 2016 William Oemler, Blueprint Medicines
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.oncoblocks.centromere.core.dataimport;
+
+/**
+ * Estimates the size of a record, in bytes, once it is written to its destination.  Used by
+ *   {@link RecordBatcher} to cap the size of record batches.
+ * 
+ * @author woemler
+ */
+public interface RecordSizeEstimator<T> {
+
+	/**
+	 * Returns the estimated size of the record, in bytes.
+	 * 
+	 * @param record record to measure.
+	 * @return estimated size in bytes.
+	 */
+	long estimateSize(T record);
+	
+}
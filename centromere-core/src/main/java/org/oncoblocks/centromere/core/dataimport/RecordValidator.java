@@ -0,0 +1,122 @@
+/*
+ * Copyright 2016 William Oemler, Blueprint Medicines
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.oncoblocks.centromere.core.dataimport;
+
+import org.oncoblocks.centromere.core.model.Model;
+import org.springframework.util.Assert;
+import org.springframework.util.StringUtils;
+import org.springframework.validation.BeanPropertyBindingResult;
+import org.springframework.validation.Errors;
+import org.springframework.validation.Validator;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Validates records with a Spring {@link Validator}, and tallies the results in a 
+ *   {@link ValidationReport}.  Whether the validator supports a model class, and the object name 
+ *   used for its error messages, are resolved once per class and cached, and each record is 
+ *   validated against a bare {@link BeanPropertyBindingResult}, rather than a new 
+ *   {@link org.springframework.validation.DataBinder}.  Thread-safe, as long as the underlying 
+ *   validator is.
+ * 
+ * @author woemler
+ */
+public class RecordValidator<T extends Model<?>> {
+	
+	private final Validator validator;
+	private final ValidationReport report;
+	private final ConcurrentMap<Class<?>, ModelMetadata> metadataCache = new ConcurrentHashMap<>();
+
+	public RecordValidator(Validator validator, ValidationReport report) {
+		Assert.notNull(validator, "Validator must not be null.");
+		this.validator = validator;
+		this.report = report != null ? report : new ValidationReport();
+	}
+
+	public RecordValidator(Validator validator) {
+		this(validator, null);
+	}
+
+	/**
+	 * Validates the record and adds the result to the report.
+	 * 
+	 * @param record record to validate.
+	 * @return the validation errors, or null if the record is valid.
+	 * @throws DataImportException if the validator does not support the record's class.
+	 */
+	public Errors validate(T record) throws DataImportException {
+		ModelMetadata metadata = this.getMetadata(record.getClass());
+		if (!metadata.isSupported()){
+			throw new DataImportException(String.format("Invalid target for Validator [%s]: %s", 
+					validator.getClass().getName(), record.getClass().getName()));
+		}
+		BeanPropertyBindingResult errors = new BeanPropertyBindingResult(record, metadata.getObjectName());
+		validator.validate(record, errors);
+		if (errors.hasErrors()){
+			report.addInvalid(record.getId(), errors);
+			return errors;
+		}
+		report.addValid();
+		return null;
+	}
+
+	/**
+	 * Returns the cached metadata for the model class, resolving it on first use.
+	 */
+	private ModelMetadata getMetadata(Class<?> model){
+		ModelMetadata metadata = metadataCache.get(model);
+		if (metadata == null){
+			metadata = new ModelMetadata(validator.supports(model), 
+					StringUtils.uncapitalize(model.getSimpleName()));
+			metadataCache.putIfAbsent(model, metadata);
+		}
+		return metadata;
+	}
+
+	public Validator getValidator() {
+		return validator;
+	}
+
+	public ValidationReport getReport() {
+		return report;
+	}
+
+	/**
+	 * Validation details of a single model class.
+	 */
+	private static class ModelMetadata {
+
+		private final boolean supported;
+		private final String objectName;
+
+		public ModelMetadata(boolean supported, String objectName) {
+			this.supported = supported;
+			this.objectName = objectName;
+		}
+
+		public boolean isSupported() {
+			return supported;
+		}
+
+		public String getObjectName() {
+			return objectName;
+		}
+
+	}
+	
+}
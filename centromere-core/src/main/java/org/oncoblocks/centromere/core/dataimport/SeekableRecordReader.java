@@ -0,0 +1,46 @@
+/*
+ * Copyright 2016 William Oemler, Blueprint Medicines
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.oncoblocks.centromere.core.dataimport;
+
+import org.oncoblocks.centromere.core.model.Model;
+
+/**
+ * {@link RecordReader} that can report its byte position in the input and skip forward to a 
+ *   previously reported position, allowing interrupted imports to be resumed without re-parsing 
+ *   the records that have already been imported.
+ * 
+ * @author woemler
+ */
+public interface SeekableRecordReader<T extends Model<?>> extends RecordReader<T> {
+
+	/**
+	 * Returns the byte offset of the input, just past the last record returned by 
+	 *   {@link #readRecord()}.
+	 */
+	long getPosition();
+
+	/**
+	 * Skips forward to a position previously returned by {@link #getPosition()}.  Readers that parse
+	 *   a header from the start of the input must do so when it is opened, so that the header is 
+	 *   still available after seeking past it.
+	 * 
+	 * @param position byte offset to resume reading from.
+	 * @throws DataImportException if the position cannot be reached.
+	 */
+	void seek(long position) throws DataImportException;
+	
+}
@@ -0,0 +1,58 @@
+/*
+ * Copyright 2016 William Oemler, Blueprint Medicines
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.oncoblocks.centromere.core.dataimport;
+
+import java.io.OutputStream;
+
+/**
+ * {@link RecordImporter} that can also load records as they are written, from a stream, rather 
+ *   than from a completed temp file.  A streaming import is started with 
+ *   {@link #startStreamingImport()}, fed by writing to the returned stream, and finished by closing
+ *   the stream and calling {@link #finishStreamingImport()}.  If the records cannot all be written,
+ *   the import is cancelled with {@link #abortStreamingImport()} instead, before the stream is 
+ *   closed.
+ * 
+ * @author woemler
+ */
+public interface StreamingRecordImporter extends RecordImporter {
+
+	/**
+	 * Starts an import that reads its input from the returned stream.  The input must be in the same 
+	 *   format as the temp files accepted by {@link #importFile(String)}.
+	 * 
+	 * @return stream to write records to.
+	 * @throws DataImportException
+	 */
+	OutputStream startStreamingImport() throws DataImportException;
+
+	/**
+	 * Waits for a streaming import to complete, once its input stream has been closed.
+	 * 
+	 * @throws DataImportException if the import failed.
+	 */
+	void finishStreamingImport() throws DataImportException;
+
+	/**
+	 * Cancels a streaming import without loading any input that has not yet been committed, such as
+	 *   after a record fails validation.  Transactional importers roll back everything written to 
+	 *   the stream.  Importers that cannot roll back discard any pending input, but records they 
+	 *   have already written remain.  Must not throw, and has no effect if no streaming import is 
+	 *   in progress.
+	 */
+	void abortStreamingImport();
+	
+}
@@ -0,0 +1,152 @@
+/*
+ * Copyright 2016 William Oemler, Blueprint Medicines
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.oncoblocks.centromere.core.dataimport;
+
+import org.springframework.validation.Errors;
+import org.springframework.validation.FieldError;
+import org.springframework.validation.ObjectError;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Thread-safe summary of the validation failures in an import.  Rather than keeping every failed 
+ *   record, counts failures by field and error code, and keeps a short description of the first 
+ *   few failed records.
+ * 
+ * @author woemler
+ */
+public class ValidationReport {
+	
+	public static final int DEFAULT_MAX_SAMPLES = 10;
+	
+	private final AtomicLong validCount = new AtomicLong();
+	private final AtomicLong invalidCount = new AtomicLong();
+	private final ConcurrentMap<String, AtomicLong> errorCounts = new ConcurrentHashMap<>();
+	private final List<String> samples = Collections.synchronizedList(new ArrayList<String>());
+	private final int maxSamples;
+
+	public ValidationReport(int maxSamples) {
+		this.maxSamples = maxSamples;
+	}
+
+	public ValidationReport() {
+		this(DEFAULT_MAX_SAMPLES);
+	}
+
+	public void addValid(){
+		validCount.incrementAndGet();
+	}
+
+	/**
+	 * Records a failed record.
+	 * 
+	 * @param id ID of the record, or null.
+	 * @param errors validation errors for the record.
+	 */
+	public void addInvalid(Object id, Errors errors){
+		long count = invalidCount.incrementAndGet();
+		for (ObjectError error: errors.getAllErrors()){
+			String key = getErrorKey(error);
+			AtomicLong errorCount = errorCounts.get(key);
+			if (errorCount == null){
+				AtomicLong created = new AtomicLong();
+				errorCount = errorCounts.putIfAbsent(key, created);
+				if (errorCount == null) errorCount = created;
+			}
+			errorCount.incrementAndGet();
+		}
+		if (count <= maxSamples){
+			samples.add(String.format("id=%s %s", id, summarize(errors)));
+		}
+	}
+
+	/**
+	 * Returns a compact description of the errors, listing the field and error code of each.
+	 * 
+	 * @param errors
+	 * @return
+	 */
+	public static String summarize(Errors errors){
+		StringBuilder builder = new StringBuilder("[");
+		boolean first = true;
+		for (ObjectError error: errors.getAllErrors()){
+			if (!first) builder.append(", ");
+			builder.append(getErrorKey(error));
+			first = false;
+		}
+		return builder.append("]").toString();
+	}
+	
+	private static String getErrorKey(ObjectError error){
+		if (error instanceof FieldError){
+			return ((FieldError) error).getField() + ":" + error.getCode();
+		}
+		return error.getObjectName() + ":" + error.getCode();
+	}
+
+	public void reset(){
+		validCount.set(0L);
+		invalidCount.set(0L);
+		errorCounts.clear();
+		samples.clear();
+	}
+
+	public long getValidCount() {
+		return validCount.get();
+	}
+
+	public long getInvalidCount() {
+		return invalidCount.get();
+	}
+
+	/**
+	 * Returns the number of times each error occurred, keyed by field and error code.
+	 */
+	public Map<String, Long> getErrorCounts() {
+		Map<String, Long> counts = new TreeMap<>();
+		for (Map.Entry<String, AtomicLong> entry: errorCounts.entrySet()){
+			counts.put(entry.getKey(), entry.getValue().get());
+		}
+		return counts;
+	}
+
+	/**
+	 * Returns descriptions of the first failed records.
+	 */
+	public List<String> getSamples() {
+		synchronized (samples) {
+			return new ArrayList<>(samples);
+		}
+	}
+
+	public int getMaxSamples() {
+		return maxSamples;
+	}
+
+	@Override 
+	public String toString() {
+		return "ValidationReport{" +
+				"validCount=" + validCount +
+				", invalidCount=" + invalidCount +
+				", errorCounts=" + getErrorCounts() +
+				", samples=" + getSamples() +
+				'}';
+	}
+}
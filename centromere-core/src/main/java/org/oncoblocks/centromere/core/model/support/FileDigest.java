@@ -0,0 +1,96 @@
+/*
+ * Copyright 2016 William Oemler, Blueprint Medicines
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.oncoblocks.centromere.core.model.support;
+
+import java.io.Serializable;
+
+/**
+ * Identifies the contents of a data file at the time it was imported, using its size, modification
+ *   time, and a hash of its raw bytes.
+ * 
+ * @author woemler
+ */
+public class FileDigest implements Serializable {
+	
+	private long size;
+	private long lastModified;
+	private String algorithm;
+	private String hash;
+
+	public FileDigest() { }
+
+	public FileDigest(long size, long lastModified, String algorithm, String hash) {
+		this.size = size;
+		this.lastModified = lastModified;
+		this.algorithm = algorithm;
+		this.hash = hash;
+	}
+
+	/**
+	 * Tests whether the file has the same size and modification time, in which case its contents 
+	 *   are assumed to be unchanged without being hashed.
+	 * 
+	 * @param size file size, in bytes.
+	 * @param lastModified file modification time.
+	 * @return true if both values match.
+	 */
+	public boolean matches(long size, long lastModified){
+		return this.size == size && this.lastModified == lastModified;
+	}
+
+	public long getSize() {
+		return size;
+	}
+
+	public void setSize(long size) {
+		this.size = size;
+	}
+
+	public long getLastModified() {
+		return lastModified;
+	}
+
+	public void setLastModified(long lastModified) {
+		this.lastModified = lastModified;
+	}
+
+	public String getAlgorithm() {
+		return algorithm;
+	}
+
+	public void setAlgorithm(String algorithm) {
+		this.algorithm = algorithm;
+	}
+
+	public String getHash() {
+		return hash;
+	}
+
+	public void setHash(String hash) {
+		this.hash = hash;
+	}
+
+	@Override 
+	public String toString() {
+		return "FileDigest{" +
+				"size=" + size +
+				", lastModified=" + lastModified +
+				", algorithm='" + algorithm + '\'' +
+				", hash='" + hash + '\'' +
+				'}';
+	}
+}
@@ -0,0 +1,97 @@
+/*
+ * Copyright 2016 William Oemler, Blueprint Medicines
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.oncoblocks.centromere.core.model.support;
+
+import java.io.Serializable;
+import java.util.Date;
+
+/**
+ * Records the progress of a partially-completed file import, so that a failed import can be 
+ *   resumed without re-reading or re-writing the records that have already been persisted.
+ * 
+ * @author woemler
+ */
+public class ImportCheckpoint implements Serializable {
+	
+	private long byteOffset = -1L;
+	private long recordCount = 0L;
+	private long batchCount = 0L;
+	private Date updated;
+
+	public ImportCheckpoint() { }
+
+	public ImportCheckpoint(long byteOffset, long recordCount, long batchCount) {
+		this.byteOffset = byteOffset;
+		this.recordCount = recordCount;
+		this.batchCount = batchCount;
+		this.updated = new Date();
+	}
+
+	/**
+	 * Offset in the input file of the first record that has not been persisted, or -1 if the 
+	 *   reader could not report its position.
+	 */
+	public long getByteOffset() {
+		return byteOffset;
+	}
+
+	public void setByteOffset(long byteOffset) {
+		this.byteOffset = byteOffset;
+	}
+
+	/**
+	 * Number of records read from the input file, including skipped records, prior to the 
+	 *   checkpoint.
+	 */
+	public long getRecordCount() {
+		return recordCount;
+	}
+
+	public void setRecordCount(long recordCount) {
+		this.recordCount = recordCount;
+	}
+
+	/**
+	 * Number of batches that had been flushed by the writer at the time of the checkpoint, or zero 
+	 *   if the writer does not write in batches.
+	 */
+	public long getBatchCount() {
+		return batchCount;
+	}
+
+	public void setBatchCount(long batchCount) {
+		this.batchCount = batchCount;
+	}
+
+	public Date getUpdated() {
+		return updated;
+	}
+
+	public void setUpdated(Date updated) {
+		this.updated = updated;
+	}
+
+	@Override 
+	public String toString() {
+		return "ImportCheckpoint{" +
+				"byteOffset=" + byteOffset +
+				", recordCount=" + recordCount +
+				", batchCount=" + batchCount +
+				", updated=" + updated +
+				'}';
+	}
+}
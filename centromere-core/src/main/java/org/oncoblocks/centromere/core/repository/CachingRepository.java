@@ -0,0 +1,466 @@
+/*
+ * Copyright 2016 William Oemler, Blueprint Medicines
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.oncoblocks.centromere.core.repository;
+
+import com.google.common.base.Throwables;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheBuilderSpec;
+import com.google.common.cache.CacheStats;
+import com.google.common.cache.Weigher;
+import org.oncoblocks.centromere.core.model.Model;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.util.CloseableIterator;
+import org.springframework.util.Assert;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * {@link RepositoryOperations} decorator that caches query results, for reference data that is 
+ *   read far more often than it changes.  Results are keyed by the model, the operation, the 
+ *   normalized list of {@link QueryCriteria}, and the sort and page requested.  The cache is 
+ *   configured with a Guava {@link CacheBuilderSpec}, and can be bounded by entry count 
+ *   ({@code maximumSize}) or by the number of records held ({@code maximumWeight}), with 
+ *   least-recently-used eviction and time-based expiry.  The whole cache is invalidated when 
+ *   records are written through the decorator, and should be invalidated with 
+ *   {@link #invalidateAll()} after imports that write to the database directly.  Each invalidation
+ *   starts a new cache generation, which is part of every key, so results loaded before an 
+ *   invalidation are never served after it, even if their load finishes later.  Cached records 
+ *   are shared between callers, and must not be modified.  Cursors returned by 
+ *   {@link #stream(Iterable, Sort)} are never cached.
+ * 
+ * @author woemler
+ */
+public class CachingRepository<T extends Model<ID>, ID extends Serializable> 
+		implements RepositoryOperations<T, ID> {
+	
+	public static final String DEFAULT_CACHE_SPEC = "maximumSize=1000,expireAfterWrite=10m";
+	
+	private final RepositoryOperations<T, ID> repository;
+	private final Cache<String, Object> cache;
+	private final AtomicLong generation = new AtomicLong();
+	private static final Object NULL = new Object();
+
+	/**
+	 * @param repository repository to decorate.
+	 * @param cacheSpec Guava cache specification, eg. {@code maximumSize=1000,expireAfterWrite=10m}.
+	 *   If {@code maximumWeight} is set, each entry is weighed by the number of records it holds.
+	 */
+	public CachingRepository(RepositoryOperations<T, ID> repository, String cacheSpec) {
+		Assert.notNull(repository, "RepositoryOperations must not be null.");
+		this.repository = repository;
+		CacheBuilder<Object, Object> builder = CacheBuilder.from(cacheSpec);
+		if (cacheSpec.contains("maximumWeight")){
+			builder.weigher(new Weigher<Object, Object>() {
+				@Override 
+				public int weigh(Object key, Object value) {
+					return getWeight(value);
+				}
+			});
+		}
+		this.cache = builder.build();
+	}
+
+	/**
+	 * @param repository repository to decorate.
+	 * @param maximumSize maximum number of cached results.
+	 * @param timeToLive time until cached results expire.
+	 * @param unit unit of {@code timeToLive}.
+	 */
+	public CachingRepository(RepositoryOperations<T, ID> repository, long maximumSize, long timeToLive, 
+			TimeUnit unit) {
+		Assert.notNull(repository, "RepositoryOperations must not be null.");
+		this.repository = repository;
+		this.cache = CacheBuilder.newBuilder()
+				.maximumSize(maximumSize)
+				.expireAfterWrite(timeToLive, unit)
+				.recordStats()
+				.build();
+	}
+
+	public CachingRepository(RepositoryOperations<T, ID> repository) {
+		this(repository, DEFAULT_CACHE_SPEC);
+	}
+	
+	private static int getWeight(Object value){
+		if (value instanceof Collection) return Math.max(1, ((Collection) value).size());
+		if (value instanceof Page) return Math.max(1, ((Page) value).getNumberOfElements());
+		if (value instanceof KeysetPage) return Math.max(1, ((KeysetPage) value).getNumberOfElements());
+		return 1;
+	}
+
+	/**
+	 * Returns the cached result for the key in the current generation, or loads and caches it.  A 
+	 *   result whose generation was invalidated while it was loading is returned, but not kept.
+	 */
+	@SuppressWarnings("unchecked")
+	private <R> R get(String key, final Callable<R> loader){
+		long current = generation.get();
+		String generationKey = current + "\u0002" + key;
+		try {
+			Object value = cache.get(generationKey, new Callable<Object>() {
+				@Override 
+				public Object call() throws Exception {
+					Object value = loader.call();
+					return value == null ? NULL : value;
+				}
+			});
+			if (generation.get() != current) cache.invalidate(generationKey);
+			return value == NULL ? null : (R) value;
+		} catch (ExecutionException e){
+			throw Throwables.propagate(e.getCause());
+		}
+	}
+	
+	private String createKey(String operation, Object... parts){
+		StringBuilder builder = new StringBuilder(repository.getModel().getName())
+				.append('#').append(operation);
+		for (Object part: parts){
+			builder.append('\u0001');
+			if (part instanceof Pageable){
+				Pageable pageable = (Pageable) part;
+				builder.append(pageable.getPageNumber()).append(':').append(pageable.getPageSize())
+						.append(':').append(pageable.getSort());
+			} else if (part instanceof QueryCriteriaList){
+				builder.append(CountCache.createKey(((QueryCriteriaList) part).criterias));
+			} else {
+				builder.append(part);
+			}
+		}
+		return builder.toString();
+	}
+	
+	private static QueryCriteriaList criteria(Iterable<QueryCriteria> queryCriterias){
+		return new QueryCriteriaList(queryCriterias);
+	}
+	
+	private static <S> List<S> toList(Iterable<S> iterable){
+		List<S> list = new ArrayList<>();
+		for (S item: iterable){
+			list.add(item);
+		}
+		return Collections.unmodifiableList(list);
+	}
+
+	/**
+	 * Removes all cached results, and starts a new generation, so that results still loading are 
+	 *   not cached.
+	 */
+	public void invalidateAll(){
+		generation.incrementAndGet();
+		cache.invalidateAll();
+	}
+
+	/**
+	 * Returns the cache statistics, which are only recorded if enabled with {@code recordStats}.
+	 */
+	public CacheStats getCacheStats(){
+		return cache.stats();
+	}
+
+	/**
+	 * Returns the number of cached results.
+	 */
+	public long getCacheSize(){
+		return cache.size();
+	}
+
+	/**
+	 * Returns the decorated repository.
+	 */
+	public RepositoryOperations<T, ID> getRepository() {
+		return repository;
+	}
+
+	//// Cached reads
+
+	@Override 
+	public T findOne(final ID id) {
+		return this.get(createKey("findOne", id), new Callable<T>() {
+			@Override 
+			public T call() throws Exception {
+				return repository.findOne(id);
+			}
+		});
+	}
+
+	@Override 
+	public boolean exists(final ID id) {
+		return this.get(createKey("exists", id), new Callable<Boolean>() {
+			@Override 
+			public Boolean call() throws Exception {
+				return repository.exists(id);
+			}
+		});
+	}
+
+	@Override 
+	public Iterable<T> findAll() {
+		return this.get(createKey("findAll"), new Callable<List<T>>() {
+			@Override 
+			public List<T> call() throws Exception {
+				return toList(repository.findAll());
+			}
+		});
+	}
+
+	@Override 
+	public Iterable<T> findAll(final Sort sort) {
+		return this.get(createKey("findAll", sort), new Callable<List<T>>() {
+			@Override 
+			public List<T> call() throws Exception {
+				return toList(repository.findAll(sort));
+			}
+		});
+	}
+
+	@Override 
+	public Page<T> findAll(final Pageable pageable) {
+		return this.get(createKey("findAll", pageable), new Callable<Page<T>>() {
+			@Override 
+			public Page<T> call() throws Exception {
+				return repository.findAll(pageable);
+			}
+		});
+	}
+
+	@Override 
+	public Iterable<T> findAll(Iterable<ID> ids) {
+		return repository.findAll(ids);
+	}
+
+	@Override 
+	public long count() {
+		return this.get(createKey("count"), new Callable<Long>() {
+			@Override 
+			public Long call() throws Exception {
+				return repository.count();
+			}
+		});
+	}
+
+	@Override 
+	public Iterable<T> find(final Iterable<QueryCriteria> queryCriterias) {
+		return this.get(createKey("find", criteria(queryCriterias)), new Callable<List<T>>() {
+			@Override 
+			public List<T> call() throws Exception {
+				return toList(repository.find(queryCriterias));
+			}
+		});
+	}
+
+	@Override 
+	public Iterable<T> find(final Iterable<QueryCriteria> queryCriterias, final Sort sort) {
+		return this.get(createKey("find", criteria(queryCriterias), sort), new Callable<List<T>>() {
+			@Override 
+			public List<T> call() throws Exception {
+				return toList(repository.find(queryCriterias, sort));
+			}
+		});
+	}
+
+	@Override 
+	public Page<T> find(final Iterable<QueryCriteria> queryCriterias, final Pageable pageable) {
+		return this.get(createKey("find", criteria(queryCriterias), pageable), new Callable<Page<T>>() {
+			@Override 
+			public Page<T> call() throws Exception {
+				return repository.find(queryCriterias, pageable);
+			}
+		});
+	}
+
+	@Override 
+	public CountedPage<T> find(final Iterable<QueryCriteria> queryCriterias, final Pageable pageable,
+			final CountStrategy countStrategy) {
+		return this.get(createKey("find", criteria(queryCriterias), pageable, countStrategy), 
+				new Callable<CountedPage<T>>() {
+					@Override 
+					public CountedPage<T> call() throws Exception {
+						return repository.find(queryCriterias, pageable, countStrategy);
+					}
+				});
+	}
+
+	@Override 
+	public KeysetPage<T> find(final Iterable<QueryCriteria> queryCriterias, 
+			final KeysetPageRequest pageRequest) {
+		return this.get(createKey("find", criteria(queryCriterias), pageRequest.getSize(), 
+				pageRequest.getSort(), pageRequest.getToken()), new Callable<KeysetPage<T>>() {
+					@Override 
+					public KeysetPage<T> call() throws Exception {
+						return repository.find(queryCriterias, pageRequest);
+					}
+				});
+	}
+
+	@Override 
+	public CloseableIterator<T> stream(Iterable<QueryCriteria> queryCriterias, Sort sort) {
+		return repository.stream(queryCriterias, sort);
+	}
+
+	@Override 
+	public long count(final Iterable<QueryCriteria> queryCriterias) {
+		return this.get(createKey("count", criteria(queryCriterias)), new Callable<Long>() {
+			@Override 
+			public Long call() throws Exception {
+				return repository.count(queryCriterias);
+			}
+		});
+	}
+
+	@Override 
+	public Iterable<Object> distinct(final String field) {
+		return this.get(createKey("distinct", field), new Callable<List<Object>>() {
+			@Override 
+			public List<Object> call() throws Exception {
+				return toList(repository.distinct(field));
+			}
+		});
+	}
+
+	@Override 
+	public Iterable<Object> distinct(final String field, final Iterable<QueryCriteria> queryCriterias) {
+		return this.get(createKey("distinct", field, criteria(queryCriterias)), 
+				new Callable<List<Object>>() {
+					@Override 
+					public List<Object> call() throws Exception {
+						return toList(repository.distinct(field, queryCriterias));
+					}
+				});
+	}
+
+	//// Writes, which invalidate the cache
+
+	@Override 
+	public <S extends T> S insert(S entity) {
+		try {
+			return repository.insert(entity);
+		} finally {
+			this.invalidateAll();
+		}
+	}
+
+	@Override 
+	public <S extends T> Iterable<S> insert(Iterable<S> entities) {
+		try {
+			return repository.insert(entities);
+		} finally {
+			this.invalidateAll();
+		}
+	}
+
+	@Override 
+	public <S extends T> S update(S entity) {
+		try {
+			return repository.update(entity);
+		} finally {
+			this.invalidateAll();
+		}
+	}
+
+	@Override 
+	public <S extends T> Iterable<S> update(Iterable<S> entities) {
+		try {
+			return repository.update(entities);
+		} finally {
+			this.invalidateAll();
+		}
+	}
+
+	@Override 
+	public <S extends T> S save(S entity) {
+		try {
+			return repository.save(entity);
+		} finally {
+			this.invalidateAll();
+		}
+	}
+
+	@Override 
+	public <S extends T> Iterable<S> save(Iterable<S> entities) {
+		try {
+			return repository.save(entities);
+		} finally {
+			this.invalidateAll();
+		}
+	}
+
+	@Override 
+	public void delete(ID id) {
+		try {
+			repository.delete(id);
+		} finally {
+			this.invalidateAll();
+		}
+	}
+
+	@Override 
+	public void delete(T entity) {
+		try {
+			repository.delete(entity);
+		} finally {
+			this.invalidateAll();
+		}
+	}
+
+	@Override 
+	public void delete(Iterable<? extends T> entities) {
+		try {
+			repository.delete(entities);
+		} finally {
+			this.invalidateAll();
+		}
+	}
+
+	@Override 
+	public void deleteAll() {
+		try {
+			repository.deleteAll();
+		} finally {
+			this.invalidateAll();
+		}
+	}
+
+	@Override 
+	public Class<T> getModel() {
+		return repository.getModel();
+	}
+
+	/**
+	 * Marks a criteria list in a cache key, so that it is normalized by {@link CountCache#createKey}.
+	 */
+	private static class QueryCriteriaList {
+		
+		private final Iterable<QueryCriteria> criterias;
+
+		public QueryCriteriaList(Iterable<QueryCriteria> criterias) {
+			this.criterias = criterias;
+		}
+		
+	}
+	
+}
@@ -0,0 +1,114 @@
+/*
+ * Copyright 2016 William Oemler, Blueprint Medicines
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.oncoblocks.centromere.core.repository;
+
+import com.google.common.base.Throwables;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Caches the results of count queries, keyed by their {@link QueryCriteria}, for the 
+ *   {@link CountStrategy#CACHED} strategy.  Entries expire a fixed time after they are written, and
+ *   are not invalidated when records change.  Thread-safe.
+ * 
+ * @author woemler
+ */
+public class CountCache {
+	
+	private final Cache<String, Long> cache;
+	private final long timeToLive;
+
+	/**
+	 * @param timeToLive time until cached counts expire.
+	 * @param unit unit of {@code timeToLive}.
+	 * @param maximumSize maximum number of counts to cache.
+	 */
+	public CountCache(long timeToLive, TimeUnit unit, long maximumSize) {
+		this.timeToLive = unit.toMillis(timeToLive);
+		this.cache = CacheBuilder.newBuilder()
+				.expireAfterWrite(timeToLive, unit)
+				.maximumSize(maximumSize)
+				.build();
+	}
+
+	public CountCache() {
+		this(60, TimeUnit.SECONDS, 1000);
+	}
+
+	/**
+	 * Returns the cached count for the criteria, or runs the counter and caches its result.
+	 * 
+	 * @param queryCriterias criteria the count was calculated for.
+	 * @param counter runs the count query.
+	 * @return record count.
+	 */
+	public long get(Iterable<QueryCriteria> queryCriterias, Callable<Long> counter){
+		try {
+			return cache.get(createKey(queryCriterias), counter);
+		} catch (ExecutionException e){
+			throw Throwables.propagate(e.getCause());
+		}
+	}
+
+	/**
+	 * Removes all cached counts, such as after a bulk import.
+	 */
+	public void invalidateAll(){
+		cache.invalidateAll();
+	}
+
+	/**
+	 * Returns the cache time-to-live, in milliseconds.
+	 */
+	public long getTimeToLive() {
+		return timeToLive;
+	}
+
+	/**
+	 * Creates a cache key from a set of criteria, which is equal for criteria with equal keys, 
+	 *   evaluations and values, in any order, since criteria are always combined with AND.  Array 
+	 *   values are compared by content.
+	 * 
+	 * @param queryCriterias query criteria.
+	 * @return cache key.
+	 */
+	public static String createKey(Iterable<QueryCriteria> queryCriterias){
+		List<String> keys = new ArrayList<>();
+		for (QueryCriteria criteria: queryCriterias){
+			if (criteria == null) continue;
+			Object value = criteria.getValue();
+			keys.add(criteria.getKey() + '\u0000' + criteria.getEvaluation() + '\u0000' 
+					+ (value instanceof Object[] ? Arrays.deepToString((Object[]) value) : value) + '\u0000'
+					+ (value == null ? "" : value.getClass().getName()));
+		}
+		Collections.sort(keys);
+		StringBuilder builder = new StringBuilder();
+		for (String key: keys){
+			builder.append(key).append('\u0001');
+		}
+		return builder.toString();
+	}
+	
+}
@@ -0,0 +1,52 @@
+/*
+ * Copyright 2016 William Oemler, Blueprint Medicines
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.oncoblocks.centromere.core.repository;
+
+/**
+ * Strategies for calculating the total record count of a paged query, which can be more expensive
+ *   than fetching the page itself.  Repositories that cannot support a strategy fall back to an 
+ *   exact count, and report the strategy actually used with {@link CountedPage#getCountStrategy()}.
+ * 
+ * @author woemler
+ */
+public enum CountStrategy {
+
+	/**
+	 * Runs a separate count query for every page.
+	 */
+	EXACT,
+
+	/**
+	 * Skips the count query, and fetches one extra record to determine whether there is a next 
+	 *   page.  The total is the number of records up to and including the current page, plus one 
+	 *   if there are more records, so it should only be used to decide whether there is a next page.
+	 */
+	NONE,
+
+	/**
+	 * Runs the count query once per distinct set of criteria, and reuses the result until it 
+	 *   expires.  Totals may be stale by up to the repository's cache time-to-live.
+	 */
+	CACHED,
+
+	/**
+	 * Uses the database's own estimate of the record count, such as collection statistics or 
+	 *   query plan row estimates, where available.
+	 */
+	ESTIMATED
+	
+}
@@ -0,0 +1,69 @@
+/*
+ * Copyright 2016 William Oemler, Blueprint Medicines
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.oncoblocks.centromere.core.repository;
+
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * {@link org.springframework.data.domain.Page} implementation that records the 
+ *   {@link CountStrategy} used to calculate its total record count.
+ * 
+ * @author woemler
+ */
+public class CountedPage<T> extends PageImpl<T> {
+	
+	private final CountStrategy countStrategy;
+
+	public CountedPage(List<T> content, Pageable pageable, long total, CountStrategy countStrategy) {
+		super(content, pageable, total);
+		this.countStrategy = countStrategy;
+	}
+
+	/**
+	 * Creates a page using the {@link CountStrategy#NONE} strategy, from query results fetched 
+	 *   with a limit of one more than the page size.
+	 * 
+	 * @param results query results.
+	 * @param pageable requested page.
+	 * @return page with a lower-bound total.
+	 */
+	public static <T> CountedPage<T> withoutCount(List<T> results, Pageable pageable){
+		boolean hasNext = results.size() > pageable.getPageSize();
+		List<T> content = hasNext ? new ArrayList<>(results.subList(0, pageable.getPageSize())) : results;
+		long total = pageable.getOffset() + content.size() + (hasNext ? 1 : 0);
+		return new CountedPage<>(content, pageable, total, CountStrategy.NONE);
+	}
+
+	/**
+	 * Returns the strategy that produced the page's total record count.
+	 */
+	public CountStrategy getCountStrategy() {
+		return countStrategy;
+	}
+
+	/**
+	 * Returns true if the total was calculated from an exact count, which may be cached.
+	 */
+	public boolean isTotalExact(){
+		return countStrategy == CountStrategy.EXACT || countStrategy == CountStrategy.CACHED;
+	}
+	
+}
@@ -0,0 +1,863 @@
+/*
+ * Copyright 2016 William Oemler, Blueprint Medicines
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.oncoblocks.centromere.core.repository;
+
+import org.oncoblocks.centromere.core.model.Model;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.BeanWrapper;
+import org.springframework.beans.NullValueInNestedPathException;
+import org.springframework.beans.PropertyAccessorFactory;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.util.CloseableIterator;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.util.Assert;
+
+import javax.annotation.PreDestroy;
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.*;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * {@link RepositoryOperations} implementation that holds an entire model collection in memory, for
+ *   small, heavily-read reference models, such as genes and samples.  Records are loaded from a 
+ *   source repository, and all reads are answered from memory.  Each indexed field gets a hash 
+ *   index, used for {@link Evaluation#EQUALS}, {@link Evaluation#IN} and 
+ *   {@link Evaluation#IS_NULL} criteria, and a sorted index, used for the range evaluations, such as
+ *   {@link Evaluation#GREATER_THAN} and {@link Evaluation#BETWEEN}.  All other criteria, and 
+ *   criteria on unindexed fields, are tested against each candidate record.  Fields holding 
+ *   collections match if any of their elements match, and are indexed by element.  Numeric values 
+ *   are compared by value, regardless of their type.
+ * 
+ * <p>Records are reloaded by {@link #refresh()}, which can be called when the source data changes, 
+ *   or on a schedule set with {@link #startRefresh(long, TimeUnit)}.  Queries running during a 
+ *   refresh see the previous copy of the data, which is replaced only once the new one is fully 
+ *   indexed.  Writes are passed through to the source repository, and mark the records as stale, 
+ *   so that they are reloaded once, by the next read, however many writes were made before it.  
+ *   Records are shared between callers, and must not be modified.
+ * 
+ * @author woemler
+ */
+public class InMemoryRepository<T extends Model<ID>, ID extends Serializable> 
+		implements RepositoryOperations<T, ID> {
+	
+	private static final String ID_FIELD = "id";
+	
+	private final RepositoryOperations<T, ID> repository;
+	private final Set<String> indexedFields;
+	private volatile Snapshot<T, ID> snapshot;
+	private final AtomicLong modifications = new AtomicLong();
+	private final Object refreshLock = new Object();
+	private ScheduledExecutorService scheduler;
+	private static final Logger logger = LoggerFactory.getLogger(InMemoryRepository.class);
+
+	/**
+	 * @param repository repository to load records from, and to write records to.
+	 * @param indexedFields names of the model fields to index.  Nested fields may be given as 
+	 *   property paths.
+	 */
+	public InMemoryRepository(RepositoryOperations<T, ID> repository, Collection<String> indexedFields) {
+		Assert.notNull(repository, "RepositoryOperations must not be null.");
+		Assert.notNull(indexedFields, "Indexed fields must not be null.");
+		this.repository = repository;
+		this.indexedFields = Collections.unmodifiableSet(new LinkedHashSet<>(indexedFields));
+	}
+
+	public InMemoryRepository(RepositoryOperations<T, ID> repository, String... indexedFields) {
+		this(repository, Arrays.asList(indexedFields));
+	}
+
+	/**
+	 * Reloads all records from the source repository and rebuilds the indexes.  If loading fails, 
+	 *   the current records are kept.
+	 */
+	public void refresh(){
+		synchronized (refreshLock) {
+			long start = System.currentTimeMillis();
+			long generation = modifications.get();
+			List<T> records = new ArrayList<>();
+			for (T record: repository.findAll()){
+				records.add(record);
+			}
+			this.snapshot = new Snapshot<>(records, indexedFields, generation);
+			logger.info(String.format("[CENTROMERE] Loaded %d %s records into memory in %d ms", 
+					records.size(), repository.getModel().getName(), System.currentTimeMillis() - start));
+		}
+	}
+
+	/**
+	 * Starts refreshing the records periodically, in a background thread.  Replaces any refresh 
+	 *   schedule that was already started.
+	 * 
+	 * @param period time between the end of one refresh and the start of the next.
+	 * @param unit unit of {@code period}.
+	 */
+	public synchronized void startRefresh(long period, TimeUnit unit){
+		Assert.isTrue(period > 0, "Refresh period must be greater than zero.");
+		this.stopRefresh();
+		CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("centromere-refresh-");
+		threadFactory.setDaemon(true);
+		scheduler = Executors.newSingleThreadScheduledExecutor(threadFactory);
+		scheduler.scheduleWithFixedDelay(new Runnable() {
+			@Override 
+			public void run() {
+				try {
+					refresh();
+				} catch (Exception e){
+					logger.error(String.format("[CENTROMERE] Failed to refresh in-memory %s records", 
+							repository.getModel().getName()), e);
+				}
+			}
+		}, period, period, unit);
+	}
+
+	/**
+	 * Stops the periodic refresh, if one was started.
+	 */
+	@PreDestroy
+	public synchronized void stopRefresh(){
+		if (scheduler != null){
+			scheduler.shutdownNow();
+			scheduler = null;
+		}
+	}
+
+	/**
+	 * Returns true if the records have been loaded into memory.
+	 */
+	public boolean isLoaded(){
+		return snapshot != null;
+	}
+
+	/**
+	 * Returns the current records, loading them on first use, and reloading them if there have been
+	 *   writes since they were loaded.
+	 */
+	private Snapshot<T, ID> getSnapshot(){
+		Snapshot<T, ID> current = snapshot;
+		if (this.isStale(current)){
+			synchronized (refreshLock) {
+				if (this.isStale(snapshot)) this.refresh();
+				current = snapshot;
+			}
+		}
+		return current;
+	}
+	
+	private boolean isStale(Snapshot<T, ID> current){
+		return current == null || current.generation != modifications.get();
+	}
+
+	/**
+	 * Returns the records matching all of the criteria, in load order.  Indexed criteria are 
+	 *   resolved first, and the remaining criteria are tested against the records they select.
+	 */
+	private List<T> select(Snapshot<T, ID> snapshot, Iterable<QueryCriteria> queryCriterias){
+		BitSet matches = null;
+		List<QueryCriteria> remaining = new ArrayList<>();
+		if (queryCriterias != null){
+			for (QueryCriteria criteria: queryCriterias){
+				if (criteria == null) continue;
+				FieldIndex index = snapshot.indexes.get(criteria.getKey());
+				BitSet hits = index == null ? null : index.lookup(criteria);
+				if (hits == null) {
+					remaining.add(criteria);
+				} else if (matches == null) {
+					matches = hits;
+				} else {
+					matches.and(hits);
+				}
+			}
+		}
+		List<T> results = new ArrayList<>();
+		if (matches == null){
+			for (T record: snapshot.records){
+				if (matchesAll(record, remaining)) results.add(record);
+			}
+		} else {
+			for (int i = matches.nextSetBit(0); i >= 0; i = matches.nextSetBit(i + 1)){
+				T record = snapshot.records.get(i);
+				if (matchesAll(record, remaining)) results.add(record);
+			}
+		}
+		return results;
+	}
+	
+	private static boolean matchesAll(Object record, List<QueryCriteria> queryCriterias){
+		for (QueryCriteria criteria: queryCriterias){
+			if (!matches(record, criteria)) return false;
+		}
+		return true;
+	}
+
+	/**
+	 * Tests a record against a single criteria.  Negated evaluations match when no value of the 
+	 *   field matches the positive evaluation.
+	 */
+	private static boolean matches(Object record, QueryCriteria criteria){
+		Collection<Object> values = getValues(record, criteria.getKey());
+		switch (criteria.getEvaluation()){
+			case NOT_EQUALS:
+				return !anyMatch(values, Evaluation.EQUALS, criteria.getValue());
+			case NOT_IN:
+				return !anyMatch(values, Evaluation.IN, criteria.getValue());
+			case NOT_LIKE:
+				return !anyMatch(values, Evaluation.LIKE, criteria.getValue());
+			case NOT_NULL:
+				return !anyMatch(values, Evaluation.IS_NULL, criteria.getValue());
+			default:
+				return anyMatch(values, criteria.getEvaluation(), criteria.getValue());
+		}
+	}
+	
+	private static boolean anyMatch(Collection<Object> values, Evaluation evaluation, Object expected){
+		for (Object value: values){
+			if (test(value, evaluation, expected)) return true;
+		}
+		return false;
+	}
+	
+	private static boolean test(Object value, Evaluation evaluation, Object expected){
+		switch (evaluation){
+			case IN:
+				for (Object item: (Collection<?>) expected){
+					if (valueEquals(value, item)) return true;
+				}
+				return false;
+			case IS_NULL:
+				return value == null;
+			case GREATER_THAN:
+				return isComparable(value, expected) && compareValues(value, expected) > 0;
+			case GREATER_THAN_EQUALS:
+				return isComparable(value, expected) && compareValues(value, expected) >= 0;
+			case LESS_THAN:
+				return isComparable(value, expected) && compareValues(value, expected) < 0;
+			case LESS_THAN_EQUALS:
+				return isComparable(value, expected) && compareValues(value, expected) <= 0;
+			case BETWEEN:
+				return test(value, Evaluation.GREATER_THAN, ((List) expected).get(0))
+						&& test(value, Evaluation.LESS_THAN, ((List) expected).get(1));
+			case BETWEEN_INCLUSIVE:
+				return test(value, Evaluation.GREATER_THAN_EQUALS, ((List) expected).get(0))
+						&& test(value, Evaluation.LESS_THAN_EQUALS, ((List) expected).get(1));
+			case OUTSIDE:
+				return test(value, Evaluation.LESS_THAN, ((List) expected).get(0))
+						|| test(value, Evaluation.GREATER_THAN, ((List) expected).get(1));
+			case OUTSIDE_INCLUSIVE:
+				return test(value, Evaluation.LESS_THAN_EQUALS, ((List) expected).get(0))
+						|| test(value, Evaluation.GREATER_THAN_EQUALS, ((List) expected).get(1));
+			case LIKE:
+				return value != null && value.toString().contains(expected.toString());
+			case STARTS_WITH:
+				return value != null && value.toString().startsWith(expected.toString());
+			case ENDS_WITH:
+				return value != null && value.toString().endsWith(expected.toString());
+			case IS_TRUE:
+				return Boolean.TRUE.equals(value);
+			case IS_FALSE:
+				return Boolean.FALSE.equals(value);
+			default:
+				return valueEquals(value, expected);
+		}
+	}
+
+	/**
+	 * Returns the values of a record field, as a collection: the elements of a collection field, or
+	 *   a single value otherwise.  Empty collections and missing nested fields have a single 
+	 *   {@code null} value.
+	 */
+	@SuppressWarnings("unchecked")
+	private static Collection<Object> getValues(Object record, String field){
+		Object value = getValue(record, field);
+		if (value instanceof Collection && !((Collection) value).isEmpty()){
+			return (Collection<Object>) value;
+		} else if (value instanceof Collection) {
+			return Collections.singletonList(null);
+		}
+		return Collections.singletonList(value);
+	}
+	
+	private static Object getValue(Object record, String field){
+		BeanWrapper wrapper = PropertyAccessorFactory.forBeanPropertyAccess(record);
+		try {
+			return wrapper.getPropertyValue(field);
+		} catch (NullValueInNestedPathException e){
+			return null;
+		}
+	}
+
+	/**
+	 * Converts values to a common type for hashing and comparison: integral numbers to 
+	 *   {@link Long}, other numbers to {@link Double}, and enums and characters to strings.
+	 */
+	private static Object normalize(Object value){
+		if (value instanceof Long || value instanceof Integer || value instanceof Short 
+				|| value instanceof Byte){
+			return ((Number) value).longValue();
+		} else if (value instanceof Double || value instanceof Float) {
+			double d = ((Number) value).doubleValue();
+			return d == Math.rint(d) && Math.abs(d) < Long.MAX_VALUE ? (Object) (long) d : (Object) d;
+		} else if (value instanceof BigInteger) {
+			BigInteger i = (BigInteger) value;
+			return i.bitLength() < 64 ? (Object) i.longValue() : (Object) i.doubleValue();
+		} else if (value instanceof BigDecimal) {
+			return normalize(((BigDecimal) value).doubleValue());
+		} else if (value instanceof Enum) {
+			return ((Enum) value).name();
+		} else if (value instanceof Character) {
+			return value.toString();
+		}
+		return value;
+	}
+	
+	private static boolean valueEquals(Object value, Object expected){
+		if (value == null || expected == null) return value == expected;
+		return normalize(value).equals(normalize(expected));
+	}
+
+	/**
+	 * Returns true if the values can be ordered against one another: both are numbers, or one is a
+	 *   {@link Comparable} instance of the other's class.
+	 */
+	private static boolean isComparable(Object a, Object b){
+		if (a == null || b == null) return false;
+		a = normalize(a);
+		b = normalize(b);
+		if (a instanceof Number && b instanceof Number) return true;
+		return a instanceof Comparable && b instanceof Comparable 
+				&& (a.getClass().isInstance(b) || b.getClass().isInstance(a));
+	}
+
+	/**
+	 * Total ordering of field values, with nulls first.  Values that are not comparable with one 
+	 *   another are ordered by class name.
+	 */
+	@SuppressWarnings("unchecked")
+	private static int compareValues(Object a, Object b){
+		if (a == b) return 0;
+		if (a == null) return -1;
+		if (b == null) return 1;
+		a = normalize(a);
+		b = normalize(b);
+		if (a instanceof Long && b instanceof Long) {
+			return Long.compare((Long) a, (Long) b);
+		} else if (a instanceof Number && b instanceof Number) {
+			return Double.compare(((Number) a).doubleValue(), ((Number) b).doubleValue());
+		} else if (isComparable(a, b)) {
+			return a.getClass().isInstance(b) ? ((Comparable) a).compareTo(b) : -((Comparable) b).compareTo(a);
+		}
+		int c = a.getClass().getName().compareTo(b.getClass().getName());
+		return c != 0 ? c : a.toString().compareTo(b.toString());
+	}
+	
+	private static final Comparator<Object> VALUE_COMPARATOR = new Comparator<Object>() {
+		@Override 
+		public int compare(Object a, Object b) {
+			return compareValues(a, b);
+		}
+	};
+
+	/**
+	 * Sorts the records, keeping load order for ties.  Sort values are read once for each record.
+	 */
+	private List<T> sort(List<T> records, Sort sort){
+		if (sort == null || !sort.iterator().hasNext()) return records;
+		List<T> sorted = new ArrayList<>();
+		for (SortEntry<T> entry: this.sortEntries(records, sort)){
+			sorted.add(entry.record);
+		}
+		return sorted;
+	}
+	
+	private List<SortEntry<T>> sortEntries(List<T> records, Sort sort){
+		final List<Sort.Order> orders = new ArrayList<>();
+		for (Sort.Order order: sort){
+			orders.add(order);
+		}
+		List<SortEntry<T>> entries = new ArrayList<>();
+		for (T record: records){
+			Object[] keys = new Object[orders.size()];
+			for (int i = 0; i < orders.size(); i++){
+				keys[i] = getValue(record, orders.get(i).getProperty());
+			}
+			entries.add(new SortEntry<>(record, keys));
+		}
+		Collections.sort(entries, new Comparator<SortEntry<T>>() {
+			@Override 
+			public int compare(SortEntry<T> a, SortEntry<T> b) {
+				return compareKeys(a.keys, b.keys, orders);
+			}
+		});
+		return entries;
+	}
+	
+	private static int compareKeys(Object[] a, Object[] b, List<Sort.Order> orders){
+		for (int i = 0; i < orders.size(); i++){
+			Sort.Order order = orders.get(i);
+			int c = order.isIgnoreCase() && a[i] instanceof String && b[i] instanceof String
+					? String.CASE_INSENSITIVE_ORDER.compare((String) a[i], (String) b[i]) 
+					: compareValues(a[i], b[i]);
+			if (c != 0) return order.isAscending() ? c : -c;
+		}
+		return 0;
+	}
+	
+	private static <S> List<S> slice(List<S> records, int offset, int size){
+		if (offset >= records.size()) return new ArrayList<>();
+		return new ArrayList<>(records.subList(offset, Math.min(records.size(), offset + size)));
+	}
+
+	/**
+	 * Returns the number of records held in memory.
+	 */
+	public int getSize(){
+		return this.getSnapshot().records.size();
+	}
+
+	/**
+	 * Returns the source repository.
+	 */
+	public RepositoryOperations<T, ID> getRepository() {
+		return repository;
+	}
+
+	public Set<String> getIndexedFields() {
+		return indexedFields;
+	}
+
+	//// Reads
+
+	@Override 
+	public T findOne(ID id) {
+		Snapshot<T, ID> current = this.getSnapshot();
+		Integer position = current.ids.get(id);
+		return position == null ? null : current.records.get(position);
+	}
+
+	@Override 
+	public boolean exists(ID id) {
+		return this.getSnapshot().ids.containsKey(id);
+	}
+
+	@Override 
+	public Iterable<T> findAll() {
+		return Collections.unmodifiableList(this.getSnapshot().records);
+	}
+
+	@Override 
+	public Iterable<T> findAll(Sort sort) {
+		return Collections.unmodifiableList(this.sort(this.getSnapshot().records, sort));
+	}
+
+	@Override 
+	public Page<T> findAll(Pageable pageable) {
+		return this.find(Collections.<QueryCriteria>emptyList(), pageable);
+	}
+
+	@Override 
+	public Iterable<T> findAll(Iterable<ID> ids) {
+		Snapshot<T, ID> current = this.getSnapshot();
+		List<T> records = new ArrayList<>();
+		for (ID id: ids){
+			Integer position = current.ids.get(id);
+			if (position != null) records.add(current.records.get(position));
+		}
+		return records;
+	}
+
+	@Override 
+	public long count() {
+		return this.getSnapshot().records.size();
+	}
+
+	@Override 
+	public Iterable<T> find(Iterable<QueryCriteria> queryCriterias) {
+		return this.select(this.getSnapshot(), queryCriterias);
+	}
+
+	@Override 
+	public Iterable<T> find(Iterable<QueryCriteria> queryCriterias, Sort sort) {
+		return this.sort(this.select(this.getSnapshot(), queryCriterias), sort);
+	}
+
+	@Override 
+	public Page<T> find(Iterable<QueryCriteria> queryCriterias, Pageable pageable) {
+		return this.find(queryCriterias, pageable, CountStrategy.EXACT);
+	}
+
+	/**
+	 * Counts are always exact, since all matching records are selected anyway, so the count 
+	 *   strategy is ignored.
+	 */
+	@Override 
+	public CountedPage<T> find(Iterable<QueryCriteria> queryCriterias, Pageable pageable,
+			CountStrategy countStrategy) {
+		List<T> results = this.sort(this.select(this.getSnapshot(), queryCriterias), pageable.getSort());
+		return new CountedPage<>(slice(results, pageable.getOffset(), pageable.getPageSize()), pageable, 
+				results.size(), CountStrategy.EXACT);
+	}
+
+	@Override 
+	public KeysetPage<T> find(Iterable<QueryCriteria> queryCriterias, KeysetPageRequest pageRequest) {
+		Sort seekSort = pageRequest.getSeekSort(ID_FIELD);
+		List<Sort.Order> orders = new ArrayList<>();
+		for (Sort.Order order: seekSort){
+			orders.add(order);
+		}
+		List<SortEntry<T>> entries = this.sortEntries(this.select(this.getSnapshot(), queryCriterias), 
+				seekSort);
+		int start = 0;
+		List<Object> values = pageRequest.getKeyValues(seekSort);
+		if (values != null){
+			Object[] keys = values.toArray();
+			int low = 0;
+			int high = entries.size();
+			while (low < high){
+				int mid = (low + high) >>> 1;
+				if (compareKeys(entries.get(mid).keys, keys, orders) <= 0) {
+					low = mid + 1;
+				} else {
+					high = mid;
+				}
+			}
+			start = low;
+		}
+		List<T> results = new ArrayList<>();
+		for (int i = start; i < entries.size() && results.size() <= pageRequest.getSize(); i++){
+			results.add(entries.get(i).record);
+		}
+		return KeysetPage.fromResults(results, pageRequest, seekSort);
+	}
+
+	@Override 
+	public CloseableIterator<T> stream(Iterable<QueryCriteria> queryCriterias, Sort sort) {
+		return new IteratorCursor<>(this.find(queryCriterias, sort));
+	}
+
+	@Override 
+	public long count(Iterable<QueryCriteria> queryCriterias) {
+		return this.select(this.getSnapshot(), queryCriterias).size();
+	}
+
+	/**
+	 * Returns the distinct non-null values of the field, in the order they are first found.  
+	 *   Collection fields return their distinct elements.
+	 */
+	@Override 
+	public Iterable<Object> distinct(String field) {
+		FieldIndex index = this.getSnapshot().indexes.get(field);
+		if (index != null) return Collections.unmodifiableList(index.distinctValues);
+		return this.distinct(field, Collections.<QueryCriteria>emptyList());
+	}
+
+	@Override 
+	public Iterable<Object> distinct(String field, Iterable<QueryCriteria> queryCriterias) {
+		Set<Object> keys = new HashSet<>();
+		List<Object> values = new ArrayList<>();
+		for (T record: this.select(this.getSnapshot(), queryCriterias)){
+			for (Object value: getValues(record, field)){
+				if (value != null && keys.add(normalize(value))) values.add(value);
+			}
+		}
+		return values;
+	}
+
+	//// Writes, which are passed to the source repository and mark the records as stale
+
+	@Override 
+	public <S extends T> S insert(S entity) {
+		try {
+			return repository.insert(entity);
+		} finally {
+			modifications.incrementAndGet();
+		}
+	}
+
+	@Override 
+	public <S extends T> Iterable<S> insert(Iterable<S> entities) {
+		try {
+			return repository.insert(entities);
+		} finally {
+			modifications.incrementAndGet();
+		}
+	}
+
+	@Override 
+	public <S extends T> S update(S entity) {
+		try {
+			return repository.update(entity);
+		} finally {
+			modifications.incrementAndGet();
+		}
+	}
+
+	@Override 
+	public <S extends T> Iterable<S> update(Iterable<S> entities) {
+		try {
+			return repository.update(entities);
+		} finally {
+			modifications.incrementAndGet();
+		}
+	}
+
+	@Override 
+	public <S extends T> S save(S entity) {
+		try {
+			return repository.save(entity);
+		} finally {
+			modifications.incrementAndGet();
+		}
+	}
+
+	@Override 
+	public <S extends T> Iterable<S> save(Iterable<S> entities) {
+		try {
+			return repository.save(entities);
+		} finally {
+			modifications.incrementAndGet();
+		}
+	}
+
+	@Override 
+	public void delete(ID id) {
+		try {
+			repository.delete(id);
+		} finally {
+			modifications.incrementAndGet();
+		}
+	}
+
+	@Override 
+	public void delete(T entity) {
+		try {
+			repository.delete(entity);
+		} finally {
+			modifications.incrementAndGet();
+		}
+	}
+
+	@Override 
+	public void delete(Iterable<? extends T> entities) {
+		try {
+			repository.delete(entities);
+		} finally {
+			modifications.incrementAndGet();
+		}
+	}
+
+	@Override 
+	public void deleteAll() {
+		try {
+			repository.deleteAll();
+		} finally {
+			modifications.incrementAndGet();
+		}
+	}
+
+	@Override 
+	public Class<T> getModel() {
+		return repository.getModel();
+	}
+
+	/**
+	 * Immutable copy of the loaded records, with their ID lookup and field indexes.
+	 */
+	private static class Snapshot<T extends Model<ID>, ID extends Serializable> {
+		
+		private final List<T> records;
+		private final Map<ID, Integer> ids = new HashMap<>();
+		private final Map<String, FieldIndex> indexes = new HashMap<>();
+		private final long generation;
+
+		public Snapshot(List<T> records, Set<String> indexedFields, long generation) {
+			this.records = records;
+			this.generation = generation;
+			for (int i = 0; i < records.size(); i++){
+				ids.put(records.get(i).getId(), i);
+			}
+			for (String field: indexedFields){
+				indexes.put(field, new FieldIndex(field, records));
+			}
+		}
+		
+	}
+
+	/**
+	 * Positions of the records holding each value of a field, keyed both by hash and in sorted 
+	 *   order.  Both maps share the same position arrays.
+	 */
+	private static class FieldIndex {
+		
+		private final Map<Object, int[]> values = new HashMap<>();
+		private final NavigableMap<Object, int[]> sorted = new TreeMap<>(VALUE_COMPARATOR);
+		private final List<Object> distinctValues = new ArrayList<>();
+		private final int[] nulls;
+		private final int size;
+
+		public FieldIndex(String field, List<?> records) {
+			Map<Object, List<Integer>> positions = new HashMap<>();
+			List<Integer> nullPositions = new ArrayList<>();
+			for (int i = 0; i < records.size(); i++){
+				for (Object value: getValues(records.get(i), field)){
+					if (value == null){
+						addPosition(nullPositions, i);
+						continue;
+					}
+					Object key = normalize(value);
+					List<Integer> list = positions.get(key);
+					if (list == null){
+						list = new ArrayList<>();
+						positions.put(key, list);
+						distinctValues.add(value);
+					}
+					addPosition(list, i);
+				}
+			}
+			for (Map.Entry<Object, List<Integer>> entry: positions.entrySet()){
+				int[] array = toArray(entry.getValue());
+				values.put(entry.getKey(), array);
+				sorted.put(entry.getKey(), array);
+			}
+			this.nulls = toArray(nullPositions);
+			this.size = records.size();
+		}
+		
+		private static void addPosition(List<Integer> positions, int position){
+			if (positions.isEmpty() || positions.get(positions.size() - 1) != position) {
+				positions.add(position);
+			}
+		}
+		
+		private static int[] toArray(List<Integer> list){
+			int[] array = new int[list.size()];
+			for (int i = 0; i < array.length; i++){
+				array[i] = list.get(i);
+			}
+			return array;
+		}
+
+		/**
+		 * Returns the positions of the records matching the criteria, or null if the criteria's 
+		 *   evaluation cannot be answered from the index.
+		 */
+		public BitSet lookup(QueryCriteria criteria){
+			Object value = criteria.getValue();
+			switch (criteria.getEvaluation()){
+				case EQUALS:
+					return value == null ? this.bits(nulls) : this.bits(values.get(normalize(value)));
+				case IN:
+					BitSet bits = new BitSet(size);
+					for (Object item: (Collection<?>) value){
+						this.add(bits, item == null ? nulls : values.get(normalize(item)));
+					}
+					return bits;
+				case IS_NULL:
+					return this.bits(nulls);
+				case GREATER_THAN:
+					return this.bits(this.isRangeable(value) ? sorted.tailMap(value, false) : null);
+				case GREATER_THAN_EQUALS:
+					return this.bits(this.isRangeable(value) ? sorted.tailMap(value, true) : null);
+				case LESS_THAN:
+					return this.bits(this.isRangeable(value) ? sorted.headMap(value, false) : null);
+				case LESS_THAN_EQUALS:
+					return this.bits(this.isRangeable(value) ? sorted.headMap(value, true) : null);
+				case BETWEEN:
+					return this.between(((List) value).get(0), ((List) value).get(1), false);
+				case BETWEEN_INCLUSIVE:
+					return this.between(((List) value).get(0), ((List) value).get(1), true);
+				case OUTSIDE:
+					return this.outside(((List) value).get(0), ((List) value).get(1), false);
+				case OUTSIDE_INCLUSIVE:
+					return this.outside(((List) value).get(0), ((List) value).get(1), true);
+				default:
+					return null;
+			}
+		}
+
+		/**
+		 * Returns true if the value can be compared with the indexed values, so that a range 
+		 *   lookup gives the same result as testing each record.
+		 */
+		private boolean isRangeable(Object value){
+			return !sorted.isEmpty() && isComparable(sorted.firstKey(), value);
+		}
+		
+		private BitSet between(Object low, Object high, boolean inclusive){
+			if (!this.isRangeable(low) || !this.isRangeable(high) || compareValues(low, high) > 0) {
+				return new BitSet(size);
+			}
+			return this.bits(sorted.subMap(low, inclusive, high, inclusive));
+		}
+		
+		private BitSet outside(Object low, Object high, boolean inclusive){
+			BitSet bits = this.isRangeable(low) ? this.bits(sorted.headMap(low, inclusive)) : new BitSet(size);
+			if (this.isRangeable(high)) {
+				for (int[] positions: sorted.tailMap(high, inclusive).values()){
+					this.add(bits, positions);
+				}
+			}
+			return bits;
+		}
+		
+		private BitSet bits(int[] positions){
+			BitSet bits = new BitSet(size);
+			this.add(bits, positions);
+			return bits;
+		}
+		
+		private BitSet bits(SortedMap<Object, int[]> range){
+			BitSet bits = new BitSet(size);
+			if (range != null){
+				for (int[] positions: range.values()){
+					this.add(bits, positions);
+				}
+			}
+			return bits;
+		}
+		
+		private void add(BitSet bits, int[] positions){
+			if (positions == null) return;
+			for (int position: positions){
+				bits.set(position);
+			}
+		}
+		
+	}
+
+	/**
+	 * Record with its sort values.
+	 */
+	private static class SortEntry<T> {
+		
+		private final T record;
+		private final Object[] keys;
+
+		public SortEntry(T record, Object[] keys) {
+			this.record = record;
+			this.keys = keys;
+		}
+		
+	}
+	
+}
@@ -0,0 +1,61 @@
+/*
+ * Copyright 2016 William Oemler, Blueprint Medicines
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.oncoblocks.centromere.core.repository;
+
+import org.springframework.data.util.CloseableIterator;
+
+import java.util.Iterator;
+
+/**
+ * Adapts an ordinary {@link Iterator} to the {@link CloseableIterator} returned by 
+ *   {@link RepositoryOperations#stream(Iterable, org.springframework.data.domain.Sort)}, for 
+ *   repositories whose results are already held in memory.  Closing the cursor has no effect.
+ * 
+ * @author woemler
+ */
+public class IteratorCursor<T> implements CloseableIterator<T> {
+	
+	private final Iterator<T> iterator;
+
+	public IteratorCursor(Iterator<T> iterator) {
+		this.iterator = iterator;
+	}
+
+	public IteratorCursor(Iterable<T> iterable) {
+		this(iterable.iterator());
+	}
+
+	@Override 
+	public boolean hasNext() {
+		return iterator.hasNext();
+	}
+
+	@Override 
+	public T next() {
+		return iterator.next();
+	}
+
+	@Override 
+	public void remove() {
+		throw new UnsupportedOperationException("Cursors are read-only.");
+	}
+
+	@Override 
+	public void close() {
+	}
+	
+}
@@ -0,0 +1,101 @@
+/*
+ * Copyright 2016 William Oemler, Blueprint Medicines
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.oncoblocks.centromere.core.repository;
+
+import org.springframework.data.domain.Sort;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Page of records returned by a {@link KeysetPageRequest}, along with the continuation token 
+ *   used to request the next page.  Keyset pages do not report a total record or page count.
+ * 
+ * @author woemler
+ */
+public class KeysetPage<T> implements Iterable<T> {
+	
+	private final List<T> content;
+	private final String nextToken;
+
+	/**
+	 * @param content records in the page.
+	 * @param nextToken continuation token for the next page, or null if this is the last page.
+	 */
+	public KeysetPage(List<T> content, String nextToken) {
+		this.content = content == null ? Collections.<T>emptyList() : content;
+		this.nextToken = nextToken;
+	}
+
+	/**
+	 * Creates a page from query results fetched with a limit of one more than the page size, so 
+	 *   that the extra record indicates whether there is a next page.  The continuation token is 
+	 *   read from the bean properties of the last record in the page.
+	 * 
+	 * @param results query results, in seek sort order.
+	 * @param pageRequest {@link KeysetPageRequest}
+	 * @param seekSort sort the results were ordered by.
+	 * @return keyset page.
+	 */
+	public static <T> KeysetPage<T> fromResults(List<T> results, KeysetPageRequest pageRequest, 
+			Sort seekSort){
+		if (results.size() <= pageRequest.getSize()) return new KeysetPage<>(results, null);
+		List<T> content = new ArrayList<>(results.subList(0, pageRequest.getSize()));
+		return new KeysetPage<>(content, KeysetToken.fromRecord(seekSort, content.get(content.size() - 1)));
+	}
+
+	public List<T> getContent() {
+		return Collections.unmodifiableList(content);
+	}
+
+	public int getNumberOfElements(){
+		return content.size();
+	}
+
+	public boolean hasContent(){
+		return !content.isEmpty();
+	}
+
+	/**
+	 * Returns true if there are more records after this page.
+	 */
+	public boolean hasNext(){
+		return nextToken != null;
+	}
+
+	/**
+	 * Returns the continuation token for the next page, or null if this is the last page.
+	 */
+	public String getNextToken() {
+		return nextToken;
+	}
+
+	@Override 
+	public Iterator<T> iterator() {
+		return this.getContent().iterator();
+	}
+
+	@Override 
+	public String toString() {
+		return "KeysetPage{" +
+				"numberOfElements=" + content.size() +
+				", nextToken='" + nextToken + '\'' +
+				'}';
+	}
+}
@@ -0,0 +1,128 @@
+/*
+ * Copyright 2016 William Oemler, Blueprint Medicines
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.oncoblocks.centromere.core.repository;
+
+import org.springframework.data.domain.Sort;
+import org.springframework.util.Assert;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Request for a page of records using keyset (seek) pagination.  Rather than skipping over an 
+ *   offset number of records, each page starts immediately after the last record of the previous
+ *   page, identified by the continuation token returned in its {@link KeysetPage}.  This lets the 
+ *   database seek directly to the start of the page using an index on the sort fields, so deep 
+ *   pages cost the same as the first.  The record ID is always appended to the sort as a 
+ *   tie-breaker, so every record has a unique position.  Sort fields must not be null.
+ * 
+ * @author woemler
+ */
+public class KeysetPageRequest {
+	
+	private final int size;
+	private final Sort sort;
+	private final String token;
+
+	/**
+	 * @param size maximum number of records to return.
+	 * @param sort record sort, or null to sort by ID only.
+	 * @param token continuation token from the previous page, or null to request the first page.
+	 */
+	public KeysetPageRequest(int size, Sort sort, String token) {
+		Assert.isTrue(size > 0, "Page size must be greater than zero.");
+		this.size = size;
+		this.sort = sort;
+		this.token = token;
+	}
+
+	public KeysetPageRequest(int size, Sort sort) {
+		this(size, sort, null);
+	}
+
+	public KeysetPageRequest(int size) {
+		this(size, null, null);
+	}
+
+	/**
+	 * Returns a request for the page following the one returned with the given token.
+	 */
+	public KeysetPageRequest next(String token){
+		return new KeysetPageRequest(size, sort, token);
+	}
+
+	/**
+	 * Returns the sort used to order and seek records: the requested sort, followed by each of the
+	 *   ID fields that are not already part of it.  ID fields use the direction of the last 
+	 *   requested sort order, or ascending if there is no sort.
+	 * 
+	 * @param idFields field names of the record ID, as used by the repository.
+	 * @return seek sort.
+	 */
+	public Sort getSeekSort(String... idFields){
+		List<Sort.Order> orders = new ArrayList<>();
+		List<String> properties = new ArrayList<>();
+		Sort.Direction direction = Sort.Direction.ASC;
+		if (sort != null){
+			for (Sort.Order order: sort){
+				orders.add(order);
+				properties.add(order.getProperty());
+				direction = order.getDirection();
+			}
+		}
+		for (String field: idFields){
+			if (!properties.contains(field)) orders.add(new Sort.Order(direction, field));
+		}
+		return new Sort(orders);
+	}
+
+	/**
+	 * Decodes the continuation token into the sort values of the last record seen.
+	 * 
+	 * @param seekSort sort returned by {@link #getSeekSort(String...)}.
+	 * @return one value for each seek sort order, or null if this is a request for the first page.
+	 * @throws IllegalArgumentException if the token is malformed or was issued for a different sort.
+	 */
+	public List<Object> getKeyValues(Sort seekSort){
+		return token == null ? null : KeysetToken.decode(token, seekSort);
+	}
+
+	public boolean isFirst(){
+		return token == null;
+	}
+
+	public int getSize() {
+		return size;
+	}
+
+	public Sort getSort() {
+		return sort;
+	}
+
+	public String getToken() {
+		return token;
+	}
+
+	@Override 
+	public String toString() {
+		return "KeysetPageRequest{" +
+				"size=" + size +
+				", sort=" + sort +
+				", token='" + token + '\'' +
+				'}';
+	}
+}
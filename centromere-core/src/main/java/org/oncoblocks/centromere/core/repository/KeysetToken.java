@@ -0,0 +1,212 @@
+/*
+ * Copyright 2016 William Oemler, Blueprint Medicines
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.oncoblocks.centromere.core.repository;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.springframework.beans.BeanWrapper;
+import org.springframework.beans.PropertyAccessorFactory;
+import org.springframework.data.domain.Sort;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Encodes and decodes the opaque continuation tokens used by {@link KeysetPageRequest}.  A token
+ *   holds the seek sort fields and the values of those fields in the last record of a page, as 
+ *   URL-safe Base64 JSON.  Each value is tagged with its type, so that it decodes to the same 
+ *   class it was encoded from.  Supported types are strings, primitive wrappers, 
+ *   {@link BigDecimal}, {@link BigInteger}, {@link Date} and its {@code java.sql} subclasses, and 
+ *   enums, which are encoded by name.  Tokens are not signed, and should be treated as untrusted
+ *   input.
+ * 
+ * @author woemler
+ */
+public final class KeysetToken {
+	
+	private static final ObjectMapper objectMapper = new ObjectMapper();
+	
+	private KeysetToken() { }
+
+	/**
+	 * Creates a token from the sort values of the last record of a page.
+	 * 
+	 * @param seekSort sort returned by {@link KeysetPageRequest#getSeekSort(String...)}.
+	 * @param values one value for each seek sort order.
+	 * @return continuation token.
+	 */
+	public static String encode(Sort seekSort, List<Object> values){
+		List<String> fields = getFields(seekSort);
+		if (fields.size() != values.size()){
+			throw new IllegalArgumentException(String.format("Expected %d keyset values, found %d.", 
+					fields.size(), values.size()));
+		}
+		ObjectNode node = objectMapper.createObjectNode();
+		ArrayNode keys = node.putArray("k");
+		ArrayNode tagged = node.putArray("v");
+		for (int i = 0; i < fields.size(); i++){
+			keys.add(fields.get(i));
+			Object value = values.get(i);
+			if (value == null) {
+				throw new IllegalArgumentException(String.format("Keyset pagination does not support null " 
+						+ "sort values: %s", fields.get(i)));
+			}
+			ArrayNode pair = tagged.addArray();
+			if (value instanceof String) {
+				pair.add("s").add((String) value);
+			} else if (value instanceof Long) {
+				pair.add("l").add((Long) value);
+			} else if (value instanceof Integer) {
+				pair.add("i").add((Integer) value);
+			} else if (value instanceof Short) {
+				pair.add("h").add((Short) value);
+			} else if (value instanceof Byte) {
+				pair.add("y").add((Byte) value);
+			} else if (value instanceof Double) {
+				pair.add("d").add((Double) value);
+			} else if (value instanceof Float) {
+				pair.add("f").add((Float) value);
+			} else if (value instanceof Boolean) {
+				pair.add("b").add((Boolean) value);
+			} else if (value instanceof Character) {
+				pair.add("c").add(value.toString());
+			} else if (value instanceof BigDecimal) {
+				pair.add("n").add(value.toString());
+			} else if (value instanceof BigInteger) {
+				pair.add("N").add(value.toString());
+			} else if (value instanceof java.sql.Timestamp) {
+				pair.add("T").add(value.toString());
+			} else if (value instanceof java.sql.Date) {
+				pair.add("D").add(value.toString());
+			} else if (value instanceof java.sql.Time) {
+				pair.add("t").add(value.toString());
+			} else if (value instanceof Date) {
+				pair.add("u").add(((Date) value).getTime());
+			} else if (value instanceof Enum) {
+				pair.add("s").add(((Enum) value).name());
+			} else {
+				throw new IllegalArgumentException(String.format("Unsupported keyset value type for field " 
+						+ "%s: %s", fields.get(i), value.getClass().getName()));
+			}
+		}
+		try {
+			return Base64.getUrlEncoder().withoutPadding().encodeToString(objectMapper.writeValueAsBytes(node));
+		} catch (IOException e){
+			throw new IllegalStateException("Unable to encode continuation token.", e);
+		}
+	}
+
+	/**
+	 * Creates a token from the last record of a page, reading the sort values from its bean 
+	 *   properties.
+	 * 
+	 * @param seekSort sort returned by {@link KeysetPageRequest#getSeekSort(String...)}, whose 
+	 *   properties name readable bean properties of the record.
+	 * @param record last record of the page.
+	 * @return continuation token.
+	 */
+	public static String fromRecord(Sort seekSort, Object record){
+		BeanWrapper wrapper = PropertyAccessorFactory.forBeanPropertyAccess(record);
+		List<Object> values = new ArrayList<>();
+		for (Sort.Order order: seekSort){
+			values.add(wrapper.getPropertyValue(order.getProperty()));
+		}
+		return encode(seekSort, values);
+	}
+
+	/**
+	 * Decodes a token into its sort values.
+	 * 
+	 * @param token continuation token.
+	 * @param seekSort sort the token is expected to have been issued for.
+	 * @return one value for each seek sort order.
+	 * @throws IllegalArgumentException if the token is malformed or was issued for a different sort.
+	 */
+	public static List<Object> decode(String token, Sort seekSort){
+		JsonNode node;
+		try {
+			node = objectMapper.readTree(Base64.getUrlDecoder().decode(token));
+		} catch (IOException | IllegalArgumentException e){
+			throw new IllegalArgumentException(String.format("Invalid continuation token: %s", token));
+		}
+		List<String> fields = getFields(seekSort);
+		JsonNode keys = node == null ? null : node.get("k");
+		JsonNode tagged = node == null ? null : node.get("v");
+		if (keys == null || tagged == null || !keys.isArray() || !tagged.isArray() 
+				|| keys.size() != tagged.size()){
+			throw new IllegalArgumentException(String.format("Invalid continuation token: %s", token));
+		}
+		if (keys.size() != fields.size()){
+			throw new IllegalArgumentException("Continuation token does not match the requested sort.");
+		}
+		List<Object> values = new ArrayList<>();
+		for (int i = 0; i < fields.size(); i++){
+			if (!fields.get(i).equals(keys.get(i).asText())){
+				throw new IllegalArgumentException("Continuation token does not match the requested sort.");
+			}
+			JsonNode pair = tagged.get(i);
+			if (!pair.isArray() || pair.size() != 2){
+				throw new IllegalArgumentException(String.format("Invalid continuation token: %s", token));
+			}
+			values.add(decodeValue(pair.get(0).asText(), pair.get(1), token));
+		}
+		return values;
+	}
+	
+	private static Object decodeValue(String type, JsonNode value, String token){
+		try {
+			switch (type) {
+				case "s": return value.asText();
+				case "l": return value.asLong();
+				case "i": return value.asInt();
+				case "h": return (short) value.asInt();
+				case "y": return (byte) value.asInt();
+				case "d": return value.asDouble();
+				case "f": return (float) value.asDouble();
+				case "b": return value.asBoolean();
+				case "c": return value.asText().charAt(0);
+				case "n": return new BigDecimal(value.asText());
+				case "N": return new BigInteger(value.asText());
+				case "T": return java.sql.Timestamp.valueOf(value.asText());
+				case "D": return java.sql.Date.valueOf(value.asText());
+				case "t": return java.sql.Time.valueOf(value.asText());
+				case "u": return new Date(value.asLong());
+				default: break;
+			}
+		} catch (RuntimeException e){
+			// fall through
+		}
+		throw new IllegalArgumentException(String.format("Invalid continuation token: %s", token));
+	}
+	
+	private static List<String> getFields(Sort seekSort){
+		List<String> fields = new ArrayList<>();
+		for (Sort.Order order: seekSort){
+			fields.add(order.getProperty());
+		}
+		return fields;
+	}
+	
+}
@@ -24,6 +24,7 @@ import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
 import org.springframework.data.repository.NoRepositoryBean;
 import org.springframework.data.repository.PagingAndSortingRepository;
+import org.springframework.data.util.CloseableIterator;
 
 import java.io.Serializable;
 
@@ -66,6 +67,44 @@ public interface RepositoryOperations<T extends Model<ID>, ID extends Serializab
 	 */
 	Page<T> find(Iterable<QueryCriteria> queryCriterias, Pageable pageable);
 
+	/**
+	 * Searches for all records that satisfy the requested criteria, and returns them in paged form,
+	 *   with the total record count calculated using the requested {@link CountStrategy}.  
+	 *   Repositories that do not support the strategy fall back to an exact count.
+	 *
+	 * @param queryCriterias {@link QueryCriteria}
+	 * @param pageable {@link Pageable}
+	 * @param countStrategy {@link CountStrategy}
+	 * @return {@link CountedPage} of {@code T} records.
+	 */
+	CountedPage<T> find(Iterable<QueryCriteria> queryCriterias, Pageable pageable, 
+			CountStrategy countStrategy);
+
+	/**
+	 * Searches for all records that satisfy the requested criteria, and returns a page of them 
+	 *   using keyset pagination, which seeks directly to the record following the request's 
+	 *   continuation token, rather than skipping over an offset.  The cost of fetching a page does 
+	 *   not grow with its depth, but pages can only be traversed in order.
+	 *
+	 * @param queryCriterias {@link QueryCriteria}
+	 * @param pageRequest {@link KeysetPageRequest}
+	 * @return page of {@code T} records, with the token for the next page.
+	 * @throws IllegalArgumentException if the continuation token is invalid.
+	 */
+	KeysetPage<T> find(Iterable<QueryCriteria> queryCriterias, KeysetPageRequest pageRequest);
+
+	/**
+	 * Searches for all records that satisfy the requested criteria, and returns them one at a time
+	 *   from an open database cursor, rather than loading the full result set into memory.  The 
+	 *   cursor holds database resources until it is exhausted or closed, so callers must always 
+	 *   close it.
+	 *
+	 * @param queryCriterias {@link QueryCriteria}
+	 * @param sort {@link Sort}, or null to leave the records unordered.
+	 * @return cursor over all matching {@code T} records.
+	 */
+	CloseableIterator<T> stream(Iterable<QueryCriteria> queryCriterias, Sort sort);
+
 	/**
 	 * Returns a count of all records that satify the requested criteria.
 	 *
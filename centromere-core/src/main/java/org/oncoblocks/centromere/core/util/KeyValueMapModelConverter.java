@@ -17,16 +17,24 @@
 package org.oncoblocks.centromere.core.util;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.util.TokenBuffer;
 import org.oncoblocks.centromere.core.model.Model;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.core.convert.converter.Converter;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
 import java.util.Map;
 
 /**
- * Simple utility class for converting key-value String maps into {@link Model} objects through
- *   a JSON intermediary, using Jackson.
+ * Simple utility class for converting key-value String maps into {@link Model} objects, using 
+ *   Jackson.  Map entries are fed to the model's deserializer directly as a token stream, rather
+ *   than being written out as JSON text and parsed back, so values are coerced to the model's field
+ *   types as they would be from JSON strings.  The {@link ObjectReader} for the model is created
+ *   once, so changes made to the {@link ObjectMapper} afterwards are not seen by the converter.
  * 
  * @author woemler
  * @since 0.4.1
@@ -35,27 +43,58 @@ public class KeyValueMapModelConverter implements Converter<Map<String, String>,
 
 	private final Class<? extends Model> model;
 	private final ObjectMapper mapper;
+	private final ObjectReader reader;
 	private static final Logger logger = LoggerFactory.getLogger(KeyValueMapModelConverter.class);
 
 	public KeyValueMapModelConverter(Class<? extends Model> model) {
-		this.model = model;
-		this.mapper = new ObjectMapper();
+		this(new ObjectMapper(), model);
 	}
 
 	public KeyValueMapModelConverter(ObjectMapper mapper, Class<? extends Model> model) {
 		this.model = model;
 		this.mapper = mapper;
+		this.reader = mapper.readerFor(mapper.getTypeFactory().constructType(model));
 	}
 
 	@Override 
 	public Object convert(Map<String, String> map) {
 		try {
-			String json = mapper.writeValueAsString(map);
-			return mapper.readValue(json, model);
+			TokenBuffer buffer = new TokenBuffer(mapper, false);
+			buffer.writeStartObject();
+			for (Map.Entry<String, String> entry: map.entrySet()){
+				buffer.writeFieldName(entry.getKey());
+				if (entry.getValue() != null) {
+					buffer.writeString(entry.getValue());
+				} else {
+					buffer.writeNull();
+				}
+			}
+			buffer.writeEndObject();
+			return reader.readValue(buffer.asParser());
 		} catch (Exception e){
 			e.printStackTrace();
 			logger.warn(String.format("[CENTROMERE] Unable to convert map to %s model object: %s", model.getName(), map.toString()));
 			return null;
 		}
 	}
+
+	/**
+	 * Converts each of the maps into a model object.  Maps that cannot be converted are returned as
+	 *   {@code null}, so the results line up with the input.
+	 * 
+	 * @param maps key-value maps to convert.
+	 * @return list of model objects, in input order.
+	 */
+	public List<Object> convertAll(Iterable<Map<String, String>> maps){
+		List<Object> objects = maps instanceof Collection 
+				? new ArrayList<>(((Collection) maps).size()) : new ArrayList<>();
+		for (Map<String, String> map: maps){
+			objects.add(this.convert(map));
+		}
+		return objects;
+	}
+
+	public Class<? extends Model> getModel() {
+		return model;
+	}
 }
@@ -18,6 +18,8 @@ package org.oncoblocks.centromere.core.util;
 
 import org.oncoblocks.centromere.core.dataimport.RecordProcessor;
 import org.oncoblocks.centromere.core.model.Model;
+import org.oncoblocks.centromere.core.repository.CachingRepository;
+import org.oncoblocks.centromere.core.repository.InMemoryRepository;
 import org.oncoblocks.centromere.core.repository.RepositoryOperations;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -33,7 +35,8 @@ import java.util.*;
 /**
  * Registers {@link RepositoryOperations} beans and associates them with their respective 
  *   {@link org.oncoblocks.centromere.core.model.Model} classes.  Maps both the bean names and 
- *   class references of the repositories.
+ *   class references of the repositories.  Repositories for models with a configured cache 
+ *   specification are registered wrapped in a {@link CachingRepository}.
  * 
  * @author woemler
  * @since 0.4.1
@@ -44,6 +47,7 @@ public class ModelRepositoryRegistry extends AbstractComponentRegistry<Repositor
 	private ApplicationContext applicationContext;
 	private static final Logger logger = LoggerFactory.getLogger(ModelRepositoryRegistry.class);
 	private Map<Class<?>, Set<RepositoryOperations>> repositoryClassMap = new HashMap<>();
+	private Map<Class<?>, String> cacheSpecs = new HashMap<>();
 
 	public ModelRepositoryRegistry() {
 	}
@@ -84,10 +88,78 @@ public class ModelRepositoryRegistry extends AbstractComponentRegistry<Repositor
 
 	@Override 
 	public void add(String name, RepositoryOperations repository) {
+		repository = this.wrapRepository(repository);
 		super.add(name, repository);
 		addRepositoryClassMapping(repository);
 	}
 
+	/**
+	 * Wraps the repository in a {@link CachingRepository}, if caching is enabled for its model and
+	 *   it is not already cached.
+	 */
+	@SuppressWarnings("unchecked")
+	private RepositoryOperations wrapRepository(RepositoryOperations repository){
+		if (repository instanceof CachingRepository || !cacheSpecs.containsKey(repository.getModel())){
+			return repository;
+		}
+		logger.info(String.format("[CENTROMERE] Caching repository results for model %s: %s", 
+				repository.getModel().getName(), cacheSpecs.get(repository.getModel())));
+		return new CachingRepository(repository, cacheSpecs.get(repository.getModel()));
+	}
+
+	/**
+	 * Enables result caching for the repositories of a model, using a Guava cache specification, 
+	 *   eg. {@code maximumSize=1000,expireAfterWrite=10m}.  Repositories that are already 
+	 *   registered are wrapped immediately.
+	 * 
+	 * @param model {@link Model} class.
+	 * @param cacheSpec cache specification, see {@link CachingRepository}.
+	 */
+	public void enableCaching(Class<? extends Model> model, String cacheSpec){
+		cacheSpecs.put(model, cacheSpec);
+		Map<String, RepositoryOperations> registry = this.getRegistry();
+		for (Map.Entry<String, RepositoryOperations> entry: new ArrayList<>(registry.entrySet())){
+			if (model.equals(entry.getValue().getModel())){
+				RepositoryOperations original = entry.getValue();
+				RepositoryOperations wrapped = this.wrapRepository(original);
+				registry.put(entry.getKey(), wrapped);
+				Set<RepositoryOperations> set = repositoryClassMap.get(model);
+				if (set != null && set.remove(original)) set.add(wrapped);
+			}
+		}
+	}
+
+	/**
+	 * Clears the cached results of all repositories for a model, such as after an import, and 
+	 *   reloads any {@link InMemoryRepository} for the model.  Has no effect if the model has no 
+	 *   cached or in-memory repositories.
+	 * 
+	 * @param model {@link Model} class.
+	 */
+	public void invalidateCaches(Class<? extends Model> model){
+		for (RepositoryOperations repository: this.findByModel(model)){
+			if (repository instanceof CachingRepository) {
+				((CachingRepository) repository).invalidateAll();
+				repository = ((CachingRepository) repository).getRepository();
+			}
+			if (repository instanceof InMemoryRepository) {
+				((InMemoryRepository) repository).refresh();
+			}
+		}
+	}
+
+	public Map<Class<?>, String> getCacheSpecs() {
+		return cacheSpecs;
+	}
+
+	/**
+	 * Sets the cache specifications of models whose repositories should be cached.  Must be set 
+	 *   before the registry is configured.
+	 */
+	public void setCacheSpecs(Map<Class<?>, String> cacheSpecs) {
+		this.cacheSpecs = cacheSpecs;
+	}
+
 	/**
 	 * Searches the {@link ApplicationContext} for {@link RecordProcessor} beans and attempts to 
 	 *   register them.
@@ -0,0 +1,286 @@
+/*
+ * Copyright 2016 William Oemler, Blueprint Medicines
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.oncoblocks.centromere.core.test;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.oncoblocks.centromere.core.repository.CachingRepository;
+import org.oncoblocks.centromere.core.repository.QueryCriteria;
+import org.oncoblocks.centromere.core.repository.RepositoryOperations;
+import org.oncoblocks.centromere.core.util.ModelRepositoryRegistry;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.util.Assert;
+
+import java.util.*;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @author woemler
+ */
+public class CachingRepositoryTests {
+	
+	private CountingRepository source;
+	private CachingRepository<EntrezGene, Long> repository;
+	
+	@Before
+	public void setup(){
+		source = new CountingRepository();
+		repository = new CachingRepository<>(source);
+	}
+	
+	private static EntrezGene createGene(Long id){
+		return new EntrezGene(id, "Gene" + id, 9606, null, "1", null, "Test Gene " + id, "protein-coding", 
+				null, null, null);
+	}
+	
+	private static List<EntrezGene> toList(Iterable<EntrezGene> genes){
+		List<EntrezGene> list = new ArrayList<>();
+		for (EntrezGene gene: genes){
+			list.add(gene);
+		}
+		return list;
+	}
+	
+	@Test
+	public void cacheHitTest() throws Exception {
+		EntrezGene gene = repository.findOne(1L);
+		Assert.notNull(gene);
+		Assert.isTrue(source.getCalls() == 1);
+		Assert.isTrue(repository.findOne(1L) == gene);
+		Assert.isTrue(source.getCalls() == 1);
+		
+		Assert.isNull(repository.findOne(10L));
+		Assert.isNull(repository.findOne(10L));
+		Assert.isTrue(source.getCalls() == 2);
+		
+		Assert.isTrue(repository.count() == 5);
+		Assert.isTrue(repository.count() == 5);
+		Assert.isTrue(source.getCalls() == 3);
+		
+		List<QueryCriteria> criterias = new ArrayList<>();
+		criterias.add(new QueryCriteria("geneType", "protein-coding"));
+		criterias.add(new QueryCriteria("chromosome", "1"));
+		Assert.isTrue(toList(repository.find(criterias)).size() == 5);
+		Assert.isTrue(toList(repository.find(Arrays.asList(new QueryCriteria("chromosome", "1"), 
+				new QueryCriteria("geneType", "protein-coding")))).size() == 5);
+		Assert.isTrue(source.getCalls() == 4);
+		Assert.isTrue(repository.getCacheSize() == 4);
+	}
+	
+	@Test
+	public void pageAndSortKeyTest() throws Exception {
+		Page<EntrezGene> first = repository.findAll(new PageRequest(0, 2));
+		Page<EntrezGene> second = repository.findAll(new PageRequest(1, 2));
+		Page<EntrezGene> larger = repository.findAll(new PageRequest(0, 3));
+		Page<EntrezGene> sorted = repository.findAll(new PageRequest(0, 2, new Sort(Sort.Direction.DESC, "id")));
+		Assert.isTrue(source.getCalls() == 4);
+		Assert.isTrue(first.getContent().get(0).getId() == 1L);
+		Assert.isTrue(second.getContent().get(0).getId() == 3L);
+		Assert.isTrue(larger.getContent().size() == 3);
+		Assert.isTrue(sorted.getContent().get(0).getId() == 5L);
+		Assert.isTrue(repository.findAll(new PageRequest(1, 2)) == second);
+		Assert.isTrue(source.getCalls() == 4);
+		
+		List<EntrezGene> ascending = toList(repository.findAll(new Sort(Sort.Direction.ASC, "id")));
+		List<EntrezGene> descending = toList(repository.findAll(new Sort(Sort.Direction.DESC, "id")));
+		Assert.isTrue(source.getCalls() == 6);
+		Assert.isTrue(ascending.get(0).getId() == 1L);
+		Assert.isTrue(descending.get(0).getId() == 5L);
+		
+		List<QueryCriteria> criterias = Collections.singletonList(new QueryCriteria("geneType", "protein-coding"));
+		Page<EntrezGene> page = repository.find(criterias, new PageRequest(0, 2));
+		Page<EntrezGene> nextPage = repository.find(criterias, new PageRequest(1, 2));
+		Assert.isTrue(source.getCalls() == 8);
+		Assert.isTrue(page.getNumber() == 0);
+		Assert.isTrue(nextPage.getNumber() == 1);
+		Assert.isTrue(!page.getContent().get(0).getId().equals(nextPage.getContent().get(0).getId()));
+	}
+	
+	@Test
+	public void writeInvalidationTest() throws Exception {
+		Assert.isTrue(repository.count() == 5);
+		repository.insert(createGene(6L));
+		Assert.isTrue(repository.count() == 6);
+		repository.insert(Arrays.asList(createGene(7L), createGene(8L)));
+		Assert.isTrue(repository.count() == 8);
+		
+		Assert.isTrue("Gene6".equals(repository.findOne(6L).getPrimaryGeneSymbol()));
+		EntrezGene gene = createGene(6L);
+		gene.setPrimaryGeneSymbol("GeneF");
+		repository.update(gene);
+		Assert.isTrue("GeneF".equals(repository.findOne(6L).getPrimaryGeneSymbol()));
+		gene = createGene(6L);
+		gene.setPrimaryGeneSymbol("GeneG");
+		repository.update(Collections.singletonList(gene));
+		Assert.isTrue("GeneG".equals(repository.findOne(6L).getPrimaryGeneSymbol()));
+		
+		Assert.isTrue(repository.exists(8L));
+		repository.delete(8L);
+		Assert.isTrue(!repository.exists(8L));
+		Assert.isTrue(repository.exists(7L));
+		repository.delete(createGene(7L));
+		Assert.isTrue(!repository.exists(7L));
+		Assert.isTrue(repository.exists(6L));
+		repository.delete(Collections.singletonList(createGene(6L)));
+		Assert.isTrue(!repository.exists(6L));
+		
+		Assert.isTrue(repository.count() == 5);
+		source.insert(createGene(9L));
+		Assert.isTrue(repository.count() == 5);
+		repository.invalidateAll();
+		Assert.isTrue(repository.count() == 6);
+		
+		repository.deleteAll();
+		Assert.isTrue(repository.count() == 0);
+	}
+	
+	@Test
+	@SuppressWarnings("unchecked")
+	public void registryInvalidationTest() throws Exception {
+		ModelRepositoryRegistry registry = new ModelRepositoryRegistry();
+		registry.enableCaching(EntrezGene.class, CachingRepository.DEFAULT_CACHE_SPEC);
+		registry.add("geneRepository", source);
+		RepositoryOperations<EntrezGene, Long> cached = registry.findByModel(EntrezGene.class).get(0);
+		Assert.isTrue(cached instanceof CachingRepository);
+		
+		Assert.isTrue(cached.count() == 5);
+		source.insert(createGene(6L));
+		Assert.isTrue(cached.count() == 5);
+		registry.invalidateCaches(EntrezGene.class);
+		Assert.isTrue(((CachingRepository) cached).getCacheSize() == 0);
+		Assert.isTrue(cached.count() == 6);
+	}
+
+	@Test
+	public void invalidationDuringLoadTest() throws Exception {
+		final CountDownLatch loading = new CountDownLatch(1);
+		final CountDownLatch invalidated = new CountDownLatch(1);
+		final TestRepository slowSource = new TestRepository() {
+			@Override public long count() {
+				long count = super.count();
+				if (loading.getCount() > 0){
+					loading.countDown();
+					try {
+						invalidated.await(10, TimeUnit.SECONDS);
+					} catch (InterruptedException e){
+						Thread.currentThread().interrupt();
+					}
+				}
+				return count;
+			}
+		};
+		final CachingRepository<EntrezGene, Long> cached = new CachingRepository<>(slowSource);
+		final long[] staleCount = { -1L };
+		Thread reader = new Thread(new Runnable() {
+			@Override 
+			public void run() {
+				staleCount[0] = cached.count();
+			}
+		});
+		reader.start();
+		Assert.isTrue(loading.await(10, TimeUnit.SECONDS));
+		slowSource.insert(createGene(6L));
+		cached.invalidateAll();
+		invalidated.countDown();
+		reader.join(10000L);
+		Assert.isTrue(staleCount[0] == 5L);
+		Assert.isTrue(cached.getCacheSize() == 0);
+		Assert.isTrue(cached.count() == 6);
+	}
+
+	/**
+	 * Counts the reads that reach the underlying repository, and pages and sorts the genes by ID.
+	 */
+	private static class CountingRepository extends TestRepository {
+		
+		private int calls = 0;
+
+		public int getCalls() {
+			return calls;
+		}
+		
+		private List<EntrezGene> sorted(Sort sort){
+			List<EntrezGene> genes = new ArrayList<>(this.getGeneMap().values());
+			Collections.sort(genes, new Comparator<EntrezGene>() {
+				@Override 
+				public int compare(EntrezGene a, EntrezGene b) {
+					return a.getId().compareTo(b.getId());
+				}
+			});
+			if (sort != null && sort.getOrderFor("id") != null && !sort.getOrderFor("id").isAscending()){
+				Collections.reverse(genes);
+			}
+			return genes;
+		}
+		
+		private Page<EntrezGene> page(Pageable pageable){
+			List<EntrezGene> genes = this.sorted(pageable.getSort());
+			int start = Math.min(pageable.getOffset(), genes.size());
+			int end = Math.min(start + pageable.getPageSize(), genes.size());
+			return new PageImpl<>(genes.subList(start, end), pageable, genes.size());
+		}
+
+		@Override 
+		public EntrezGene findOne(Long id) {
+			calls++;
+			return super.findOne(id);
+		}
+
+		@Override 
+		public boolean exists(Long id) {
+			calls++;
+			return super.exists(id);
+		}
+
+		@Override 
+		public Iterable<EntrezGene> findAll(Sort sort) {
+			calls++;
+			return this.sorted(sort);
+		}
+
+		@Override 
+		public Page<EntrezGene> findAll(Pageable pageable) {
+			calls++;
+			return this.page(pageable);
+		}
+
+		@Override 
+		public long count() {
+			calls++;
+			return super.count();
+		}
+
+		@Override 
+		public Iterable<EntrezGene> find(Iterable<QueryCriteria> queryCriterias) {
+			calls++;
+			return super.find(queryCriterias);
+		}
+
+		@Override 
+		public Page<EntrezGene> find(Iterable<QueryCriteria> queryCriterias, Pageable pageable) {
+			calls++;
+			return this.page(pageable);
+		}
+		
+	}
+	
+}
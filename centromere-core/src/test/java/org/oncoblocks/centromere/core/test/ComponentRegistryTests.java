@@ -20,6 +20,8 @@ import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.oncoblocks.centromere.core.dataimport.RecordProcessor;
 import org.oncoblocks.centromere.core.model.Model;
+import org.oncoblocks.centromere.core.repository.CachingRepository;
+import org.oncoblocks.centromere.core.repository.QueryCriteria;
 import org.oncoblocks.centromere.core.repository.RepositoryOperations;
 import org.oncoblocks.centromere.core.util.DataTypeProcessorRegistry;
 import org.oncoblocks.centromere.core.util.ModelRegistry;
@@ -31,6 +33,8 @@ import org.springframework.test.context.ContextConfiguration;
 import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
 import org.springframework.util.Assert;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 
@@ -60,7 +64,7 @@ public class ComponentRegistryTests {
 		Map<String, Class<? extends Model>> models = modelRegistry.getRegistry();
 		Assert.notNull(models);
 		Assert.notEmpty(models);
-		Assert.isTrue(models.size() == 2);
+		Assert.isTrue(models.size() == 3);
 	}
 
 	private ModelRegistry createModelRegistry() throws Exception {
@@ -137,5 +141,31 @@ public class ComponentRegistryTests {
 		RepositoryOperations repository = repositories.get(0);
 		Assert.isTrue(repository instanceof TestRepository);
 	}
+
+	@Test
+	public void cachingModelRepositoryRegistryTest() throws Exception {
+		ModelRepositoryRegistry registry = new ModelRepositoryRegistry(context);
+		registry.configure();
+		registry.enableCaching(EntrezGene.class, "maximumSize=100,expireAfterWrite=1m,recordStats");
+		List<RepositoryOperations> repositories = registry.findByModel(EntrezGene.class);
+		Assert.isTrue(repositories.size() == 1);
+		Assert.isTrue(repositories.get(0) instanceof CachingRepository);
+		Assert.isTrue(registry.getRegistry().values().iterator().next() instanceof CachingRepository);
+		
+		CachingRepository repository = (CachingRepository) repositories.get(0);
+		Assert.isTrue(repository.getRepository() instanceof TestRepository);
+		List<QueryCriteria> criterias = new ArrayList<>();
+		criterias.add(new QueryCriteria("geneType", "protein-coding"));
+		criterias.add(new QueryCriteria("primaryGeneSymbol", "GeneA"));
+		Object first = repository.find(criterias);
+		Collections.reverse(criterias);
+		Object second = repository.find(criterias);
+		Assert.isTrue(first == second);
+		Assert.isTrue(repository.getCacheStats().hitCount() == 1);
+		Assert.isTrue(repository.getCacheSize() == 1);
+		
+		registry.invalidateCaches(EntrezGene.class);
+		Assert.isTrue(repository.getCacheSize() == 0);
+	}
 	
 }
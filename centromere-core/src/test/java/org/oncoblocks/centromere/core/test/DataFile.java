@@ -0,0 +1,74 @@
+/*
+ * Copyright 2016 William Oemler, Blueprint Medicines
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.oncoblocks.centromere.core.test;
+
+import org.oncoblocks.centromere.core.model.support.DigestedDataFileMetadata;
+import org.oncoblocks.centromere.core.model.support.FileDigest;
+import org.oncoblocks.centromere.core.model.support.ImportCheckpoint;
+import org.oncoblocks.centromere.core.model.support.ResumableDataFileMetadata;
+
+/**
+ * @author woemler
+ */
+public class DataFile implements ResumableDataFileMetadata<String>, DigestedDataFileMetadata<String> {
+	
+	private String id;
+	private String dataType;
+	private String filePath;
+	private ImportCheckpoint importCheckpoint;
+	private FileDigest fileDigest;
+
+	@Override public String getId() {
+		return id;
+	}
+
+	public void setId(String id) {
+		this.id = id;
+	}
+
+	public String getDataType() {
+		return dataType;
+	}
+
+	public void setDataType(String dataType) {
+		this.dataType = dataType;
+	}
+
+	public String getFilePath() {
+		return filePath;
+	}
+
+	public void setFilePath(String filePath) {
+		this.filePath = filePath;
+	}
+
+	public ImportCheckpoint getImportCheckpoint() {
+		return importCheckpoint;
+	}
+
+	public void setImportCheckpoint(ImportCheckpoint importCheckpoint) {
+		this.importCheckpoint = importCheckpoint;
+	}
+
+	public FileDigest getFileDigest() {
+		return fileDigest;
+	}
+
+	public void setFileDigest(FileDigest fileDigest) {
+		this.fileDigest = fileDigest;
+	}
+}
@@ -20,16 +20,36 @@ import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.oncoblocks.centromere.core.dataimport.*;
+import org.oncoblocks.centromere.core.model.support.FileDigest;
+import org.oncoblocks.centromere.core.model.support.ImportCheckpoint;
+import org.oncoblocks.centromere.core.repository.support.DataFileMetadataRepository;
+import org.springframework.beans.factory.ObjectFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.test.context.ContextConfiguration;
 import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
 import org.springframework.util.Assert;
 import org.springframework.validation.BeanPropertyBindingResult;
 import org.springframework.validation.ObjectError;
+import org.springframework.validation.Errors;
 import org.springframework.validation.Validator;
 
-import java.util.ArrayList;
-import java.util.List;
+import java.io.*;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.*;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPOutputStream;
 
 import static org.junit.Assert.fail;
 
@@ -85,6 +105,205 @@ public class DataImportTests {
 		Assert.isTrue(genes.get(4).getEntrezGeneId().equals(10L));
 	}
 	
+	@Test
+	public void delimitedGeneInfoReaderTest() throws Exception {
+		GeneInfoReader reader = new GeneInfoReader();
+		DelimitedGeneInfoReader delimitedReader = new DelimitedGeneInfoReader();
+		List<EntrezGene> genes = new ArrayList<>();
+		try {
+			reader.open(geneInfoPath);
+			delimitedReader.open(geneInfoPath);
+			EntrezGene gene = delimitedReader.readRecord();
+			while (gene != null) {
+				genes.add(gene);
+				EntrezGene expected = reader.readRecord();
+				Assert.isTrue(expected.toString().equals(gene.toString()));
+				gene = delimitedReader.readRecord();
+			}
+			Assert.isNull(reader.readRecord());
+		} finally {
+			reader.close();
+			delimitedReader.close();
+		}
+		Assert.isTrue(genes.size() == 5);
+		Assert.isTrue(genes.get(4).getEntrezGeneId().equals(10L));
+	}
+	
+	@Test
+	public void delimitedLineReaderTest() throws Exception {
+		String text = "a\t-12\t3.25\tDAYS\r\n\n\u00e9t\u00e9\t9223372036854775807\t1e3\t\nlast";
+		File file = File.createTempFile("delimited", ".txt");
+		file.deleteOnExit();
+		Files.write(file.toPath(), text.getBytes(StandardCharsets.UTF_8));
+		for (int window: new int[]{ 3, 1024 }) {
+			DelimitedLineReader reader = new DelimitedLineReader(file, '\t');
+			reader.setMappingWindow(window);
+			try {
+				Assert.isTrue(reader.nextLine());
+				Assert.isTrue(reader.getFieldCount() == 4);
+				Assert.isTrue(reader.getField(0).contentEquals("a"));
+				Assert.isTrue(reader.getField(1).toInt() == -12);
+				Assert.isTrue(reader.getField(2).toDouble() == 3.25);
+				Assert.isTrue(reader.getField(3).toEnum(TimeUnit.values()) == TimeUnit.DAYS);
+				Assert.isTrue(reader.nextLine());
+				Assert.isTrue(reader.getLine().isEmpty());
+				Assert.isTrue(reader.nextLine());
+				Assert.isTrue("\u00e9t\u00e9".equals(reader.getField(0).toString()));
+				Assert.isTrue(reader.getField(1).toLong() == Long.MAX_VALUE);
+				Assert.isTrue(reader.getField(2).toDouble() == 1000.0);
+				Assert.isTrue(reader.getField(3).isEmpty());
+				Assert.isTrue(reader.nextLine());
+				Assert.isTrue(reader.getLine().contentEquals("last"));
+				Assert.isTrue(!reader.nextLine());
+				Assert.isTrue(reader.getPosition() == text.getBytes(StandardCharsets.UTF_8).length);
+			} finally {
+				reader.close();
+			}
+		}
+	}
+	
+	@Test
+	public void compressedInputTest() throws Exception {
+		byte[] data = Files.readAllBytes(new File(geneInfoPath).toPath());
+		File gzipFile = File.createTempFile("gene_info", ".gz");
+		gzipFile.deleteOnExit();
+		try (GZIPOutputStream out = new GZIPOutputStream(new FileOutputStream(gzipFile))){
+			out.write(data);
+		}
+		File bgzfFile = File.createTempFile("gene_info", ".bgz");
+		bgzfFile.deleteOnExit();
+		writeBgzf(data, bgzfFile, 100);
+		Assert.isTrue(CompressionUtils.detectCompression(new File(geneInfoPath)) == CompressionType.NONE);
+		Assert.isTrue(CompressionUtils.detectCompression(gzipFile) == CompressionType.GZIP);
+		Assert.isTrue(CompressionUtils.detectCompression(bgzfFile) == CompressionType.BGZF);
+		for (File file: new File[]{ gzipFile, bgzfFile }){
+			GeneInfoReader reader = new GeneInfoReader();
+			DelimitedGeneInfoReader delimitedReader = new DelimitedGeneInfoReader();
+			delimitedReader.setDecompressionThreads(3);
+			List<EntrezGene> genes = new ArrayList<>();
+			List<EntrezGene> delimitedGenes = new ArrayList<>();
+			try {
+				reader.open(file.getPath());
+				delimitedReader.open(file.getPath());
+				EntrezGene gene = reader.readRecord();
+				while (gene != null) {
+					genes.add(gene);
+					gene = reader.readRecord();
+				}
+				gene = delimitedReader.readRecord();
+				while (gene != null) {
+					delimitedGenes.add(gene);
+					gene = delimitedReader.readRecord();
+				}
+			} finally {
+				reader.close();
+				delimitedReader.close();
+			}
+			Assert.isTrue(genes.size() == 5);
+			Assert.isTrue(delimitedGenes.size() == 5);
+			Assert.isTrue(genes.get(4).getEntrezGeneId().equals(10L));
+			Assert.isTrue(delimitedGenes.get(4).getEntrezGeneId().equals(10L));
+		}
+		try (InputStream in = new BgzfInputStream(new FileInputStream(bgzfFile), 4)){
+			ByteArrayOutputStream out = new ByteArrayOutputStream();
+			byte[] buffer = new byte[37];
+			int count = in.read(buffer);
+			while (count > 0){
+				out.write(buffer, 0, count);
+				count = in.read(buffer);
+			}
+			Assert.isTrue(Arrays.equals(data, out.toByteArray()));
+		}
+	}
+	
+	@Test
+	public void sharedBgzfExecutorTest() throws Exception {
+		byte[] data = Files.readAllBytes(new File(geneInfoPath).toPath());
+		File bgzfFile = File.createTempFile("gene_info", ".bgz");
+		bgzfFile.deleteOnExit();
+		writeBgzf(data, bgzfFile, 100);
+		ExecutorService executor = Executors.newFixedThreadPool(2);
+		try {
+			for (int i = 0; i < 2; i++){
+				try (InputStream in = new BgzfInputStream(new FileInputStream(bgzfFile), executor, 2)){
+					ByteArrayOutputStream out = new ByteArrayOutputStream();
+					byte[] buffer = new byte[37];
+					int count = in.read(buffer);
+					while (count > 0){
+						out.write(buffer, 0, count);
+						count = in.read(buffer);
+					}
+					Assert.isTrue(Arrays.equals(data, out.toByteArray()));
+				}
+				Assert.isTrue(!executor.isShutdown());
+			}
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+	
+	@Test
+	public void zstdInputTest() throws Exception {
+		byte[] header = new byte[]{ 0x28, (byte) 0xb5, 0x2f, (byte) 0xfd, 0, 0, 0, 0 };
+		File zstdFile = File.createTempFile("gene_info", ".zst");
+		zstdFile.deleteOnExit();
+		Files.write(zstdFile.toPath(), header);
+		Assert.isTrue(CompressionUtils.detectCompression(zstdFile) == CompressionType.ZSTD);
+		Assert.isTrue(CompressionUtils.detectCompression(header, 3) == CompressionType.NONE);
+		
+		// zstd-jni is an optional dependency, and is not on the test classpath
+		final boolean[] closed = { false };
+		InputStream raw = new ByteArrayInputStream(header) {
+			@Override public void close() throws IOException {
+				closed[0] = true;
+				super.close();
+			}
+		};
+		Exception exception = null;
+		try {
+			CompressionUtils.openInputStream(raw, CompressionType.ZSTD, 1);
+		} catch (IOException e){
+			exception = e;
+		}
+		Assert.notNull(exception);
+		Assert.isTrue(exception.getMessage().contains("zstd-jni"));
+		Assert.isTrue(closed[0], "Raw stream should be closed when the Zstandard stream cannot be opened.");
+		
+		DelimitedGeneInfoReader reader = new DelimitedGeneInfoReader();
+		exception = null;
+		try {
+			reader.doBefore(zstdFile.getPath());
+		} catch (DataImportException e){
+			exception = e;
+		} finally {
+			reader.close();
+		}
+		Assert.notNull(exception);
+	}
+	
+	private static void writeBgzf(byte[] data, File file, int blockSize) throws IOException {
+		try (OutputStream out = new FileOutputStream(file)){
+			for (int offset = 0; offset <= data.length; offset += blockSize){
+				int length = Math.min(blockSize, data.length - offset);
+				Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+				deflater.setInput(data, offset, length);
+				deflater.finish();
+				byte[] compressed = new byte[length + 64];
+				int compressedLength = deflater.deflate(compressed);
+				deflater.end();
+				CRC32 crc = new CRC32();
+				crc.update(data, offset, length);
+				ByteBuffer block = ByteBuffer.allocate(18 + compressedLength + 8).order(ByteOrder.LITTLE_ENDIAN);
+				block.put(new byte[]{ 0x1f, (byte) 0x8b, 8, 4, 0, 0, 0, 0, 0, (byte) 0xff, 6, 0, 'B', 'C', 2, 0 });
+				block.putShort((short) (block.capacity() - 1));
+				block.put(compressed, 0, compressedLength);
+				block.putInt((int) crc.getValue());
+				block.putInt(length);
+				out.write(block.array());
+			}
+		}
+	}
+	
 	@Test
 	public void validationTest() throws Exception {
 		EntrezGene gene = new EntrezGene();
@@ -125,6 +344,68 @@ public class DataImportTests {
 		Assert.isTrue("GeneX".equals(gene.getPrimaryGeneSymbol()));
 	}
 	
+	@Test
+	public void batchingRecordWriterTest() throws Exception {
+		testRepository.deleteAll();
+		Assert.isTrue(testRepository.count() == 0);
+		BatchingRepositoryRecordWriter<EntrezGene> writer = new BatchingRepositoryRecordWriter<>(testRepository);
+		writer.setBatchSize(2);
+		writer.doBefore("");
+		for (EntrezGene gene: EntrezGene.createDummyData()){
+			writer.writeRecord(gene);
+		}
+		Assert.isTrue(testRepository.count() == 4);
+		writer.doAfter();
+		Assert.isTrue(testRepository.count() == 5);
+		Assert.isTrue(writer.getRecordCount() == 5);
+		Assert.isTrue(writer.getFailures().isEmpty());
+	}
+	
+	@Test
+	public void batchingRecordUpdaterTest() throws Exception {
+		BatchingRepositoryRecordUpdater<EntrezGene, Long> updater 
+				= new BatchingRepositoryRecordUpdater<>(testRepository, 10);
+		updater.doBefore("");
+		for (EntrezGene gene: EntrezGene.createDummyData()){
+			gene.setPrimaryGeneSymbol(gene.getPrimaryGeneSymbol() + "X");
+			updater.writeRecord(gene);
+		}
+		Assert.isTrue("GeneA".equals(testRepository.findOne(1L).getPrimaryGeneSymbol()));
+		updater.doAfter();
+		Assert.isTrue("GeneAX".equals(testRepository.findOne(1L).getPrimaryGeneSymbol()));
+	}
+	
+	@Test
+	public void recordBatcherFailureTest() throws Exception {
+		RecordBatcher<EntrezGene> batcher = new RecordBatcher<EntrezGene>() {
+			@Override protected void writeBatch(List<EntrezGene> records) {
+				if (records.get(0).getEntrezGeneId() == 3L) throw new IllegalStateException("Bad batch");
+			}
+		};
+		batcher.setBatchSize(2);
+		batcher.setStopOnError(false);
+		for (EntrezGene gene: EntrezGene.createDummyData()){
+			batcher.add(gene);
+		}
+		batcher.flush();
+		Assert.isTrue(batcher.getBatchCount() == 3);
+		Assert.isTrue(batcher.getRecordCount() == 3);
+		Assert.isTrue(batcher.getFailedRecordCount() == 2);
+		Assert.isTrue(batcher.getFailures().size() == 1);
+		Assert.isTrue(batcher.getFailures().get(0).getFirstRecord() == 3);
+		batcher.reset();
+		batcher.setStopOnError(true);
+		Exception exception = null;
+		try {
+			for (EntrezGene gene: EntrezGene.createDummyData()){
+				batcher.add(gene);
+			}
+		} catch (DataImportException e){
+			exception = e;
+		}
+		Assert.notNull(exception);
+	}
+	
 	@Test
 	public void recordProcessorTest() throws Exception {
 		testRepository.deleteAll();
@@ -144,6 +425,753 @@ public class DataImportTests {
 		Assert.isTrue(EntrezGene.class.equals(processor.getModel()));
 	}
 	
+	@Test
+	public void pipelinedRecordProcessorTest() throws Exception {
+		testRepository.deleteAll();
+		Assert.isTrue(testRepository.count() == 0);
+		BasicImportOptions options = new BasicImportOptions(new HashMap<>(defaultImportOptions.getOptions()));
+		options.setPipelineThreads(3);
+		options.setPipelineQueueSize(2);
+		processor.setImportOptions(options);
+		try {
+			processor.doBefore();
+			processor.run(geneInfoPath);
+			processor.doAfter();
+		} finally {
+			processor.setImportOptions(defaultImportOptions);
+		}
+		Assert.isTrue(testRepository.count() == 5);
+		EntrezGene gene = testRepository.findOne(10L);
+		Assert.notNull(gene);
+	}
+
+	@Test
+	public void importMetricsTest() throws Exception {
+		final List<EntrezGene> written = new ArrayList<>();
+		GenericRecordProcessor<EntrezGene> metricsProcessor = new GenericRecordProcessor<EntrezGene>() {};
+		metricsProcessor.setReader(new GeneInfoReader());
+		metricsProcessor.setWriter(new RecordWriter<EntrezGene>() {
+			@Override public void writeRecord(EntrezGene record) { written.add(record); }
+			@Override public void doBefore(Object... args) { }
+			@Override public void doAfter(Object... args) { }
+		});
+		BasicImportOptions options = new BasicImportOptions(new HashMap<>(defaultImportOptions.getOptions()));
+		options.setProgressInterval(1L);
+		metricsProcessor.setImportOptions(options);
+		ImportMetrics metrics = new ImportMetrics();
+		metricsProcessor.setImportMetrics(metrics);
+		metricsProcessor.run(geneInfoPath);
+		Assert.isTrue(written.size() == 5);
+		Assert.isTrue(metrics.getStage(ImportMetrics.Stage.READ).getRecords() == 5);
+		Assert.isTrue(metrics.getStage(ImportMetrics.Stage.READ).getBytes() == new File(geneInfoPath).length());
+		Assert.isTrue(metrics.getStage(ImportMetrics.Stage.WRITE).getRecords() == 5);
+		Assert.isTrue(metrics.getInvalidRecordCount() == 0);
+		Assert.isTrue(metrics.getEndTime() >= metrics.getStartTime());
+		Map<String, Object> summary = metrics.toMap();
+		Assert.isTrue(((Map) summary.get("stages")).containsKey("read"));
+		Assert.isTrue(summary.containsKey("peakHeapBytes"));
+	}
+
+	@Test
+	public void streamingImportTest() throws Exception {
+		final ByteArrayOutputStream imported = new ByteArrayOutputStream();
+		final List<String> events = new ArrayList<>();
+		StreamingRecordImporter importer = new StreamingRecordImporter() {
+			@Override public OutputStream startStreamingImport() { 
+				events.add("start");
+				return imported; 
+			}
+			@Override public void finishStreamingImport() { events.add("finish"); }
+			@Override public void abortStreamingImport() { events.add("abort"); }
+			@Override public void importFile(String filePath) { events.add("file"); }
+			@Override public void doBefore(Object... args) { }
+			@Override public void doAfter(Object... args) { }
+		};
+		AbstractRecordFileWriter<EntrezGene> writer = new AbstractRecordFileWriter<EntrezGene>() {
+			@Override public void writeRecord(EntrezGene record) throws DataImportException {
+				try {
+					this.getOutputWriter().write(record.getEntrezGeneId() + "\n");
+				} catch (IOException e){
+					throw new DataImportException(e.getMessage());
+				}
+			}
+		};
+		GenericRecordProcessor<EntrezGene> streamingProcessor = new GenericRecordProcessor<EntrezGene>() {};
+		streamingProcessor.setReader(new GeneInfoReader());
+		streamingProcessor.setWriter(writer);
+		streamingProcessor.setImporter(importer);
+		BasicImportOptions options = new BasicImportOptions(new HashMap<>(defaultImportOptions.getOptions()));
+		options.setTempDirectoryPath(Files.createTempDirectory("streaming").toString());
+		options.setStreamingImport(true);
+		streamingProcessor.setImportOptions(options);
+		streamingProcessor.run(geneInfoPath);
+		Assert.isTrue(events.equals(Arrays.asList("start", "finish")));
+		String[] lines = new String(imported.toByteArray(), StandardCharsets.UTF_8).split("\n");
+		Assert.isTrue(lines.length == 5);
+		Assert.isTrue("10".equals(lines[4]));
+		Assert.isTrue(new File(options.getTempDirectoryPath()).list().length == 0);
+	}
+	
+	@Test
+	public void abortedStreamingImportTest() throws Exception {
+		final ByteArrayOutputStream streamed = new ByteArrayOutputStream();
+		final List<String> loaded = new ArrayList<>();
+		final List<String> events = new ArrayList<>();
+		StreamingRecordImporter importer = new StreamingRecordImporter() {
+			@Override public OutputStream startStreamingImport() {
+				events.add("start");
+				return streamed;
+			}
+			@Override public void finishStreamingImport() {
+				events.add("finish");
+				loaded.addAll(Arrays.asList(new String(streamed.toByteArray(), StandardCharsets.UTF_8).split("\n")));
+			}
+			@Override public void abortStreamingImport() {
+				events.add("abort");
+				streamed.reset();
+			}
+			@Override public void importFile(String filePath) { events.add("file"); }
+			@Override public void doBefore(Object... args) { }
+			@Override public void doAfter(Object... args) { }
+		};
+		AbstractRecordFileWriter<EntrezGene> writer = new AbstractRecordFileWriter<EntrezGene>() {
+			@Override public void writeRecord(EntrezGene record) throws DataImportException {
+				try {
+					this.getOutputWriter().write(record.getEntrezGeneId() + "\n");
+					this.getOutputWriter().flush();
+				} catch (IOException e){
+					throw new DataImportException(e.getMessage());
+				}
+			}
+		};
+		GenericRecordProcessor<EntrezGene> streamingProcessor = new GenericRecordProcessor<EntrezGene>() {};
+		streamingProcessor.setReader(new GeneInfoReader());
+		streamingProcessor.setWriter(writer);
+		streamingProcessor.setImporter(importer);
+		streamingProcessor.setValidator(new Validator() {
+			private int count = 0;
+			@Override public boolean supports(Class<?> aClass) { return true; }
+			@Override public void validate(Object o, Errors errors) {
+				if (++count == 3) errors.reject("record.invalid");
+			}
+		});
+		BasicImportOptions options = new BasicImportOptions(new HashMap<>(defaultImportOptions.getOptions()));
+		options.setTempDirectoryPath(Files.createTempDirectory("streaming").toString());
+		options.setStreamingImport(true);
+		options.setSkipInvalidRecords(false);
+		streamingProcessor.setImportOptions(options);
+		Exception exception = null;
+		try {
+			streamingProcessor.run(geneInfoPath);
+		} catch (DataImportException e){
+			exception = e;
+		}
+		Assert.notNull(exception);
+		Assert.isTrue(events.equals(Arrays.asList("start", "abort")), events.toString());
+		Assert.isTrue(loaded.isEmpty());
+		Assert.isTrue(streamed.size() == 0);
+	}
+	
+	@Test
+	public void failedStreamingImportStartTest() throws Exception {
+		final List<String> events = new ArrayList<>();
+		StreamingRecordImporter importer = new StreamingRecordImporter() {
+			@Override public OutputStream startStreamingImport() throws DataImportException {
+				throw new DataImportException("Cannot connect");
+			}
+			@Override public void finishStreamingImport() { events.add("finish"); }
+			@Override public void abortStreamingImport() { events.add("abort"); }
+			@Override public void importFile(String filePath) { events.add("file"); }
+			@Override public void doBefore(Object... args) { }
+			@Override public void doAfter(Object... args) { }
+		};
+		GenericRecordProcessor<EntrezGene> streamingProcessor = new GenericRecordProcessor<EntrezGene>() {};
+		streamingProcessor.setReader(new GeneInfoReader() {
+			@Override public void doAfter(Object... args) {
+				events.add("close");
+				super.doAfter(args);
+			}
+		});
+		streamingProcessor.setWriter(new AbstractRecordFileWriter<EntrezGene>() {
+			@Override public void writeRecord(EntrezGene record) { }
+		});
+		streamingProcessor.setImporter(importer);
+		BasicImportOptions options = new BasicImportOptions(new HashMap<>(defaultImportOptions.getOptions()));
+		options.setStreamingImport(true);
+		streamingProcessor.setImportOptions(options);
+		Exception exception = null;
+		try {
+			streamingProcessor.run(geneInfoPath);
+		} catch (DataImportException e){
+			exception = e;
+		}
+		Assert.notNull(exception);
+		Assert.isTrue(events.equals(Collections.singletonList("close")), events.toString());
+	}
+	
+	@Test
+	public void recordFileWriterCharsetTest() throws Exception {
+		AbstractRecordFileWriter<EntrezGene> writer = new AbstractRecordFileWriter<EntrezGene>() {
+			@Override public void writeRecord(EntrezGene record) throws DataImportException {
+				try {
+					this.getOutputWriter().write(record.getPrimaryGeneSymbol() + "\n");
+				} catch (IOException e){
+					throw new DataImportException(e.getMessage());
+				}
+			}
+		};
+		Assert.isTrue(StandardCharsets.UTF_8.equals(writer.getCharset()));
+		EntrezGene gene = new EntrezGene();
+		gene.setPrimaryGeneSymbol("\u00e9");
+		
+		File file = Files.createTempFile("charset", ".txt").toFile();
+		file.deleteOnExit();
+		writer.setCharset(StandardCharsets.ISO_8859_1);
+		writer.doBefore(file.getPath());
+		writer.writeRecord(gene);
+		writer.doAfter();
+		Assert.isTrue(Arrays.equals(Files.readAllBytes(file.toPath()), new byte[]{ (byte) 0xe9, '\n' }));
+		
+		ByteArrayOutputStream stream = new ByteArrayOutputStream();
+		writer.open(stream);
+		writer.writeRecord(gene);
+		writer.flushAndClose();
+		Assert.isTrue(Arrays.equals(stream.toByteArray(), new byte[]{ (byte) 0xe9, '\n' }));
+	}
+	
+	@Test
+	public void fileChunkTest() throws Exception {
+		File file = new File(geneInfoPath);
+		byte[] data = Files.readAllBytes(file.toPath());
+		List<FileChunk> chunks = FileChunk.split(file, 4);
+		Assert.isTrue(chunks.size() == 4);
+		long position = 0L;
+		for (FileChunk chunk: chunks){
+			Assert.isTrue(chunk.getStart() == position);
+			Assert.isTrue(chunk.getLength() > 0);
+			Assert.isTrue(data[(int) chunk.getEnd() - 1] == '\n' || chunk.getEnd() == data.length);
+			position = chunk.getEnd();
+		}
+		Assert.isTrue(position == data.length);
+		Assert.isTrue(FileChunk.split(file, 100).size() <= 6);
+	}
+	
+	@Test
+	public void chunkedImportTest() throws Exception {
+		final List<EntrezGene> written = Collections.synchronizedList(new ArrayList<EntrezGene>());
+		final List<String> imported = Collections.synchronizedList(new ArrayList<String>());
+		GenericRecordProcessor<EntrezGene> chunkedProcessor = new GenericRecordProcessor<EntrezGene>() {};
+		chunkedProcessor.setReaderFactory(new ObjectFactory<RecordReader<EntrezGene>>() {
+			@Override public RecordReader<EntrezGene> getObject() {
+				return new GeneInfoReader();
+			}
+		});
+		chunkedProcessor.setWriterFactory(new ObjectFactory<RecordWriter<EntrezGene>>() {
+			@Override public RecordWriter<EntrezGene> getObject() {
+				return new RecordWriter<EntrezGene>() {
+					@Override public void writeRecord(EntrezGene record) { written.add(record); }
+					@Override public void doBefore(Object... args) { }
+					@Override public void doAfter(Object... args) { }
+				};
+			}
+		});
+		chunkedProcessor.setImporterFactory(new ObjectFactory<RecordImporter>() {
+			@Override public RecordImporter getObject() {
+				return new RecordImporter() {
+					@Override public void importFile(String filePath) { imported.add(filePath); }
+					@Override public void doBefore(Object... args) { }
+					@Override public void doAfter(Object... args) { }
+				};
+			}
+		});
+		BasicImportOptions options = new BasicImportOptions(new HashMap<>(defaultImportOptions.getOptions()));
+		options.setTempDirectoryPath(Files.createTempDirectory("chunked").toString());
+		options.setImportChunks(3);
+		chunkedProcessor.setImportOptions(options);
+		chunkedProcessor.run(geneInfoPath);
+		Assert.isTrue(written.size() == 5);
+		Assert.isTrue(imported.size() == 3);
+		Set<Long> ids = new HashSet<>();
+		for (EntrezGene gene: written){
+			ids.add(gene.getEntrezGeneId());
+		}
+		Assert.isTrue(ids.size() == 5);
+	}
+	
+	@Test
+	public void checkpointedImportTest() throws Exception {
+		final Map<String, ImportCheckpoint> checkpoints = new HashMap<>();
+		ImportCheckpointStore store = new ImportCheckpointStore() {
+			@Override public ImportCheckpoint getCheckpoint(String filePath) { return checkpoints.get(filePath); }
+			@Override public void saveCheckpoint(String filePath, ImportCheckpoint checkpoint) {
+				checkpoints.put(filePath, checkpoint);
+			}
+			@Override public void clearCheckpoint(String filePath) { checkpoints.remove(filePath); }
+		};
+		final List<EntrezGene> persisted = new ArrayList<>();
+		final boolean[] failing = { true };
+		FlushableRecordWriter<EntrezGene> writer = new FlushableRecordWriter<EntrezGene>() {
+			private List<EntrezGene> batch = new ArrayList<>();
+			private long batchCount = 0;
+			@Override public void writeRecord(EntrezGene record) throws DataImportException {
+				if (failing[0] && record.getEntrezGeneId() == 10L) throw new DataImportException("Failed");
+				batch.add(record);
+				if (batch.size() == 2) flush();
+			}
+			@Override public void flush() {
+				if (batch.isEmpty()) return;
+				persisted.addAll(batch);
+				batch.clear();
+				batchCount++;
+			}
+			@Override public long getBatchCount() { return batchCount; }
+			@Override public void doBefore(Object... args) { batch.clear(); batchCount = 0; }
+			@Override public void doAfter(Object... args) { flush(); }
+		};
+		GenericRecordProcessor<EntrezGene> checkpointedProcessor = new GenericRecordProcessor<EntrezGene>() {};
+		DelimitedGeneInfoReader delimitedReader = new DelimitedGeneInfoReader();
+		delimitedReader.setHeaderLineCount(1);
+		checkpointedProcessor.setReader(delimitedReader);
+		checkpointedProcessor.setWriter(writer);
+		checkpointedProcessor.setCheckpointStore(store);
+		BasicImportOptions options = new BasicImportOptions(new HashMap<>(defaultImportOptions.getOptions()));
+		options.setCheckpointInterval(100);
+		checkpointedProcessor.setImportOptions(options);
+		Exception exception = null;
+		try {
+			checkpointedProcessor.run(geneInfoPath);
+		} catch (DataImportException e){
+			exception = e;
+		}
+		Assert.notNull(exception);
+		Assert.isTrue(persisted.size() == 4);
+		ImportCheckpoint checkpoint = checkpoints.get(geneInfoPath);
+		Assert.notNull(checkpoint);
+		Assert.isTrue(checkpoint.getRecordCount() == 4);
+		Assert.isTrue(checkpoint.getBatchCount() == 2);
+		Assert.isTrue(checkpoint.getByteOffset() > 0);
+		
+		failing[0] = false;
+		options.setResumeImport(true);
+		checkpointedProcessor.run(geneInfoPath);
+		Assert.isTrue(persisted.size() == 5);
+		Assert.isTrue(persisted.get(4).getEntrezGeneId() == 10L);
+		Assert.isTrue(delimitedReader.getHeader().get(0).startsWith("#Format"));
+		Assert.isTrue(!checkpoints.containsKey(geneInfoPath));
+		
+		persisted.clear();
+		failing[0] = true;
+		checkpointedProcessor.setReader(new GeneInfoReader());
+		exception = null;
+		try {
+			checkpointedProcessor.run(geneInfoPath);
+		} catch (DataImportException e){
+			exception = e;
+		}
+		Assert.notNull(exception);
+		Assert.isTrue(checkpoints.get(geneInfoPath).getByteOffset() == -1L);
+		failing[0] = false;
+		checkpointedProcessor.run(geneInfoPath);
+		Assert.isTrue(persisted.size() == 5);
+	}
+	
+	@Test
+	public void deltaImportTest() throws Exception {
+		final List<Long> inserted = new ArrayList<>();
+		final List<Long> updated = new ArrayList<>();
+		final List<Long> deleted = new ArrayList<>();
+		TestRepository repository = new TestRepository() {
+			@Override public <S extends EntrezGene> S insert(S entity) {
+				inserted.add(entity.getId());
+				return super.insert(entity);
+			}
+			@Override public <S extends EntrezGene> S update(S entity) {
+				updated.add(entity.getId());
+				return super.update(entity);
+			}
+			@Override public boolean exists(Long id) {
+				throw new UnsupportedOperationException("Existence should be checked in bulk.");
+			}
+			@Override public void delete(Long id) {
+				deleted.add(id);
+				super.delete(id);
+			}
+		};
+		repository.deleteAll();
+		File directory = Files.createTempDirectory("delta").toFile();
+		File inputFile = new File(directory, "genes.txt");
+		List<String> lines = Files.readAllLines(new File(geneInfoPath).toPath(), StandardCharsets.UTF_8);
+		Files.write(inputFile.toPath(), lines, StandardCharsets.UTF_8);
+		
+		GenericRecordProcessor<EntrezGene> deltaProcessor = new GenericRecordProcessor<EntrezGene>() {};
+		deltaProcessor.setReader(new GeneInfoReader());
+		deltaProcessor.setWriter(new RepositoryRecordWriter<>(repository));
+		deltaProcessor.setFingerprintStore(new FileFingerprintIndexStore(new File(directory, "index").getPath()));
+		BasicImportOptions options = new BasicImportOptions(new HashMap<>(defaultImportOptions.getOptions()));
+		options.setDeltaImport(true);
+		deltaProcessor.setImportOptions(options);
+		deltaProcessor.run(inputFile.getPath());
+		Assert.isTrue(inserted.size() == 5);
+		Assert.isTrue(updated.isEmpty());
+		Assert.isTrue(repository.count() == 5);
+
+		inserted.clear();
+		deltaProcessor.run(inputFile.getPath());
+		Assert.isTrue(inserted.isEmpty());
+		Assert.isTrue(updated.isEmpty());
+		Assert.isTrue(deleted.isEmpty());
+		
+		List<String> changed = new ArrayList<>();
+		for (String line: lines){
+			String[] bits = line.split("\t");
+			if (line.startsWith("#")) {
+				changed.add(line);
+			} else if (bits[1].equals("2")){
+				bits[2] = "A2M-CHANGED";
+				changed.add(String.join("\t", bits));
+			} else if (!bits[1].equals("9")){
+				changed.add(line);
+			}
+		}
+		changed.add(changed.get(changed.size() - 1).replaceFirst("\t10\t", "\t11\t"));
+		Files.write(inputFile.toPath(), changed, StandardCharsets.UTF_8);
+		deltaProcessor.run(inputFile.getPath());
+		Assert.isTrue(inserted.size() == 1 && inserted.get(0) == 11L);
+		Assert.isTrue(updated.size() == 1 && updated.get(0) == 2L);
+		Assert.isTrue(deleted.size() == 1 && deleted.get(0) == 9L);
+		Assert.isTrue(repository.count() == 5);
+		Assert.isTrue(repository.findOne(2L).getPrimaryGeneSymbol().equals("A2M-CHANGED"));
+		
+		// An invalid, skipped record must not be deleted as stale
+		deltaProcessor.setValidator(new EntrezGeneValidator());
+		options.setSkipInvalidRecords(true);
+		List<String> removed = new ArrayList<>();
+		List<String> invalid = new ArrayList<>();
+		for (String line: changed){
+			String[] bits = line.split("\t", -1);
+			if (line.startsWith("#")) {
+				removed.add(line);
+				invalid.add(line);
+			} else if (bits[1].equals("2")){
+				removed.add(line);
+				bits[2] = "";
+				invalid.add(String.join("\t", bits));
+			} else if (!bits[1].equals("3")){
+				removed.add(line);
+				invalid.add(line);
+			}
+		}
+		Files.write(inputFile.toPath(), invalid, StandardCharsets.UTF_8);
+		inserted.clear();
+		updated.clear();
+		deleted.clear();
+		deltaProcessor.run(inputFile.getPath());
+		Assert.isTrue(deltaProcessor.getValidationReport().getInvalidCount() == 1);
+		Assert.isTrue(deleted.isEmpty());
+		Assert.isTrue(repository.count() == 5);
+		Assert.isTrue(repository.findOne(2L).getPrimaryGeneSymbol().equals("A2M-CHANGED"));
+		
+		// Once the file is valid again, the retained stale record is deleted
+		Files.write(inputFile.toPath(), removed, StandardCharsets.UTF_8);
+		deltaProcessor.run(inputFile.getPath());
+		Assert.isTrue(deleted.size() == 1 && deleted.get(0) == 3L);
+		Assert.isTrue(updated.isEmpty());
+		Assert.isTrue(repository.count() == 4);
+	}
+	
+	@Test
+	public void fileDigestTest() throws Exception {
+		File directory = Files.createTempDirectory("digest").toFile();
+		File inputFile = new File(directory, "genes.txt");
+		Files.copy(new File(geneInfoPath).toPath(), inputFile.toPath());
+		FileDigest expected = FileDigester.digest(inputFile);
+		Assert.notNull(expected);
+		Assert.isTrue(expected.getSize() == inputFile.length());
+		
+		GeneInfoReader reader = new GeneInfoReader();
+		reader.setFileDigestEnabled(true);
+		reader.doBefore(inputFile.getPath());
+		Assert.isNull(reader.getFileDigest());
+		while (reader.readRecord() != null) { }
+		reader.doAfter();
+		Assert.isTrue(expected.getHash().equals(reader.getFileDigest().getHash()));
+		
+		DelimitedGeneInfoReader delimitedReader = new DelimitedGeneInfoReader();
+		delimitedReader.setFileDigestEnabled(true);
+		delimitedReader.doBefore(inputFile.getPath());
+		while (delimitedReader.readRecord() != null) { }
+		delimitedReader.doAfter();
+		Assert.isTrue(expected.getHash().equals(delimitedReader.getFileDigest().getHash()));
+		
+		File compressedFile = new File(directory, "genes.txt.gz");
+		try (OutputStream out = new GZIPOutputStream(new FileOutputStream(compressedFile))){
+			Files.copy(inputFile.toPath(), out);
+		}
+		delimitedReader.doBefore(compressedFile.getPath());
+		while (delimitedReader.readRecord() != null) { }
+		delimitedReader.doAfter();
+		Assert.isTrue(FileDigester.digest(compressedFile).getHash().equals(delimitedReader.getFileDigest().getHash()));
+
+		final DataFile metadata = new DataFile();
+		metadata.setFilePath(inputFile.getPath());
+		final List<Object> updates = new ArrayList<>();
+		final boolean[] duplicated = { false };
+		DataFileMetadataRepository<DataFile, String> repository = 
+				(DataFileMetadataRepository<DataFile, String>) Proxy.newProxyInstance(
+						getClass().getClassLoader(), new Class<?>[] { DataFileMetadataRepository.class }, 
+						new InvocationHandler() {
+							@Override public Object invoke(Object proxy, Method method, Object[] args) {
+								if (method.getName().equals("findByFilePath")) {
+									if (duplicated[0]) return Arrays.asList(metadata, metadata);
+									return args[0].equals(metadata.getFilePath()) 
+											? Collections.singletonList(metadata) : Collections.emptyList();
+								} else if (method.getName().equals("update")) {
+									updates.add(args[0]);
+									return args[0];
+								}
+								throw new UnsupportedOperationException(method.getName());
+							}
+						});
+		DataFileDigestChecker<DataFile, String> checker = new DataFileDigestChecker<>(repository);
+		Assert.isTrue(!checker.isUnchanged(inputFile.getPath()));
+		checker.saveDigest(inputFile.getPath(), reader.getFileDigest());
+		Assert.isTrue(checker.isUnchanged(inputFile.getPath()));
+		Assert.isTrue(updates.size() == 1);
+		Assert.isTrue(inputFile.setLastModified(inputFile.lastModified() - 60000L));
+		Assert.isTrue(checker.isUnchanged(inputFile.getPath()));
+		Assert.isTrue(updates.size() == 2);
+		Assert.isTrue(metadata.getFileDigest().getLastModified() == inputFile.lastModified());
+		byte[] bytes = Files.readAllBytes(inputFile.toPath());
+		bytes[bytes.length - 2] = (byte) (bytes[bytes.length - 2] == 'X' ? 'Y' : 'X');
+		Files.write(inputFile.toPath(), bytes);
+		Assert.isTrue(!checker.isUnchanged(inputFile.getPath()));
+		Assert.isTrue(!checker.isUnchanged(compressedFile.getPath()));
+		duplicated[0] = true;
+		Exception exception = null;
+		try {
+			checker.isUnchanged(inputFile.getPath());
+		} catch (DataImportException e){
+			exception = e;
+		}
+		Assert.notNull(exception);
+	}
+	
+	@Test
+	public void recordPipelineOrderTest() throws Exception {
+		List<EntrezGene> genes = new ArrayList<>();
+		for (long i = 1; i <= 1000; i++){
+			genes.add(new EntrezGene(i, "Gene" + i, 9606, null, null, null, null, null, null, null, null));
+		}
+		final List<EntrezGene> written = new ArrayList<>();
+		RecordWriter<EntrezGene> writer = new RecordWriter<EntrezGene>() {
+			@Override public void writeRecord(EntrezGene record) { written.add(record); }
+			@Override public void doBefore(Object... args) { }
+			@Override public void doAfter(Object... args) { }
+		};
+		RecordPipeline<EntrezGene> pipeline = new RecordPipeline<EntrezGene>(
+				new RecordCollectionReader<>(genes), writer, 4, 8, true) {
+			@Override protected boolean accept(EntrezGene record) {
+				return record.getEntrezGeneId() % 10 != 0;
+			}
+		};
+		Assert.isTrue(pipeline.run() == 900);
+		Assert.isTrue(written.size() == 900);
+		long last = 0;
+		for (EntrezGene gene: written){
+			Assert.isTrue(gene.getEntrezGeneId() > last);
+			last = gene.getEntrezGeneId();
+		}
+	}
+	
+	@Test
+	public void recordPipelineReorderTest() throws Exception {
+		final List<EntrezGene> genes = new ArrayList<>();
+		for (long i = 1; i <= 500; i++){
+			genes.add(new EntrezGene(i, "Gene" + i, 9606, null, null, null, null, null, null, null, null));
+		}
+		for (final boolean preserveOrder: new boolean[]{ true, false }){
+			final List<EntrezGene> written = new ArrayList<>();
+			RecordWriter<EntrezGene> writer = new RecordWriter<EntrezGene>() {
+				@Override public void writeRecord(EntrezGene record) { written.add(record); }
+				@Override public void doBefore(Object... args) { }
+				@Override public void doAfter(Object... args) { }
+			};
+			RecordPipeline<EntrezGene> pipeline = new RecordPipeline<EntrezGene>(
+					new RecordCollectionReader<>(genes), writer, 4, 16, 3, preserveOrder) {
+				@Override protected boolean accept(EntrezGene record) {
+					// Vary the time taken by each batch, so that workers finish them out of order
+					if (record.getEntrezGeneId() % 3 == 1) {
+						try {
+							Thread.sleep(record.getEntrezGeneId() % 4);
+						} catch (InterruptedException e){
+							Thread.currentThread().interrupt();
+						}
+					}
+					return true;
+				}
+			};
+			Assert.isTrue(pipeline.run() == genes.size());
+			if (preserveOrder){
+				Assert.isTrue(written.equals(genes), "Records should be written in the order they were read.");
+			} else {
+				Assert.isTrue(new HashSet<>(written).equals(new HashSet<>(genes)));
+			}
+		}
+	}
+	
+	@Test
+	public void recordPipelineBackpressureTest() throws Exception {
+		List<EntrezGene> genes = new ArrayList<>();
+		for (long i = 1; i <= 1000; i++){
+			genes.add(new EntrezGene(i, "Gene" + i, 9606, null, null, null, null, null, null, null, null));
+		}
+		for (boolean preserveOrder: new boolean[]{ true, false }){
+			final AtomicInteger read = new AtomicInteger();
+			final CountDownLatch released = new CountDownLatch(1);
+			final AtomicInteger written = new AtomicInteger();
+			RecordReader<EntrezGene> reader = new RecordCollectionReader<EntrezGene>(genes) {
+				@Override public EntrezGene readRecord() throws DataImportException {
+					EntrezGene record = super.readRecord();
+					if (record != null) read.incrementAndGet();
+					return record;
+				}
+			};
+			RecordWriter<EntrezGene> writer = new RecordWriter<EntrezGene>() {
+				@Override public void writeRecord(EntrezGene record) throws DataImportException {
+					try {
+						released.await();
+					} catch (InterruptedException e){
+						throw new DataImportException(e.getMessage());
+					}
+					written.incrementAndGet();
+				}
+				@Override public void doBefore(Object... args) { }
+				@Override public void doAfter(Object... args) { }
+			};
+			final RecordPipeline<EntrezGene> pipeline = new RecordPipeline<EntrezGene>(
+					reader, writer, 2, 8, 1, preserveOrder) {
+				@Override protected boolean accept(EntrezGene record) { return true; }
+			};
+			final long[] count = { -1L };
+			Thread runner = new Thread(new Runnable() {
+				@Override 
+				public void run() {
+					try {
+						count[0] = pipeline.run();
+					} catch (DataImportException e){
+						e.printStackTrace();
+					}
+				}
+			});
+			runner.start();
+			Thread.sleep(500);
+			// Two full queues, plus a record held by each worker, the writer and the reader
+			int limit = 2 * pipeline.getQueueSize() + pipeline.getThreads() + 2;
+			Assert.isTrue(read.get() > 0 && read.get() <= limit, 
+					String.format("Reader should be blocked by the stalled writer, but read %d records.", read.get()));
+			Assert.isTrue(written.get() == 0);
+			released.countDown();
+			runner.join(10000L);
+			Assert.isTrue(count[0] == 1000L);
+			Assert.isTrue(read.get() == 1000 && written.get() == 1000);
+		}
+	}
+	
+	@Test
+	public void batchedValidationTest() throws Exception {
+		final List<EntrezGene> genes = new ArrayList<>();
+		for (long i = 1; i <= 1000; i++){
+			genes.add(new EntrezGene(i, i % 10 == 0 ? "" : "Gene" + i, 9606, null, null, null, null, null, 
+					null, null, null));
+		}
+		final List<EntrezGene> written = new ArrayList<>();
+		GenericRecordProcessor<EntrezGene> validatingProcessor = new GenericRecordProcessor<EntrezGene>() {};
+		validatingProcessor.setReader(new RecordCollectionReader<>(genes));
+		validatingProcessor.setWriter(new RecordWriter<EntrezGene>() {
+			@Override public void writeRecord(EntrezGene record) { written.add(record); }
+			@Override public void doBefore(Object... args) { }
+			@Override public void doAfter(Object... args) { }
+		});
+		validatingProcessor.setValidator(new EntrezGeneValidator());
+		BasicImportOptions options = new BasicImportOptions(new HashMap<>(defaultImportOptions.getOptions()));
+		options.setSkipInvalidRecords(true);
+		options.setPipelineThreads(4);
+		options.setPipelineQueueSize(64);
+		options.setPipelineBatchSize(7);
+		validatingProcessor.setImportOptions(options);
+		validatingProcessor.run("genes");
+		Assert.isTrue(written.size() == 900);
+		long last = 0;
+		for (EntrezGene gene: written){
+			Assert.isTrue(gene.getEntrezGeneId() > last);
+			last = gene.getEntrezGeneId();
+		}
+		ValidationReport report = validatingProcessor.getValidationReport();
+		Assert.isTrue(report.getValidCount() == 900);
+		Assert.isTrue(report.getInvalidCount() == 100);
+		Assert.isTrue(report.getErrorCounts().get("primaryGeneSymbol:symbol.empty") == 100L);
+		Assert.isTrue(report.getSamples().size() == ValidationReport.DEFAULT_MAX_SAMPLES);
+
+		options.setSkipInvalidRecords(false);
+		validatingProcessor.setReader(new RecordCollectionReader<>(genes));
+		Exception exception = null;
+		try {
+			validatingProcessor.run("genes");
+		} catch (DataImportException e){
+			exception = e;
+		}
+		Assert.notNull(exception);
+		Assert.isTrue(exception.getMessage().contains("primaryGeneSymbol:symbol.empty"));
+	}
+	
+	@Test
+	public void recordPipelineFailureTest() throws Exception {
+		RecordWriter<EntrezGene> writer = new RecordWriter<EntrezGene>() {
+			@Override public void writeRecord(EntrezGene record) { }
+			@Override public void doBefore(Object... args) { }
+			@Override public void doAfter(Object... args) { }
+		};
+		RecordPipeline<EntrezGene> pipeline = new RecordPipeline<EntrezGene>(
+				new RecordCollectionReader<>(EntrezGene.createDummyData()), writer, 2, 2, false) {
+			@Override protected boolean accept(EntrezGene record) throws DataImportException {
+				throw new DataImportException("Invalid record");
+			}
+		};
+		Exception exception = null;
+		try {
+			pipeline.run();
+		} catch (Exception e){
+			exception = e;
+		}
+		Assert.notNull(exception);
+		Assert.isTrue(exception instanceof DataImportException);
+	}
+	
+	@Test
+	public void abortedWriterTest() throws Exception {
+		final List<String> events = new ArrayList<>();
+		AbortableRecordWriter<EntrezGene> writer = new AbortableRecordWriter<EntrezGene>() {
+			@Override public void writeRecord(EntrezGene record) throws DataImportException {
+				if (record.getId() == 3L) throw new DataImportException("Bad record");
+				events.add("write");
+			}
+			@Override public void abort() { events.add("abort"); }
+			@Override public void doBefore(Object... args) { events.add("before"); }
+			@Override public void doAfter(Object... args) { events.add("after"); }
+		};
+		GenericRecordProcessor<EntrezGene> recordProcessor = new GenericRecordProcessor<EntrezGene>() {};
+		recordProcessor.setReader(new RecordCollectionReader<>(EntrezGene.createDummyData()));
+		recordProcessor.setWriter(writer);
+		Exception exception = null;
+		try {
+			recordProcessor.run(geneInfoPath);
+		} catch (DataImportException e){
+			exception = e;
+		}
+		Assert.notNull(exception);
+		Assert.isTrue(Arrays.asList("before", "write", "write", "abort").equals(events), events.toString());
+	}
+	
 	@Test
 	public void recordCollectionReaderTest() throws Exception {
 		RecordCollectionReader<EntrezGene> reader = new RecordCollectionReader<>(EntrezGene.createDummyData().subList(0, 1));
@@ -0,0 +1,58 @@
+/*
+ * Copyright 2016 William Oemler, Blueprint Medicines
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.oncoblocks.centromere.core.test;
+
+import org.oncoblocks.centromere.core.dataimport.AbstractDelimitedRecordFileReader;
+import org.oncoblocks.centromere.core.dataimport.DataImportException;
+import org.oncoblocks.centromere.core.dataimport.DelimitedLineReader;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+
+/**
+ * @author woemler
+ */
+public class DelimitedGeneInfoReader extends AbstractDelimitedRecordFileReader<EntrezGene> {
+
+	@Override 
+	public EntrezGene readRecord() throws DataImportException {
+		while (this.nextLine()){
+			DelimitedLineReader line = this.getLineReader();
+			if (line.getLine().isEmpty() || line.getLine().charAt(0) == '#') continue;
+			EntrezGene gene = new EntrezGene();
+			gene.setTaxId(line.getField(0).toInt());
+			gene.setEntrezGeneId(line.getField(1).toLong());
+			gene.setPrimaryGeneSymbol(line.getField(2).toString());
+			gene.setAliases(new HashSet<>(Arrays.asList(line.getField(3).toString().split("\\|"))));
+			Map<String,Object> dbXrefs = new HashMap<>();
+			for (String ref: line.getField(4).toString().split("\\|")){
+				String[] r = ref.split(":");
+				dbXrefs.put(r[0], r[r.length-1]);
+			}
+			gene.setDbXrefs(dbXrefs);
+			gene.setChromosome(line.getField(5).toString());
+			gene.setChromosomeLocation(line.getField(6).toString());
+			gene.setDescription(line.getField(7).toString());
+			gene.setGeneType(line.getField(8).toString());
+			return gene;
+		}
+		return null;
+	}
+	
+}
@@ -0,0 +1,229 @@
+/*
+ * Copyright 2016 William Oemler, Blueprint Medicines
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.oncoblocks.centromere.core.test;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.oncoblocks.centromere.core.repository.Evaluation;
+import org.oncoblocks.centromere.core.repository.InMemoryRepository;
+import org.oncoblocks.centromere.core.repository.KeysetPage;
+import org.oncoblocks.centromere.core.repository.KeysetPageRequest;
+import org.oncoblocks.centromere.core.repository.QueryCriteria;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.util.Assert;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * @author woemler
+ */
+public class InMemoryRepositoryTests {
+	
+	private TestRepository source;
+	private InMemoryRepository<EntrezGene, Long> repository;
+	
+	@Before
+	public void setup(){
+		source = new TestRepository();
+		repository = new InMemoryRepository<>(source, "entrezGeneId", "primaryGeneSymbol", "geneType", 
+				"aliases");
+	}
+	
+	private static List<EntrezGene> toList(Iterable<EntrezGene> genes){
+		List<EntrezGene> list = new ArrayList<>();
+		for (EntrezGene gene: genes){
+			list.add(gene);
+		}
+		return list;
+	}
+	
+	@Test
+	public void findTest() throws Exception {
+		Assert.isTrue(!repository.isLoaded());
+		Assert.isTrue(repository.count() == 5);
+		Assert.isTrue(repository.isLoaded());
+		EntrezGene gene = repository.findOne(3L);
+		Assert.notNull(gene);
+		Assert.isTrue("GeneC".equals(gene.getPrimaryGeneSymbol()));
+		Assert.isTrue(repository.exists(5L));
+		Assert.isTrue(!repository.exists(6L));
+		
+		List<QueryCriteria> criterias = new ArrayList<>();
+		criterias.add(new QueryCriteria("geneType", "protein-coding"));
+		Assert.isTrue(toList(repository.find(criterias)).size() == 3);
+		criterias.add(new QueryCriteria("chromosome", "3", Evaluation.NOT_EQUALS));
+		List<EntrezGene> genes = toList(repository.find(criterias));
+		Assert.isTrue(genes.size() == 2);
+		Assert.isTrue(genes.get(0).getId() == 1L);
+		Assert.isTrue(genes.get(1).getId() == 4L);
+		
+		criterias = Collections.singletonList(new QueryCriteria("primaryGeneSymbol", 
+				Arrays.asList("GeneA", "GeneE"), Evaluation.IN));
+		Assert.isTrue(repository.count(criterias) == 2);
+		
+		criterias = Collections.singletonList(new QueryCriteria("aliases", "DEF"));
+		genes = toList(repository.find(criterias));
+		Assert.isTrue(genes.size() == 1);
+		Assert.isTrue("GeneB".equals(genes.get(0).getPrimaryGeneSymbol()));
+		
+		criterias = Collections.singletonList(new QueryCriteria("description", "Gene D", Evaluation.LIKE));
+		genes = toList(repository.find(criterias));
+		Assert.isTrue(genes.size() == 1);
+		Assert.isTrue(genes.get(0).getId() == 4L);
+	}
+	
+	@Test
+	public void indexedRangeTest() throws Exception {
+		InMemoryRepository<EntrezGene, Long> unindexed = new InMemoryRepository<>(source);
+		List<List<QueryCriteria>> queries = new ArrayList<>();
+		queries.add(Collections.singletonList(
+				new QueryCriteria("entrezGeneId", Arrays.asList(1L, 4L), Evaluation.BETWEEN)));
+		queries.add(Collections.singletonList(
+				new QueryCriteria("entrezGeneId", Arrays.asList(2, 4), Evaluation.BETWEEN_INCLUSIVE)));
+		queries.add(Collections.singletonList(
+				new QueryCriteria("entrezGeneId", Arrays.asList(2L, 4L), Evaluation.OUTSIDE)));
+		queries.add(Collections.singletonList(
+				new QueryCriteria("entrezGeneId", 4, Evaluation.GREATER_THAN_EQUALS)));
+		queries.add(Collections.singletonList(
+				new QueryCriteria("entrezGeneId", 2.5, Evaluation.LESS_THAN)));
+		queries.add(Collections.singletonList(
+				new QueryCriteria("primaryGeneSymbol", "GeneB", Evaluation.GREATER_THAN)));
+		queries.add(Collections.singletonList(
+				new QueryCriteria("primaryGeneSymbol", 1L, Evaluation.GREATER_THAN)));
+		queries.add(Collections.singletonList(
+				new QueryCriteria("aliases", Arrays.asList("DEF", "JKL"), Evaluation.BETWEEN_INCLUSIVE)));
+		long[] expected = { 2, 3, 2, 2, 2, 3, 0, 3 };
+		for (int i = 0; i < queries.size(); i++){
+			Assert.isTrue(repository.count(queries.get(i)) == expected[i], 
+					String.format("Unexpected indexed count for query %d", i));
+			Assert.isTrue(unindexed.count(queries.get(i)) == expected[i],
+					String.format("Unexpected unindexed count for query %d", i));
+		}
+	}
+	
+	@Test
+	public void sortedPageTest() throws Exception {
+		Page<EntrezGene> page = repository.find(new ArrayList<QueryCriteria>(), 
+				new PageRequest(1, 2, new Sort(Sort.Direction.DESC, "entrezGeneId")));
+		Assert.isTrue(page.getTotalElements() == 5);
+		Assert.isTrue(page.getTotalPages() == 3);
+		Assert.isTrue(page.getNumberOfElements() == 2);
+		Assert.isTrue(page.getContent().get(0).getId() == 3L);
+		Assert.isTrue(page.getContent().get(1).getId() == 2L);
+		
+		List<EntrezGene> genes = toList(repository.find(
+				Collections.singletonList(new QueryCriteria("geneType", "pseudo")), 
+				new Sort(Sort.Direction.DESC, "chromosome")));
+		Assert.isTrue(genes.size() == 2);
+		Assert.isTrue("X".equals(genes.get(0).getChromosome()));
+	}
+	
+	@Test
+	public void keysetPageTest() throws Exception {
+		KeysetPageRequest pageRequest = new KeysetPageRequest(2, 
+				new Sort(Sort.Direction.ASC, "geneType", "primaryGeneSymbol"));
+		List<String> symbols = new ArrayList<>();
+		int pages = 0;
+		KeysetPage<EntrezGene> page = repository.find(new ArrayList<QueryCriteria>(), pageRequest);
+		while (true) {
+			pages++;
+			for (EntrezGene gene: page){
+				symbols.add(gene.getPrimaryGeneSymbol());
+			}
+			if (!page.hasNext()) break;
+			page = repository.find(new ArrayList<QueryCriteria>(), pageRequest.next(page.getNextToken()));
+		}
+		Assert.isTrue(pages == 3);
+		Assert.isTrue(symbols.equals(Arrays.asList("GeneA", "GeneB", "GeneD", "GeneC", "GeneE")));
+	}
+	
+	@Test
+	public void distinctTest() throws Exception {
+		List<Object> values = new ArrayList<>();
+		for (Object value: repository.distinct("geneType")){
+			values.add(value);
+		}
+		Assert.isTrue(values.equals(Arrays.<Object>asList("protein-coding", "pseudo")));
+		values.clear();
+		for (Object value: repository.distinct("chromosome", 
+				Collections.singletonList(new QueryCriteria("geneType", "pseudo")))){
+			values.add(value);
+		}
+		Assert.isTrue(values.equals(Arrays.<Object>asList("11", "X")));
+	}
+	
+	@Test
+	public void refreshTest() throws Exception {
+		Assert.isTrue(repository.count() == 5);
+		EntrezGene gene = new EntrezGene(6L, "GeneF", 9606, null, "2", null, "Test Gene F", 
+				"protein-coding", null, null, null);
+		source.getGeneMap().put(gene.getId(), gene);
+		Assert.isTrue(repository.count() == 5);
+		Assert.isNull(repository.findOne(6L));
+		repository.refresh();
+		Assert.isTrue(repository.count() == 6);
+		Assert.notNull(repository.findOne(6L));
+		Assert.isTrue(repository.count(
+				Collections.singletonList(new QueryCriteria("geneType", "protein-coding"))) == 4);
+	}
+	
+	@Test
+	public void writeTest() throws Exception {
+		final int[] loads = { 0 };
+		final boolean[] failing = { false };
+		TestRepository countingSource = new TestRepository() {
+			@Override public Iterable<EntrezGene> findAll() {
+				if (failing[0]) throw new IllegalStateException("Load failed");
+				loads[0]++;
+				return super.findAll();
+			}
+			@Override public <S extends EntrezGene> S insert(S entity) {
+				if (failing[0]) throw new IllegalArgumentException("Insert failed");
+				return super.insert(entity);
+			}
+		};
+		InMemoryRepository<EntrezGene, Long> cached = new InMemoryRepository<>(countingSource, "geneType");
+		Assert.isTrue(cached.count() == 5);
+		Assert.isTrue(loads[0] == 1);
+		for (long id = 6L; id <= 10L; id++){
+			cached.insert(new EntrezGene(id, "Gene" + id, 9606, null, "2", null, null, "pseudo", 
+					null, null, null));
+		}
+		cached.delete(1L);
+		Assert.isTrue(loads[0] == 1);
+		Assert.isTrue(cached.count() == 9);
+		Assert.isTrue(cached.count(Collections.singletonList(new QueryCriteria("geneType", "pseudo"))) == 7);
+		Assert.isNull(cached.findOne(1L));
+		Assert.isTrue(loads[0] == 2);
+		
+		failing[0] = true;
+		Exception exception = null;
+		try {
+			cached.insert(new EntrezGene(11L, "Gene11", 9606, null, "2", null, null, "pseudo", 
+					null, null, null));
+		} catch (Exception e){
+			exception = e;
+		}
+		Assert.isTrue(exception instanceof IllegalArgumentException);
+	}
+	
+}
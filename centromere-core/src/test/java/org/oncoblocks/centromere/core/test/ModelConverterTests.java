@@ -26,7 +26,9 @@ import org.springframework.test.context.ContextConfiguration;
 import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
 import org.springframework.util.Assert;
 
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 /**
@@ -70,6 +72,27 @@ public class ModelConverterTests {
 		Assert.isNull(gene.getChromosome());
 	}
 
+	@Test
+	public void bulkMapConversionTest() throws Exception {
+		List<Map<String, String>> maps = new ArrayList<>();
+		for (int i = 1; i <= 3; i++){
+			Map<String, String> map = new HashMap<>();
+			map.put("entrezGeneId", String.valueOf(i));
+			map.put("primaryGeneSymbol", "GENE" + i);
+			map.put("chromosome", null);
+			maps.add(map);
+		}
+		maps.get(1).put("badField", "0");
+		KeyValueMapModelConverter converter = new KeyValueMapModelConverter(EntrezGene.class);
+		List<Object> genes = converter.convertAll(maps);
+		Assert.isTrue(genes.size() == 3);
+		Assert.isNull(genes.get(1));
+		EntrezGene gene = (EntrezGene) genes.get(2);
+		Assert.isTrue(gene.getEntrezGeneId() == 3L);
+		Assert.isTrue("GENE3".equals(gene.getPrimaryGeneSymbol()));
+		Assert.isNull(gene.getChromosome());
+	}
+
 	@Test
 	public void badMapConversionTest() throws Exception {
 		Map<String, String> map = new HashMap<>();
@@ -16,6 +16,11 @@
 
 package org.oncoblocks.centromere.core.test;
 
+import org.oncoblocks.centromere.core.repository.CountStrategy;
+import org.oncoblocks.centromere.core.repository.CountedPage;
+import org.oncoblocks.centromere.core.repository.IteratorCursor;
+import org.oncoblocks.centromere.core.repository.KeysetPage;
+import org.oncoblocks.centromere.core.repository.KeysetPageRequest;
 import org.oncoblocks.centromere.core.repository.QueryCriteria;
 import org.oncoblocks.centromere.core.repository.RepositoryOperations;
 import org.springframework.beans.BeanWrapper;
@@ -24,6 +29,7 @@ import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
+import org.springframework.data.util.CloseableIterator;
 import org.springframework.stereotype.Component;
 
 import java.util.*;
@@ -94,6 +100,24 @@ public class TestRepository implements RepositoryOperations<EntrezGene, Long> {
 		return new PageImpl<>(new ArrayList<>(geneMap.values()), pageable, geneMap.size());
 	}
 
+	@Override 
+	public CountedPage<EntrezGene> find(Iterable<QueryCriteria> queryCriterias, Pageable pageable,
+			CountStrategy countStrategy) {
+		return new CountedPage<>(new ArrayList<>(geneMap.values()), pageable, geneMap.size(), 
+				CountStrategy.EXACT);
+	}
+
+	@Override 
+	public KeysetPage<EntrezGene> find(Iterable<QueryCriteria> queryCriterias,
+			KeysetPageRequest pageRequest) {
+		return new KeysetPage<>(new ArrayList<>(geneMap.values()), null);
+	}
+
+	@Override
+	public CloseableIterator<EntrezGene> stream(Iterable<QueryCriteria> queryCriterias, Sort sort) {
+		return new IteratorCursor<>(new ArrayList<>(geneMap.values()));
+	}
+
 	@Override public long count(Iterable<QueryCriteria> queryCriterias) {
 		return geneMap.size();
 	}
@@ -153,17 +177,23 @@ public class TestRepository implements RepositoryOperations<EntrezGene, Long> {
 
 	@Override 
 	public Iterable<EntrezGene> findAll(Iterable<Long> iterable) {
-		return null;
+		List<EntrezGene> genes = new ArrayList<>();
+		for (Long id: iterable){
+			if (geneMap.containsKey(id)) genes.add(geneMap.get(id));
+		}
+		return genes;
 	}
 
 	@Override 
 	public void delete(EntrezGene entrezGene) {
-
+		geneMap.remove(entrezGene.getId());
 	}
 
 	@Override 
 	public void delete(Iterable<? extends EntrezGene> iterable) {
-
+		for (EntrezGene gene: iterable){
+			this.delete(gene);
+		}
 	}
 
 	@Override 
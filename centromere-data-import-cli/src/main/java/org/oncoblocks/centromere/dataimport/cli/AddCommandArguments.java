@@ -30,7 +30,8 @@ import java.util.Map;
  *   representation.  The model class is identified using a full class name or shorthand alias, which
  *   is registered by a {@link org.oncoblocks.centromere.core.util.ModelRegistry} instance.  The 
  *   body can be a complete JSON representation of the target class, or represented as key-value
- *   pairs using dynamic parameter arguments. 
+ *   pairs using dynamic parameter arguments.  Alternatively, many records can be added at once by
+ *   passing a file of newline-delimited JSON records, or {@code -} to read them from standard input.
  * 
  * @author woemler
  */
@@ -42,6 +43,15 @@ public class AddCommandArguments {
 	@DynamicParameter(names = "-D", description = "Dynamic key-value parameters. eg -Dname=Joe")
 	private Map<String, String> parameters = new HashMap<>();
 
+	@Parameter(names = { "-f", "--file" }, description = "File of newline-delimited JSON records to add, or '-' to read from standard input.  When set, the body argument is ignored.")
+	private String inputFilePath;
+
+	@Parameter(names = {"--batch-size"}, description = "Number of records to insert at a time, when adding records from a file.  Defaults to 1000.")
+	private int batchSize = 1000;
+
+	@Parameter(names = {"--skip-invalid-records"}, description = "When true, records in a file that cannot be parsed or fail validation will be skipped, rather than throwing an exception.")
+	private boolean skipInvalidRecords = false;
+
 	public List<String> getArgs() {
 		return args;
 	}
@@ -66,12 +76,39 @@ public class AddCommandArguments {
 		this.parameters = parameters;
 	}
 
+	public String getInputFilePath() {
+		return inputFilePath;
+	}
+
+	public void setInputFilePath(String inputFilePath) {
+		this.inputFilePath = inputFilePath;
+	}
+
+	public int getBatchSize() {
+		return batchSize;
+	}
+
+	public void setBatchSize(int batchSize) {
+		this.batchSize = batchSize;
+	}
+
+	public boolean isSkipInvalidRecords() {
+		return skipInvalidRecords;
+	}
+
+	public void setSkipInvalidRecords(boolean skipInvalidRecords) {
+		this.skipInvalidRecords = skipInvalidRecords;
+	}
+
 	@Override 
 	public String toString() {
 		return "AddCommandArguments{" +
 				"args=" + args +
 				", type='" + (this.getType() != null ? this.getType() : "") + '\'' +
 				", body='" + (this.getBody() != null ? this.getBody() : "") + '\'' +
+				", inputFilePath='" + inputFilePath + '\'' +
+				", batchSize=" + batchSize +
+				", skipInvalidRecords=" + skipInvalidRecords +
 				'}';
 	}
 }
@@ -16,7 +16,9 @@
 
 package org.oncoblocks.centromere.dataimport.cli;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
 import org.oncoblocks.centromere.core.dataimport.DataImportException;
 import org.oncoblocks.centromere.core.model.Model;
 import org.oncoblocks.centromere.core.repository.RepositoryOperations;
@@ -32,11 +34,16 @@ import org.springframework.util.Assert;
 import org.springframework.validation.BeanPropertyBindingResult;
 import org.springframework.validation.Validator;
 
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.List;
 
 /**
  * Executes the {@code add} command, based upon input arguments.  The {@code category} argument will
- *   determine how the {@code label} and {@code body} objects are processed.
+ *   determine how the {@code label} and {@code body} objects are processed.  When an input file is 
+ *   given, each of its lines is parsed as a JSON record, and the records are validated and inserted
+ *   in batches.
  * 
  * @author woemler
  */
@@ -64,23 +71,126 @@ public class AddCommandRunner {
 		if (model == null){
 			throw new DataImportException(String.format("Unable to identify model type: %s", arguments.getType()));
 		}
+		if (arguments.getInputFilePath() != null){
+			this.addRecords(arguments, model);
+			logger.debug("[CENTROMERE] Add task complete.");
+			return;
+		}
 		S entity = (S) convertInputToModel(arguments, model);
 		if (entity == null){
 			throw new DataImportException(String.format("Unable to convert input to %s model object.", model.getName()));
 		}
+		String errors = this.validate(entity, model);
+		if (errors != null){
+			throw new DataImportException(String.format("Model object is invalid and has errors: %s", errors));
+		}
+		RepositoryOperations<S, ?> repository = getRequiredRepository(model);
+		repository.insert(entity);
+		logger.debug("[CENTROMERE] Add task complete.");
+	}
+
+	/**
+	 * Reads newline-delimited JSON records from the input file, or standard input, and inserts them
+	 *   in batches.  Blank lines are ignored.  Records are parsed with a single {@link ObjectReader}
+	 *   bound to the model class.
+	 * 
+	 * @param arguments add command arguments.
+	 * @param model model class of the records.
+	 * @return the number of records inserted.
+	 * @throws DataImportException if the input cannot be read, or a record is invalid and invalid 
+	 *   records are not being skipped.
+	 */
+	private <S extends Model<?>> long addRecords(AddCommandArguments arguments, Class<S> model) 
+			throws DataImportException {
+		Assert.isTrue(arguments.getBatchSize() > 0, "Batch size must be greater than zero.");
+		RepositoryOperations<S, ?> repository = getRequiredRepository(model);
+		ObjectReader objectReader = objectMapper.readerFor(model);
+		String path = arguments.getInputFilePath();
+		boolean stdin = "-".equals(path);
+		long lineNumber = 0L;
+		long count = 0L;
+		long skipped = 0L;
+		List<S> batch = new ArrayList<>(arguments.getBatchSize());
+		BufferedReader reader = null;
+		try {
+			reader = new BufferedReader(new InputStreamReader(
+					stdin ? System.in : new FileInputStream(path), StandardCharsets.UTF_8));
+			String line = reader.readLine();
+			while (line != null){
+				lineNumber++;
+				if (!line.trim().isEmpty()) {
+					S entity = null;
+					String errors;
+					try {
+						entity = objectReader.readValue(line);
+						errors = this.validate(entity, model);
+					} catch (JsonProcessingException e){
+						errors = e.getOriginalMessage();
+					}
+					if (errors == null){
+						batch.add(entity);
+						if (batch.size() >= arguments.getBatchSize()){
+							repository.insert(batch);
+							count += batch.size();
+							batch = new ArrayList<>(arguments.getBatchSize());
+						}
+					} else if (arguments.isSkipInvalidRecords()){
+						logger.warn(String.format("[CENTROMERE] Skipping invalid record at line %d: %s", 
+								lineNumber, errors));
+						skipped++;
+					} else {
+						throw new DataImportException(String.format("Invalid record at line %d of %s: %s", 
+								lineNumber, stdin ? "standard input" : path, errors));
+					}
+				}
+				line = reader.readLine();
+			}
+			if (!batch.isEmpty()){
+				repository.insert(batch);
+				count += batch.size();
+			}
+		} catch (IOException e){
+			e.printStackTrace();
+			throw new DataImportException(String.format("Unable to read records from %s: %s", 
+					stdin ? "standard input" : path, e.getMessage()));
+		} finally {
+			if (reader != null && !stdin){
+				try {
+					reader.close();
+				} catch (IOException e){
+					e.printStackTrace();
+				}
+			}
+		}
+		logger.info(String.format("[CENTROMERE] Added %d %s records, skipped %d invalid records.", 
+				count, model.getSimpleName(), skipped));
+		return count;
+	}
+
+	/**
+	 * Validates the entity, if a validator is available for the model.
+	 * 
+	 * @return description of the validation errors, or null if the entity is valid.
+	 */
+	private String validate(Object entity, Class<? extends Model> model){
+		if (entity == null) return "Record is empty.";
 		if (validator != null && validator.supports(model)){
 			BeanPropertyBindingResult bindingResult = new BeanPropertyBindingResult(entity, entity.getClass().getName());
 			validator.validate(entity, bindingResult);
 			if (bindingResult.hasErrors()){
-				throw new DataImportException(String.format("Model object is invalid and has errors: %s", bindingResult.getAllErrors().toString()));
+				return bindingResult.getAllErrors().toString();
 			}
 		}
+		return null;
+	}
+	
+	private <S extends Model<?>> RepositoryOperations<S, ?> getRequiredRepository(Class<S> model) 
+			throws DataImportException {
 		RepositoryOperations<S, ?> repository = (RepositoryOperations<S, ?>) getModelRepository(model);
 		if (repository == null){
 			throw new DataImportException("No repository available for model class " + model.getName());
 		}
-		repository.insert(entity);
-		logger.debug("[CENTROMERE] Add task complete.");
+		return repository;
 	}
 	
 	private RepositoryOperations<?, ?> getModelRepository(Class<? extends Model> model) throws DataImportException {
@@ -27,7 +27,9 @@ import java.util.Date;
 import java.util.concurrent.TimeUnit;
 
 /**
- * Parses command line input and executes based upon the {@code command} argument.
+ * Parses command line input and executes based upon the {@code command} argument.  The 
+ *   {@code watch} command is only available when a {@link WatchCommandRunner} is set, and runs 
+ *   until the application context is closed, which stops the daemon through its lifecycle.
  * 
  * @author woemler
  */
@@ -35,6 +37,7 @@ public class DataImportCommandLineRunner implements CommandLineRunner {
 	
 	private AddCommandRunner addCommandRunner;
 	private ImportCommandRunner importCommandRunner;
+	private WatchCommandRunner watchCommandRunner;
 	
 	public static final Logger logger = LoggerFactory.getLogger(DataImportCommandLineRunner.class);
 
@@ -81,16 +84,17 @@ public class DataImportCommandLineRunner implements CommandLineRunner {
 		Assert.notNull(importCommandRunner, "ImportCommandRunner must not be null!");
 		ImportCommandArguments importArguments = new ImportCommandArguments();
 		AddCommandArguments addArguments = new AddCommandArguments();
+		WatchCommandArguments watchArguments = new WatchCommandArguments();
 		JCommander jc = new JCommander();
 		jc.addCommand("import", importArguments);
 		jc.addCommand("add", addArguments);
+		if (watchCommandRunner != null) jc.addCommand("watch", watchArguments);
 		try {
 			jc.parse(args);
 		} catch (MissingCommandException e) {
 			logger.debug(String.format("[CENTROMERE] Invalid arguments: add=%s import=%s",
 					addArguments.toString(), importArguments.toString()));
-			jc.usage("add");
-			jc.usage("import");
+			this.usage(jc);
 			return 1;
 		}
 		String command = jc.getParsedCommand() != null ? jc.getParsedCommand() : "null";
@@ -107,13 +111,23 @@ public class DataImportCommandLineRunner implements CommandLineRunner {
 						addArguments.toString()));
 				addCommandRunner.run(addArguments);
 				return 0;
+			case "watch":
+				logger.info(String.format("[CENTROMERE] Running 'watch' command with arguments: %s",
+						watchArguments.toString()));
+				watchCommandRunner.run(watchArguments);
+				return 0;
 			default:
 				logger.warn(String.format("[CENTROMERE] Invalid command: %s", command));
-				jc.usage("add");
-				jc.usage("import");
+				this.usage(jc);
 				return 0;
 		}
 	}
+	
+	private void usage(JCommander jc){
+		jc.usage("add");
+		jc.usage("import");
+		if (watchCommandRunner != null) jc.usage("watch");
+	}
 
 	/**
 	 * From http://stackoverflow.com/a/6710604/1458983
@@ -147,4 +161,13 @@ public class DataImportCommandLineRunner implements CommandLineRunner {
 			ImportCommandRunner importCommandRunner) {
 		this.importCommandRunner = importCommandRunner;
 	}
+
+	public WatchCommandRunner getWatchCommandRunner() {
+		return watchCommandRunner;
+	}
+
+	public void setWatchCommandRunner(
+			WatchCommandRunner watchCommandRunner) {
+		this.watchCommandRunner = watchCommandRunner;
+	}
 }
@@ -73,7 +73,10 @@ public abstract class DataImportConfigurer {
 
 	@Bean
 	public DataImportCommandLineRunner commandLineRunner(){
-		return new DataImportCommandLineRunner(addCommandRunner(), importCommandRunner());
+		DataImportCommandLineRunner runner 
+				= new DataImportCommandLineRunner(addCommandRunner(), importCommandRunner());
+		runner.setWatchCommandRunner(watchCommandRunner());
+		return runner;
 	}
 
 	@Bean
@@ -81,6 +84,11 @@ public abstract class DataImportConfigurer {
 		return new ImportCommandRunner(dataTypeProcessorRegistry());
 	}
 
+	@Bean
+	public WatchCommandRunner watchCommandRunner(){
+		return new WatchCommandRunner(importCommandRunner());
+	}
+
 	@Bean
 	public AddCommandRunner addCommandRunner(){
 		return new AddCommandRunner();
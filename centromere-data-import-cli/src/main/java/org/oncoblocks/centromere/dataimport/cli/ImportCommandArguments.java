@@ -25,22 +25,33 @@ import java.util.Map;
 
 /**
  * Command line arguments for the {@code import} command.  Includes arguments for specifying the
- *   input file, associated data type and data sets, and flags for modifying import behavior.  
+ *   input file, associated data type and data sets, and flags for modifying import behavior.  The
+ *   input may also be a directory or glob pattern, or a manifest may be given in its place, to 
+ *   import many files in a single run.
  * 
  * @author woemler
  */
 public class ImportCommandArguments {
 	
-	@Parameter(names = { "-i", "--input" }, required = true, description = "Data source to be imported.  Required.")
+	@Parameter(names = { "-i", "--input" }, description = "Data source to be imported.  May be a file, directory, or glob pattern.  Required, unless a manifest is provided.")
 	private String inputFilePath;
 	
-	@Parameter(names = { "-t", "--data-type" }, required = true, description = "Data type label for the target file.  Required.")
+	@Parameter(names = { "-t", "--data-type" }, description = "Data type label for the target file.  Required, unless a manifest is provided.")
 	private String dataType;
+
+	@Parameter(names = { "-m", "--manifest" }, description = "Tab-delimited file listing the inputs to import, their data types, and optionally their backend names.")
+	private String manifestFilePath;
+
+	@Parameter(names = {"--jobs"}, description = "Maximum number of files to import concurrently, when importing multiple files.  Files with the same data type are always imported one at a time.  Defaults to 1.")
+	private int jobs = 1;
+
+	@DynamicParameter(names = "-J", description = "Maximum number of files to import concurrently into a backend. eg -JMongoImportTempFileImporter=2")
+	private Map<String, String> backendJobs = new HashMap<>();
 	
 	@Parameter(names = { "-d", "--data-set" }, description = "Data set label or JSON representation.  If not provided, no data set will be associated with the file.")
 	private String dataSet;
 	
-	@Parameter(names = { "-T", "--temp-dir" }, description = "Directory to write temporary files to.  Defaults to '/tmp'.")
+	@Parameter(names = { "-T", "--temp-dir" }, description = "Directory to write temporary files to.  Each job writes to its own subdirectory, which is deleted when the job ends.  Defaults to '/tmp'.")
 	private String tempFilePath = "/tmp";
 
 	@DynamicParameter(names = "-D", description = "Dynamic key-value parameters. eg -Dname=Joe")
@@ -58,6 +69,27 @@ public class ImportCommandArguments {
 	@Parameter(names = {"--skip-invalid-data-sets"}, description = "When true, records and files associated with invalid or existing data sets will be skipped, rather than throw an exception.")
 	private boolean skipInvalidDataSets = false;
 
+	@Parameter(names = {"--skip-existing-files"}, description = "When true, files that are unchanged since their last import will be skipped.")
+	private boolean skipExistingFiles = false;
+
+	@Parameter(names = {"--chunks"}, description = "Number of chunks to split the input file into, to be imported concurrently.  Defaults to 1.")
+	private int importChunks = 1;
+
+	@Parameter(names = {"--resume"}, description = "When true, resumes a failed import of the file from its last saved checkpoint, if one exists.")
+	private boolean resumeImport = false;
+
+	@Parameter(names = {"--checkpoint-interval"}, description = "Maximum number of records to read between import checkpoints.  Checkpoints are only saved when this is greater than 0.  Defaults to 0.")
+	private long checkpointInterval = 0L;
+
+	@Parameter(names = {"--delta"}, description = "When true, only records that were added, changed, or removed since the file's previous import will be written.")
+	private boolean deltaImport = false;
+
+	@Parameter(names = {"--progress-interval"}, description = "Number of seconds between import progress log messages.  Set to 0 to disable progress logging.  Defaults to 60.")
+	private long progressInterval = 60L;
+
+	@Parameter(names = {"--metrics-file"}, description = "File to write the JSON summary of import metrics to, when importing a single file.  Defaults to a uniquely-named '<input file name>-*.metrics.json' file in the temp directory.")
+	private String metricsFilePath;
+
 	public String getInputFilePath() {
 		return inputFilePath;
 	}
@@ -82,6 +114,48 @@ public class ImportCommandArguments {
 		this.dataSet = dataSet;
 	}
 
+	public String getManifestFilePath() {
+		return manifestFilePath;
+	}
+
+	public void setManifestFilePath(String manifestFilePath) {
+		this.manifestFilePath = manifestFilePath;
+	}
+
+	public int getJobs() {
+		return jobs;
+	}
+
+	public void setJobs(int jobs) {
+		this.jobs = jobs;
+	}
+
+	public Map<String, String> getBackendJobs() {
+		return backendJobs;
+	}
+
+	public void setBackendJobs(Map<String, String> backendJobs) {
+		this.backendJobs = backendJobs;
+	}
+
+	/**
+	 * Returns the per-backend job limits as integers.
+	 * 
+	 * @throws IllegalArgumentException if any limit is not a number.
+	 */
+	public Map<String, Integer> getBackendJobLimits(){
+		Map<String, Integer> limits = new HashMap<>();
+		for (Map.Entry<String, String> entry: backendJobs.entrySet()){
+			try {
+				limits.put(entry.getKey(), Integer.parseInt(entry.getValue().trim()));
+			} catch (NumberFormatException e){
+				throw new IllegalArgumentException(String.format("Invalid job limit for backend %s: %s", 
+						entry.getKey(), entry.getValue()));
+			}
+		}
+		return limits;
+	}
+
 	public Map<String, String> getParameters() {
 		return parameters;
 	}
@@ -130,6 +204,62 @@ public class ImportCommandArguments {
 		this.skipInvalidDataSets = skipInvalidDataSets;
 	}
 
+	public boolean isSkipExistingFiles() {
+		return skipExistingFiles;
+	}
+
+	public void setSkipExistingFiles(boolean skipExistingFiles) {
+		this.skipExistingFiles = skipExistingFiles;
+	}
+
+	public int getImportChunks() {
+		return importChunks;
+	}
+
+	public void setImportChunks(int importChunks) {
+		this.importChunks = importChunks;
+	}
+
+	public boolean isResumeImport() {
+		return resumeImport;
+	}
+
+	public void setResumeImport(boolean resumeImport) {
+		this.resumeImport = resumeImport;
+	}
+
+	public long getCheckpointInterval() {
+		return checkpointInterval;
+	}
+
+	public void setCheckpointInterval(long checkpointInterval) {
+		this.checkpointInterval = checkpointInterval;
+	}
+
+	public boolean isDeltaImport() {
+		return deltaImport;
+	}
+
+	public void setDeltaImport(boolean deltaImport) {
+		this.deltaImport = deltaImport;
+	}
+
+	public long getProgressInterval() {
+		return progressInterval;
+	}
+
+	public void setProgressInterval(long progressInterval) {
+		this.progressInterval = progressInterval;
+	}
+
+	public String getMetricsFilePath() {
+		return metricsFilePath;
+	}
+
+	public void setMetricsFilePath(String metricsFilePath) {
+		this.metricsFilePath = metricsFilePath;
+	}
+
 	/**
 	 * Uses user-inputted and default flag values to create a {@link org.oncoblocks.centromere.core.dataimport.ImportOptions}
 	 *   instance that can be passed to {@link org.oncoblocks.centromere.core.dataimport.RecordProcessor}
@@ -144,6 +274,12 @@ public class ImportCommandArguments {
 		options.setSkipInvalidRecords(this.skipInvalidRecords);
 		options.setSkipInvalidSamples(this.skipInvalidSamples);
 		options.setTempDirectoryPath(this.tempFilePath);
+		options.setSkipExistingFiles(this.skipExistingFiles);
+		options.setImportChunks(this.importChunks);
+		options.setResumeImport(this.resumeImport);
+		options.setCheckpointInterval(this.checkpointInterval);
+		options.setDeltaImport(this.deltaImport);
+		options.setProgressInterval(this.progressInterval);
 		return options;
 	}
 
@@ -153,11 +289,21 @@ public class ImportCommandArguments {
 				"inputFilePath='" + inputFilePath + '\'' +
 				", dataType='" + dataType + '\'' +
 				", dataSet='" + dataSet + '\'' +
+				", manifestFilePath='" + manifestFilePath + '\'' +
+				", jobs=" + jobs +
+				", backendJobs=" + backendJobs +
 				", tempFilePath='" + tempFilePath + '\'' +
 				", skipInvalidRecords=" + skipInvalidRecords +
 				", skipInvalidGenes=" + skipInvalidGenes +
 				", skipInvalidSamples=" + skipInvalidSamples +
 				", skipInvalidDataSets=" + skipInvalidDataSets +
+				", skipExistingFiles=" + skipExistingFiles +
+				", importChunks=" + importChunks +
+				", resumeImport=" + resumeImport +
+				", checkpointInterval=" + checkpointInterval +
+				", deltaImport=" + deltaImport +
+				", progressInterval=" + progressInterval +
+				", metricsFilePath='" + metricsFilePath + '\'' +
 				'}';
 	}
 }
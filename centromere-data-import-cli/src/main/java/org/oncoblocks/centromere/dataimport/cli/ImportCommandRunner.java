@@ -16,16 +16,21 @@
 
 package org.oncoblocks.centromere.dataimport.cli;
 
-import org.oncoblocks.centromere.core.dataimport.BasicImportOptions;
-import org.oncoblocks.centromere.core.dataimport.DataImportException;
-import org.oncoblocks.centromere.core.dataimport.ImportOptionsAware;
-import org.oncoblocks.centromere.core.dataimport.RecordProcessor;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.oncoblocks.centromere.core.dataimport.*;
+import org.oncoblocks.centromere.core.model.support.FileDigest;
 import org.oncoblocks.centromere.core.util.DataTypeProcessorRegistry;
+import org.oncoblocks.centromere.core.util.ModelRepositoryRegistry;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 
-import java.util.Map;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.*;
 
 /**
  * Handles execution of the {@code import} command arguments.  This command attempts to process
@@ -38,12 +43,31 @@ import java.util.Map;
  *   existing {@link RecordProcessor} beans, which are expected to be capable of 
  *   handling the referenced data source.  Before the data source is processed, processor instances
  *   are updated with user input parameters, configured, and executed upon the input data source.
+ *   
+ *   If a {@link DataFileDigestChecker} is available, the digest of each imported file is saved with
+ *   its data file metadata, and files that are unchanged since their last import are skipped when
+ *   {@link BasicImportOptions#isSkipExistingFiles()} is set.
+ *   
+ *   Each run records {@link ImportMetrics} for the import, and writes a JSON summary of them, 
+ *   whether or not the import succeeds, to the file given by 
+ *   {@link ImportCommandArguments#getMetricsFilePath()}, or to a uniquely-named file in the temp 
+ *   directory by default.  Each job's temp files are written to its own subdirectory of the temp 
+ *   directory, which is deleted once the job ends.
+ *   
+ *   When the input is a directory, glob pattern, or manifest that resolves to more than one file, 
+ *   the files are imported as {@link ImportJob} instances by an {@link ImportJobScheduler}.  Since
+ *   processor beans are shared, files with the same data type are imported one at a time, while 
+ *   files of different data types run concurrently, up to the {@code --jobs} limit.  Jobs without
+ *   a backend name in the manifest are assigned to a backend named after the class of their 
+ *   processor's {@link RecordImporter}, so that {@code -J} limits can be set per importer.
  * 
  * @author woemler
  */
 public class ImportCommandRunner {
 	
 	private DataTypeProcessorRegistry registry;
+	private DataFileDigestChecker<?, ?> digestChecker;
+	private ModelRepositoryRegistry repositoryRegistry;
 	
 	private static final Logger logger = LoggerFactory.getLogger(ImportCommandRunner.class);
 
@@ -55,8 +79,8 @@ public class ImportCommandRunner {
 	}
 
 	/**
-	 * Runs the import of the file provided in the input arguments.  Will choose the appropriate 
-	 *   {@link RecordProcessor} instance, based on the supplied data type.  
+	 * Runs the import of the files provided in the input arguments.  Will choose the appropriate 
+	 *   {@link RecordProcessor} instance for each file, based on the supplied data type.  
 	 * 
 	 * @param arguments {@link ImportCommandArguments} instance, parsed from command line args.
 	 * @throws Exception
@@ -64,21 +88,264 @@ public class ImportCommandRunner {
 	public void run(ImportCommandArguments arguments) throws Exception {
 		logger.debug(String.format("[CENTROMERE] Starting ImportCommandRunner with arguments: %s", 
 				 arguments.toString()));
-		RecordProcessor processor = this.getProcessorByDataType(arguments.getDataType());
+		List<ImportJob> jobs = this.getJobs(arguments);
+		if (jobs.isEmpty()){
+			throw new DataImportException("No input files were found to import.");
+		} else if (jobs.size() == 1){
+			this.runJob(arguments, jobs.get(0), arguments.getMetricsFilePath());
+		} else {
+			this.runJobs(arguments, jobs);
+		}
+		logger.info(String.format("[CENTROMERE] Peak heap usage of the import process: %.1f MB", 
+				ImportMetrics.getProcessPeakHeapBytes() / 1048576.0));
+		logger.debug("[CENTROMERE] Import task complete.");
+	}
+
+	/**
+	 * Expands the input arguments into individual jobs, and checks that every data type has a 
+	 *   registered processor before any of them are run.
+	 * 
+	 * @param arguments import command arguments.
+	 * @return list of jobs.
+	 * @throws DataImportException if no input is provided, or a data type is not registered.
+	 */
+	private List<ImportJob> getJobs(ImportCommandArguments arguments) throws DataImportException {
+		ImportJobResolver resolver = new ImportJobResolver();
+		List<ImportJob> jobs = new ArrayList<>();
+		if (arguments.getManifestFilePath() != null){
+			jobs.addAll(resolver.readManifest(arguments.getManifestFilePath()));
+		}
+		if (arguments.getInputFilePath() != null || arguments.getManifestFilePath() == null){
+			if (arguments.getInputFilePath() == null || arguments.getDataType() == null){
+				throw new DataImportException("An input file and data type, or an import manifest, must "
+						+ "be provided.");
+			}
+			jobs.addAll(resolver.resolve(arguments.getInputFilePath(), arguments.getDataType()));
+		}
+		for (ImportJob job: jobs){
+			this.getProcessorByDataType(job.getDataType());
+		}
+		return jobs;
+	}
+
+	/**
+	 * Runs multiple jobs with an {@link ImportJobScheduler}, queueing jobs that share a processor.
+	 * 
+	 * @param arguments import command arguments.
+	 * @param jobs jobs to run.
+	 * @throws DataImportException if any job fails.
+	 */
+	private void runJobs(final ImportCommandArguments arguments, List<ImportJob> jobs) 
+			throws DataImportException {
+		Map<RecordProcessor, List<ImportJob>> queues = new IdentityHashMap<>();
+		for (ImportJob job: jobs){
+			RecordProcessor processor = this.getProcessorByDataType(job.getDataType());
+			if (job.getBackend() == null && processor.getImporter() != null){
+				Class<?> type = processor.getImporter().getClass();
+				job.setBackend(type.getSimpleName().isEmpty() ? type.getName() : type.getSimpleName());
+			}
+			if (!queues.containsKey(processor)) queues.put(processor, new ArrayList<ImportJob>());
+			queues.get(processor).add(job);
+		}
+		logger.info(String.format("[CENTROMERE] Importing %d files as %d job queues, with up to %d "
+				+ "concurrent jobs.", jobs.size(), queues.size(), arguments.getJobs()));
+		ImportJobScheduler scheduler = new ImportJobScheduler(arguments.getJobs(), 
+				arguments.getBackendJobLimits());
+		Map<ImportJob, Exception> failures = scheduler.run(queues.values(), new ImportJobScheduler.JobRunner() {
+			@Override 
+			public void run(ImportJob job) throws Exception {
+				runJob(arguments, job, null);
+			}
+		});
+		if (!failures.isEmpty()){
+			List<String> failed = new ArrayList<>();
+			for (ImportJob job: failures.keySet()){
+				failed.add(job.getInputFilePath());
+			}
+			throw new DataImportException(String.format("%d of %d import jobs failed: %s", 
+					failures.size(), jobs.size(), failed.toString()));
+		}
+	}
+
+	/**
+	 * Imports a single file, using the options in the submitted arguments, and writes its metrics
+	 *   to a uniquely-named file in the temp directory.
+	 * 
+	 * @param arguments import command arguments.
+	 * @param job input file and data type.
+	 * @throws Exception
+	 */
+	public void runJob(ImportCommandArguments arguments, ImportJob job) throws Exception {
+		this.runJob(arguments, job, null);
+	}
+
+	/**
+	 * Imports a single file.
+	 * 
+	 * @param arguments import command arguments.
+	 * @param job input file and data type.
+	 * @param metricsFilePath file to write the job's metrics to, or null to use the default.
+	 * @throws Exception
+	 */
+	private void runJob(ImportCommandArguments arguments, ImportJob job, String metricsFilePath) 
+			throws Exception {
+		RecordProcessor processor = this.getProcessorByDataType(job.getDataType());
 		logger.debug(String.format("[CENTROMERE] Using processor %s for data type %s.", 
-				processor.getClass().getName(), arguments.getDataType()));
+				processor.getClass().getName(), job.getDataType()));
 		BasicImportOptions options = arguments.getImportOptions();
 		logger.debug(String.format("[CENTROMERE] Running import with options: %s", options.toString()));
-		String input = arguments.getInputFilePath();
+		String input = job.getInputFilePath();
 		Map<String, String> params = arguments.getParameters();
+		if (digestChecker != null && options.isSkipExistingFiles() && digestChecker.isUnchanged(input)){
+			logger.info(String.format("[CENTROMERE] File is unchanged since its last import, skipping: %s", 
+					input));
+			return;
+		}
+		String jobDirectoryPath = this.createJobDirectory(arguments.getTempFilePath(), input);
+		options.setTempDirectoryPath(jobDirectoryPath);
 		if (processor instanceof ImportOptionsAware){
 			((ImportOptionsAware) processor).setImportOptions(options);
 		}
-		processor.configureComponents();
-		processor.doBefore(input, params);
-		processor.run(input, params);
-		processor.doAfter(input, params);
-		logger.debug("[CENTROMERE] Import task complete.");
+		if (digestChecker != null && processor instanceof FileDigestSupport){
+			((FileDigestSupport) processor).setFileDigestEnabled(true);
+		}
+		ImportMetrics metrics = new ImportMetrics();
+		boolean metricsAware = processor instanceof ImportMetricsAware;
+		if (metricsAware){
+			((ImportMetricsAware) processor).setImportMetrics(metrics);
+		}
+		Exception error = null;
+		try {
+			processor.configureComponents();
+			processor.doBefore(input, params);
+			if (!metricsAware) metrics.start();
+			try {
+				processor.run(input, params);
+			} finally {
+				if (!metricsAware) metrics.finish();
+			}
+			processor.doAfter(input, params);
+			if (digestChecker != null){
+				FileDigest digest = processor instanceof FileDigestSupport 
+						? ((FileDigestSupport) processor).getFileDigest() : null;
+				digestChecker.saveDigest(input, digest);
+			}
+		} catch (Exception e){
+			error = e;
+			throw e;
+		} finally {
+			this.invalidateCaches(processor);
+			this.writeMetrics(job, arguments.getTempFilePath(), metricsFilePath, metrics, error);
+			this.deleteJobDirectory(jobDirectoryPath);
+		}
+	}
+
+	/**
+	 * Clears the cached repository results for the processor's model, whether or not its import 
+	 *   succeeded, since a failed import may still have written records.  Failures are logged, so 
+	 *   that they do not hide the import's own result.
+	 * 
+	 * @param processor processor that ran the import.
+	 */
+	private void invalidateCaches(RecordProcessor processor){
+		if (repositoryRegistry == null || processor.getModel() == null) return;
+		try {
+			repositoryRegistry.invalidateCaches(processor.getModel());
+		} catch (Exception e){
+			logger.warn(String.format("[CENTROMERE] Unable to invalidate cached %s records: %s", 
+					processor.getModel().getName(), e.getMessage()));
+		}
+	}
+
+	/**
+	 * Creates a new, uniquely-named subdirectory of the temp directory for a single job, so that 
+	 *   concurrent jobs, or repeated imports of files with the same name, never share temp files.  
+	 *   The directory is deleted by {@link #deleteJobDirectory(String)} once the job ends.
+	 * 
+	 * @param tempDirectoryPath parent temp directory.
+	 * @param inputFilePath file being imported.
+	 * @return path of the new directory.
+	 * @throws DataImportException
+	 */
+	private String createJobDirectory(String tempDirectoryPath, String inputFilePath) 
+			throws DataImportException {
+		try {
+			Path parent = Paths.get(tempDirectoryPath);
+			Files.createDirectories(parent);
+			Path jobDirectory = Files.createTempDirectory(parent, new File(inputFilePath).getName() + "-");
+			logger.debug(String.format("[CENTROMERE] Using job temp directory: %s", jobDirectory.toString()));
+			return jobDirectory.toString();
+		} catch (IOException e){
+			e.printStackTrace();
+			throw new DataImportException(String.format("Unable to create temp directory for job in %s", 
+					tempDirectoryPath));
+		}
+	}
+
+	/**
+	 * Deletes a job's temp directory and everything in it.  Failure to delete a file is logged, but
+	 *   does not fail the import.
+	 * 
+	 * @param jobDirectoryPath directory created by {@link #createJobDirectory(String, String)}.
+	 */
+	private void deleteJobDirectory(String jobDirectoryPath){
+		try {
+			Files.walkFileTree(Paths.get(jobDirectoryPath), new SimpleFileVisitor<Path>() {
+				@Override 
+				public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+					Files.delete(file);
+					return FileVisitResult.CONTINUE;
+				}
+				@Override 
+				public FileVisitResult postVisitDirectory(Path dir, IOException e) throws IOException {
+					if (e != null) throw e;
+					Files.delete(dir);
+					return FileVisitResult.CONTINUE;
+				}
+			});
+			logger.debug(String.format("[CENTROMERE] Deleted job temp directory: %s", jobDirectoryPath));
+		} catch (IOException e){
+			logger.warn(String.format("[CENTROMERE] Unable to delete job temp directory %s: %s", 
+					jobDirectoryPath, e.getMessage()));
+		}
+	}
+
+	/**
+	 * Writes the JSON summary of the import's metrics and final status.  Failure to write the file is
+	 *   logged, but does not fail the import.
+	 * 
+	 * @param job imported job.
+	 * @param tempDirectoryPath temp directory to write the file to, under a unique name, if no path 
+	 *                          is given.
+	 * @param path file to write, or null.
+	 * @param metrics metrics recorded during the import.
+	 * @param error exception that halted the import, or null if it completed.
+	 */
+	private void writeMetrics(ImportJob job, String tempDirectoryPath, String path, ImportMetrics metrics, 
+			Exception error){
+		if (path == null){
+			try {
+				path = Files.createTempFile(Paths.get(tempDirectoryPath), 
+						new File(job.getInputFilePath()).getName() + "-", ".metrics.json").toString();
+			} catch (IOException e){
+				logger.warn(String.format("[CENTROMERE] Unable to create import metrics file in %s: %s", 
+						tempDirectoryPath, e.getMessage()));
+				return;
+			}
+		}
+		Map<String, Object> summary = new LinkedHashMap<>();
+		summary.put("input", job.getInputFilePath());
+		summary.put("dataType", job.getDataType());
+		summary.put("status", error == null ? "completed" : "failed");
+		summary.put("error", error == null ? null : error.getMessage());
+		summary.putAll(metrics.toMap());
+		try {
+			new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT).writeValue(new File(path), summary);
+			logger.info(String.format("[CENTROMERE] Import metrics written to: %s", path));
+		} catch (IOException e){
+			logger.warn(String.format("[CENTROMERE] Unable to write import metrics file %s: %s", 
+					path, e.getMessage()));
+		}
 	}
 
 	/**
@@ -99,10 +366,36 @@ public class ImportCommandRunner {
 		return registry.find(dataType);
 	}
 
+	public DataTypeProcessorRegistry getRegistry() {
+		return registry;
+	}
+
 	@Autowired
 	public void setRegistry(DataTypeProcessorRegistry registry) {
 		this.registry = registry;
 	}
 
+	public DataFileDigestChecker<?, ?> getDigestChecker() {
+		return digestChecker;
+	}
+
+	@Autowired(required = false)
+	public void setDigestChecker(DataFileDigestChecker<?, ?> digestChecker) {
+		this.digestChecker = digestChecker;
+	}
+
+	public ModelRepositoryRegistry getRepositoryRegistry() {
+		return repositoryRegistry;
+	}
+
+	/**
+	 * Sets the registry whose cached repository results are cleared for a model after each 
+	 *   import of its data, whether or not it succeeded.  Optional.
+	 */
+	@Autowired(required = false)
+	public void setRepositoryRegistry(ModelRepositoryRegistry repositoryRegistry) {
+		this.repositoryRegistry = repositoryRegistry;
+	}
+
 
 }
@@ -0,0 +1,73 @@
+/*
+ * Copyright 2016 William Oemler, Blueprint Medicines
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.oncoblocks.centromere.dataimport.cli;
+
+import org.springframework.util.Assert;
+
+/**
+ * A single input file to be imported as part of a batch import, along with its data type and the 
+ *   name of the backend that its records are loaded into.  Jobs that share a backend name share its
+ *   concurrency limit in the {@link ImportJobScheduler}.
+ * 
+ * @author woemler
+ */
+public class ImportJob {
+	
+	private final String inputFilePath;
+	private final String dataType;
+	private String backend;
+
+	public ImportJob(String inputFilePath, String dataType, String backend) {
+		Assert.notNull(inputFilePath, "Input file path must not be null.");
+		Assert.notNull(dataType, "Data type must not be null.");
+		this.inputFilePath = inputFilePath;
+		this.dataType = dataType;
+		this.backend = backend;
+	}
+
+	public ImportJob(String inputFilePath, String dataType) {
+		this(inputFilePath, dataType, null);
+	}
+
+	public String getInputFilePath() {
+		return inputFilePath;
+	}
+
+	public String getDataType() {
+		return dataType;
+	}
+
+	/**
+	 * Returns the backend name, or null if it should be inferred from the job's processor.
+	 */
+	public String getBackend() {
+		return backend;
+	}
+
+	public void setBackend(String backend) {
+		this.backend = backend;
+	}
+
+	@Override 
+	public String toString() {
+		return "ImportJob{" +
+				"inputFilePath='" + inputFilePath + '\'' +
+				", dataType='" + dataType + '\'' +
+				", backend='" + backend + '\'' +
+				'}';
+	}
+}
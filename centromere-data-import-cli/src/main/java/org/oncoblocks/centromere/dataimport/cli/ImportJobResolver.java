@@ -0,0 +1,170 @@
+/*
+ * Copyright 2016 William Oemler, Blueprint Medicines
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.oncoblocks.centromere.dataimport.cli;
+
+import org.oncoblocks.centromere.core.dataimport.DataImportException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Expands the input of an {@code import} command into individual {@link ImportJob} instances.  An
+ *   input may be a single file, a directory, whose regular files are all imported, or a glob 
+ *   pattern, such as {@code /data/release/**.txt}, which is matched against all files below the
+ *   pattern's fixed leading directory.  Files are returned in lexicographic order.  Other inputs
+ *   are passed through unchanged, to be handled by the record reader.
+ *   
+ *   A manifest file maps inputs to data types, one per line, as tab-delimited columns: the input 
+ *   file, directory, or glob, the data type, and an optional backend name.  Blank lines and lines 
+ *   starting with {@code #} are ignored, and relative inputs are resolved against the manifest's
+ *   directory.
+ * 
+ * @author woemler
+ */
+public class ImportJobResolver {
+	
+	private static final Logger logger = LoggerFactory.getLogger(ImportJobResolver.class);
+
+	/**
+	 * Creates a job for each file matching the input, with the given data type.
+	 * 
+	 * @param input file, directory, or glob pattern.
+	 * @param dataType data type of all matching files.
+	 * @return list of jobs, in file order.
+	 * @throws DataImportException if the input cannot be searched.
+	 */
+	public List<ImportJob> resolve(String input, String dataType) throws DataImportException {
+		List<ImportJob> jobs = new ArrayList<>();
+		for (String path: this.resolveFiles(input)){
+			jobs.add(new ImportJob(path, dataType));
+		}
+		return jobs;
+	}
+
+	/**
+	 * Reads a manifest file and creates a job for each file matching each of its entries.
+	 * 
+	 * @param manifestPath path to the manifest file.
+	 * @return list of jobs, in manifest order.
+	 * @throws DataImportException if the manifest cannot be read or is malformed.
+	 */
+	public List<ImportJob> readManifest(String manifestPath) throws DataImportException {
+		Path manifest = Paths.get(manifestPath).toAbsolutePath();
+		List<String> lines;
+		try {
+			lines = Files.readAllLines(manifest, StandardCharsets.UTF_8);
+		} catch (IOException e){
+			e.printStackTrace();
+			throw new DataImportException(String.format("Unable to read import manifest: %s", manifestPath));
+		}
+		List<ImportJob> jobs = new ArrayList<>();
+		int lineNumber = 0;
+		for (String line: lines){
+			lineNumber++;
+			if (line.trim().isEmpty() || line.trim().startsWith("#")) continue;
+			String[] bits = line.split("\t");
+			if (bits.length < 2 || bits[0].trim().isEmpty() || bits[1].trim().isEmpty()){
+				throw new DataImportException(String.format("Invalid import manifest entry at line %d of %s: %s", 
+						lineNumber, manifestPath, line));
+			}
+			String input = bits[0].trim();
+			if (!Paths.get(input).isAbsolute()){
+				input = manifest.resolveSibling(input).toString();
+			}
+			String backend = bits.length > 2 && !bits[2].trim().isEmpty() ? bits[2].trim() : null;
+			for (ImportJob job: this.resolve(input, bits[1].trim())){
+				job.setBackend(backend);
+				jobs.add(job);
+			}
+		}
+		return jobs;
+	}
+
+	/**
+	 * Returns the paths of all regular files matching the input.
+	 * 
+	 * @param input file, directory, or glob pattern.
+	 * @return sorted list of file paths.
+	 * @throws DataImportException
+	 */
+	public List<String> resolveFiles(String input) throws DataImportException {
+		List<String> files = new ArrayList<>();
+		if (!isGlob(input)){
+			File file = new File(input);
+			if (file.isFile()){
+				files.add(input);
+			} else if (file.isDirectory()){
+				File[] children = file.listFiles();
+				if (children != null){
+					for (File child: children){
+						if (child.isFile() && !child.isHidden()) files.add(child.getPath());
+					}
+				}
+			} else {
+				files.add(input);
+			}
+		} else {
+			Path pattern = Paths.get(input).toAbsolutePath().normalize();
+			Path base = pattern.getRoot();
+			for (Path segment: pattern){
+				if (isGlob(segment.toString())) break;
+				base = base == null ? segment : base.resolve(segment);
+			}
+			final PathMatcher matcher = FileSystems.getDefault()
+					.getPathMatcher("glob:" + pattern.toString());
+			final List<String> matches = files;
+			if (base != null && Files.isDirectory(base)){
+				try {
+					Files.walkFileTree(base, new SimpleFileVisitor<Path>() {
+						@Override 
+						public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+							if (attrs.isRegularFile() && matcher.matches(file)) matches.add(file.toString());
+							return FileVisitResult.CONTINUE;
+						}
+					});
+				} catch (IOException e){
+					e.printStackTrace();
+					throw new DataImportException(String.format("Unable to search for input files: %s", input));
+				}
+			}
+			if (files.isEmpty()){
+				logger.warn(String.format("[CENTROMERE] No input files match pattern: %s", input));
+			}
+		}
+		Collections.sort(files);
+		return files;
+	}
+
+	/**
+	 * Tests whether the input contains any glob syntax characters.
+	 */
+	public static boolean isGlob(String input){
+		for (char c: input.toCharArray()){
+			if (c == '*' || c == '?' || c == '[' || c == '{') return true;
+		}
+		return false;
+	}
+	
+}
@@ -0,0 +1,167 @@
+/*
+ * Copyright 2016 William Oemler, Blueprint Medicines
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.oncoblocks.centromere.dataimport.cli;
+
+import org.oncoblocks.centromere.core.dataimport.DataImportException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.util.Assert;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Runs batches of {@link ImportJob} instances concurrently within a single JVM.  Jobs are submitted
+ *   as queues, and the jobs in each queue run one at a time, in order, so that jobs sharing a 
+ *   stateful component, such as a {@link org.oncoblocks.centromere.core.dataimport.RecordProcessor}
+ *   bean, are never run concurrently.  Separate queues run in parallel, up to the total 
+ *   {@code parallelism} limit, and jobs that load into the same backend are further limited by 
+ *   that backend's limit, if one is set.  A failed job does not halt the others; all failures are 
+ *   returned once every job has finished.
+ * 
+ * @author woemler
+ */
+public class ImportJobScheduler {
+	
+	private final int parallelism;
+	private final Map<String, Integer> backendLimits = new HashMap<>();
+	
+	private static final Logger logger = LoggerFactory.getLogger(ImportJobScheduler.class);
+
+	/**
+	 * @param parallelism maximum number of jobs to run at once.
+	 * @param backendLimits maximum number of jobs to run at once for each named backend.  Backends
+	 *                      without a limit are bound only by {@code parallelism}.
+	 */
+	public ImportJobScheduler(int parallelism, Map<String, Integer> backendLimits) {
+		Assert.isTrue(parallelism > 0, "Import job parallelism must be greater than zero.");
+		this.parallelism = parallelism;
+		if (backendLimits != null){
+			for (Map.Entry<String, Integer> entry: backendLimits.entrySet()){
+				Assert.isTrue(entry.getValue() != null && entry.getValue() > 0, 
+						String.format("Job limit for backend %s must be greater than zero.", entry.getKey()));
+				this.backendLimits.put(entry.getKey(), entry.getValue());
+			}
+		}
+	}
+
+	public ImportJobScheduler(int parallelism) {
+		this(parallelism, null);
+	}
+
+	/**
+	 * Runs all of the jobs in the submitted queues, and waits for them to finish.  Jobs are 
+	 *   dispatched from the calling thread, and only once both a free slot and a free permit for 
+	 *   the job's backend are available, so worker threads never wait on a backend limit while jobs
+	 *   for other backends are ready to run.
+	 * 
+	 * @param queues lists of jobs that must run sequentially.
+	 * @param runner handler that executes each job.
+	 * @return the exception thrown by each failed job, in order of failure.
+	 * @throws DataImportException if the scheduler is interrupted.
+	 */
+	public Map<ImportJob, Exception> run(Collection<List<ImportJob>> queues, final JobRunner runner) 
+			throws DataImportException {
+		Assert.notNull(runner, "JobRunner must not be null.");
+		final Map<ImportJob, Exception> failures = Collections.synchronizedMap(new LinkedHashMap<ImportJob, Exception>());
+		List<Deque<ImportJob>> pending = new ArrayList<>();
+		for (List<ImportJob> queue: queues){
+			if (!queue.isEmpty()) pending.add(new ArrayDeque<>(queue));
+		}
+		if (pending.isEmpty()) return failures;
+		ImportJob[] running = new ImportJob[pending.size()];
+		int runningCount = 0;
+		Map<String, Integer> backendCounts = new HashMap<>();
+		final BlockingQueue<Integer> finished = new LinkedBlockingQueue<>();
+		ExecutorService executor = Executors.newFixedThreadPool(Math.min(parallelism, pending.size()), 
+				new CustomizableThreadFactory("centromere-job-"));
+		try {
+			while (true) {
+				for (int i = 0; i < pending.size() && runningCount < parallelism; i++){
+					if (running[i] != null || pending.get(i).isEmpty()) continue;
+					final ImportJob job = pending.get(i).peek();
+					if (!this.hasBackendCapacity(job.getBackend(), backendCounts)) continue;
+					pending.get(i).poll();
+					running[i] = job;
+					runningCount++;
+					this.addBackendCount(job.getBackend(), backendCounts, 1);
+					final int queueIndex = i;
+					executor.submit(new Runnable() {
+						@Override 
+						public void run() {
+							try {
+								logger.info(String.format("[CENTROMERE] Starting import job: %s", job.toString()));
+								runner.run(job);
+								logger.info(String.format("[CENTROMERE] Finished import job: %s", job.getInputFilePath()));
+							} catch (Exception e){
+								logger.error(String.format("[CENTROMERE] Import job failed: %s", job.toString()), e);
+								failures.put(job, e);
+							} finally {
+								finished.add(queueIndex);
+							}
+						}
+					});
+				}
+				if (runningCount == 0) break;
+				int queueIndex = finished.take();
+				this.addBackendCount(running[queueIndex].getBackend(), backendCounts, -1);
+				running[queueIndex] = null;
+				runningCount--;
+			}
+		} catch (InterruptedException e){
+			executor.shutdownNow();
+			Thread.currentThread().interrupt();
+			throw new DataImportException("Import job scheduler was interrupted.");
+		} finally {
+			executor.shutdown();
+		}
+		return failures;
+	}
+
+	/**
+	 * Tests whether another job can start for the backend, which is always true if it is unnamed or 
+	 *   has no limit.
+	 */
+	private boolean hasBackendCapacity(String backend, Map<String, Integer> backendCounts){
+		if (backend == null || !backendLimits.containsKey(backend)) return true;
+		Integer count = backendCounts.get(backend);
+		return count == null || count < backendLimits.get(backend);
+	}
+
+	private void addBackendCount(String backend, Map<String, Integer> backendCounts, int delta){
+		if (backend == null) return;
+		Integer count = backendCounts.get(backend);
+		backendCounts.put(backend, (count == null ? 0 : count) + delta);
+	}
+
+	public int getParallelism() {
+		return parallelism;
+	}
+
+	public Map<String, Integer> getBackendLimits() {
+		return Collections.unmodifiableMap(backendLimits);
+	}
+
+	/**
+	 * Executes a single import job.
+	 */
+	public interface JobRunner {
+		void run(ImportJob job) throws Exception;
+	}
+	
+}
@@ -0,0 +1,98 @@
+/*
+ * Copyright 2016 William Oemler, Blueprint Medicines
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.oncoblocks.centromere.dataimport.cli;
+
+import com.beust.jcommander.Parameter;
+
+/**
+ * Command line arguments for the {@code watch} command.  Extends the {@code import} arguments with 
+ *   the drop directory to watch and settings for queueing its files; the import flags apply to 
+ *   every file imported.  The {@code --data-type} argument sets the data type of files placed 
+ *   directly in the drop directory, while files in its subdirectories take the subdirectory name 
+ *   as their data type.
+ * 
+ * @author woemler
+ */
+public class WatchCommandArguments extends ImportCommandArguments {
+	
+	@Parameter(names = { "-w", "--watch-dir" }, required = true, description = "Drop directory to watch for new files.  Required.")
+	private String watchDirectoryPath;
+
+	@Parameter(names = {"--processed-dir"}, description = "Directory that successfully imported files are moved to.  Defaults to '.processed' in the drop directory.")
+	private String processedDirectoryPath;
+
+	@Parameter(names = {"--failed-dir"}, description = "Directory that files which fail to import are moved to.  Defaults to '.failed' in the drop directory.")
+	private String failedDirectoryPath;
+
+	@Parameter(names = {"--queue-size"}, description = "Maximum number of files waiting to be imported.  Further files are left in the drop directory until there is room.  Defaults to 100.")
+	private int queueSize = 100;
+
+	@Parameter(names = {"--settle-time"}, description = "Number of milliseconds a file's size and modification time must be unchanged before it is imported.  Defaults to 2000.")
+	private long settleTime = 2000L;
+
+	public String getWatchDirectoryPath() {
+		return watchDirectoryPath;
+	}
+
+	public void setWatchDirectoryPath(String watchDirectoryPath) {
+		this.watchDirectoryPath = watchDirectoryPath;
+	}
+
+	public String getProcessedDirectoryPath() {
+		return processedDirectoryPath;
+	}
+
+	public void setProcessedDirectoryPath(String processedDirectoryPath) {
+		this.processedDirectoryPath = processedDirectoryPath;
+	}
+
+	public String getFailedDirectoryPath() {
+		return failedDirectoryPath;
+	}
+
+	public void setFailedDirectoryPath(String failedDirectoryPath) {
+		this.failedDirectoryPath = failedDirectoryPath;
+	}
+
+	public int getQueueSize() {
+		return queueSize;
+	}
+
+	public void setQueueSize(int queueSize) {
+		this.queueSize = queueSize;
+	}
+
+	public long getSettleTime() {
+		return settleTime;
+	}
+
+	public void setSettleTime(long settleTime) {
+		this.settleTime = settleTime;
+	}
+
+	@Override 
+	public String toString() {
+		return "WatchCommandArguments{" +
+				"watchDirectoryPath='" + watchDirectoryPath + '\'' +
+				", processedDirectoryPath='" + processedDirectoryPath + '\'' +
+				", failedDirectoryPath='" + failedDirectoryPath + '\'' +
+				", queueSize=" + queueSize +
+				", settleTime=" + settleTime +
+				", importArguments=" + super.toString() +
+				'}';
+	}
+}
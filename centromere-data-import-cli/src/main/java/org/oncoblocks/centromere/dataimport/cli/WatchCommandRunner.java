@@ -0,0 +1,383 @@
+/*
+ * Copyright 2016 William Oemler, Blueprint Medicines
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.oncoblocks.centromere.dataimport.cli;
+
+import org.oncoblocks.centromere.core.dataimport.DataImportException;
+import org.oncoblocks.centromere.core.dataimport.RecordProcessor;
+import org.oncoblocks.centromere.core.util.DataTypeProcessorRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.util.Assert;
+
+import java.io.IOException;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.*;
+import java.util.concurrent.*;
+
+import static java.nio.file.StandardWatchEventKinds.*;
+
+/**
+ * Handles execution of the {@code watch} command, which runs as a daemon that keeps the application
+ *   context loaded, and imports files as they are placed in a drop directory.  The directory and 
+ *   each of its immediate subdirectories are watched with a {@link WatchService}, and the name of 
+ *   the subdirectory a file is placed in is used as its data type.  Files placed directly in the 
+ *   drop directory use the {@code --data-type} argument, if given.  Hidden files and directories 
+ *   are ignored, and files already present when the daemon starts are imported as well.
+ *   
+ *   A file is only queued once its size and modification time have been unchanged for the 
+ *   {@code --settle-time}, so that files still being copied in are not read early.  Queued files
+ *   are imported by up to {@code --jobs} threads, using the {@link ImportCommandRunner}, and files 
+ *   of the same data type are imported one at a time, since they share a processor bean.  A file is
+ *   only handed to a worker thread once its processor is free, so a burst of files of one data type
+ *   waits in the pending queue, rather than occupying every worker, and never delays files of 
+ *   other types.  When the queue is full, new files are left in place until there is room.  Imported files are moved to
+ *   the processed directory, and files that fail to import are moved to the failed directory, each
+ *   under a subdirectory named for the data type.
+ *   
+ *   The daemon is stopped as part of the application context's lifecycle, in the first shutdown 
+ *   phase, so active imports are allowed to finish, for up to the {@code shutdownTimeout}, before
+ *   the beans they depend upon are destroyed.
+ * 
+ * @author woemler
+ */
+public class WatchCommandRunner implements SmartLifecycle {
+	
+	private ImportCommandRunner importCommandRunner;
+	private long shutdownTimeout = 60000L;
+	private volatile boolean running = false;
+	private volatile CountDownLatch finished = new CountDownLatch(0);
+	
+	private static final Logger logger = LoggerFactory.getLogger(WatchCommandRunner.class);
+
+	public WatchCommandRunner() {
+	}
+
+	public WatchCommandRunner(ImportCommandRunner importCommandRunner) {
+		this.importCommandRunner = importCommandRunner;
+	}
+
+	/**
+	 * Watches the drop directory and imports new files until {@link #stop()} is called, or the 
+	 *   application context is closed.  Files that
+	 *   are being imported when the daemon stops are allowed to finish.
+	 * 
+	 * @param arguments {@link WatchCommandArguments} instance, parsed from command line args.
+	 * @throws Exception
+	 */
+	public void run(final WatchCommandArguments arguments) throws Exception {
+		Assert.notNull(importCommandRunner, "ImportCommandRunner must not be null!");
+		Assert.isTrue(arguments.getJobs() > 0, "Number of jobs must be greater than zero.");
+		Assert.isTrue(arguments.getQueueSize() >= 0, "Queue size must not be negative.");
+		final Path root = Paths.get(arguments.getWatchDirectoryPath()).toAbsolutePath().normalize();
+		if (!Files.isDirectory(root)){
+			throw new DataImportException(String.format("Watch directory does not exist: %s", root));
+		}
+		final Path processed = arguments.getProcessedDirectoryPath() != null 
+				? Paths.get(arguments.getProcessedDirectoryPath()).toAbsolutePath().normalize() 
+				: root.resolve(".processed");
+		final Path failed = arguments.getFailedDirectoryPath() != null
+				? Paths.get(arguments.getFailedDirectoryPath()).toAbsolutePath().normalize()
+				: root.resolve(".failed");
+		
+		final Semaphore slots = new Semaphore(arguments.getJobs() + arguments.getQueueSize());
+		final Set<Path> active = Collections.newSetFromMap(new ConcurrentHashMap<Path, Boolean>());
+		final Set<RecordProcessor> busy = Collections.newSetFromMap(new ConcurrentHashMap<RecordProcessor, Boolean>());
+		Map<Path, FileState> pending = new LinkedHashMap<>();
+		Set<Path> ignored = new HashSet<>();
+		long pollInterval = Math.max(100L, Math.min(arguments.getSettleTime(), 1000L));
+		ExecutorService executor = Executors.newFixedThreadPool(arguments.getJobs(), 
+				new CustomizableThreadFactory("centromere-watch-"));
+		
+		finished = new CountDownLatch(1);
+		running = true;
+		logger.info(String.format("[CENTROMERE] Watching directory for new files: %s", root));
+		try (WatchService watchService = root.getFileSystem().newWatchService()) {
+			
+			this.register(root, root, processed, failed, watchService, pending);
+			
+			while (running) {
+				
+				WatchKey key = watchService.poll(pollInterval, TimeUnit.MILLISECONDS);
+				while (key != null) {
+					Path dir = (Path) key.watchable();
+					for (WatchEvent<?> event: key.pollEvents()){
+						if (event.kind() == OVERFLOW){
+							this.tryRegister(root, root, processed, failed, watchService, pending);
+							continue;
+						}
+						Path path = dir.resolve((Path) event.context());
+						if (this.isIgnored(path, processed, failed)) continue;
+						if (dir.equals(root) && Files.isDirectory(path)){
+							this.tryRegister(root, path, processed, failed, watchService, pending);
+						} else if (Files.isRegularFile(path) && !active.contains(path)){
+							this.track(path, pending);
+						}
+					}
+					key.reset();
+					key = watchService.poll();
+				}
+				
+				Iterator<Map.Entry<Path, FileState>> iterator = pending.entrySet().iterator();
+				while (iterator.hasNext()){
+					Map.Entry<Path, FileState> entry = iterator.next();
+					final Path path = entry.getKey();
+					if (!Files.isRegularFile(path)){
+						iterator.remove();
+						continue;
+					}
+					if (!entry.getValue().isSettled(path, arguments.getSettleTime())) continue;
+					final String dataType = path.getParent().equals(root) 
+							? arguments.getDataType() : path.getParent().getFileName().toString();
+					if (dataType == null){
+						if (ignored.add(path)){
+							logger.warn(String.format("[CENTROMERE] No data type given for file in watch "
+									+ "directory, skipping: %s", path));
+						}
+						iterator.remove();
+						continue;
+					}
+					DataTypeProcessorRegistry registry = importCommandRunner.getRegistry();
+					if (!registry.exists(dataType)){
+						logger.error(String.format("[CENTROMERE] No processor registered for data type %s: %s", 
+								dataType, path));
+						this.move(path, failed.resolve(dataType));
+						iterator.remove();
+						continue;
+					}
+					final RecordProcessor processor = registry.find(dataType);
+					if (busy.contains(processor)) continue;
+					if (!slots.tryAcquire()) break;
+					iterator.remove();
+					active.add(path);
+					busy.add(processor);
+					executor.submit(new Runnable() {
+						@Override 
+						public void run() {
+							try {
+								logger.info(String.format("[CENTROMERE] Importing %s file: %s", dataType, path));
+								importCommandRunner.runJob(arguments, new ImportJob(path.toString(), dataType));
+								move(path, processed.resolve(dataType));
+							} catch (Exception e){
+								logger.error(String.format("[CENTROMERE] Failed to import %s file: %s", 
+										dataType, path), e);
+								move(path, failed.resolve(dataType));
+							} finally {
+								busy.remove(processor);
+								active.remove(path);
+								slots.release();
+							}
+						}
+					});
+				}
+				
+			}
+			
+		} catch (InterruptedException e){
+			Thread.currentThread().interrupt();
+		} finally {
+			running = false;
+			logger.info("[CENTROMERE] Stopped watching directory, waiting for active imports to finish.");
+			executor.shutdown();
+			try {
+				while (!executor.awaitTermination(1, TimeUnit.SECONDS)) { }
+			} catch (InterruptedException e){
+				executor.shutdownNow();
+				Thread.currentThread().interrupt();
+			}
+			finished.countDown();
+		}
+		
+	}
+
+	/**
+	 * Signals the daemon to stop watching for new files.  Returns immediately.
+	 */
+	public void signalStop(){
+		running = false;
+	}
+
+	/**
+	 * Waits for a stopped daemon to finish its active imports.
+	 * 
+	 * @return true if the daemon finished before the timeout.
+	 */
+	public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+		return finished.await(timeout, unit);
+	}
+
+	/**
+	 * Stops watching for new files, and waits for active imports to finish, for up to the 
+	 *   {@code shutdownTimeout}.
+	 */
+	@Override 
+	public void stop(){
+		this.signalStop();
+		try {
+			if (!this.awaitTermination(shutdownTimeout, TimeUnit.MILLISECONDS)){
+				logger.warn("[CENTROMERE] Active imports did not finish before shutdown.");
+			}
+		} catch (InterruptedException e){
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	@Override 
+	public void stop(Runnable callback) {
+		try {
+			this.stop();
+		} finally {
+			callback.run();
+		}
+	}
+
+	/**
+	 * The daemon is started by the {@code watch} command, rather than with the application context.
+	 */
+	@Override 
+	public void start() {
+	}
+
+	@Override 
+	public boolean isAutoStartup() {
+		return false;
+	}
+
+	/**
+	 * Stops the daemon before any other lifecycle beans.
+	 */
+	@Override 
+	public int getPhase() {
+		return Integer.MAX_VALUE;
+	}
+
+	@Override
+	public boolean isRunning() {
+		return running || finished.getCount() > 0;
+	}
+
+	/**
+	 * Registers a directory with the watch service, along with each of its subdirectories if it is 
+	 *   the drop directory, and tracks the files already in it.
+	 */
+	private void register(Path root, Path dir, Path processed, Path failed, WatchService watchService, 
+			Map<Path, FileState> pending) throws IOException {
+		dir.register(watchService, ENTRY_CREATE, ENTRY_MODIFY);
+		try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir)) {
+			for (Path path: stream){
+				if (this.isIgnored(path, processed, failed)) continue;
+				if (Files.isDirectory(path)){
+					if (dir.equals(root)) this.tryRegister(root, path, processed, failed, watchService, pending);
+				} else if (Files.isRegularFile(path)){
+					this.track(path, pending);
+				}
+			}
+		}
+	}
+	
+	/**
+	 * Registers a directory that appeared while the daemon is running, logging rather than throwing
+	 *   any failure, such as the directory being deleted before it could be registered.
+	 */
+	private void tryRegister(Path root, Path dir, Path processed, Path failed, WatchService watchService, 
+			Map<Path, FileState> pending){
+		try {
+			this.register(root, dir, processed, failed, watchService, pending);
+		} catch (IOException e){
+			logger.warn(String.format("[CENTROMERE] Unable to watch directory %s: %s", dir, e.toString()));
+		}
+	}
+	
+	private boolean isIgnored(Path path, Path processed, Path failed){
+		return path.getFileName().toString().startsWith(".") || path.startsWith(processed) 
+				|| path.startsWith(failed);
+	}
+	
+	private void track(Path path, Map<Path, FileState> pending){
+		if (!pending.containsKey(path)) pending.put(path, new FileState());
+	}
+
+	/**
+	 * Moves the file into the target directory, replacing any file of the same name.
+	 */
+	private void move(Path path, Path directory){
+		try {
+			Files.createDirectories(directory);
+			Files.move(path, directory.resolve(path.getFileName()), StandardCopyOption.REPLACE_EXISTING);
+		} catch (IOException e){
+			logger.warn(String.format("[CENTROMERE] Unable to move file %s to %s: %s", path, directory, 
+					e.getMessage()));
+		}
+	}
+
+	public ImportCommandRunner getImportCommandRunner() {
+		return importCommandRunner;
+	}
+
+	@Autowired
+	public void setImportCommandRunner(ImportCommandRunner importCommandRunner) {
+		this.importCommandRunner = importCommandRunner;
+	}
+
+	public long getShutdownTimeout() {
+		return shutdownTimeout;
+	}
+
+	/**
+	 * @param shutdownTimeout milliseconds to wait for active imports to finish when stopping.
+	 */
+	public void setShutdownTimeout(long shutdownTimeout) {
+		this.shutdownTimeout = shutdownTimeout;
+	}
+
+	/**
+	 * Tracks the last observed size and modification time of a pending file, and when they last 
+	 *   changed.
+	 */
+	private static class FileState {
+		
+		private long size = -1L;
+		private long lastModified = -1L;
+		private long lastChanged = System.currentTimeMillis();
+
+		/**
+		 * Checks the file's current attributes, and returns true if they have not changed for at 
+		 *   least the settle time.
+		 */
+		public boolean isSettled(Path path, long settleTime){
+			BasicFileAttributes attributes;
+			try {
+				attributes = Files.readAttributes(path, BasicFileAttributes.class);
+			} catch (IOException e){
+				return false;
+			}
+			long now = System.currentTimeMillis();
+			if (attributes.size() != size || attributes.lastModifiedTime().toMillis() != lastModified){
+				size = attributes.size();
+				lastModified = attributes.lastModifiedTime().toMillis();
+				lastChanged = now;
+				return settleTime <= 0;
+			}
+			return now - lastChanged >= settleTime;
+		}
+		
+	}
+	
+}
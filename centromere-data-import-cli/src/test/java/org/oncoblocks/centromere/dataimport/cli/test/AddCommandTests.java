@@ -40,6 +40,9 @@ import org.springframework.test.context.ContextConfiguration;
 import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
 import org.springframework.util.Assert;
 
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.util.Map;
 
 /**
@@ -131,6 +134,36 @@ public class AddCommandTests {
 		Assert.isTrue(exception instanceof DataImportException);
 	}
 	
+	@Test
+	public void addRecordsFromFileTest() throws Exception {
+		Assert.isTrue(dataSetRepository.count() == 0);
+		File file = File.createTempFile("data_sets", ".json");
+		file.deleteOnExit();
+		Files.write(file.toPath(), ("{ \"source\": \"internal\", \"name\": \"Data Set 1\" }\n"
+				+ "{ \"source\": \"internal\", \"name\": \"Data Set 2\" }\n"
+				+ "\n"
+				+ "{ \"source\": \"internal\", \"name\": \"Data Set 3\", \"notes\": \"bad\" }\n"
+				+ "{ \"source\": \"external\", \"name\": \"Data Set 4\" }\n").getBytes(StandardCharsets.UTF_8));
+		JCommander commander = new JCommander();
+		AddCommandArguments arguments = new AddCommandArguments();
+		commander.addCommand("add", arguments);
+		String[] args = { "add", "DataSet", "-f", file.getPath(), "--batch-size", "2" };
+		commander.parse(args);
+		Exception exception = null;
+		try {
+			addCommandRunner.run(arguments);
+		} catch (Exception e){
+			exception = e;
+		}
+		Assert.notNull(exception);
+		Assert.isTrue(exception instanceof DataImportException);
+		Assert.isTrue(dataSetRepository.count() == 2);
+		dataSetRepository.deleteAll();
+		arguments.setSkipInvalidRecords(true);
+		addCommandRunner.run(arguments);
+		Assert.isTrue(dataSetRepository.count() == 3);
+	}
+	
 	@Test
 	public void badCommandTest() throws Exception {
 		JCommander commander = new JCommander();
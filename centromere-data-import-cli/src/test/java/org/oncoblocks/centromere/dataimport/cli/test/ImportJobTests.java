@@ -0,0 +1,166 @@
+/*
+ * Copyright 2016 William Oemler, Blueprint Medicines
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.oncoblocks.centromere.dataimport.cli.test;
+
+import org.junit.Test;
+import org.oncoblocks.centromere.core.dataimport.DataImportException;
+import org.oncoblocks.centromere.dataimport.cli.ImportJob;
+import org.oncoblocks.centromere.dataimport.cli.ImportJobResolver;
+import org.oncoblocks.centromere.dataimport.cli.ImportJobScheduler;
+import org.springframework.util.Assert;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * @author woemler
+ */
+public class ImportJobTests {
+	
+	private Path createInputDirectory() throws Exception {
+		Path dir = Files.createTempDirectory("jobs");
+		Files.createDirectories(dir.resolve("nested"));
+		for (String name: Arrays.asList("b.txt", "a.txt", "c.tsv", "nested/d.txt")){
+			Files.write(dir.resolve(name), "test".getBytes(StandardCharsets.UTF_8));
+		}
+		return dir;
+	}
+	
+	@Test
+	public void resolveInputTest() throws Exception {
+		Path dir = this.createInputDirectory();
+		ImportJobResolver resolver = new ImportJobResolver();
+		
+		List<String> files = resolver.resolveFiles(dir.toString());
+		Assert.isTrue(files.size() == 3);
+		Assert.isTrue(files.get(0).endsWith("a.txt"));
+		
+		files = resolver.resolveFiles(dir.toString() + File.separator + "*.txt");
+		Assert.isTrue(files.size() == 2);
+		Assert.isTrue(files.get(1).endsWith("b.txt"));
+		
+		files = resolver.resolveFiles(dir.toString() + File.separator + "**.txt");
+		Assert.isTrue(files.size() == 3);
+		
+		files = resolver.resolveFiles(dir.resolve("c.tsv").toString());
+		Assert.isTrue(files.size() == 1);
+		
+		List<ImportJob> jobs = resolver.resolve(dir.toString() + File.separator + "*.txt", "sample_data");
+		Assert.isTrue(jobs.size() == 2);
+		Assert.isTrue("sample_data".equals(jobs.get(0).getDataType()));
+		Assert.isNull(jobs.get(0).getBackend());
+	}
+	
+	@Test
+	public void manifestTest() throws Exception {
+		Path dir = this.createInputDirectory();
+		Path manifest = dir.resolve("import.manifest");
+		Files.write(manifest, ("# input\tdata type\tbackend\n"
+				+ "*.txt\tsample_data\n"
+				+ "\n"
+				+ "c.tsv\tgene_info\tmongo\n").getBytes(StandardCharsets.UTF_8));
+		List<ImportJob> jobs = new ImportJobResolver().readManifest(manifest.toString());
+		Assert.isTrue(jobs.size() == 3);
+		Assert.isTrue(jobs.get(0).getInputFilePath().equals(dir.resolve("a.txt").toString()));
+		Assert.isTrue("sample_data".equals(jobs.get(1).getDataType()));
+		Assert.isTrue("gene_info".equals(jobs.get(2).getDataType()));
+		Assert.isTrue("mongo".equals(jobs.get(2).getBackend()));
+		
+		Files.write(manifest, "a.txt\n".getBytes(StandardCharsets.UTF_8));
+		Exception exception = null;
+		try {
+			new ImportJobResolver().readManifest(manifest.toString());
+		} catch (DataImportException e){
+			exception = e;
+		}
+		Assert.notNull(exception);
+	}
+	
+	@Test
+	public void schedulerTest() throws Exception {
+		final Map<String, AtomicInteger> running = new HashMap<>();
+		final Map<String, Integer> peaks = new HashMap<>();
+		for (String key: Arrays.asList("queue-a", "queue-b", "queue-c", "backend")){
+			running.put(key, new AtomicInteger());
+			peaks.put(key, 0);
+		}
+		List<List<ImportJob>> queues = new ArrayList<>();
+		for (String queue: Arrays.asList("queue-a", "queue-b", "queue-c")){
+			List<ImportJob> jobs = new ArrayList<>();
+			for (int i = 0; i < 3; i++){
+				jobs.add(new ImportJob(queue + "/" + i, queue, "backend"));
+			}
+			queues.add(jobs);
+		}
+		queues.get(2).get(2).setBackend(null);
+		final List<String> completed = Collections.synchronizedList(new ArrayList<String>());
+		ImportJobScheduler scheduler = new ImportJobScheduler(3, Collections.singletonMap("backend", 2));
+		Map<ImportJob, Exception> failures = scheduler.run(queues, new ImportJobScheduler.JobRunner() {
+			@Override 
+			public void run(ImportJob job) throws Exception {
+				List<String> keys = job.getBackend() != null 
+						? Arrays.asList(job.getDataType(), job.getBackend()) : Collections.singletonList(job.getDataType());
+				for (String key: keys){
+					int count = running.get(key).incrementAndGet();
+					synchronized (peaks){
+						peaks.put(key, Math.max(peaks.get(key), count));
+					}
+				}
+				Thread.sleep(20);
+				for (String key: keys){
+					running.get(key).decrementAndGet();
+				}
+				if (job.getInputFilePath().equals("queue-b/1")) throw new DataImportException("Bad file");
+				completed.add(job.getInputFilePath());
+			}
+		});
+		Assert.isTrue(completed.size() == 8);
+		Assert.isTrue(failures.size() == 1);
+		Assert.isTrue("queue-b/1".equals(failures.keySet().iterator().next().getInputFilePath()));
+		Assert.isTrue(peaks.get("queue-a") == 1);
+		Assert.isTrue(peaks.get("queue-b") == 1);
+		Assert.isTrue(peaks.get("backend") <= 2);
+		Assert.isTrue(completed.indexOf("queue-a/0") < completed.indexOf("queue-a/1"));
+		Assert.isTrue(completed.indexOf("queue-a/1") < completed.indexOf("queue-a/2"));
+	}
+	
+	@Test
+	public void saturatedBackendTest() throws Exception {
+		List<List<ImportJob>> queues = new ArrayList<>();
+		queues.add(Collections.singletonList(new ImportJob("queue-a/0", "queue-a", "backend")));
+		queues.add(Collections.singletonList(new ImportJob("queue-b/0", "queue-b", "backend")));
+		queues.add(Collections.singletonList(new ImportJob("queue-c/0", "queue-c", null)));
+		final List<String> completed = Collections.synchronizedList(new ArrayList<String>());
+		ImportJobScheduler scheduler = new ImportJobScheduler(2, Collections.singletonMap("backend", 1));
+		Map<ImportJob, Exception> failures = scheduler.run(queues, new ImportJobScheduler.JobRunner() {
+			@Override 
+			public void run(ImportJob job) throws Exception {
+				if (job.getBackend() != null) Thread.sleep(200);
+				completed.add(job.getInputFilePath());
+			}
+		});
+		Assert.isTrue(failures.isEmpty());
+		Assert.isTrue(completed.size() == 3);
+		Assert.isTrue("queue-c/0".equals(completed.get(0)), 
+				"Job for an unlimited backend should not wait behind a saturated backend.");
+	}
+	
+}
@@ -0,0 +1,245 @@
+/*
+ * Copyright 2016 William Oemler, Blueprint Medicines
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.oncoblocks.centromere.dataimport.cli.test;
+
+import org.junit.Test;
+import org.oncoblocks.centromere.core.dataimport.DataImportException;
+import org.oncoblocks.centromere.core.dataimport.GenericRecordProcessor;
+import org.oncoblocks.centromere.core.util.DataTypeProcessorRegistry;
+import org.oncoblocks.centromere.dataimport.cli.ImportCommandRunner;
+import org.oncoblocks.centromere.dataimport.cli.WatchCommandArguments;
+import org.oncoblocks.centromere.dataimport.cli.WatchCommandRunner;
+import org.oncoblocks.centromere.dataimport.cli.test.support.SampleData;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.context.support.GenericApplicationContext;
+import org.springframework.util.Assert;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * @author woemler
+ */
+public class WatchCommandTests {
+	
+	@Test
+	public void watchDirectoryTest() throws Exception {
+		final List<String> imported = Collections.synchronizedList(new ArrayList<String>());
+		GenericRecordProcessor<SampleData> processor = new GenericRecordProcessor<SampleData>() {
+			@Override 
+			public void run(Object... args) throws DataImportException {
+				String path = (String) args[0];
+				if (path.endsWith(".bad")) throw new DataImportException("Bad file");
+				imported.add(path);
+			}
+		};
+		DataTypeProcessorRegistry registry = new DataTypeProcessorRegistry();
+		registry.add("sample_data", processor);
+		
+		Path dir = Files.createTempDirectory("watch");
+		Files.createDirectories(dir.resolve("sample_data"));
+		Files.write(dir.resolve("sample_data/existing.txt"), "test".getBytes(StandardCharsets.UTF_8));
+		final WatchCommandArguments arguments = new WatchCommandArguments();
+		arguments.setWatchDirectoryPath(dir.toString());
+		Path tempDir = Files.createTempDirectory("watch-temp");
+		arguments.setTempFilePath(tempDir.toString());
+		arguments.setSettleTime(100L);
+		arguments.setJobs(2);
+		final WatchCommandRunner runner = new WatchCommandRunner(new ImportCommandRunner(registry));
+		Thread thread = new Thread(new Runnable() {
+			@Override 
+			public void run() {
+				try {
+					runner.run(arguments);
+				} catch (Exception e){
+					e.printStackTrace();
+				}
+			}
+		});
+		thread.start();
+		
+		Thread.sleep(500);
+		Files.write(dir.resolve("sample_data/new.txt"), "test".getBytes(StandardCharsets.UTF_8));
+		Files.write(dir.resolve("sample_data/new.bad"), "test".getBytes(StandardCharsets.UTF_8));
+		Files.write(dir.resolve("top.txt"), "test".getBytes(StandardCharsets.UTF_8));
+		Files.createDirectories(dir.resolve("unknown"));
+		Thread.sleep(200);
+		Files.write(dir.resolve("unknown/other.txt"), "test".getBytes(StandardCharsets.UTF_8));
+		
+		long deadline = System.currentTimeMillis() + 30000L;
+		while (System.currentTimeMillis() < deadline 
+				&& !(Files.exists(dir.resolve(".processed/sample_data/new.txt")) 
+				&& Files.exists(dir.resolve(".failed/sample_data/new.bad"))
+				&& Files.exists(dir.resolve(".failed/unknown/other.txt")))){
+			Thread.sleep(100);
+		}
+		runner.stop();
+		Assert.isTrue(runner.awaitTermination(10, TimeUnit.SECONDS));
+		
+		Assert.isTrue(imported.size() == 2);
+		Assert.isTrue(Files.exists(dir.resolve(".processed/sample_data/existing.txt")));
+		Assert.isTrue(Files.exists(dir.resolve(".processed/sample_data/new.txt")));
+		Assert.isTrue(Files.exists(dir.resolve(".failed/sample_data/new.bad")));
+		Assert.isTrue(Files.exists(dir.resolve(".failed/unknown/other.txt")));
+		Assert.isTrue(Files.exists(dir.resolve("top.txt")));
+		Assert.isTrue(!Files.exists(dir.resolve("sample_data/new.txt")));
+		
+		int metricsFiles = 0;
+		try (DirectoryStream<Path> stream = Files.newDirectoryStream(tempDir)) {
+			for (Path path: stream){
+				Assert.isTrue(Files.isRegularFile(path) && path.toString().endsWith(".metrics.json"), 
+						"Job temp directory was not deleted: " + path);
+				metricsFiles++;
+			}
+		}
+		Assert.isTrue(metricsFiles == 3);
+	}
+	
+	@Test
+	public void dataTypeFairnessTest() throws Exception {
+		final List<String> imported = Collections.synchronizedList(new ArrayList<String>());
+		final CountDownLatch started = new CountDownLatch(1);
+		GenericRecordProcessor<SampleData> slowProcessor = new GenericRecordProcessor<SampleData>() {
+			@Override 
+			public void run(Object... args) throws DataImportException {
+				started.countDown();
+				try {
+					Thread.sleep(500);
+				} catch (InterruptedException e){
+					throw new DataImportException("Interrupted");
+				}
+				imported.add((String) args[0]);
+			}
+		};
+		GenericRecordProcessor<SampleData> fastProcessor = new GenericRecordProcessor<SampleData>() {
+			@Override 
+			public void run(Object... args) throws DataImportException {
+				imported.add((String) args[0]);
+			}
+		};
+		DataTypeProcessorRegistry registry = new DataTypeProcessorRegistry();
+		registry.add("slow_data", slowProcessor);
+		registry.add("fast_data", fastProcessor);
+
+		Path dir = Files.createTempDirectory("watch");
+		Files.createDirectories(dir.resolve("slow_data"));
+		Files.createDirectories(dir.resolve("fast_data"));
+		for (int i = 0; i < 4; i++){
+			Files.write(dir.resolve("slow_data/slow" + i + ".txt"), "test".getBytes(StandardCharsets.UTF_8));
+		}
+		final WatchCommandArguments arguments = new WatchCommandArguments();
+		arguments.setWatchDirectoryPath(dir.toString());
+		arguments.setTempFilePath(Files.createTempDirectory("watch-temp").toString());
+		arguments.setSettleTime(100L);
+		arguments.setJobs(2);
+		final WatchCommandRunner runner = new WatchCommandRunner(new ImportCommandRunner(registry));
+		Thread thread = new Thread(new Runnable() {
+			@Override 
+			public void run() {
+				try {
+					runner.run(arguments);
+				} catch (Exception e){
+					e.printStackTrace();
+				}
+			}
+		});
+		thread.start();
+		Assert.isTrue(started.await(30, TimeUnit.SECONDS));
+		Files.write(dir.resolve("fast_data/fast.txt"), "test".getBytes(StandardCharsets.UTF_8));
+		
+		long deadline = System.currentTimeMillis() + 30000L;
+		while (System.currentTimeMillis() < deadline && imported.size() < 5){
+			Thread.sleep(100);
+		}
+		runner.stop();
+		
+		Assert.isTrue(imported.size() == 5);
+		int index = -1;
+		for (int i = 0; i < imported.size(); i++){
+			if (imported.get(i).endsWith("fast.txt")) index = i;
+		}
+		Assert.isTrue(index >= 0 && index <= 1, "File of another data type waited behind slow imports: " 
+				+ imported.toString());
+	}
+	
+	@Test
+	public void contextShutdownTest() throws Exception {
+		final AtomicBoolean destroyed = new AtomicBoolean(false);
+		final CountDownLatch started = new CountDownLatch(1);
+		GenericRecordProcessor<SampleData> processor = new GenericRecordProcessor<SampleData>() {
+			@Override 
+			public void run(Object... args) throws DataImportException {
+				started.countDown();
+				try {
+					Thread.sleep(1000);
+				} catch (InterruptedException e){
+					throw new DataImportException("Interrupted");
+				}
+				if (destroyed.get()) throw new DataImportException("Context closed during import");
+			}
+		};
+		DataTypeProcessorRegistry registry = new DataTypeProcessorRegistry();
+		registry.add("sample_data", processor);
+
+		Path dir = Files.createTempDirectory("watch");
+		Files.createDirectories(dir.resolve("sample_data"));
+		Files.write(dir.resolve("sample_data/slow.txt"), "test".getBytes(StandardCharsets.UTF_8));
+		final WatchCommandArguments arguments = new WatchCommandArguments();
+		arguments.setWatchDirectoryPath(dir.toString());
+		arguments.setTempFilePath(Files.createTempDirectory("watch-temp").toString());
+		arguments.setSettleTime(100L);
+		final WatchCommandRunner runner = new WatchCommandRunner(new ImportCommandRunner(registry));
+		
+		GenericApplicationContext context = new GenericApplicationContext();
+		context.getBeanFactory().registerSingleton("watchCommandRunner", runner);
+		context.getDefaultListableBeanFactory().registerDisposableBean("resource", new DisposableBean() {
+			@Override 
+			public void destroy() throws Exception {
+				destroyed.set(true);
+			}
+		});
+		context.refresh();
+		
+		Thread thread = new Thread(new Runnable() {
+			@Override 
+			public void run() {
+				try {
+					runner.run(arguments);
+				} catch (Exception e){
+					e.printStackTrace();
+				}
+			}
+		});
+		thread.start();
+		Assert.isTrue(started.await(30, TimeUnit.SECONDS));
+		context.close();
+		
+		Assert.isTrue(destroyed.get());
+		Assert.isTrue(!runner.isRunning());
+		Assert.isTrue(Files.exists(dir.resolve(".processed/sample_data/slow.txt")));
+		Assert.isTrue(!Files.exists(dir.resolve(".failed/sample_data/slow.txt")));
+	}
+	
+}
@@ -17,7 +17,14 @@
 package org.oncoblocks.centromere.jpa;
 
 import com.google.common.reflect.TypeToken;
+import org.hibernate.ScrollMode;
+import org.hibernate.ScrollableResults;
 import org.oncoblocks.centromere.core.model.Model;
+import org.oncoblocks.centromere.core.repository.CountCache;
+import org.oncoblocks.centromere.core.repository.CountStrategy;
+import org.oncoblocks.centromere.core.repository.CountedPage;
+import org.oncoblocks.centromere.core.repository.KeysetPage;
+import org.oncoblocks.centromere.core.repository.KeysetPageRequest;
 import org.oncoblocks.centromere.core.repository.QueryCriteria;
 import org.oncoblocks.centromere.core.repository.RepositoryOperations;
 import org.springframework.dao.DataIntegrityViolationException;
@@ -25,16 +32,30 @@ import org.springframework.dao.DuplicateKeyException;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.data.jpa.repository.query.QueryUtils;
 import org.springframework.data.jpa.repository.support.JpaEntityInformation;
 import org.springframework.data.jpa.repository.support.SimpleJpaRepository;
+import org.springframework.data.util.CloseableIterator;
+import org.springframework.orm.jpa.EntityManagerFactoryUtils;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.TypedQuery;
 import javax.persistence.criteria.CriteriaBuilder;
 import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.Expression;
+import javax.persistence.criteria.Path;
+import javax.persistence.criteria.Predicate;
 import javax.persistence.criteria.Root;
 import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.Callable;
 
 /**
  * @author woemler
@@ -47,6 +68,9 @@ public class CentromereJpaRepository<T extends Model<ID>, ID extends Serializabl
 	private final EntityManager entityManager;
 	private final JpaQueryBuilder<T> queryBuilder;
 	private final Class<T> model;
+	private int streamFetchSize = 1000;
+	private CountStrategy countStrategy = CountStrategy.EXACT;
+	private CountCache countCache = new CountCache();
 
 	public CentromereJpaRepository(JpaEntityInformation<T, ID> entityInformation,
 			EntityManager entityManager, Class<T> model) {
@@ -97,7 +121,172 @@ public class CentromereJpaRepository<T extends Model<ID>, ID extends Serializabl
 	 * @return {@link Page} containing the desired set of records.
 	 */
 	public Page<T> find(Iterable<QueryCriteria> queryCriterias, Pageable pageable) {
-		return this.findAll(queryBuilder.createSpecification(queryCriterias), pageable);
+		return this.find(queryCriterias, pageable, countStrategy);
+	}
+
+	/**
+	 * Searches for all records that satisfy the requested criteria, and returns them in paged form,
+	 *   with the total record count calculated using the requested {@link CountStrategy}.  JPA 
+	 *   has no portable row estimate, so {@link CountStrategy#ESTIMATED} falls back to an exact 
+	 *   count.
+	 *
+	 * @param queryCriterias {@link QueryCriteria}
+	 * @param pageable {@link Pageable}
+	 * @param countStrategy {@link CountStrategy}
+	 * @return {@link CountedPage} containing the desired set of records.
+	 */
+	public CountedPage<T> find(final Iterable<QueryCriteria> queryCriterias, Pageable pageable, 
+			CountStrategy countStrategy) {
+		Specification<T> specification = queryBuilder.createSpecification(queryCriterias);
+		if (countStrategy == CountStrategy.NONE){
+			TypedQuery<T> query = this.getQuery(specification, pageable.getSort());
+			query.setFirstResult(pageable.getOffset());
+			query.setMaxResults(pageable.getPageSize() + 1);
+			return CountedPage.withoutCount(query.getResultList(), pageable);
+		} else if (countStrategy == CountStrategy.CACHED){
+			TypedQuery<T> query = this.getQuery(specification, pageable.getSort());
+			query.setFirstResult(pageable.getOffset());
+			query.setMaxResults(pageable.getPageSize());
+			long count = countCache.get(queryCriterias, new Callable<Long>() {
+				@Override 
+				public Long call() throws Exception {
+					return count(queryCriterias);
+				}
+			});
+			return new CountedPage<>(query.getResultList(), pageable, count, CountStrategy.CACHED);
+		}
+		Page<T> page = this.findAll(specification, pageable);
+		return new CountedPage<>(page.getContent(), pageable, page.getTotalElements(), CountStrategy.EXACT);
+	}
+
+	/**
+	 * Returns a page of records that satisfy the requested criteria, using keyset pagination.  The 
+	 *   page starts after the position in the request's continuation token, found with a seek 
+	 *   predicate on the sort fields and ID, rather than {@code setFirstResult}.
+	 *
+	 * @param queryCriterias {@link QueryCriteria}
+	 * @param pageRequest {@link KeysetPageRequest}
+	 * @return page of {@code T} records, with the token for the next page.
+	 */
+	public KeysetPage<T> find(Iterable<QueryCriteria> queryCriterias, KeysetPageRequest pageRequest) {
+		List<String> idAttributes = new ArrayList<>();
+		for (String name: metadata.getIdAttributeNames()){
+			idAttributes.add(name);
+		}
+		Sort seekSort = pageRequest.getSeekSort(idAttributes.toArray(new String[]{}));
+		List<Object> values = pageRequest.getKeyValues(seekSort);
+		CriteriaBuilder builder = entityManager.getCriteriaBuilder();
+		CriteriaQuery<T> query = builder.createQuery(metadata.getJavaType());
+		Root<T> root = query.from(metadata.getJavaType());
+		query.select(root);
+		Predicate predicate = getPredicate(queryCriterias, root, query, builder);
+		if (values != null){
+			Predicate seek = getSeekPredicate(seekSort, values, root, builder);
+			predicate = predicate == null ? seek : builder.and(predicate, seek);
+		}
+		if (predicate != null) query.where(predicate);
+		query.orderBy(QueryUtils.toOrders(seekSort, root, builder));
+		List<T> results = entityManager.createQuery(query)
+				.setMaxResults(pageRequest.getSize() + 1)
+				.getResultList();
+		return KeysetPage.fromResults(results, pageRequest, seekSort);
+	}
+
+	/**
+	 * Creates a predicate selecting the records that follow the given sort values, comparing each
+	 *   field in the direction of its sort order.
+	 */
+	@SuppressWarnings("unchecked")
+	private Predicate getSeekPredicate(Sort seekSort, List<Object> values, Root<T> root, 
+			CriteriaBuilder builder){
+		List<Sort.Order> orders = new ArrayList<>();
+		for (Sort.Order order: seekSort){
+			orders.add(order);
+		}
+		List<Predicate> branches = new ArrayList<>();
+		for (int i = 0; i < orders.size(); i++){
+			List<Predicate> terms = new ArrayList<>();
+			for (int j = 0; j < i; j++){
+				terms.add(builder.equal(getPath(root, orders.get(j).getProperty()), values.get(j)));
+			}
+			Expression<Comparable> path = (Expression<Comparable>) getPath(root, orders.get(i).getProperty());
+			Comparable value = (Comparable) values.get(i);
+			terms.add(orders.get(i).isAscending() ? builder.greaterThan(path, value) 
+					: builder.lessThan(path, value));
+			branches.add(builder.and(terms.toArray(new Predicate[]{})));
+		}
+		return builder.or(branches.toArray(new Predicate[]{}));
+	}
+	
+	/**
+	 * Converts the criteria to a predicate, or returns null if there are no criteria.
+	 */
+	private Predicate getPredicate(Iterable<QueryCriteria> queryCriterias, Root<T> root, 
+			CriteriaQuery<T> query, CriteriaBuilder builder){
+		Specification<T> specification = queryBuilder.createSpecification(queryCriterias);
+		return specification == null ? null : specification.toPredicate(root, query, builder);
+	}
+	
+	private Path<?> getPath(Root<T> root, String property){
+		Path<?> path = root;
+		for (String part: property.split("\\.")){
+			path = path.get(part);
+		}
+		return path;
+	}
+
+	/**
+	 * Returns a forward-only cursor over all records that satisfy the requested criteria, backed by
+	 *   Hibernate {@link ScrollableResults}.  The cursor outlives this method call, so it does not 
+	 *   start a transaction of its own.  If a transaction is already active, its entity manager is used;
+	 *   otherwise the cursor opens its own entity manager, in a transaction that keeps the 
+	 *   connection open until the cursor is closed and is then rolled back, and detaches each entity
+	 *   after it is returned, so that the persistence context does not grow with the result set.
+	 *
+	 * @param queryCriterias {@link QueryCriteria}
+	 * @param sort {@link Sort}, or null for unsorted results.
+	 * @return cursor over {@code T} records, which must be closed.
+	 */
+	@Transactional(propagation = Propagation.SUPPORTS)
+	public CloseableIterator<T> stream(Iterable<QueryCriteria> queryCriterias, Sort sort) {
+		EntityManagerFactory factory = entityManager.getEntityManagerFactory();
+		EntityManager em = TransactionSynchronizationManager.isActualTransactionActive() 
+				? EntityManagerFactoryUtils.getTransactionalEntityManager(factory) : null;
+		boolean owned = em == null;
+		if (owned) {
+			em = factory.createEntityManager();
+			em.getTransaction().begin();
+		}
+		try {
+			CriteriaBuilder builder = em.getCriteriaBuilder();
+			CriteriaQuery<T> query = builder.createQuery(metadata.getJavaType());
+			Root<T> root = query.from(metadata.getJavaType());
+			query.select(root);
+			Predicate predicate = getPredicate(queryCriterias, root, query, builder);
+			if (predicate != null) query.where(predicate);
+			if (sort != null) query.orderBy(QueryUtils.toOrders(sort, root, builder));
+			ScrollableResults results = em.createQuery(query)
+					.unwrap(org.hibernate.Query.class)
+					.setFetchSize(streamFetchSize)
+					.setReadOnly(true)
+					.scroll(ScrollMode.FORWARD_ONLY);
+			return new ScrollableResultsCursor<>(results, owned ? em : null);
+		} catch (RuntimeException e){
+			if (owned) closeEntityManager(em);
+			throw e;
+		}
+	}
+
+	/**
+	 * Rolls back the read-only transaction of an entity manager opened by 
+	 *   {@link #stream(Iterable, Sort)}, and closes it.
+	 */
+	private static void closeEntityManager(EntityManager em){
+		try {
+			if (em.getTransaction().isActive()) em.getTransaction().rollback();
+		} finally {
+			em.close();
+		}
 	}
 
 	/**
@@ -207,4 +396,104 @@ public class CentromereJpaRepository<T extends Model<ID>, ID extends Serializabl
 	public Class<T> getModel() {
 		return model;
 	}
+
+	public int getStreamFetchSize() {
+		return streamFetchSize;
+	}
+
+	/**
+	 * Sets the JDBC fetch size used by {@link #stream(Iterable, Sort)} cursors.  Defaults to 1000.
+	 */
+	public void setStreamFetchSize(int streamFetchSize) {
+		this.streamFetchSize = streamFetchSize;
+	}
+
+	public CountStrategy getCountStrategy() {
+		return countStrategy;
+	}
+
+	/**
+	 * Sets the {@link CountStrategy} used by {@link #find(Iterable, Pageable)}.  Defaults to 
+	 *   {@link CountStrategy#EXACT}.
+	 */
+	public void setCountStrategy(CountStrategy countStrategy) {
+		this.countStrategy = countStrategy;
+	}
+
+	public CountCache getCountCache() {
+		return countCache;
+	}
+
+	/**
+	 * Sets the cache used by the {@link CountStrategy#CACHED} strategy, which controls the count 
+	 *   time-to-live.  Defaults to a one minute time-to-live.
+	 */
+	public void setCountCache(CountCache countCache) {
+		this.countCache = countCache;
+	}
+
+	/**
+	 * Adapts {@link ScrollableResults} to {@link CloseableIterator}.  If the cursor owns its entity 
+	 *   manager, each entity is detached once returned, and the entity manager is closed with the 
+	 *   cursor.
+	 */
+	private static class ScrollableResultsCursor<T> implements CloseableIterator<T> {
+		
+		private final ScrollableResults results;
+		private final EntityManager entityManager;
+		private T last;
+		private boolean fetched = false;
+		private boolean hasRow = false;
+		private boolean closed = false;
+
+		public ScrollableResultsCursor(ScrollableResults results, EntityManager entityManager) {
+			this.results = results;
+			this.entityManager = entityManager;
+		}
+
+		@Override 
+		public boolean hasNext() {
+			if (closed) return false;
+			if (!fetched){
+				if (last != null && entityManager != null) entityManager.detach(last);
+				last = null;
+				try {
+					hasRow = results.next();
+				} catch (RuntimeException e){
+					this.close();
+					throw e;
+				}
+				fetched = true;
+				if (!hasRow) this.close();
+			}
+			return hasRow;
+		}
+
+		@Override 
+		@SuppressWarnings("unchecked")
+		public T next() {
+			if (!this.hasNext()) throw new NoSuchElementException();
+			fetched = false;
+			last = (T) results.get(0);
+			return last;
+		}
+
+		@Override 
+		public void remove() {
+			throw new UnsupportedOperationException("Cursors are read-only.");
+		}
+
+		@Override 
+		public void close() {
+			if (closed) return;
+			closed = true;
+			hasRow = false;
+			try {
+				results.close();
+			} finally {
+				if (entityManager != null) closeEntityManager(entityManager);
+			}
+		}
+		
+	}
 }
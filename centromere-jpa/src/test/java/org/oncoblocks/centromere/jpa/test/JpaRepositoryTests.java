@@ -20,7 +20,11 @@ import org.junit.Before;
 import org.junit.FixMethodOrder;
 import org.junit.Test;
 import org.junit.runner.RunWith;
+import org.oncoblocks.centromere.core.repository.CountStrategy;
+import org.oncoblocks.centromere.core.repository.CountedPage;
 import org.oncoblocks.centromere.core.repository.Evaluation;
+import org.oncoblocks.centromere.core.repository.KeysetPage;
+import org.oncoblocks.centromere.core.repository.KeysetPageRequest;
 import org.oncoblocks.centromere.core.repository.QueryCriteria;
 import org.oncoblocks.centromere.core.repository.QueryCriteriaBuilder;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -28,6 +32,7 @@ import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Sort;
 import org.springframework.data.jpa.domain.Specification;
+import org.springframework.data.util.CloseableIterator;
 import org.springframework.test.context.ContextConfiguration;
 import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
 import org.springframework.transaction.annotation.Transactional;
@@ -270,6 +275,71 @@ public class JpaRepositoryTests {
 
 	}
 
+	@Test
+	@Transactional
+	public void findByCriteriaCountStrategyTest(){
+
+		List<QueryCriteria> searchCriterias = new ArrayList<>();
+		searchCriterias.add(new QueryCriteria("geneType", "protein-coding"));
+		CountedPage<EntrezGene> page = geneRepository.find(searchCriterias, new PageRequest(0, 2), 
+				CountStrategy.NONE);
+		Assert.isTrue(page.getCountStrategy().equals(CountStrategy.NONE));
+		Assert.isTrue(page.getContent().size() == 2);
+		Assert.isTrue(page.hasNext());
+		page = geneRepository.find(searchCriterias, new PageRequest(1, 2), CountStrategy.NONE);
+		Assert.isTrue(page.getContent().size() == 1);
+		Assert.isTrue(!page.hasNext());
+
+		page = geneRepository.find(searchCriterias, new PageRequest(1, 2), CountStrategy.CACHED);
+		Assert.isTrue(page.getCountStrategy().equals(CountStrategy.CACHED));
+		Assert.isTrue(page.getTotalElements() == 3);
+		Assert.isTrue(page.getContent().get(0).getEntrezGeneId().equals(4L));
+
+	}
+
+	@Test
+	@Transactional
+	public void findByCriteriaKeysetPagedTest(){
+
+		List<QueryCriteria> searchCriterias = new ArrayList<>();
+		searchCriterias.add(new QueryCriteria("entrezGeneId", 0L, Evaluation.GREATER_THAN));
+		KeysetPageRequest pageRequest = new KeysetPageRequest(2, 
+				new Sort(new Sort.Order(Sort.Direction.ASC, "geneType")));
+		KeysetPage<EntrezGene> page = geneRepository.find(searchCriterias, pageRequest);
+		Assert.notNull(page);
+		Assert.isTrue(page.getNumberOfElements() == 2);
+		Assert.isTrue(page.hasNext());
+
+		List<Long> ids = new ArrayList<>();
+		for (EntrezGene gene: page) ids.add(gene.getEntrezGeneId());
+		while (page.hasNext()){
+			page = geneRepository.find(searchCriterias, pageRequest.next(page.getNextToken()));
+			for (EntrezGene gene: page) ids.add(gene.getEntrezGeneId());
+		}
+		Assert.isTrue(page.getNumberOfElements() == 1);
+		Assert.isTrue(ids.equals(Arrays.asList(1L, 2L, 4L, 3L, 5L)));
+
+	}
+
+	@Test
+	@Transactional
+	public void streamTest(){
+
+		Sort sort = new Sort(new Sort.Order(Sort.Direction.DESC, "entrezGeneId"));
+		List<EntrezGene> genes = new ArrayList<>();
+		CloseableIterator<EntrezGene> cursor = geneRepository.stream(new ArrayList<QueryCriteria>(), sort);
+		try {
+			while (cursor.hasNext()){
+				genes.add(cursor.next());
+			}
+		} finally {
+			cursor.close();
+		}
+		Assert.isTrue(genes.size() == 5);
+		Assert.isTrue(genes.get(0).getEntrezGeneId().equals(5L));
+
+	}
+
 	@Test
 	@Transactional
 	public void insertTest(){
@@ -18,10 +18,14 @@ package org.oncoblocks.centromere.mongodb;
 
 import com.google.common.reflect.TypeToken;
 import org.oncoblocks.centromere.core.model.Model;
+import org.oncoblocks.centromere.core.repository.CountCache;
+import org.oncoblocks.centromere.core.repository.CountStrategy;
+import org.oncoblocks.centromere.core.repository.CountedPage;
+import org.oncoblocks.centromere.core.repository.KeysetPage;
+import org.oncoblocks.centromere.core.repository.KeysetPageRequest;
 import org.oncoblocks.centromere.core.repository.QueryCriteria;
 import org.oncoblocks.centromere.core.repository.RepositoryOperations;
 import org.springframework.data.domain.Page;
-import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
 import org.springframework.data.mongodb.core.MongoOperations;
@@ -29,10 +33,12 @@ import org.springframework.data.mongodb.core.query.Criteria;
 import org.springframework.data.mongodb.core.query.Query;
 import org.springframework.data.mongodb.repository.query.MongoEntityInformation;
 import org.springframework.data.mongodb.repository.support.SimpleMongoRepository;
+import org.springframework.data.util.CloseableIterator;
 
 import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.Callable;
 
 /**
  * Implementation of {@link RepositoryOperations} using Spring Data's repository bean factory for
@@ -49,6 +55,8 @@ public class CentromereMongoRepository<T extends Model<ID>, ID extends Serializa
 	private final MongoOperations mongoOperations;
 	private final MongoEntityInformation<T, ID> metadata;
 	private final Class<T> model;
+	private CountStrategy countStrategy = CountStrategy.EXACT;
+	private CountCache countCache = new CountCache();
 	
 	public CentromereMongoRepository(MongoEntityInformation<T, ID> metadata, 
 			MongoOperations mongoOperations) {
@@ -90,18 +98,64 @@ public class CentromereMongoRepository<T extends Model<ID>, ID extends Serializa
 		return mongoOperations.find(query.with(sort), metadata.getJavaType());
 	}
 
+	/**
+	 * {@link RepositoryOperations#find(Iterable, KeysetPageRequest)}
+	 */
+	public KeysetPage<T> find(Iterable<QueryCriteria> queryCriterias, KeysetPageRequest pageRequest) {
+		Sort seekSort = pageRequest.getSeekSort("id");
+		Query query = MongoQueryUtils.getKeysetQuery(queryCriterias, pageRequest, seekSort);
+		return KeysetPage.fromResults(mongoOperations.find(query, metadata.getJavaType()), pageRequest, seekSort);
+	}
+
+	/**
+	 * {@link RepositoryOperations#stream}
+	 */
+	public CloseableIterator<T> stream(Iterable<QueryCriteria> queryCriterias, Sort sort) {
+		Criteria criteria = MongoQueryUtils.getQueryFromQueryCriteria(queryCriterias);
+		Query query = new Query();
+		if (criteria != null){
+			query.addCriteria(criteria);
+		}
+		return mongoOperations.stream(query.with(sort), metadata.getJavaType());
+	}
+
 	/**
 	 * {@link RepositoryOperations#findAll}
 	 */
 	public Page<T> find(Iterable<QueryCriteria> queryCriterias, Pageable pageable) {
+		return this.find(queryCriterias, pageable, countStrategy);
+	}
+
+	/**
+	 * {@link RepositoryOperations#find(Iterable, Pageable, CountStrategy)}.  Estimated counts use 
+	 *   the collection's document count, and are only available for unfiltered queries.
+	 */
+	public CountedPage<T> find(final Iterable<QueryCriteria> queryCriterias, Pageable pageable, 
+			CountStrategy countStrategy) {
 		Criteria criteria = MongoQueryUtils.getQueryFromQueryCriteria(queryCriterias);
 		Query query = new Query();
 		if (criteria != null){
 			query.addCriteria(criteria);
 		}
-		List<T> entities = mongoOperations.find(query.with(pageable), metadata.getJavaType());
-		long count = count(queryCriterias);
-		return new PageImpl<>(entities, pageable, count);
+		query.with(pageable);
+		if (countStrategy == CountStrategy.NONE){
+			query.limit(pageable.getPageSize() + 1);
+			return CountedPage.withoutCount(mongoOperations.find(query, metadata.getJavaType()), pageable);
+		}
+		List<T> entities = mongoOperations.find(query, metadata.getJavaType());
+		if (countStrategy == CountStrategy.ESTIMATED && criteria == null){
+			long count = mongoOperations.getCollection(metadata.getCollectionName()).getCount();
+			return new CountedPage<>(entities, pageable, count, CountStrategy.ESTIMATED);
+		} else if (countStrategy == CountStrategy.CACHED){
+			long count = countCache.get(queryCriterias, new Callable<Long>() {
+				@Override 
+				public Long call() throws Exception {
+					return count(queryCriterias);
+				}
+			});
+			return new CountedPage<>(entities, pageable, count, CountStrategy.CACHED);
+		}
+		return new CountedPage<>(entities, pageable, count(queryCriterias), CountStrategy.EXACT);
 	}
 
 	/**
@@ -201,4 +255,28 @@ public class CentromereMongoRepository<T extends Model<ID>, ID extends Serializa
 	public Class<T> getModel() {
 		return model;
 	}
+
+	public CountStrategy getCountStrategy() {
+		return countStrategy;
+	}
+
+	/**
+	 * Sets the {@link CountStrategy} used by {@link #find(Iterable, Pageable)}.  Defaults to 
+	 *   {@link CountStrategy#EXACT}.
+	 */
+	public void setCountStrategy(CountStrategy countStrategy) {
+		this.countStrategy = countStrategy;
+	}
+
+	public CountCache getCountCache() {
+		return countCache;
+	}
+
+	/**
+	 * Sets the cache used by the {@link CountStrategy#CACHED} strategy, which controls the count 
+	 *   time-to-live.  Defaults to a one minute time-to-live.
+	 */
+	public void setCountCache(CountCache countCache) {
+		this.countCache = countCache;
+	}
 }
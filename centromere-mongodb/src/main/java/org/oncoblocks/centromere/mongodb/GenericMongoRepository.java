@@ -22,6 +22,11 @@ import com.mongodb.BasicDBObject;
 import com.mongodb.DBCollection;
 import com.mongodb.DBObject;
 import org.oncoblocks.centromere.core.model.Model;
+import org.oncoblocks.centromere.core.repository.CountCache;
+import org.oncoblocks.centromere.core.repository.CountStrategy;
+import org.oncoblocks.centromere.core.repository.CountedPage;
+import org.oncoblocks.centromere.core.repository.KeysetPage;
+import org.oncoblocks.centromere.core.repository.KeysetPageRequest;
 import org.oncoblocks.centromere.core.repository.QueryCriteria;
 import org.oncoblocks.centromere.core.repository.RepositoryOperations;
 import org.slf4j.Logger;
@@ -33,11 +38,13 @@ import org.springframework.data.domain.Sort;
 import org.springframework.data.mongodb.core.MongoOperations;
 import org.springframework.data.mongodb.core.query.Criteria;
 import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.util.CloseableIterator;
 import org.springframework.util.Assert;
 
 import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.Callable;
 
 /**
  * Generic MongoDB implementation of {@link RepositoryOperations}.  Includes all of the methods 
@@ -51,6 +58,8 @@ public class GenericMongoRepository<T extends Model<ID>, ID extends Serializable
 	
 	private final MongoOperations mongoOperations;
 	private final Class<T> model;
+	private CountStrategy countStrategy = CountStrategy.EXACT;
+	private CountCache countCache = new CountCache();
 	private static final Logger logger = LoggerFactory.getLogger(GenericMongoRepository.class);
 
 	/**
@@ -144,18 +153,64 @@ public class GenericMongoRepository<T extends Model<ID>, ID extends Serializable
 		return mongoOperations.find(query.with(sort), model);
 	}
 
+	/**
+	 * {@link RepositoryOperations#find(Iterable, KeysetPageRequest)}
+	 */
+	public KeysetPage<T> find(Iterable<QueryCriteria> queryCriterias, KeysetPageRequest pageRequest) {
+		Sort seekSort = pageRequest.getSeekSort("id");
+		Query query = MongoQueryUtils.getKeysetQuery(queryCriterias, pageRequest, seekSort);
+		return KeysetPage.fromResults(mongoOperations.find(query, model), pageRequest, seekSort);
+	}
+
+	/**
+	 * {@link RepositoryOperations#stream}
+	 */
+	public CloseableIterator<T> stream(Iterable<QueryCriteria> queryCriterias, Sort sort) {
+		Criteria criteria = MongoQueryUtils.getQueryFromQueryCriteria(queryCriterias);
+		Query query = new Query();
+		if (criteria != null){
+			query.addCriteria(criteria);
+		}
+		return mongoOperations.stream(query.with(sort), model);
+	}
+
 	/**
 	 * {@link RepositoryOperations#findAll}
 	 */
 	public Page<T> find(Iterable<QueryCriteria> queryCriterias, Pageable pageable) {
+		return this.find(queryCriterias, pageable, countStrategy);
+	}
+
+	/**
+	 * {@link RepositoryOperations#find(Iterable, Pageable, CountStrategy)}.  Estimated counts use 
+	 *   the collection's document count, and are only available for unfiltered queries.
+	 */
+	public CountedPage<T> find(final Iterable<QueryCriteria> queryCriterias, Pageable pageable, 
+			CountStrategy countStrategy) {
 		Criteria criteria = MongoQueryUtils.getQueryFromQueryCriteria(queryCriterias);
 		Query query = new Query();
 		if (criteria != null){
 			query.addCriteria(criteria);
 		}
-		List<T> entities = mongoOperations.find(query.with(pageable), model);
-		long count = count(queryCriterias);
-		return new PageImpl<T>(entities, pageable, count);
+		query.with(pageable);
+		if (countStrategy == CountStrategy.NONE){
+			query.limit(pageable.getPageSize() + 1);
+			return CountedPage.withoutCount(mongoOperations.find(query, model), pageable);
+		}
+		List<T> entities = mongoOperations.find(query, model);
+		if (countStrategy == CountStrategy.ESTIMATED && criteria == null){
+			long count = mongoOperations.getCollection(mongoOperations.getCollectionName(model)).getCount();
+			return new CountedPage<>(entities, pageable, count, CountStrategy.ESTIMATED);
+		} else if (countStrategy == CountStrategy.CACHED){
+			long count = countCache.get(queryCriterias, new Callable<Long>() {
+				@Override 
+				public Long call() throws Exception {
+					return count(queryCriterias);
+				}
+			});
+			return new CountedPage<>(entities, pageable, count, CountStrategy.CACHED);
+		}
+		return new CountedPage<>(entities, pageable, count(queryCriterias), CountStrategy.EXACT);
 	}
 
 	/**
@@ -354,4 +409,28 @@ public class GenericMongoRepository<T extends Model<ID>, ID extends Serializable
 	public Class<T> getModel() {
 		return model;
 	}
+
+	public CountStrategy getCountStrategy() {
+		return countStrategy;
+	}
+
+	/**
+	 * Sets the {@link CountStrategy} used by {@link #find(Iterable, Pageable)}.  Defaults to 
+	 *   {@link CountStrategy#EXACT}.
+	 */
+	public void setCountStrategy(CountStrategy countStrategy) {
+		this.countStrategy = countStrategy;
+	}
+
+	public CountCache getCountCache() {
+		return countCache;
+	}
+
+	/**
+	 * Sets the cache used by the {@link CountStrategy#CACHED} strategy, which controls the count 
+	 *   time-to-live.  Defaults to a one minute time-to-live.
+	 */
+	public void setCountCache(CountCache countCache) {
+		this.countCache = countCache;
+	}
 }
@@ -18,20 +18,58 @@ package org.oncoblocks.centromere.mongodb;
 
 import com.mongodb.BasicDBObject;
 import com.mongodb.DBObject;
+import com.mongodb.DefaultDBEncoder;
+import com.mongodb.util.JSON;
 import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.convert.MappingMongoConverter;
 import org.springframework.data.mongodb.core.convert.MongoConverter;
+import org.springframework.data.mongodb.core.convert.MongoTypeMapper;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
- * Utility class for data imports using MongoDB.
+ * Utility class for data imports using MongoDB.  Entities are converted by the template's 
+ *   {@link MongoConverter} into an {@link ImportDocument}, which discards the type hint and null 
+ *   IDs as they are written, rather than removing them afterwards.  JSON and BSON conversion reuse
+ *   a document and output buffer per thread, and documents returned to callers are pre-sized 
+ *   using the number of fields last written for the model class.  Thread-safe.
  * 
  * @author woemler
  */
 public class ImportUtils {
 	
+	private static final String ID_KEY = "_id";
+	private static final String DEFAULT_TYPE_KEY = "_class";
+	
 	private final MongoTemplate mongoTemplate;
+	private final MongoConverter converter;
+	private final MongoTypeMapper typeMapper;
+	private final Map<Class<?>, Integer> documentSizes = new ConcurrentHashMap<>();
+	private final ThreadLocal<ImportDocument> documents = new ThreadLocal<ImportDocument>(){
+		@Override 
+		protected ImportDocument initialValue() {
+			return new ImportDocument(typeMapper, 16);
+		}
+	};
+	private final ThreadLocal<StringBuilder> stringBuilders = new ThreadLocal<StringBuilder>(){
+		@Override 
+		protected StringBuilder initialValue() {
+			return new StringBuilder(1024);
+		}
+	};
+	private final ThreadLocal<DefaultDBEncoder> encoders = new ThreadLocal<DefaultDBEncoder>(){
+		@Override 
+		protected DefaultDBEncoder initialValue() {
+			return new DefaultDBEncoder();
+		}
+	};
 
 	public ImportUtils(MongoTemplate mongoTemplate) {
 		this.mongoTemplate = mongoTemplate;
+		this.converter = mongoTemplate.getConverter();
+		this.typeMapper = converter instanceof MappingMongoConverter 
+				? ((MappingMongoConverter) converter).getTypeMapper() : null;
 	}
 
 	/**
@@ -41,16 +79,82 @@ public class ImportUtils {
 	 * @return
 	 */
 	public String convertEntityToJson(Object entity){
-		MongoConverter converter = mongoTemplate.getConverter();
-		DBObject dbObject = new BasicDBObject();
-		converter.write(entity, dbObject);
-		if (dbObject.containsField("_id") && dbObject.get("_id") == null){
-			dbObject.removeField("_id");
+		ImportDocument document = this.writeReusableDocument(entity);
+		StringBuilder stringBuilder = stringBuilders.get();
+		stringBuilder.setLength(0);
+		JSON.serialize(document, stringBuilder);
+		return stringBuilder.toString();
+	}
+
+	/**
+	 * Serializes an object into a BSON document that can be inserted into a MongoDB collection.
+	 * 
+	 * @param entity
+	 * @return
+	 */
+	public byte[] convertEntityToBson(Object entity){
+		return encoders.get().encode(this.writeReusableDocument(entity));
+	}
+
+	/**
+	 * Converts an object into a document that can be inserted into a MongoDB collection, without
+	 *   the type hint or a null ID.
+	 * 
+	 * @param entity
+	 * @return
+	 */
+	public DBObject convertEntityToDBObject(Object entity){
+		Integer size = documentSizes.get(entity.getClass());
+		ImportDocument document = new ImportDocument(typeMapper, size != null ? size : 16);
+		this.write(entity, document);
+		return document;
+	}
+
+	/**
+	 * Converts the object into this thread's reusable document, which is only valid until the next
+	 *   conversion.
+	 */
+	private ImportDocument writeReusableDocument(Object entity){
+		ImportDocument document = documents.get();
+		document.clear();
+		this.write(entity, document);
+		return document;
+	}
+	
+	private void write(Object entity, ImportDocument document){
+		converter.write(entity, document);
+		Integer size = documentSizes.get(entity.getClass());
+		if (size == null || size != document.size()) {
+			documentSizes.put(entity.getClass(), document.size());
 		}
-		if (dbObject.containsField("_class")){
-			dbObject.removeField("_class");
+	}
+
+	public MongoTemplate getMongoTemplate() {
+		return mongoTemplate;
+	}
+
+	/**
+	 * Top-level document that ignores the converter's type hint, and any null ID, when they are 
+	 *   written.  Nested documents are created by the converter itself, so keep their type hints.
+	 */
+	private static class ImportDocument extends BasicDBObject {
+		
+		private static final long serialVersionUID = 1L;
+		
+		private final transient MongoTypeMapper typeMapper;
+
+		public ImportDocument(MongoTypeMapper typeMapper, int size) {
+			super(size);
+			this.typeMapper = typeMapper;
+		}
+
+		@Override 
+		public Object put(String key, Object value) {
+			if (value == null && ID_KEY.equals(key)) return null;
+			if (typeMapper != null ? typeMapper.isTypeKey(key) : DEFAULT_TYPE_KEY.equals(key)) return null;
+			return super.put(key, value);
 		}
-		return dbObject.toString();
+		
 	}
 	
 }
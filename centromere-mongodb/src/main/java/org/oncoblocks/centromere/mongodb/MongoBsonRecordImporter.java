@@ -0,0 +1,211 @@
+/*
+ * Copyright 2016 William Oemler, Blueprint Medicines
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.oncoblocks.centromere.mongodb;
+
+import com.mongodb.DBCollection;
+import com.mongodb.DBObject;
+import com.mongodb.DefaultDBDecoder;
+import com.mongodb.WriteConcern;
+import org.oncoblocks.centromere.core.dataimport.DataImportException;
+import org.oncoblocks.centromere.core.dataimport.DropCollectionSupport;
+import org.oncoblocks.centromere.core.dataimport.RecordImporter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.mongodb.core.MongoTemplate;
+
+import java.io.*;
+
+/**
+ * Implementation of {@link RecordImporter} that restores the BSON temp files created by 
+ *   {@link MongoBsonTempFileWriter}, or by mongodump, into a MongoDB collection.  Documents are read 
+ *   one at a time, using their length prefixes, and loaded without any conversion by a 
+ *   {@link MongoBulkLoader}.
+ * 
+ * @author woemler
+ */
+public class MongoBsonRecordImporter implements RecordImporter, DropCollectionSupport {
+	
+	/** The largest document size accepted by MongoDB, plus room for the length prefix. */
+	public static final int MAX_DOCUMENT_SIZE = 16 * 1024 * 1024 + 16 * 1024;
+	
+	private final MongoTemplate mongoTemplate;
+	private final String collection;
+	private final MongoBulkLoader loader;
+	private boolean dropCollection = false;
+
+	private final static Logger logger = LoggerFactory.getLogger(MongoBsonRecordImporter.class);
+
+	public MongoBsonRecordImporter(MongoTemplate mongoTemplate, String collection) {
+		this.mongoTemplate = mongoTemplate;
+		this.collection = collection;
+		this.loader = new MongoBulkLoader(mongoTemplate.getCollection(collection));
+	}
+
+	/**
+	 * Loads every BSON document in the temp file.
+	 * 
+	 * @param filePath
+	 * @throws DataImportException
+	 */
+	public void importFile(String filePath) throws DataImportException {
+		logger.debug(String.format("[CENTROMERE] Restoring BSON file to MongoDB: %s", filePath));
+		if (dropCollection) this.dropCollection(filePath);
+		loader.start();
+		DataInputStream input = null;
+		try {
+			input = new DataInputStream(new BufferedInputStream(new FileInputStream(filePath), 64 * 1024));
+			DefaultDBDecoder decoder = new DefaultDBDecoder();
+			byte[] buffer = new byte[4096];
+			long offset = 0L;
+			int length = readLength(input);
+			while (length >= 0){
+				if (length < 5 || length > MAX_DOCUMENT_SIZE) {
+					throw new DataImportException(String.format("Invalid BSON document length %d at offset %d "
+							+ "in file: %s", length, offset, filePath));
+				}
+				if (buffer.length < length) buffer = new byte[Math.max(buffer.length * 2, length)];
+				buffer[0] = (byte) length;
+				buffer[1] = (byte) (length >>> 8);
+				buffer[2] = (byte) (length >>> 16);
+				buffer[3] = (byte) (length >>> 24);
+				input.readFully(buffer, 4, length - 4);
+				DBObject document;
+				try {
+					document = decoder.decode(buffer, (DBCollection) null);
+				} catch (RuntimeException e){
+					throw new DataImportException(String.format("Invalid BSON document at offset %d in file: "
+							+ "%s", offset, filePath));
+				}
+				loader.add(document);
+				offset += length;
+				length = readLength(input);
+			}
+			loader.finish();
+		} catch (IOException e){
+			e.printStackTrace();
+			loader.cancel();
+			throw new DataImportException(String.format("Cannot read BSON file: %s", filePath));
+		} catch (DataImportException e){
+			loader.cancel();
+			throw e;
+		} finally {
+			try {
+				if (input != null) input.close();
+			} catch (IOException e){
+				logger.debug(e.getMessage());
+			}
+		}
+		logger.debug(String.format("[CENTROMERE] BSON restore complete: %s", filePath));
+	}
+
+	/**
+	 * {@link DropCollectionSupport#dropCollection(String)}
+	 */
+	@Override 
+	public void dropCollection(String filePath) {
+		logger.debug(String.format("[CENTROMERE] Dropping MongoDB collection: %s", collection));
+		mongoTemplate.dropCollection(collection);
+	}
+
+	/**
+	 * Reads the little-endian length prefix of the next document.
+	 * 
+	 * @return the document length, or -1 if the end of the file has been reached.
+	 */
+	private static int readLength(DataInputStream input) throws IOException {
+		int b0 = input.read();
+		if (b0 < 0) return -1;
+		int b1 = input.read();
+		int b2 = input.read();
+		int b3 = input.read();
+		if ((b1 | b2 | b3) < 0) throw new EOFException("Truncated BSON document length.");
+		return b0 | (b1 << 8) | (b2 << 16) | (b3 << 24);
+	}
+
+	public MongoBsonRecordImporter setStopOnError(boolean stopOnError) {
+		loader.setStopOnError(stopOnError);
+		return this;
+	}
+
+	public MongoBsonRecordImporter setUpsertRecords(boolean upsertRecords) {
+		loader.setUpsertRecords(upsertRecords);
+		return this;
+	}
+
+	@Override 
+	public MongoBsonRecordImporter setDropCollection(boolean dropCollection) {
+		this.dropCollection = dropCollection;
+		return this;
+	}
+
+	@Override 
+	public boolean isDropCollection() {
+		return dropCollection;
+	}
+
+	public MongoBsonRecordImporter setBatchSize(int batchSize) {
+		loader.setBatchSize(batchSize);
+		return this;
+	}
+
+	public MongoBsonRecordImporter setThreads(int threads) {
+		loader.setThreads(threads);
+		return this;
+	}
+
+	public MongoBsonRecordImporter setWriteConcern(WriteConcern writeConcern) {
+		loader.setWriteConcern(writeConcern);
+		return this;
+	}
+
+	/**
+	 * Returns the loader, for access to the inserted, duplicate and failed record counts of the 
+	 *   most recent import.
+	 */
+	public MongoBulkLoader getLoader() {
+		return loader;
+	}
+
+	public String getCollection() {
+		return collection;
+	}
+
+	/**
+	 * To be executed before the main component method is first called.  Can be configured to handle
+	 * a variety of tasks using flexible input parameters.
+	 *
+	 * @param args an array of objects of any type.
+	 * @throws DataImportException
+	 */
+	@Override 
+	public void doBefore(Object... args) throws DataImportException {
+		
+	}
+
+	/**
+	 * To be executed after the main component method is called for the last time.  Can be configured
+	 * to handle a variety of tasks using flexible input parameters.
+	 *
+	 * @param args an array of objects of any type.
+	 * @throws DataImportException
+	 */
+	@Override 
+	public void doAfter(Object... args) throws DataImportException {
+
+	}
+	
+}
@@ -0,0 +1,144 @@
+/*
+ * Copyright 2016 William Oemler, Blueprint Medicines
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.oncoblocks.centromere.mongodb;
+
+import org.oncoblocks.centromere.core.dataimport.DataImportException;
+import org.oncoblocks.centromere.core.dataimport.RecordWriter;
+import org.oncoblocks.centromere.core.model.Model;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.util.Assert;
+
+import java.io.*;
+
+/**
+ * Implementation of {@link RecordWriter} that creates temporary files of {@link Model} records 
+ *   encoded as BSON, for loading via {@link MongoBsonRecordImporter}.  Each record is converted into
+ *   a document by the {@link MongoTemplate}'s converter and written as-is, so no JSON is generated 
+ *   or parsed, and types such as dates and longs are preserved.  BSON documents are prefixed with 
+ *   their own length, so the files are simply concatenated documents, in the same format as 
+ *   mongodump output, and can also be loaded with mongorestore.
+ * 
+ * @author woemler
+ */
+public class MongoBsonTempFileWriter<T extends Model<?>> implements RecordWriter<T> {
+	
+	private final ImportUtils importUtils;
+	private OutputStream outputStream;
+	private static final Logger logger = LoggerFactory.getLogger(MongoBsonTempFileWriter.class);
+
+	public MongoBsonTempFileWriter(ImportUtils importUtils) {
+		this.importUtils = importUtils;
+	}
+
+	public MongoBsonTempFileWriter(MongoTemplate mongoTemplate){
+		this.importUtils = new ImportUtils(mongoTemplate);
+	}
+
+	/**
+	 * Writes a {@link Model} record to the temp file, as a BSON document created by 
+	 *   {@link ImportUtils#convertEntityToBson(Object)}.
+	 * 
+	 * @param record
+	 * @throws DataImportException
+	 */
+	public void writeRecord(T record) throws DataImportException {
+		try {
+			outputStream.write(importUtils.convertEntityToBson(record));
+		} catch (IOException e){
+			e.printStackTrace();
+			throw new DataImportException(e.getMessage());
+		}
+	}
+
+	/**
+	 * Opens a new output file for writing.
+	 * 
+	 * @param args
+	 * @throws DataImportException
+	 */
+	public void doBefore(Object... args) throws DataImportException {
+		try {
+			Assert.notEmpty(args, "One or more arguments is required.");
+			Assert.isTrue(args[0] instanceof String, "The first argument must be a String.");
+		} catch (IllegalArgumentException e){
+			e.printStackTrace();
+			throw new DataImportException(e.getMessage());
+		}
+		this.open((String) args[0]);
+	}
+
+	/**
+	 * Closes the open output file.
+	 * 
+	 * @param args
+	 * @throws DataImportException
+	 */
+	public void doAfter(Object... args) throws DataImportException {
+		this.close();
+	}
+
+	/**
+	 * Creates or overwrites an output file.
+	 * 
+	 * @param outputFilePath
+	 * @throws DataImportException
+	 */
+	public void open(String outputFilePath) throws DataImportException {
+		this.close();
+		try {
+			outputStream = new BufferedOutputStream(new FileOutputStream(outputFilePath), 64 * 1024);
+		} catch (IOException e){
+			e.printStackTrace();
+			throw new DataImportException(String.format("Cannot open output file: %s", outputFilePath));
+		}
+	}
+
+	/**
+	 * Writes records directly to the given stream, rather than to a file.  The stream will be closed
+	 *   by {@link #close()}.
+	 * 
+	 * @param outputStream stream to write records to.
+	 * @throws DataImportException if a previously opened output cannot be closed.
+	 */
+	public void open(OutputStream outputStream) throws DataImportException {
+		this.close();
+		this.outputStream = new BufferedOutputStream(outputStream, 64 * 1024);
+	}
+
+	/**
+	 * Flushes outstanding records to the output file and then closes it.
+	 * 
+	 * @throws DataImportException if the records cannot be flushed, since the output would be 
+	 *   incomplete.
+	 */
+	public void close() throws DataImportException {
+		if (outputStream == null) return;
+		OutputStream stream = outputStream;
+		outputStream = null;
+		try {
+			stream.flush();
+			stream.close();
+		} catch (IOException e){
+			e.printStackTrace();
+			throw new DataImportException(String.format("Cannot flush and close output file: %s", 
+					e.getMessage()));
+		}
+	}
+	
+}
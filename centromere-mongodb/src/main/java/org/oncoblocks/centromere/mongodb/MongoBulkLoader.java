@@ -0,0 +1,342 @@
+/*
+ * Copyright 2016 William Oemler, Blueprint Medicines
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.oncoblocks.centromere.mongodb;
+
+import com.mongodb.*;
+import org.oncoblocks.centromere.core.dataimport.DataImportException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.util.Assert;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Loads documents into a MongoDB collection using the driver's unordered bulk write API.  Documents
+ *   are buffered into batches, which are written concurrently by a pool of writer threads.  The
+ *   number of batches waiting to be written is bounded, so {@link #add(DBObject)} will block when 
+ *   the writers fall behind.  Inserted, updated, duplicate and failed document counts are tracked
+ *   across all batches.  Duplicate key errors are counted separately from other failures, but 
+ *   both will halt the load if {@code stopOnError} is set, as with MongoImport.  Documents are
+ *   added from a single thread.
+ * 
+ * @author woemler
+ */
+public class MongoBulkLoader {
+	
+	public static final int DUPLICATE_KEY_ERROR = 11000;
+	
+	private final DBCollection collection;
+	private int batchSize = 1000;
+	private int threads = 4;
+	private WriteConcern writeConcern = WriteConcern.ACKNOWLEDGED;
+	private boolean stopOnError = true;
+	private boolean upsertRecords = false;
+	
+	private ExecutorService executor;
+	private Semaphore pendingBatches;
+	private List<DBObject> batch;
+	private final AtomicReference<DataImportException> failure = new AtomicReference<>();
+	private final AtomicLong batchCount = new AtomicLong(0L);
+	private final AtomicLong insertedCount = new AtomicLong(0L);
+	private final AtomicLong updatedCount = new AtomicLong(0L);
+	private final AtomicLong duplicateCount = new AtomicLong(0L);
+	private final AtomicLong failedCount = new AtomicLong(0L);
+	
+	private static final Logger logger = LoggerFactory.getLogger(MongoBulkLoader.class);
+
+	public MongoBulkLoader(DBCollection collection) {
+		Assert.notNull(collection, "DBCollection must not be null.");
+		this.collection = collection;
+	}
+
+	/**
+	 * Resets the document counts and starts the writer threads.  The threads are daemons, so a load
+	 *   that is never finished or cancelled cannot keep the JVM running.
+	 * 
+	 * @throws DataImportException if a load is already in progress.
+	 */
+	public void start() throws DataImportException {
+		if (executor != null) {
+			throw new DataImportException("A bulk load is already in progress.");
+		}
+		Assert.isTrue(batchSize > 0, "Batch size must be greater than zero.");
+		Assert.isTrue(threads > 0, "Number of writer threads must be greater than zero.");
+		failure.set(null);
+		batchCount.set(0L);
+		insertedCount.set(0L);
+		updatedCount.set(0L);
+		duplicateCount.set(0L);
+		failedCount.set(0L);
+		batch = new ArrayList<>(batchSize);
+		pendingBatches = new Semaphore(threads * 2);
+		CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("centromere-mongo-");
+		threadFactory.setDaemon(true);
+		executor = Executors.newFixedThreadPool(threads, threadFactory);
+	}
+
+	/**
+	 * Adds a document to the current batch, and submits the batch for writing once it is full.
+	 * 
+	 * @param document document to load.
+	 * @throws DataImportException if an earlier batch failed and {@code stopOnError} is set.
+	 */
+	public void add(DBObject document) throws DataImportException {
+		if (executor == null) {
+			throw new DataImportException("No bulk load is in progress.");
+		}
+		this.checkFailure();
+		batch.add(document);
+		if (batch.size() >= batchSize) {
+			this.submit();
+		}
+	}
+
+	/**
+	 * Registers a document that could not be read or converted, failing the load if 
+	 *   {@code stopOnError} is set.
+	 * 
+	 * @param message description of the failure.
+	 * @throws DataImportException if {@code stopOnError} is set.
+	 */
+	public void reject(String message) throws DataImportException {
+		failedCount.incrementAndGet();
+		if (stopOnError) {
+			DataImportException e = new DataImportException(message);
+			failure.compareAndSet(null, e);
+			throw e;
+		}
+		logger.warn(String.format("[CENTROMERE] Skipping document: %s", message));
+	}
+
+	/**
+	 * Writes any remaining documents, waits for all batches to complete, and stops the writer 
+	 *   threads.
+	 * 
+	 * @throws DataImportException if any batch failed and {@code stopOnError} is set.
+	 */
+	public void finish() throws DataImportException {
+		if (executor == null) {
+			throw new DataImportException("No bulk load is in progress.");
+		}
+		try {
+			if (!batch.isEmpty() && failure.get() == null) {
+				this.submit();
+			}
+			executor.shutdown();
+			while (!executor.awaitTermination(1, TimeUnit.SECONDS)) {
+				logger.debug(String.format("[CENTROMERE] Waiting for bulk writes to complete: %s", 
+						collection.getName()));
+			}
+		} catch (InterruptedException e){
+			Thread.currentThread().interrupt();
+			throw new DataImportException("Interrupted while waiting for bulk writes to complete.");
+		} finally {
+			executor.shutdownNow();
+			executor = null;
+			batch = null;
+		}
+		logger.info(String.format("[CENTROMERE] Bulk load complete for collection %s: %d inserted, "
+				+ "%d updated, %d duplicates, %d failed", collection.getName(), insertedCount.get(), 
+				updatedCount.get(), duplicateCount.get(), failedCount.get()));
+		this.checkFailure();
+	}
+
+	/**
+	 * Abandons the load after an error, discarding any buffered documents and stopping the writer 
+	 *   threads without waiting for pending batches.  Has no effect if no load is in progress.
+	 */
+	public void cancel(){
+		if (executor == null) return;
+		executor.shutdownNow();
+		executor = null;
+		batch = null;
+	}
+
+	/**
+	 * Hands the current batch off to the writer threads, blocking while the maximum number of 
+	 *   batches are already pending.
+	 */
+	private void submit() throws DataImportException {
+		final List<DBObject> documents = batch;
+		final long batchNumber = batchCount.incrementAndGet();
+		batch = new ArrayList<>(batchSize);
+		try {
+			pendingBatches.acquire();
+		} catch (InterruptedException e){
+			Thread.currentThread().interrupt();
+			throw new DataImportException("Interrupted while submitting a bulk write.");
+		}
+		executor.submit(new Runnable() {
+			@Override 
+			public void run() {
+				try {
+					if (failure.get() == null) write(documents, batchNumber);
+				} catch (Throwable t){
+					failedCount.addAndGet(documents.size());
+					logger.error(String.format("[CENTROMERE] Bulk write %d failed.", batchNumber), t);
+					failure.compareAndSet(null, new DataImportException(String.format(
+							"Bulk write %d failed: %s", batchNumber, t.getMessage())));
+				} finally {
+					pendingBatches.release();
+				}
+			}
+		});
+	}
+
+	/**
+	 * Writes a single batch as an unordered bulk operation, and records the outcome of each 
+	 *   document.
+	 */
+	private void write(List<DBObject> documents, long batchNumber) throws DataImportException {
+		BulkWriteOperation operation = collection.initializeUnorderedBulkOperation();
+		for (DBObject document: documents){
+			if (upsertRecords && document.containsField("_id")) {
+				operation.find(new BasicDBObject("_id", document.get("_id"))).upsert().replaceOne(document);
+			} else {
+				operation.insert(document);
+			}
+		}
+		try {
+			this.count(operation.execute(writeConcern), documents.size());
+		} catch (BulkWriteException e){
+			int duplicates = 0;
+			for (BulkWriteError error: e.getWriteErrors()){
+				if (error.getCode() == DUPLICATE_KEY_ERROR) duplicates++;
+			}
+			duplicateCount.addAndGet(duplicates);
+			failedCount.addAndGet(e.getWriteErrors().size() - duplicates);
+			this.count(e.getWriteResult(), documents.size() - e.getWriteErrors().size());
+			String message = String.format("Bulk write %d had %d errors, %d of them duplicate keys: %s", 
+					batchNumber, e.getWriteErrors().size(), duplicates, 
+					e.getWriteErrors().get(0).getMessage());
+			if (stopOnError) {
+				failure.compareAndSet(null, new DataImportException(message));
+			} else {
+				logger.warn(String.format("[CENTROMERE] %s", message));
+			}
+		}
+		if (batchNumber % 100 == 0) {
+			logger.info(String.format("[CENTROMERE] Bulk load progress for collection %s: %d batches, "
+					+ "%d inserted, %d updated", collection.getName(), batchNumber, insertedCount.get(), 
+					updatedCount.get()));
+		}
+	}
+
+	/**
+	 * Adds the inserted and updated counts of a bulk write result.  Unacknowledged writes report 
+	 *   no counts, so all of their successful documents are assumed to be inserted.
+	 */
+	private void count(BulkWriteResult result, int successful){
+		if (result == null || !result.isAcknowledged()) {
+			insertedCount.addAndGet(successful);
+			return;
+		}
+		insertedCount.addAndGet(result.getInsertedCount() + result.getUpserts().size());
+		updatedCount.addAndGet(result.getMatchedCount());
+	}
+
+	private void checkFailure() throws DataImportException {
+		DataImportException e = failure.get();
+		if (e != null) throw e;
+	}
+
+	public DBCollection getCollection() {
+		return collection;
+	}
+
+	public int getBatchSize() {
+		return batchSize;
+	}
+
+	public MongoBulkLoader setBatchSize(int batchSize) {
+		this.batchSize = batchSize;
+		return this;
+	}
+
+	public int getThreads() {
+		return threads;
+	}
+
+	public MongoBulkLoader setThreads(int threads) {
+		this.threads = threads;
+		return this;
+	}
+
+	public WriteConcern getWriteConcern() {
+		return writeConcern;
+	}
+
+	public MongoBulkLoader setWriteConcern(WriteConcern writeConcern) {
+		this.writeConcern = writeConcern;
+		return this;
+	}
+
+	public boolean isStopOnError() {
+		return stopOnError;
+	}
+
+	public MongoBulkLoader setStopOnError(boolean stopOnError) {
+		this.stopOnError = stopOnError;
+		return this;
+	}
+
+	public boolean isUpsertRecords() {
+		return upsertRecords;
+	}
+
+	/**
+	 * If set, documents with an {@code _id} replace any existing document with the same ID, rather 
+	 *   than failing as duplicates.
+	 */
+	public MongoBulkLoader setUpsertRecords(boolean upsertRecords) {
+		this.upsertRecords = upsertRecords;
+		return this;
+	}
+
+	public boolean isRunning() {
+		return executor != null;
+	}
+
+	public long getBatchCount() {
+		return batchCount.get();
+	}
+
+	public long getInsertedCount() {
+		return insertedCount.get();
+	}
+
+	public long getUpdatedCount() {
+		return updatedCount.get();
+	}
+
+	public long getDuplicateCount() {
+		return duplicateCount.get();
+	}
+
+	public long getFailedCount() {
+		return failedCount.get();
+	}
+	
+}
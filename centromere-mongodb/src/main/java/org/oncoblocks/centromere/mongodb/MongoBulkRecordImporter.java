@@ -0,0 +1,316 @@
+/*
+ * Copyright 2016 William Oemler, Blueprint Medicines
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.oncoblocks.centromere.mongodb;
+
+import com.mongodb.DBObject;
+import com.mongodb.WriteConcern;
+import com.mongodb.util.JSON;
+import org.oncoblocks.centromere.core.dataimport.DataImportException;
+import org.oncoblocks.centromere.core.dataimport.DropCollectionSupport;
+import org.oncoblocks.centromere.core.dataimport.StreamingRecordImporter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.mongodb.core.MongoTemplate;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Implementation of {@link StreamingRecordImporter} that loads the JSON temp files created by 
+ *   {@link MongoImportTempFileWriter} using the Java driver's bulk write API, via a 
+ *   {@link MongoBulkLoader}, rather than a MongoImport subprocess.  Streaming imports parse records
+ *   as they are written to the returned stream, on the writing thread, and hand them off to the 
+ *   loader's writer threads in batches.
+ * 
+ * @author woemler
+ */
+public class MongoBulkRecordImporter implements StreamingRecordImporter, DropCollectionSupport {
+	
+	private final MongoTemplate mongoTemplate;
+	private final String collection;
+	private final MongoBulkLoader loader;
+	private boolean dropCollection = false;
+	private DocumentOutputStream streamingOutput;
+
+	private final static Logger logger = LoggerFactory.getLogger(MongoBulkRecordImporter.class);
+
+	public MongoBulkRecordImporter(MongoTemplate mongoTemplate, String collection) {
+		this.mongoTemplate = mongoTemplate;
+		this.collection = collection;
+		this.loader = new MongoBulkLoader(mongoTemplate.getCollection(collection));
+	}
+
+	/**
+	 * Loads every JSON record in the temp file, one record per line.
+	 * 
+	 * @param filePath
+	 * @throws DataImportException
+	 */
+	public void importFile(String filePath) throws DataImportException {
+		logger.debug(String.format("[CENTROMERE] Bulk importing file to MongoDB: %s", filePath));
+		this.start();
+		BufferedReader reader = null;
+		try {
+			reader = new BufferedReader(new InputStreamReader(new FileInputStream(filePath), 
+					StandardCharsets.UTF_8), 64 * 1024);
+			String line = reader.readLine();
+			while (line != null){
+				this.addLine(line);
+				line = reader.readLine();
+			}
+			loader.finish();
+		} catch (IOException e){
+			e.printStackTrace();
+			loader.cancel();
+			throw new DataImportException(String.format("Cannot read temp file: %s", filePath));
+		} catch (DataImportException e){
+			loader.cancel();
+			throw e;
+		} finally {
+			try {
+				if (reader != null) reader.close();
+			} catch (IOException e){
+				logger.debug(e.getMessage());
+			}
+		}
+		logger.debug(String.format("[CENTROMERE] Bulk import complete: %s", filePath));
+	}
+
+	/**
+	 * Starts a bulk load that reads JSON records from the returned stream, one record per line.
+	 * 
+	 * @return stream to write records to.
+	 * @throws DataImportException
+	 */
+	public OutputStream startStreamingImport() throws DataImportException {
+		if (streamingOutput != null) {
+			throw new DataImportException("A streaming import is already in progress.");
+		}
+		logger.debug(String.format("[CENTROMERE] Streaming records to MongoDB collection: %s", collection));
+		this.start();
+		streamingOutput = new DocumentOutputStream();
+		return streamingOutput;
+	}
+
+	/**
+	 * Loads any remaining records and waits for all bulk writes to complete, after the input 
+	 *   stream has been closed.
+	 * 
+	 * @throws DataImportException if the bulk load failed.
+	 */
+	public void finishStreamingImport() throws DataImportException {
+		if (streamingOutput == null) {
+			throw new DataImportException("No streaming import is in progress.");
+		}
+		DocumentOutputStream output = streamingOutput;
+		streamingOutput = null;
+		try {
+			output.close();
+			loader.finish();
+		} catch (IOException e){
+			loader.cancel();
+			if (e.getCause() instanceof DataImportException) throw (DataImportException) e.getCause();
+			e.printStackTrace();
+			throw new DataImportException(e.getMessage());
+		} catch (DataImportException e){
+			loader.cancel();
+			throw e;
+		}
+		logger.debug(String.format("[CENTROMERE] Bulk import stream complete: %s", collection));
+	}
+	
+	/**
+	 * Cancels the bulk load without loading the records that are still buffered.  MongoDB writes 
+	 *   are not transactional, so batches that have already been written remain.
+	 */
+	public void abortStreamingImport() {
+		if (streamingOutput == null) return;
+		streamingOutput.closed = true;
+		streamingOutput = null;
+		loader.cancel();
+		logger.warn(String.format("[CENTROMERE] Bulk import stream aborted: %s", collection));
+	}
+	
+	private void start() throws DataImportException {
+		if (dropCollection) this.dropCollection(null);
+		loader.start();
+	}
+
+	/**
+	 * {@link DropCollectionSupport#dropCollection(String)}
+	 */
+	@Override 
+	public void dropCollection(String filePath) {
+		logger.debug(String.format("[CENTROMERE] Dropping MongoDB collection: %s", collection));
+		mongoTemplate.dropCollection(collection);
+	}
+
+	/**
+	 * Parses a single line of JSON and adds it to the bulk load.  Blank lines are skipped.
+	 */
+	private void addLine(String line) throws DataImportException {
+		if (line.trim().isEmpty()) return;
+		Object parsed;
+		try {
+			parsed = JSON.parse(line);
+		} catch (RuntimeException e){
+			loader.reject(String.format("Cannot parse JSON record: %s", e.getMessage()));
+			return;
+		}
+		if (parsed instanceof DBObject) {
+			loader.add((DBObject) parsed);
+		} else {
+			loader.reject(String.format("JSON record is not a document: %s", line));
+		}
+	}
+
+	public MongoBulkRecordImporter setStopOnError(boolean stopOnError) {
+		loader.setStopOnError(stopOnError);
+		return this;
+	}
+
+	public MongoBulkRecordImporter setUpsertRecords(boolean upsertRecords) {
+		loader.setUpsertRecords(upsertRecords);
+		return this;
+	}
+
+	@Override 
+	public MongoBulkRecordImporter setDropCollection(boolean dropCollection) {
+		this.dropCollection = dropCollection;
+		return this;
+	}
+
+	@Override 
+	public boolean isDropCollection() {
+		return dropCollection;
+	}
+
+	public MongoBulkRecordImporter setBatchSize(int batchSize) {
+		loader.setBatchSize(batchSize);
+		return this;
+	}
+
+	public MongoBulkRecordImporter setThreads(int threads) {
+		loader.setThreads(threads);
+		return this;
+	}
+
+	public MongoBulkRecordImporter setWriteConcern(WriteConcern writeConcern) {
+		loader.setWriteConcern(writeConcern);
+		return this;
+	}
+
+	/**
+	 * Returns the loader, for access to the inserted, duplicate and failed record counts of the 
+	 *   most recent import.
+	 */
+	public MongoBulkLoader getLoader() {
+		return loader;
+	}
+
+	public String getCollection() {
+		return collection;
+	}
+
+	/**
+	 * To be executed before the main component method is first called.  Can be configured to handle
+	 * a variety of tasks using flexible input parameters.
+	 *
+	 * @param args an array of objects of any type.
+	 * @throws DataImportException
+	 */
+	@Override 
+	public void doBefore(Object... args) throws DataImportException {
+		
+	}
+
+	/**
+	 * To be executed after the main component method is called for the last time.  Can be configured
+	 * to handle a variety of tasks using flexible input parameters.
+	 *
+	 * @param args an array of objects of any type.
+	 * @throws DataImportException
+	 */
+	@Override 
+	public void doAfter(Object... args) throws DataImportException {
+
+	}
+
+	/**
+	 * Splits written bytes into lines, and adds each line to the bulk load as it is completed.  
+	 *   Load failures are rethrown as {@link IOException}s, with the original exception as the cause.
+	 */
+	private class DocumentOutputStream extends OutputStream {
+		
+		private byte[] line = new byte[4096];
+		private int length = 0;
+		private boolean closed = false;
+
+		@Override 
+		public void write(int b) throws IOException {
+			if (b == '\n') {
+				this.endLine();
+			} else {
+				if (length == line.length) line = Arrays.copyOf(line, line.length * 2);
+				line[length++] = (byte) b;
+			}
+		}
+
+		@Override 
+		public void write(byte[] bytes, int offset, int count) throws IOException {
+			int start = offset;
+			int end = offset + count;
+			for (int i = offset; i < end; i++){
+				if (bytes[i] == '\n') {
+					this.append(bytes, start, i - start);
+					this.endLine();
+					start = i + 1;
+				}
+			}
+			this.append(bytes, start, end - start);
+		}
+		
+		private void append(byte[] bytes, int offset, int count){
+			if (length + count > line.length) {
+				line = Arrays.copyOf(line, Math.max(line.length * 2, length + count));
+			}
+			System.arraycopy(bytes, offset, line, length, count);
+			length += count;
+		}
+
+		private void endLine() throws IOException {
+			if (closed) throw new IOException("Stream is closed.");
+			String text = new String(line, 0, length, StandardCharsets.UTF_8);
+			length = 0;
+			try {
+				addLine(text);
+			} catch (DataImportException e){
+				throw new IOException(e.getMessage(), e);
+			}
+		}
+
+		@Override 
+		public void close() throws IOException {
+			if (closed) return;
+			if (length > 0) this.endLine();
+			closed = true;
+		}
+		
+	}
+	
+}
@@ -0,0 +1,126 @@
+/*
+ * Copyright 2016 William Oemler, Blueprint Medicines
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.oncoblocks.centromere.mongodb;
+
+import com.mongodb.WriteConcern;
+import org.oncoblocks.centromere.core.dataimport.DataImportException;
+import org.oncoblocks.centromere.core.dataimport.AbortableRecordWriter;
+import org.oncoblocks.centromere.core.model.Model;
+import org.springframework.data.mongodb.core.MongoTemplate;
+
+/**
+ * Implementation of {@link AbortableRecordWriter} that converts {@link Model} records directly into 
+ *   documents and loads them with a {@link MongoBulkLoader}, with no temp file or JSON 
+ *   serialization.  The bulk load is started by {@link #doBefore(Object...)}, and completed by 
+ *   {@link #doAfter(Object...)}, which will throw any errors that halted the load, or cancelled by
+ *   {@link #abort()} if the import fails first.
+ * 
+ * @author woemler
+ */
+public class MongoBulkRecordWriter<T extends Model<?>> implements AbortableRecordWriter<T> {
+	
+	private final ImportUtils importUtils;
+	private final MongoBulkLoader loader;
+
+	public MongoBulkRecordWriter(MongoTemplate mongoTemplate, String collection) {
+		this.importUtils = new ImportUtils(mongoTemplate);
+		this.loader = new MongoBulkLoader(mongoTemplate.getCollection(collection));
+	}
+
+	public MongoBulkRecordWriter(MongoTemplate mongoTemplate, Class<T> model){
+		this(mongoTemplate, mongoTemplate.getCollectionName(model));
+	}
+
+	/**
+	 * Converts the record into a document and adds it to the bulk load.
+	 * 
+	 * @param record
+	 * @throws DataImportException
+	 */
+	public void writeRecord(T record) throws DataImportException {
+		loader.add(importUtils.convertEntityToDBObject(record));
+	}
+
+	/**
+	 * Starts the bulk load, abandoning any load left unfinished by an earlier failure.
+	 * 
+	 * @param args
+	 * @throws DataImportException
+	 */
+	public void doBefore(Object... args) throws DataImportException {
+		loader.cancel();
+		loader.start();
+	}
+
+	/**
+	 * Writes any remaining records and waits for the bulk load to complete.
+	 * 
+	 * @param args
+	 * @throws DataImportException
+	 */
+	public void doAfter(Object... args) throws DataImportException {
+		try {
+			loader.finish();
+		} catch (DataImportException e){
+			loader.cancel();
+			throw e;
+		}
+	}
+
+	/**
+	 * Cancels the bulk load after a failed import, discarding buffered records and stopping the 
+	 *   writer threads.
+	 */
+	@Override 
+	public void abort() {
+		loader.cancel();
+	}
+
+	public MongoBulkRecordWriter<T> setStopOnError(boolean stopOnError) {
+		loader.setStopOnError(stopOnError);
+		return this;
+	}
+
+	public MongoBulkRecordWriter<T> setUpsertRecords(boolean upsertRecords) {
+		loader.setUpsertRecords(upsertRecords);
+		return this;
+	}
+
+	public MongoBulkRecordWriter<T> setBatchSize(int batchSize) {
+		loader.setBatchSize(batchSize);
+		return this;
+	}
+
+	public MongoBulkRecordWriter<T> setThreads(int threads) {
+		loader.setThreads(threads);
+		return this;
+	}
+
+	public MongoBulkRecordWriter<T> setWriteConcern(WriteConcern writeConcern) {
+		loader.setWriteConcern(writeConcern);
+		return this;
+	}
+
+	/**
+	 * Returns the loader, for access to the inserted, duplicate and failed record counts of the 
+	 *   most recent load.
+	 */
+	public MongoBulkLoader getLoader() {
+		return loader;
+	}
+	
+}
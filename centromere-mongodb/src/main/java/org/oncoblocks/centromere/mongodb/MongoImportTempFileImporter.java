@@ -18,26 +18,30 @@ package org.oncoblocks.centromere.mongodb;
 
 import org.oncoblocks.centromere.core.dataimport.DataImportException;
 import org.oncoblocks.centromere.core.dataimport.DatabaseCredentials;
+import org.oncoblocks.centromere.core.dataimport.DropCollectionSupport;
+import org.oncoblocks.centromere.core.dataimport.ImportProcess;
 import org.oncoblocks.centromere.core.dataimport.RecordImporter;
+import org.oncoblocks.centromere.core.dataimport.StreamingRecordImporter;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.io.BufferedReader;
-import java.io.InputStreamReader;
+import java.io.OutputStream;
 
 /**
  * Implementation of {@link RecordImporter} that uses MongoImport to load JSON data directly into
- *   a MongoDB collection.
+ *   a MongoDB collection.  Also supports streaming import, where records are piped into the 
+ *   standard input of a running MongoImport process, rather than written to a temp file first.
  * 
  * @author woemler
  */
-public class MongoImportTempFileImporter implements RecordImporter {
+public class MongoImportTempFileImporter implements StreamingRecordImporter, DropCollectionSupport {
 
 	private final DatabaseCredentials credentials;
 	private final String collection;
 	private boolean stopOnError = true;
 	private boolean upsertRecords = false;
 	private boolean dropCollection = false;
+	private ImportProcess streamingProcess;
 
 	private final static Logger logger = LoggerFactory.getLogger(MongoImportTempFileImporter.class);
 
@@ -53,63 +57,106 @@ public class MongoImportTempFileImporter implements RecordImporter {
 	 * @throws DataImportException
 	 */
 	public void importFile(String filePath) throws DataImportException {
-
-		Process process;
-		String[] commands = new String[]{ "/bin/bash", "-c", buildImportCommand(filePath) }; // TODO: Support for Windows and other shells
+		logger.debug(String.format("[CENTROMERE] Importing file to MongoDB: %s", filePath));
+		ImportProcess process = this.startProcess(filePath, dropCollection);
 		try {
+			process.getInputStream().close();
+		} catch (Exception e){
+			logger.debug(e.getMessage());
+		}
+		this.waitForProcess(process, filePath);
+		logger.debug(String.format("CENTROMERE: MongoImport complete: %s", filePath));
+	}
 
-			logger.debug(String.format("[CENTROMERE] Importing file to MongoDB: %s", filePath));
-			for (String cmd: commands) {
-				logger.debug(cmd);
-			}
-			process = Runtime.getRuntime().exec(commands);
+	/**
+	 * Starts a MongoImport process that reads JSON records from its standard input.
+	 * 
+	 * @return the standard input stream of the MongoImport process.
+	 * @throws DataImportException
+	 */
+	public OutputStream startStreamingImport() throws DataImportException {
+		if (streamingProcess != null) {
+			throw new DataImportException("A streaming import is already in progress.");
+		}
+		logger.debug(String.format("[CENTROMERE] Streaming records to MongoDB collection: %s", collection));
+		streamingProcess = this.startProcess(null, dropCollection);
+		return streamingProcess.getInputStream();
+	}
 
+	/**
+	 * Waits for the streaming MongoImport process to exit, after its input has been closed.
+	 * 
+	 * @throws DataImportException if MongoImport exits with an error.
+	 */
+	public void finishStreamingImport() throws DataImportException {
+		if (streamingProcess == null) {
+			throw new DataImportException("No streaming import is in progress.");
+		}
+		ImportProcess process = streamingProcess;
+		streamingProcess = null;
+		this.waitForProcess(process, "<stdin>");
+		logger.debug(String.format("CENTROMERE: MongoImport stream complete: %s", collection));
+	}
 
-			BufferedReader stdIn = new BufferedReader(new InputStreamReader(process.getInputStream()));
-			StringBuilder outputBuilder = new StringBuilder();
-			String line = stdIn.readLine();
-			while (line != null){
-				logger.debug(line);
-				outputBuilder.append(line);
-				line = stdIn.readLine();
-			}
-			stdIn.close();
-
-			BufferedReader stdErr = new BufferedReader(new InputStreamReader(process.getErrorStream()));
-			StringBuilder errorBuilder = new StringBuilder();
-			line = stdErr.readLine();
-			while (line != null){
-				logger.debug(line);
-				errorBuilder.append(line);
-				line = stdErr.readLine();
-			}
-			stdErr.close();
+	/**
+	 * Kills the streaming MongoImport process before its input is closed, so that it does not 
+	 *   import the records still in its input.  MongoImport inserts in batches, without 
+	 *   transactions, so batches it has already inserted remain.
+	 */
+	public void abortStreamingImport() {
+		if (streamingProcess == null) return;
+		ImportProcess process = streamingProcess;
+		streamingProcess = null;
+		process.destroy();
+		logger.warn(String.format("[CENTROMERE] MongoImport stream aborted: %s", collection));
+	}
 
-			process.waitFor();
+	/**
+	 * Drops the collection by running MongoImport with {@code --drop} and no input.
+	 * 
+	 * @param filePath not used.
+	 * @throws DataImportException
+	 */
+	@Override 
+	public void dropCollection(String filePath) throws DataImportException {
+		logger.debug(String.format("[CENTROMERE] Dropping MongoDB collection: %s", collection));
+		ImportProcess process = this.startProcess(null, true);
+		try {
+			process.getInputStream().close();
+		} catch (Exception e){
+			logger.debug(e.getMessage());
+		}
+		this.waitForProcess(process, "<drop>");
+	}
 
-			Integer exitValue = process.exitValue();
-			if (exitValue != 0){
-				throw new DataImportException(String.format("MongoImport failure for temp file: %s \n%s",
-						filePath, errorBuilder.toString()));
-			}
+	private ImportProcess startProcess(String filePath, boolean drop) throws DataImportException {
+		String[] commands = new String[]{ "/bin/bash", "-c", buildImportCommand(filePath, drop) }; // TODO: Support for Windows and other shells
+		for (String cmd: commands) {
+			logger.debug(cmd);
+		}
+		return ImportProcess.start(commands);
+	}
 
-		} catch (Exception e){
-			e.printStackTrace();
-			throw new DataImportException(String.format("Unable to import temp file: %s", filePath));
+	private void waitForProcess(ImportProcess process, String source) throws DataImportException {
+		int exitValue = process.waitFor();
+		if (exitValue != 0){
+			throw new DataImportException(String.format("MongoImport failure for temp file: %s \n%s",
+					source, process.getErrorOutput()));
 		}
-		logger.debug(String.format("CENTROMERE: MongoImport complete: %s", filePath));
 	}
 
 	/**
-	 * Creates the command string for the import, based upon parametrization.
+	 * Creates the command string for the import, based upon parametrization.  If no file path is 
+	 *   given, MongoImport will read from standard input.
 	 * 
 	 * @param filePath
+	 * @param drop whether the collection should be dropped first.
 	 * @return
 	 */
-	private String buildImportCommand(String filePath){
+	private String buildImportCommand(String filePath, boolean drop){
 		StringBuilder sb = new StringBuilder("mongoimport ");
 		if (stopOnError) sb.append(" --stopOnError ");
-		if (dropCollection) sb.append(" --drop ");
+		if (drop) sb.append(" --drop ");
 		if (upsertRecords) sb.append(" --upsert ");
 		if (credentials.getUsername() != null) {
 			sb.append(String.format(" --username %s ", credentials.getUsername()));
@@ -128,7 +175,7 @@ public class MongoImportTempFileImporter implements RecordImporter {
 		}
 		sb.append(String.format(" --db %s ", credentials.getDatabase()));
 		sb.append(String.format(" --collection %s ", collection));
-		sb.append(String.format(" --file %s ", filePath));
+		if (filePath != null) sb.append(String.format(" --file %s ", filePath));
 		return sb.toString();
 	}
 
@@ -142,11 +189,17 @@ public class MongoImportTempFileImporter implements RecordImporter {
 		return this;
 	}
 
+	@Override 
 	public MongoImportTempFileImporter setDropCollection(boolean dropCollection) {
 		this.dropCollection = dropCollection;
 		return this;
 	}
 
+	@Override 
+	public boolean isDropCollection() {
+		return dropCollection;
+	}
+
 	/**
 	 * To be executed before the main component method is first called.  Can be configured to handle
 	 * a variety of tasks using flexible input parameters.
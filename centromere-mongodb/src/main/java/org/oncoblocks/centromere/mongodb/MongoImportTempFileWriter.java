@@ -22,8 +22,8 @@ import org.oncoblocks.centromere.core.dataimport.AbstractRecordFileWriter;
 import org.oncoblocks.centromere.core.model.Model;
 import org.springframework.data.mongodb.core.MongoTemplate;
 
-import java.io.FileWriter;
 import java.io.IOException;
+import java.io.Writer;
 
 /**
  * Implementation of {@link RecordWriter} that 
@@ -51,7 +51,7 @@ public class MongoImportTempFileWriter<T extends Model<?>> extends AbstractRecor
 	 * @throws DataImportException
 	 */
 	public void writeRecord(T record) throws DataImportException {
-		FileWriter writer = this.getWriter();
+		Writer writer = this.getOutputWriter();
 		try {
 			writer.write(importUtils.convertEntityToJson(record));
 			writer.write("\n");
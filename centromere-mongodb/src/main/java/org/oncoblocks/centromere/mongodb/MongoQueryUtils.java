@@ -16,7 +16,9 @@
 
 package org.oncoblocks.centromere.mongodb;
 
+import org.oncoblocks.centromere.core.repository.KeysetPageRequest;
 import org.oncoblocks.centromere.core.repository.QueryCriteria;
+import org.springframework.data.domain.Sort;
 import org.springframework.data.mongodb.core.query.Criteria;
 import org.springframework.data.mongodb.core.query.Query;
 
@@ -117,5 +119,57 @@ public class MongoQueryUtils {
 		return criteriaList.size() > 0 ?
 				new Criteria().andOperator(criteriaList.toArray(new Criteria[]{})) : null;
 	}
+
+	/**
+	 * Creates the criteria that select the records following a keyset position: those where the
+	 *   first sort field is past its value, or is equal to it and the second field is past its 
+	 *   value, and so on.  Each field is compared in the direction of its sort order.
+	 * 
+	 * @param seekSort sort returned by {@link KeysetPageRequest#getSeekSort(String...)}.
+	 * @param values sort values of the last record seen.
+	 * @return {@link Criteria} selecting the following records.
+	 */
+	public static Criteria getSeekCriteria(Sort seekSort, List<Object> values){
+		List<Criteria> branches = new ArrayList<>();
+		List<Sort.Order> orders = new ArrayList<>();
+		for (Sort.Order order: seekSort){
+			orders.add(order);
+		}
+		for (int i = 0; i < orders.size(); i++){
+			List<Criteria> terms = new ArrayList<>();
+			for (int j = 0; j < i; j++){
+				terms.add(Criteria.where(orders.get(j).getProperty()).is(values.get(j)));
+			}
+			Sort.Order order = orders.get(i);
+			terms.add(order.isAscending() ? Criteria.where(order.getProperty()).gt(values.get(i))
+					: Criteria.where(order.getProperty()).lt(values.get(i)));
+			branches.add(new Criteria().andOperator(terms.toArray(new Criteria[]{})));
+		}
+		return new Criteria().orOperator(branches.toArray(new Criteria[]{}));
+	}
+
+	/**
+	 * Creates a query for a page of records using keyset pagination, fetching one more record than
+	 *   the page size, to detect whether a next page exists.
+	 * 
+	 * @param queryCriterias query parameters.
+	 * @param pageRequest {@link KeysetPageRequest}
+	 * @param seekSort sort returned by {@link KeysetPageRequest#getSeekSort(String...)}.
+	 * @return {@link Query}
+	 */
+	public static Query getKeysetQuery(Iterable<QueryCriteria> queryCriterias, 
+			KeysetPageRequest pageRequest, Sort seekSort){
+		Criteria criteria = getQueryFromQueryCriteria(queryCriterias);
+		List<Object> values = pageRequest.getKeyValues(seekSort);
+		if (values != null){
+			Criteria seek = getSeekCriteria(seekSort, values);
+			criteria = criteria == null ? seek : new Criteria().andOperator(criteria, seek);
+		}
+		Query query = new Query();
+		if (criteria != null){
+			query.addCriteria(criteria);
+		}
+		return query.with(seekSort).limit(pageRequest.getSize() + 1);
+	}
 	
 }
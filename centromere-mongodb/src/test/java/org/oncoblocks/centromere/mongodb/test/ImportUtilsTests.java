@@ -0,0 +1,142 @@
+/*
+ * Copyright 2016 William Oemler, Blueprint Medicines
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.oncoblocks.centromere.mongodb.test;
+
+import com.mongodb.DBCollection;
+import com.mongodb.DBObject;
+import com.mongodb.DefaultDBDecoder;
+import com.mongodb.MongoClient;
+import com.mongodb.util.JSON;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.oncoblocks.centromere.mongodb.ImportUtils;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.SimpleMongoDbFactory;
+import org.springframework.util.Assert;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Tests entity conversion without a running database; the client never connects.
+ * 
+ * @author woemler
+ */
+public class ImportUtilsTests {
+	
+	private MongoClient mongoClient;
+	private ImportUtils importUtils;
+	
+	@Before
+	public void setup() throws Exception {
+		mongoClient = new MongoClient();
+		importUtils = new ImportUtils(new MongoTemplate(new SimpleMongoDbFactory(mongoClient, "centromere-test")));
+	}
+	
+	@After
+	public void teardown(){
+		mongoClient.close();
+	}
+	
+	@Test
+	public void documentConversionTest() throws Exception {
+		EntrezGene gene = EntrezGene.createDummyData().get(0);
+		DBObject document = importUtils.convertEntityToDBObject(gene);
+		Assert.isTrue(!document.containsField("_class"));
+		Assert.isTrue(document.get("_id").equals(1L));
+		Assert.isTrue("GeneA".equals(document.get("primaryGeneSymbol")));
+		Assert.isTrue(((List) document.get("attributes")).size() == 1);
+		
+		gene.setEntrezGeneId(null);
+		DBObject noId = importUtils.convertEntityToDBObject(gene);
+		Assert.isTrue(!noId.containsField("_id"));
+		Assert.isTrue(!noId.containsField("_class"));
+		Assert.isTrue(noId != document);
+		Assert.isTrue(document.get("_id").equals(1L), "Returned documents should not be reused.");
+		
+		// The type hint and null ID are dropped as they are put, other keys are kept
+		noId.put("_id", null);
+		Assert.isTrue(!noId.containsField("_id"));
+		noId.put("_class", EntrezGene.class.getName());
+		Assert.isTrue(!noId.containsField("_class"));
+		noId.put("_id", 5L);
+		Assert.isTrue(noId.get("_id").equals(5L));
+	}
+	
+	@Test
+	public void reusedBufferTest() throws Exception {
+		List<EntrezGene> genes = EntrezGene.createDummyData();
+		EntrezGene first = genes.get(0);
+		EntrezGene sparse = new EntrezGene(100L, "GeneZ", null, null, null, null, null, null, null, null, null);
+		
+		DBObject json = (DBObject) JSON.parse(importUtils.convertEntityToJson(first));
+		Assert.isTrue(json.get("_id").equals(1L) || json.get("_id").equals(1));
+		Assert.isTrue("Test Gene A".equals(json.get("description")));
+		Assert.isTrue(!json.containsField("_class"));
+		
+		json = (DBObject) JSON.parse(importUtils.convertEntityToJson(sparse));
+		Assert.isTrue(json.keySet().equals(new HashSet<>(Arrays.asList("_id", "primaryGeneSymbol"))), 
+				"Fields from the previous conversion should not be carried over: " + json.toString());
+		
+		byte[] bson = importUtils.convertEntityToBson(first);
+		byte[] sparseBson = importUtils.convertEntityToBson(sparse);
+		DBObject decoded = new DefaultDBDecoder().decode(bson, (DBCollection) null);
+		Assert.isTrue(decoded.get("_id").equals(1L));
+		Assert.isTrue("GeneA".equals(decoded.get("primaryGeneSymbol")));
+		Assert.isTrue(!decoded.containsField("_class"));
+		decoded = new DefaultDBDecoder().decode(sparseBson, (DBCollection) null);
+		Assert.isTrue(decoded.keySet().equals(new HashSet<>(Arrays.asList("_id", "primaryGeneSymbol"))));
+		Assert.isTrue(Arrays.equals(bson, importUtils.convertEntityToBson(first)));
+	}
+	
+	@Test
+	public void concurrentConversionTest() throws Exception {
+		final List<EntrezGene> genes = EntrezGene.createDummyData();
+		final Map<Long, String> expected = new HashMap<>();
+		for (EntrezGene gene: genes){
+			expected.put(gene.getEntrezGeneId(), importUtils.convertEntityToJson(gene));
+		}
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		try {
+			List<Future<Boolean>> futures = new ArrayList<>();
+			for (int t = 0; t < 4; t++){
+				final int offset = t;
+				futures.add(executor.submit(new Callable<Boolean>() {
+					@Override 
+					public Boolean call() throws Exception {
+						for (int i = 0; i < 2000; i++){
+							EntrezGene gene = genes.get((i + offset) % genes.size());
+							if (!expected.get(gene.getEntrezGeneId()).equals(importUtils.convertEntityToJson(gene))) {
+								return false;
+							}
+							DBObject document = new DefaultDBDecoder().decode(importUtils.convertEntityToBson(gene), (DBCollection) null);
+							if (!gene.getEntrezGeneId().equals(document.get("_id"))) return false;
+						}
+						return true;
+					}
+				}));
+			}
+			for (Future<Boolean> future: futures){
+				Assert.isTrue(future.get(60, TimeUnit.SECONDS), "Concurrent conversions should not share buffers.");
+			}
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+	
+}
@@ -23,6 +23,10 @@ import org.junit.Test;
 import org.junit.rules.TemporaryFolder;
 import org.junit.runner.RunWith;
 import org.oncoblocks.centromere.core.dataimport.RepositoryRecordWriter;
+import org.oncoblocks.centromere.mongodb.MongoBsonRecordImporter;
+import org.oncoblocks.centromere.mongodb.MongoBsonTempFileWriter;
+import org.oncoblocks.centromere.mongodb.MongoBulkRecordImporter;
+import org.oncoblocks.centromere.mongodb.MongoBulkRecordWriter;
 import org.oncoblocks.centromere.mongodb.MongoCredentials;
 import org.oncoblocks.centromere.mongodb.MongoImportTempFileImporter;
 import org.oncoblocks.centromere.mongodb.MongoImportTempFileWriter;
@@ -154,4 +158,67 @@ public class MongoImportTests {
 		Assert.notEmpty(genes);
 	}
 	
+	@Test
+	public void bulkImportTest() throws Exception {
+		this.tempWriterTest();
+		repository.deleteAll();
+		MongoBulkRecordImporter importer = new MongoBulkRecordImporter(mongoTemplate, "genes")
+				.setBatchSize(2)
+				.setThreads(2);
+		importer.importFile(tempFile.getAbsolutePath());
+		Assert.isTrue(importer.getLoader().getInsertedCount() == 5);
+		Assert.isTrue(importer.getLoader().getBatchCount() == 3);
+		Assert.isTrue(repository.count() == 5);
+		
+		Exception exception = null;
+		try {
+			importer.importFile(tempFile.getAbsolutePath());
+		} catch (Exception e){
+			exception = e;
+		}
+		Assert.notNull(exception);
+		
+		importer.setStopOnError(false);
+		importer.importFile(tempFile.getAbsolutePath());
+		Assert.isTrue(importer.getLoader().getInsertedCount() == 0);
+		Assert.isTrue(importer.getLoader().getDuplicateCount() == 5);
+		Assert.isTrue(importer.getLoader().getFailedCount() == 0);
+		Assert.isTrue(repository.count() == 5);
+	}
+	
+	@Test
+	public void bulkWriterTest() throws Exception {
+		repository.deleteAll();
+		MongoBulkRecordWriter<EntrezGene> writer = new MongoBulkRecordWriter<>(mongoTemplate, EntrezGene.class)
+				.setBatchSize(2);
+		writer.doBefore();
+		for (EntrezGene gene: genes){
+			writer.writeRecord(gene);
+		}
+		writer.doAfter();
+		Assert.isTrue(writer.getLoader().getInsertedCount() == 5);
+		List<EntrezGene> geneList = repository.findAll();
+		Assert.isTrue(geneList.size() == 5);
+	}
+	
+	@Test
+	public void bsonImportTest() throws Exception {
+		MongoBsonTempFileWriter<EntrezGene> writer = new MongoBsonTempFileWriter<>(mongoTemplate);
+		writer.doBefore(tempFile.getAbsolutePath());
+		for (EntrezGene gene: genes){
+			writer.writeRecord(gene);
+		}
+		writer.doAfter();
+		Assert.isTrue(tempFile.length() > 0);
+		repository.deleteAll();
+		MongoBsonRecordImporter importer = new MongoBsonRecordImporter(mongoTemplate, "genes");
+		importer.importFile(tempFile.getAbsolutePath());
+		Assert.isTrue(importer.getLoader().getInsertedCount() == 5);
+		List<EntrezGene> geneList = repository.findAll();
+		Assert.isTrue(geneList.size() == 5);
+		EntrezGene gene = repository.findOne(1L);
+		Assert.notNull(gene);
+		Assert.isTrue(gene.getPrimaryGeneSymbol().equals(genes.get(0).getPrimaryGeneSymbol()));
+	}
+	
 }
@@ -20,29 +20,46 @@ import com.google.common.reflect.TypeToken;
 import com.nurkiewicz.jdbcrepository.MissingRowUnmapper;
 import com.nurkiewicz.jdbcrepository.RowUnmapper;
 import org.oncoblocks.centromere.core.model.Model;
+import org.oncoblocks.centromere.core.repository.CountCache;
+import org.oncoblocks.centromere.core.repository.CountStrategy;
+import org.oncoblocks.centromere.core.repository.CountedPage;
+import org.oncoblocks.centromere.core.repository.KeysetPage;
+import org.oncoblocks.centromere.core.repository.KeysetPageRequest;
+import org.oncoblocks.centromere.core.repository.KeysetToken;
 import org.oncoblocks.centromere.core.repository.QueryCriteria;
 import org.oncoblocks.centromere.core.repository.RepositoryOperations;
 import org.oncoblocks.centromere.sql.sqlbuilder.ComplexTableDescription;
 import org.oncoblocks.centromere.sql.sqlbuilder.Condition;
+import org.oncoblocks.centromere.sql.sqlbuilder.Conditions;
 import org.oncoblocks.centromere.sql.sqlbuilder.SqlBuilder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.DataAccessException;
 import org.springframework.dao.EmptyResultDataAccessException;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
+import org.springframework.data.util.CloseableIterator;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.jdbc.core.PreparedStatementCreator;
 import org.springframework.jdbc.core.RowMapper;
 import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.JdbcUtils;
 import org.springframework.jdbc.support.KeyHolder;
+import org.springframework.jdbc.support.MetaDataAccessException;
 import org.springframework.util.Assert;
 
 import javax.sql.DataSource;
 import java.io.Serializable;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
+import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 import static org.oncoblocks.centromere.sql.sqlbuilder.SqlBuilder.*;
 
@@ -62,6 +79,12 @@ public class GenericJdbcRepository<T extends Model<ID>, ID extends Serializable>
 	private RowMapper<T> rowMapper;
 	private RowUnmapper<T> rowUnmapper;
 	private final Class<T> model;
+	private int streamFetchSize = 1000;
+	private CountStrategy countStrategy = CountStrategy.EXACT;
+	private CountCache countCache = new CountCache();
+	private String databaseProductName;
+	private static final Pattern PLAN_ROWS_PATTERN = Pattern.compile("rows=(\\d+)");
+	private static final Logger logger = LoggerFactory.getLogger(GenericJdbcRepository.class);
 
 	/**
 	 * Creates a new repository instance using a {@link DataSource} to generate a new 
@@ -240,22 +263,170 @@ public class GenericJdbcRepository<T extends Model<ID>, ID extends Serializable>
 		return jdbcTemplate.query(sqlBuilder.toSql(), sqlBuilder.getQueryParameterValues().toArray(), rowMapper);
 	}
 
+	/**
+	 * {@link RepositoryOperations#stream}
+	 */
+	public CloseableIterator<T> stream(Iterable<QueryCriteria> queryCriterias, Sort sort) {
+		SqlBuilder sqlBuilder = getSqlBuilder();
+		List<Condition> conditionList = new ArrayList<>();
+		for (QueryCriteria criteria: queryCriterias){
+			if (criteria != null) conditionList.add(getConditionFromQueryCriteria(criteria));
+		}
+		sqlBuilder.where(and(conditionList.toArray(new Condition[]{})));
+		if (sort != null) sqlBuilder.orderBy(sort);
+		return new JdbcCursor<>(jdbcTemplate, sqlBuilder.toSql(), 
+				sqlBuilder.getQueryParameterValues().toArray(), rowMapper, streamFetchSize);
+	}
+
 	/**
 	 * {@link RepositoryOperations#findAll}
 	 */
 	public Page<T> find(Iterable<QueryCriteria> queryCriterias, Pageable pageable) {
+		return this.find(queryCriterias, pageable, countStrategy);
+	}
+
+	/**
+	 * {@link RepositoryOperations#find(Iterable, Pageable, CountStrategy)}.  Estimated counts use 
+	 *   the row estimate from the query plan, and are only available for MySQL and PostgreSQL.
+	 */
+	public CountedPage<T> find(final Iterable<QueryCriteria> queryCriterias, Pageable pageable, 
+			CountStrategy countStrategy) {
 		SqlBuilder sqlBuilder = getSqlBuilder();
 		List<Condition> conditionList = new ArrayList<>();
 		for (QueryCriteria criteria: queryCriterias){
 			if (criteria != null) conditionList.add(getConditionFromQueryCriteria(criteria));
 		}
 		sqlBuilder.where(and(conditionList.toArray(new Condition[] {})));
+		String selectWhere = sqlBuilder.toSql();
+		Object[] parameters = sqlBuilder.getQueryParameterValues().toArray();
 		if (pageable.getSort() != null) sqlBuilder.orderBy(pageable.getSort());
+		if (countStrategy == CountStrategy.NONE){
+			sqlBuilder.limit(pageable.getOffset(), pageable.getPageSize() + 1);
+			return CountedPage.withoutCount(jdbcTemplate.query(sqlBuilder.toSql(), parameters, rowMapper), 
+					pageable);
+		}
 		sqlBuilder.limit(pageable);
+		List<T> objects = jdbcTemplate.query(sqlBuilder.toSql(), parameters, rowMapper);
+		if (countStrategy == CountStrategy.ESTIMATED){
+			Long estimate = estimateCount(selectWhere, parameters);
+			if (estimate != null) {
+				return new CountedPage<>(objects, pageable, estimate, CountStrategy.ESTIMATED);
+			}
+		} else if (countStrategy == CountStrategy.CACHED){
+			long rowCount = countCache.get(queryCriterias, new Callable<Long>() {
+				@Override 
+				public Long call() throws Exception {
+					return count(queryCriterias);
+				}
+			});
+			return new CountedPage<>(objects, pageable, rowCount, CountStrategy.CACHED);
+		}
+		return new CountedPage<>(objects, pageable, count(queryCriterias), CountStrategy.EXACT);
+	}
+
+	/**
+	 * Returns the database's estimate of the number of rows returned by a query, taken from its 
+	 *   {@code EXPLAIN} plan: the {@code rows} column of the first table for MySQL, or the 
+	 *   {@code rows} value of the top plan node for PostgreSQL.  Returns null for other databases, 
+	 *   or if the plan cannot be read.  Subclasses may override this to support other databases.
+	 * 
+	 * @param sql query to estimate.
+	 * @param parameters query parameter values.
+	 * @return estimated row count, or null.
+	 */
+	protected Long estimateCount(String sql, Object[] parameters){
+		String product = getDatabaseProductName();
+		try {
+			if ("MySQL".equalsIgnoreCase(product)){
+				List<Map<String, Object>> plan = jdbcTemplate.queryForList("EXPLAIN " + sql, parameters);
+				if (!plan.isEmpty() && plan.get(0).get("rows") instanceof Number) {
+					return ((Number) plan.get(0).get("rows")).longValue();
+				}
+			} else if ("PostgreSQL".equalsIgnoreCase(product)){
+				List<String> plan = jdbcTemplate.queryForList("EXPLAIN " + sql, parameters, String.class);
+				Matcher matcher = PLAN_ROWS_PATTERN.matcher(plan.isEmpty() ? "" : plan.get(0));
+				if (matcher.find()) return Long.parseLong(matcher.group(1));
+			}
+		} catch (DataAccessException e){
+			logger.warn(String.format("[CENTROMERE] Unable to estimate row count: %s", e.getMessage()));
+		}
+		return null;
+	}
+	
+	private String getDatabaseProductName(){
+		if (databaseProductName == null){
+			try {
+				databaseProductName = (String) JdbcUtils.extractDatabaseMetaData(jdbcTemplate.getDataSource(), 
+						"getDatabaseProductName");
+			} catch (MetaDataAccessException e){
+				logger.warn(String.format("[CENTROMERE] Unable to read database metadata: %s", e.getMessage()));
+				databaseProductName = "";
+			}
+		}
+		return databaseProductName;
+	}
+
+	/**
+	 * {@link RepositoryOperations#find(Iterable, KeysetPageRequest)}.  Sort properties and ID 
+	 *   columns are used as-is in the {@code WHERE} and {@code ORDER BY} clauses, and the keyset 
+	 *   values are read from the result set column of the same name, without its table prefix.
+	 */
+	public KeysetPage<T> find(Iterable<QueryCriteria> queryCriterias, KeysetPageRequest pageRequest) {
+		final Sort seekSort = pageRequest.getSeekSort(tableDescription.getIdColumns().toArray(new String[]{}));
+		final int size = pageRequest.getSize();
+		List<Object> values = pageRequest.getKeyValues(seekSort);
+		SqlBuilder sqlBuilder = getSqlBuilder();
+		List<Condition> conditionList = new ArrayList<>();
+		for (QueryCriteria criteria: queryCriterias){
+			if (criteria != null) conditionList.add(getConditionFromQueryCriteria(criteria));
+		}
+		Conditions conditions = and(conditionList.toArray(new Condition[] {}));
+		if (values != null){
+			Conditions seek = getSeekConditions(seekSort, values);
+			conditions = conditionList.isEmpty() ? seek : and(conditions, seek);
+		}
+		sqlBuilder.where(conditions);
+		sqlBuilder.orderBy(seekSort);
+		sqlBuilder.limit(size + 1);
+		final List<Object> lastKey = new ArrayList<>();
 		List<T> objects = jdbcTemplate.query(sqlBuilder.toSql(),
-				sqlBuilder.getQueryParameterValues().toArray(), rowMapper);
-		Long rowCount = count(queryCriterias);
-		return new PageImpl<>(objects, pageable, rowCount);
+				sqlBuilder.getQueryParameterValues().toArray(), new RowMapper<T>() {
+					@Override 
+					public T mapRow(ResultSet resultSet, int i) throws SQLException {
+						if (i == size - 1){
+							for (Sort.Order order: seekSort){
+								String column = order.getProperty();
+								lastKey.add(resultSet.getObject(column.substring(column.lastIndexOf(".") + 1)));
+							}
+						}
+						return rowMapper.mapRow(resultSet, i);
+					}
+				});
+		if (objects.size() <= size) return new KeysetPage<>(objects, null);
+		return new KeysetPage<>(new ArrayList<>(objects.subList(0, size)), KeysetToken.encode(seekSort, lastKey));
+	}
+
+	/**
+	 * Creates the conditions that select the records following a keyset position, comparing each
+	 *   column in the direction of its sort order.
+	 */
+	protected Conditions getSeekConditions(Sort seekSort, List<Object> values){
+		List<Sort.Order> orders = new ArrayList<>();
+		for (Sort.Order order: seekSort){
+			orders.add(order);
+		}
+		List<Conditions> branches = new ArrayList<>();
+		for (int i = 0; i < orders.size(); i++){
+			List<Condition> terms = new ArrayList<>();
+			for (int j = 0; j < i; j++){
+				terms.add(equal(orders.get(j).getProperty(), values.get(j)));
+			}
+			Sort.Order order = orders.get(i);
+			terms.add(order.isAscending() ? greaterThan(order.getProperty(), values.get(i)) 
+					: lessThan(order.getProperty(), values.get(i)));
+			branches.add(and(terms.toArray(new Condition[] {})));
+		}
+		return or(branches.toArray(new Conditions[] {}));
 	}
 
 	/**
@@ -487,6 +658,18 @@ public class GenericJdbcRepository<T extends Model<ID>, ID extends Serializable>
 		return rowUnmapper;
 	}
 
+	public int getStreamFetchSize() {
+		return streamFetchSize;
+	}
+
+	/**
+	 * Sets the JDBC fetch size used by {@link #stream(Iterable, Sort)} cursors.  Use 
+	 *   {@link Integer#MIN_VALUE} to stream rows from MySQL.  Defaults to 1000.
+	 */
+	public void setStreamFetchSize(int streamFetchSize) {
+		this.streamFetchSize = streamFetchSize;
+	}
+
 	/**
 	 * Returns the model class reference.
 	 *
@@ -495,4 +678,28 @@ public class GenericJdbcRepository<T extends Model<ID>, ID extends Serializable>
 	public Class<T> getModel() {
 		return model;
 	}
+
+	public CountStrategy getCountStrategy() {
+		return countStrategy;
+	}
+
+	/**
+	 * Sets the {@link CountStrategy} used by {@link #find(Iterable, Pageable)}.  Defaults to 
+	 *   {@link CountStrategy#EXACT}.
+	 */
+	public void setCountStrategy(CountStrategy countStrategy) {
+		this.countStrategy = countStrategy;
+	}
+
+	public CountCache getCountCache() {
+		return countCache;
+	}
+
+	/**
+	 * Sets the cache used by the {@link CountStrategy#CACHED} strategy, which controls the count 
+	 *   time-to-live.  Defaults to a one minute time-to-live.
+	 */
+	public void setCountCache(CountCache countCache) {
+		this.countCache = countCache;
+	}
 }
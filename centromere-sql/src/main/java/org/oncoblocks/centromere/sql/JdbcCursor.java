@@ -0,0 +1,131 @@
+/*
+ * Copyright 2016 William Oemler, Blueprint Medicines
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.oncoblocks.centromere.sql;
+
+import org.springframework.data.util.CloseableIterator;
+import org.springframework.jdbc.core.ArgumentPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.datasource.DataSourceUtils;
+import org.springframework.jdbc.support.JdbcUtils;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.NoSuchElementException;
+
+/**
+ * {@link CloseableIterator} that maps the rows of an open, forward-only {@link ResultSet} to model
+ *   objects one at a time, so that only the driver's fetch buffer is held in memory.  The 
+ *   connection is obtained through {@link DataSourceUtils}, so it takes part in any active 
+ *   transaction, and is released when the cursor is closed or the last row has been read.  
+ *   Drivers differ in how they honor the fetch size: MySQL Connector/J only streams rows when it is
+ *   {@link Integer#MIN_VALUE}, and PostgreSQL only uses a server-side cursor when auto-commit is 
+ *   off.  SQL exceptions are translated with the {@link JdbcTemplate}'s exception translator.
+ * 
+ * @author woemler
+ */
+public class JdbcCursor<T> implements CloseableIterator<T> {
+	
+	private final JdbcTemplate jdbcTemplate;
+	private final String sql;
+	private final RowMapper<T> rowMapper;
+	private Connection connection;
+	private PreparedStatement statement;
+	private ResultSet resultSet;
+	private boolean fetched = false;
+	private boolean hasRow = false;
+	private boolean closed = false;
+	private int rowNumber = 0;
+
+	/**
+	 * Executes the query and opens the cursor.
+	 * 
+	 * @param jdbcTemplate template supplying the data source and exception translator.
+	 * @param sql query to execute.
+	 * @param parameters query parameter values.
+	 * @param rowMapper maps each row to a model object.
+	 * @param fetchSize number of rows the driver should fetch at a time.
+	 */
+	public JdbcCursor(JdbcTemplate jdbcTemplate, String sql, Object[] parameters, RowMapper<T> rowMapper, 
+			int fetchSize) {
+		this.jdbcTemplate = jdbcTemplate;
+		this.sql = sql;
+		this.rowMapper = rowMapper;
+		DataSource dataSource = jdbcTemplate.getDataSource();
+		connection = DataSourceUtils.getConnection(dataSource);
+		try {
+			statement = connection.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, 
+					ResultSet.CONCUR_READ_ONLY);
+			statement.setFetchSize(fetchSize);
+			new ArgumentPreparedStatementSetter(parameters).setValues(statement);
+			resultSet = statement.executeQuery();
+		} catch (SQLException e){
+			this.close();
+			throw jdbcTemplate.getExceptionTranslator().translate("JdbcCursor", sql, e);
+		}
+	}
+
+	@Override 
+	public boolean hasNext() {
+		if (closed) return false;
+		if (!fetched){
+			try {
+				hasRow = resultSet.next();
+			} catch (SQLException e){
+				this.close();
+				throw jdbcTemplate.getExceptionTranslator().translate("JdbcCursor", sql, e);
+			}
+			fetched = true;
+			if (!hasRow) this.close();
+		}
+		return hasRow;
+	}
+
+	@Override 
+	public T next() {
+		if (!this.hasNext()) throw new NoSuchElementException();
+		fetched = false;
+		try {
+			return rowMapper.mapRow(resultSet, rowNumber++);
+		} catch (SQLException e){
+			this.close();
+			throw jdbcTemplate.getExceptionTranslator().translate("JdbcCursor", sql, e);
+		}
+	}
+
+	@Override 
+	public void remove() {
+		throw new UnsupportedOperationException("Cursors are read-only.");
+	}
+
+	/**
+	 * Closes the result set and statement, and releases the connection.  Safe to call more than once.
+	 */
+	@Override 
+	public void close() {
+		if (closed) return;
+		closed = true;
+		hasRow = false;
+		JdbcUtils.closeResultSet(resultSet);
+		JdbcUtils.closeStatement(statement);
+		DataSourceUtils.releaseConnection(connection, jdbcTemplate.getDataSource());
+	}
+	
+}
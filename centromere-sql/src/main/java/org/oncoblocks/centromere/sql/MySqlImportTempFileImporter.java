@@ -18,17 +18,21 @@ package org.oncoblocks.centromere.sql;
 
 import org.oncoblocks.centromere.core.dataimport.DataImportException;
 import org.oncoblocks.centromere.core.dataimport.DatabaseCredentials;
+import org.oncoblocks.centromere.core.dataimport.DropCollectionSupport;
 import org.oncoblocks.centromere.core.dataimport.RecordImporter;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
 import java.io.InputStreamReader;
+import java.nio.file.Files;
 
 /**
  * @author woemler
  */
-public class MySqlImportTempFileImporter implements RecordImporter {
+public class MySqlImportTempFileImporter implements RecordImporter, DropCollectionSupport {
 
 	private DatabaseCredentials credentials;
 	private boolean stopOnError = true;
@@ -48,12 +52,42 @@ public class MySqlImportTempFileImporter implements RecordImporter {
 
 	@Override
 	public void importFile(String filePath) throws DataImportException {
+		this.runImport(filePath, dropCollection);
+	}
+
+	/**
+	 * Deletes all rows from the table by running mysqlimport with {@code --delete} on an empty file,
+	 *   named after the temp file, since mysqlimport derives the table name from the file name.
+	 * 
+	 * @param filePath temp file that would be imported into the table.
+	 * @throws DataImportException
+	 */
+	@Override 
+	public void dropCollection(String filePath) throws DataImportException {
+		File emptyFile;
+		try {
+			emptyFile = new File(Files.createTempDirectory("centromere-drop").toFile(), 
+					new File(filePath).getName());
+			emptyFile.createNewFile();
+		} catch (IOException e){
+			e.printStackTrace();
+			throw new DataImportException(String.format("Unable to create empty file for table: %s", filePath));
+		}
+		try {
+			this.runImport(emptyFile.getPath(), true);
+		} finally {
+			emptyFile.delete();
+			emptyFile.getParentFile().delete();
+		}
+	}
+
+	private void runImport(String filePath, boolean delete) throws DataImportException {
 
 		Process process;
 
 		StringBuilder sb = new StringBuilder("mysqlimport --local ");
 		if (!stopOnError) sb.append(" --force ");
-		if (dropCollection) sb.append(" --delete ");
+		if (delete) sb.append(" --delete ");
 		if (columns != null) sb.append(String.format(" -c %s ", columns));
 		sb.append(String.format(" -u %s ", credentials.getUsername()));
 		sb.append(String.format(" -p%s ", credentials.getPassword()));
@@ -109,11 +143,17 @@ public class MySqlImportTempFileImporter implements RecordImporter {
 		return this;
 	}
 
+	@Override 
 	public MySqlImportTempFileImporter setDropCollection(boolean dropCollection) {
 		this.dropCollection = dropCollection;
 		return this;
 	}
 
+	@Override 
+	public boolean isDropCollection() {
+		return dropCollection;
+	}
+
 	public void doBefore(Object... args) throws DataImportException {
 		
 	}
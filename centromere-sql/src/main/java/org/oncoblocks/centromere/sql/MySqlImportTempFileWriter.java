@@ -16,20 +16,28 @@
 
 package org.oncoblocks.centromere.sql;
 
-import org.oncoblocks.centromere.core.dataimport.DataImportException;
 import org.oncoblocks.centromere.core.dataimport.AbstractRecordFileWriter;
+import org.oncoblocks.centromere.core.dataimport.DataImportException;
 import org.oncoblocks.centromere.core.model.Model;
 
-import java.io.FileWriter;
 import java.io.IOException;
+import java.io.Writer;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.lang.reflect.Field;
-import java.util.ArrayList;
-import java.util.List;
+import java.lang.reflect.Modifier;
+import java.util.*;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 /**
  * Writes entities to a delimited-text file for import via mysqlimport utility.  It is important 
  *   that the order and type of the fields appearing in the model class match the order and type
- *   of the fields in the target database table.
+ *   of the fields in the target database table.  The columns of each model class are resolved 
+ *   once, into a {@link ColumnPlan} of field getters, and every record is formatted into a reusable
+ *   buffer, so no reflection lookups or regular expressions are needed per record.  Static and 
+ *   synthetic fields are never written.  Not thread-safe.
  * 
  * @author woemler
  */
@@ -40,47 +48,125 @@ public class MySqlImportTempFileWriter<T extends Model<?>> extends AbstractRecor
 	private String escapedBy = "\\\\";
 	private String terminatedBy = "\n";
 	private List<String> ignoredFields = new ArrayList<>();
+	
+	private final Map<Class<?>, ColumnPlan> columnPlans = new HashMap<>();
+	private final StringBuilder line = new StringBuilder(1024);
+	private char[] buffer = new char[1024];
+	private String escapedEnclosure;
 
 	public MySqlImportTempFileWriter() {
 		super();
 	}
 
+	/**
+	 * Opens the output file, and discards any cached column plans, so that changes to the ignored 
+	 *   fields take effect.
+	 * 
+	 * @param args
+	 * @throws DataImportException
+	 */
+	@Override 
+	public void doBefore(Object... args) throws DataImportException {
+		this.reset();
+		super.doBefore(args);
+	}
+
 	@Override 
 	public void writeRecord(T record) throws DataImportException {
-		FileWriter writer = this.getWriter();
-		StringBuilder stringBuilder = new StringBuilder();
+		ColumnPlan plan = this.getColumnPlan(record.getClass());
+		line.setLength(0);
 		try {
-			boolean flag = false;
-			for (Field field : record.getClass().getDeclaredFields()) {
-				if (!ignoredFields.contains(field.getName())) {
-					field.setAccessible(true);
-					Object value = field.get(record) != null ? field.get(record) : null;
-					if (value == null){
-						value = "null";
-					} else if (!"".equals(enclosedBy) && value instanceof String) {
-						value = ((String) value).replaceAll(enclosedBy, escapedBy + enclosedBy);
-					}
-					if (flag)
-						stringBuilder.append(delimiter);
-					stringBuilder.append(enclosedBy)
-							.append(value)
-							.append(enclosedBy);
-					flag = true;
-				}
+			for (int i = 0; i < plan.getters.length; i++){
+				if (i > 0) line.append(delimiter);
+				this.appendValue(plan.getters[i].invokeExact((Object) record));
 			}
-		} catch (IllegalAccessException e){
-			e.printStackTrace();
-			throw new DataImportException(e.getMessage());
+		} catch (Throwable t){
+			t.printStackTrace();
+			throw new DataImportException(String.format("Cannot read field values from record: %s", 
+					t.getMessage()));
 		}
+		line.append(terminatedBy);
+		int length = line.length();
+		if (buffer.length < length){
+			buffer = new char[Math.max(buffer.length * 2, length)];
+		}
+		line.getChars(0, length, buffer, 0);
 		try {
-			writer.write(stringBuilder.toString());
-			writer.write(terminatedBy);
+			this.getOutputWriter().write(buffer, 0, length);
 		} catch (IOException e){
 			e.printStackTrace();
 			throw new DataImportException(e.getMessage());
 		}
 	}
 
+	/**
+	 * Appends a single enclosed column value to the line buffer.  Null values are written as 
+	 *   {@code null}, and occurrences of the enclosing string inside {@link String} values are 
+	 *   escaped.
+	 */
+	private void appendValue(Object value){
+		line.append(enclosedBy);
+		if (value == null){
+			line.append("null");
+		} else if (value instanceof String){
+			String s = (String) value;
+			if (enclosedBy.isEmpty()){
+				line.append(s);
+			} else {
+				int start = 0;
+				int index = s.indexOf(enclosedBy);
+				while (index >= 0){
+					line.append(s, start, index).append(escapedEnclosure);
+					start = index + enclosedBy.length();
+					index = s.indexOf(enclosedBy, start);
+				}
+				line.append(s, start, s.length());
+			}
+		} else if (value instanceof Integer){
+			line.append(((Integer) value).intValue());
+		} else if (value instanceof Long){
+			line.append(((Long) value).longValue());
+		} else if (value instanceof Double){
+			line.append(((Double) value).doubleValue());
+		} else {
+			line.append(value);
+		}
+		line.append(enclosedBy);
+	}
+
+	/**
+	 * Returns the cached {@link ColumnPlan} for the record class, creating it on first use.
+	 */
+	private ColumnPlan getColumnPlan(Class<?> type) throws DataImportException {
+		ColumnPlan plan = columnPlans.get(type);
+		if (plan == null){
+			if (escapedEnclosure == null) escapedEnclosure = this.createEscapedEnclosure();
+			plan = ColumnPlan.create(type, new HashSet<>(ignoredFields));
+			columnPlans.put(type, plan);
+		}
+		return plan;
+	}
+
+	/**
+	 * Resolves the text that replaces each occurrence of the enclosing string, applying the same 
+	 *   replacement-string rules to {@code escapedBy} that {@link String#replaceAll(String, String)} 
+	 *   would, so the default of {@code \\\\} produces a single backslash.
+	 */
+	private String createEscapedEnclosure(){
+		if (enclosedBy.isEmpty()) return "";
+		return Pattern.compile(Pattern.quote(enclosedBy)).matcher(enclosedBy)
+				.replaceFirst(escapedBy + Matcher.quoteReplacement(enclosedBy));
+	}
+
+	/**
+	 * Discards cached column plans and escape sequences, so that they are rebuilt from the current 
+	 *   settings.
+	 */
+	private void reset(){
+		columnPlans.clear();
+		escapedEnclosure = null;
+	}
+
 	public String getDelimiter() {
 		return delimiter;
 	}
@@ -96,6 +182,7 @@ public class MySqlImportTempFileWriter<T extends Model<?>> extends AbstractRecor
 
 	public MySqlImportTempFileWriter setEnclosedBy(String enclosedBy) {
 		this.enclosedBy = enclosedBy;
+		this.reset();
 		return this;
 	}
 
@@ -105,6 +192,7 @@ public class MySqlImportTempFileWriter<T extends Model<?>> extends AbstractRecor
 
 	public MySqlImportTempFileWriter setEscapedBy(String escapedBy) {
 		this.escapedBy = escapedBy;
+		this.reset();
 		return this;
 	}
 
@@ -123,6 +211,43 @@ public class MySqlImportTempFileWriter<T extends Model<?>> extends AbstractRecor
 
 	public MySqlImportTempFileWriter setIgnoredFields(List<String> ignoredFields) {
 		this.ignoredFields = ignoredFields;
+		this.reset();
 		return this;
 	}
+
+	/**
+	 * Ordered getters for the written fields of a model class, each adapted to the 
+	 *   {@code (Object)Object} type, so that they can be invoked without boxing arguments or 
+	 *   reflective access checks.
+	 */
+	private static class ColumnPlan {
+		
+		private final MethodHandle[] getters;
+
+		private ColumnPlan(MethodHandle[] getters) {
+			this.getters = getters;
+		}
+		
+		public static ColumnPlan create(Class<?> type, Set<String> ignoredFields) 
+				throws DataImportException {
+			MethodHandles.Lookup lookup = MethodHandles.lookup();
+			MethodType methodType = MethodType.methodType(Object.class, Object.class);
+			List<MethodHandle> getters = new ArrayList<>();
+			try {
+				for (Field field: type.getDeclaredFields()){
+					if (Modifier.isStatic(field.getModifiers()) || field.isSynthetic() 
+							|| ignoredFields.contains(field.getName())) continue;
+					field.setAccessible(true);
+					getters.add(lookup.unreflectGetter(field).asType(methodType));
+				}
+			} catch (IllegalAccessException | SecurityException e){
+				e.printStackTrace();
+				throw new DataImportException(String.format("Cannot access fields of model class %s: %s",
+						type.getName(), e.getMessage()));
+			}
+			return new ColumnPlan(getters.toArray(new MethodHandle[getters.size()]));
+		}
+		
+	}
+	
 }
@@ -0,0 +1,564 @@
+/*
+ * Copyright 2016 William Oemler, Blueprint Medicines
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.oncoblocks.centromere.sql;
+
+import org.oncoblocks.centromere.core.dataimport.DataImportException;
+import org.oncoblocks.centromere.core.dataimport.DropCollectionSupport;
+import org.oncoblocks.centromere.core.dataimport.StreamingRecordImporter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.util.Assert;
+
+import javax.sql.DataSource;
+import java.io.*;
+import java.lang.reflect.InvocationTargetException;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Savepoint;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Implementation of {@link StreamingRecordImporter} that loads the delimited text created by 
+ *   {@link MySqlImportTempFileWriter} over JDBC, using {@code LOAD DATA LOCAL INFILE}, rather than
+ *   a mysqlimport subprocess.  Input is split into chunks of whole rows, which are held in memory
+ *   and each loaded from an {@link InputStream}, so streaming imports never touch the disk.  All 
+ *   chunks, and the initial delete if {@code dropCollection} is set, run in a single transaction 
+ *   that is committed once the import finishes, so an aborted or failed import loads nothing.  
+ *   Chunks are not committed individually, so the database must be able to hold the whole load, 
+ *   and its undo log, in one transaction; very large inputs should be split into separate imports.
+ *   The number of rows loaded by each chunk is recorded.  If {@code stopOnError} is not set, failed 
+ *   chunks are rolled back to a savepoint and skipped, and duplicate rows are ignored, similar to 
+ *   mysqlimport's {@code --force}.
+ *   
+ * The field and line formats must match those used by the writer, and the MySQL Connector/J 
+ *   driver must allow local infile loading (eg. {@code allowLoadLocalInfile=true}).  Loading is 
+ *   performed by {@link #executeLoad(Connection, String, InputStream)}, which can be overridden to
+ *   support other drivers or databases.
+ * 
+ * @author woemler
+ */
+public class MySqlLoadDataImporter implements StreamingRecordImporter, DropCollectionSupport {
+	
+	private static final String[] MYSQL_STATEMENT_CLASSES = { "com.mysql.cj.jdbc.JdbcStatement", 
+			"com.mysql.jdbc.Statement" };
+	
+	private final DataSource dataSource;
+	private final String table;
+	private String columns;
+	private boolean stopOnError = true;
+	private boolean dropCollection = false;
+	private int chunkSize = 50000;
+	private String delimiter = "\t";
+	private String enclosedBy = "";
+	private String escapedBy = "\\";
+	private String terminatedBy = "\n";
+	
+	private Connection connection;
+	private ChunkOutputStream streamingOutput;
+	private final List<Long> chunkRowCounts = new ArrayList<>();
+	private long failedChunkCount = 0L;
+	private DataImportException chunkFailure;
+
+	private final static Logger logger = LoggerFactory.getLogger(MySqlLoadDataImporter.class);
+
+	/**
+	 * @param dataSource data source for the target MySQL database.
+	 * @param table name of the table to load.
+	 * @param columns comma-separated list of the columns in the input, in order, or null if the input
+	 *                has a value for every column in the table.
+	 */
+	public MySqlLoadDataImporter(DataSource dataSource, String table, String columns) {
+		Assert.notNull(dataSource, "DataSource must not be null.");
+		Assert.hasText(table, "Table name must not be empty.");
+		this.dataSource = dataSource;
+		this.table = table;
+		this.columns = columns;
+	}
+
+	public MySqlLoadDataImporter(DataSource dataSource, String table) {
+		this(dataSource, table, null);
+	}
+
+	/**
+	 * Loads the temp file, reading it in chunks of {@code chunkSize} rows.
+	 * 
+	 * @param filePath
+	 * @throws DataImportException
+	 */
+	@Override
+	public void importFile(String filePath) throws DataImportException {
+		logger.debug(String.format("[CENTROMERE] Loading file into MySQL table %s: %s", table, filePath));
+		OutputStream output = this.startStreamingImport();
+		InputStream input = null;
+		try {
+			input = new FileInputStream(filePath);
+			byte[] buffer = new byte[64 * 1024];
+			int read = input.read(buffer);
+			while (read >= 0){
+				output.write(buffer, 0, read);
+				read = input.read(buffer);
+			}
+		} catch (IOException e){
+			this.abort();
+			if (e.getCause() instanceof DataImportException) throw (DataImportException) e.getCause();
+			e.printStackTrace();
+			throw new DataImportException(String.format("Unable to import temp file: %s", filePath));
+		} finally {
+			try {
+				if (input != null) input.close();
+			} catch (IOException e){
+				logger.debug(e.getMessage());
+			}
+		}
+		this.finishStreamingImport();
+		logger.debug(String.format("[CENTROMERE] MySQL load complete: %s", filePath));
+	}
+
+	/**
+	 * Opens a connection and starts a load that reads delimited rows from the returned stream.
+	 * 
+	 * @return stream to write rows to.
+	 * @throws DataImportException
+	 */
+	@Override 
+	public OutputStream startStreamingImport() throws DataImportException {
+		if (streamingOutput != null) {
+			throw new DataImportException("A streaming import is already in progress.");
+		}
+		chunkRowCounts.clear();
+		failedChunkCount = 0L;
+		chunkFailure = null;
+		try {
+			connection = dataSource.getConnection();
+			connection.setAutoCommit(false);
+			if (dropCollection) this.deleteRows(connection);
+		} catch (SQLException e){
+			e.printStackTrace();
+			this.closeConnection();
+			throw new DataImportException(String.format("Unable to start load into table %s: %s", 
+					table, e.getMessage()));
+		}
+		streamingOutput = new ChunkOutputStream();
+		return streamingOutput;
+	}
+
+	/**
+	 * Loads the final chunk of rows, commits the import and closes the connection, after the input
+	 *   stream has been closed.  If {@code stopOnError} is set and any chunk failed, including one 
+	 *   loaded when the stream was closed by a writer that ignores close errors, the import is 
+	 *   rolled back and the first failure is rethrown, rather than committed.
+	 * 
+	 * @throws DataImportException if a chunk failed to load and {@code stopOnError} is set.
+	 */
+	@Override 
+	public void finishStreamingImport() throws DataImportException {
+		if (streamingOutput == null) {
+			throw new DataImportException("No streaming import is in progress.");
+		}
+		try {
+			streamingOutput.close();
+		} catch (IOException e){
+			this.abort();
+			if (e.getCause() instanceof DataImportException) throw (DataImportException) e.getCause();
+			e.printStackTrace();
+			throw new DataImportException(e.getMessage());
+		}
+		if (chunkFailure != null){
+			DataImportException failure = chunkFailure;
+			this.abort();
+			throw failure;
+		}
+		streamingOutput = null;
+		try {
+			connection.commit();
+		} catch (SQLException e){
+			e.printStackTrace();
+			this.abort();
+			throw new DataImportException(String.format("Unable to commit load into table %s: %s", 
+					table, e.getMessage()));
+		}
+		this.closeConnection();
+		logger.info(String.format("[CENTROMERE] Loaded %d rows into table %s in %d chunks, %d failed", 
+				this.getRowCount(), table, chunkRowCounts.size(), failedChunkCount));
+	}
+
+	/**
+	 * Rolls back the import and closes the connection, without loading any buffered rows.
+	 */
+	@Override 
+	public void abortStreamingImport() {
+		if (streamingOutput == null) return;
+		this.abort();
+		logger.warn(String.format("[CENTROMERE] Load into table %s aborted", table));
+	}
+
+	/**
+	 * Deletes all rows from the table immediately, in its own transaction.
+	 * 
+	 * @param filePath not used.
+	 * @throws DataImportException
+	 */
+	@Override 
+	public void dropCollection(String filePath) throws DataImportException {
+		Connection dropConnection = null;
+		try {
+			dropConnection = dataSource.getConnection();
+			dropConnection.setAutoCommit(false);
+			this.deleteRows(dropConnection);
+			dropConnection.commit();
+		} catch (SQLException e){
+			e.printStackTrace();
+			throw new DataImportException(String.format("Unable to delete rows from table %s: %s", 
+					table, e.getMessage()));
+		} finally {
+			try {
+				if (dropConnection != null) dropConnection.close();
+			} catch (SQLException e){
+				logger.debug(e.getMessage());
+			}
+		}
+	}
+	
+	private void deleteRows(Connection connection) throws SQLException {
+		logger.debug(String.format("[CENTROMERE] Deleting all rows from table: %s", table));
+		Statement statement = connection.createStatement();
+		try {
+			statement.executeUpdate(String.format("DELETE FROM %s", table));
+		} finally {
+			statement.close();
+		}
+	}
+
+	/**
+	 * Loads a single chunk of rows, rolling back to a savepoint if it fails.
+	 */
+	private void loadChunk(byte[] data, int length, long rows) throws DataImportException {
+		String sql = this.getLoadStatement();
+		Savepoint savepoint = null;
+		try {
+			savepoint = connection.setSavepoint();
+			long loaded = this.executeLoad(connection, sql, new ByteArrayInputStream(data, 0, length));
+			chunkRowCounts.add(loaded);
+			logger.debug(String.format("[CENTROMERE] Loaded chunk %d into table %s: %d of %d rows", 
+					chunkRowCounts.size(), table, loaded, rows));
+		} catch (SQLException e){
+			try {
+				if (savepoint != null) connection.rollback(savepoint);
+			} catch (SQLException ex){
+				logger.debug(ex.getMessage());
+			}
+			failedChunkCount++;
+			String message = String.format("Failed to load chunk of %d rows into table %s: %s", 
+					rows, table, e.getMessage());
+			if (stopOnError) {
+				e.printStackTrace();
+				if (chunkFailure == null) chunkFailure = new DataImportException(message);
+				throw chunkFailure;
+			}
+			logger.warn(String.format("[CENTROMERE] %s", message));
+		}
+	}
+
+	/**
+	 * Runs the load statement against the chunk of input.  The default implementation passes the 
+	 *   stream to MySQL Connector/J in place of the local file.  Implementations must not commit or
+	 *   close the connection.
+	 * 
+	 * @param connection open connection, with auto-commit disabled.
+	 * @param sql {@code LOAD DATA LOCAL INFILE} statement, from {@link #getLoadStatement()}.
+	 * @param input delimited rows for the chunk.
+	 * @return the number of rows loaded.
+	 * @throws SQLException
+	 */
+	protected long executeLoad(Connection connection, String sql, InputStream input) throws SQLException {
+		Statement statement = connection.createStatement();
+		try {
+			setLocalInfileInputStream(statement, input);
+			return statement.executeUpdate(sql);
+		} finally {
+			statement.close();
+		}
+	}
+
+	/**
+	 * Hands the input stream to a MySQL Connector/J statement, without a compile-time dependency on 
+	 *   the driver.
+	 */
+	private static void setLocalInfileInputStream(Statement statement, InputStream input) 
+			throws SQLException {
+		for (String className: MYSQL_STATEMENT_CLASSES){
+			Class<?> type;
+			try {
+				type = Class.forName(className);
+			} catch (ClassNotFoundException e){
+				continue;
+			}
+			if (!statement.isWrapperFor(type)) continue;
+			try {
+				type.getMethod("setLocalInfileInputStream", InputStream.class)
+						.invoke(statement.unwrap(type), input);
+				return;
+			} catch (NoSuchMethodException | IllegalAccessException | InvocationTargetException e){
+				throw new SQLException(String.format("Unable to set local infile input stream: %s", 
+						e.getMessage()), e);
+			}
+		}
+		throw new SQLException("Loading data from a stream requires a MySQL Connector/J connection.");
+	}
+
+	/**
+	 * Creates the {@code LOAD DATA LOCAL INFILE} statement, based upon parametrization.
+	 * 
+	 * @return
+	 */
+	public String getLoadStatement(){
+		StringBuilder sb = new StringBuilder("LOAD DATA LOCAL INFILE 'stream'");
+		if (!stopOnError) sb.append(" IGNORE");
+		sb.append(String.format(" INTO TABLE %s", table));
+		sb.append(String.format(" FIELDS TERMINATED BY %s", quote(delimiter)));
+		sb.append(String.format(" ENCLOSED BY %s", quote(enclosedBy)));
+		sb.append(String.format(" ESCAPED BY %s", quote(escapedBy)));
+		sb.append(String.format(" LINES TERMINATED BY %s", quote(terminatedBy)));
+		if (columns != null) sb.append(String.format(" (%s)", columns));
+		return sb.toString();
+	}
+
+	/**
+	 * Formats a string as a MySQL string literal.
+	 */
+	private static String quote(String value){
+		StringBuilder sb = new StringBuilder("'");
+		for (char c: value.toCharArray()){
+			switch (c) {
+				case '\t': sb.append("\\t"); break;
+				case '\n': sb.append("\\n"); break;
+				case '\r': sb.append("\\r"); break;
+				case '\\': sb.append("\\\\"); break;
+				case '\'': sb.append("\\'"); break;
+				default: sb.append(c);
+			}
+		}
+		return sb.append("'").toString();
+	}
+
+	/**
+	 * Abandons a load after an error, rolling back every chunk loaded so far, and the initial delete,
+	 *   and closing the connection.
+	 */
+	private void abort(){
+		if (streamingOutput != null) streamingOutput.closed = true;
+		streamingOutput = null;
+		if (connection != null) {
+			try {
+				connection.rollback();
+			} catch (SQLException e){
+				logger.debug(e.getMessage());
+			}
+		}
+		this.closeConnection();
+	}
+
+	private void closeConnection(){
+		if (connection == null) return;
+		try {
+			connection.close();
+		} catch (SQLException e){
+			logger.debug(e.getMessage());
+		}
+		connection = null;
+	}
+
+	/**
+	 * Returns the number of rows loaded by each successful chunk of the most recent import.
+	 */
+	public List<Long> getChunkRowCounts() {
+		return Collections.unmodifiableList(chunkRowCounts);
+	}
+
+	/**
+	 * Returns the total number of rows loaded by the most recent import.
+	 */
+	public long getRowCount(){
+		long count = 0L;
+		for (Long rows: chunkRowCounts) count += rows;
+		return count;
+	}
+
+	public long getFailedChunkCount() {
+		return failedChunkCount;
+	}
+
+	public String getTable() {
+		return table;
+	}
+
+	public MySqlLoadDataImporter setColumns(String columns) {
+		this.columns = columns;
+		return this;
+	}
+
+	public MySqlLoadDataImporter setStopOnError(boolean stopOnError) {
+		this.stopOnError = stopOnError;
+		return this;
+	}
+
+	/**
+	 * If set, all existing rows are deleted from the table before loading, as with mysqlimport's 
+	 *   {@code --delete}.
+	 */
+	@Override 
+	public MySqlLoadDataImporter setDropCollection(boolean dropCollection) {
+		this.dropCollection = dropCollection;
+		return this;
+	}
+
+	@Override 
+	public boolean isDropCollection() {
+		return dropCollection;
+	}
+
+	/**
+	 * Sets the number of rows loaded by each {@code LOAD DATA} statement.  Chunks bound the memory 
+	 *   used to buffer rows, and the work lost when a chunk is skipped, but are not committed 
+	 *   separately: the whole load is committed once, when it finishes.
+	 */
+	public MySqlLoadDataImporter setChunkSize(int chunkSize) {
+		Assert.isTrue(chunkSize > 0, "Chunk size must be greater than zero.");
+		this.chunkSize = chunkSize;
+		return this;
+	}
+
+	public MySqlLoadDataImporter setDelimiter(String delimiter) {
+		this.delimiter = delimiter;
+		return this;
+	}
+
+	public MySqlLoadDataImporter setEnclosedBy(String enclosedBy) {
+		this.enclosedBy = enclosedBy;
+		return this;
+	}
+
+	/**
+	 * Sets the escape character, as it appears in the input.  Note that this is the literal 
+	 *   character, unlike {@link MySqlImportTempFileWriter#setEscapedBy(String)}.
+	 */
+	public MySqlLoadDataImporter setEscapedBy(String escapedBy) {
+		this.escapedBy = escapedBy;
+		return this;
+	}
+
+	/**
+	 * Sets the line terminator, which must match the one used by the writer, since chunks are 
+	 *   only split at line boundaries.
+	 */
+	public MySqlLoadDataImporter setTerminatedBy(String terminatedBy) {
+		Assert.hasLength(terminatedBy, "Line terminator must not be empty.");
+		this.terminatedBy = terminatedBy;
+		return this;
+	}
+
+	public void doBefore(Object... args) throws DataImportException {
+		
+	}
+
+	public void doAfter(Object... args) throws DataImportException {
+
+	}
+
+	/**
+	 * Buffers written rows in memory, and loads them each time {@code chunkSize} complete rows 
+	 *   have been written.  Load failures are rethrown as {@link IOException}s, with the original
+	 *   exception as the cause.
+	 */
+	private class ChunkOutputStream extends OutputStream {
+		
+		private final byte[] terminator = terminatedBy.getBytes(StandardCharsets.UTF_8);
+		private byte[] data = new byte[1024 * 1024];
+		private int length = 0;
+		private int rowEnd = 0;
+		private long rows = 0L;
+		private boolean closed = false;
+
+		@Override 
+		public void write(int b) throws IOException {
+			this.write(new byte[]{ (byte) b }, 0, 1);
+		}
+
+		@Override 
+		public void write(byte[] bytes, int offset, int count) throws IOException {
+			if (closed) throw new IOException("Stream is closed.");
+			if (length + count > data.length) {
+				data = Arrays.copyOf(data, Math.max(data.length * 2, length + count));
+			}
+			System.arraycopy(bytes, offset, data, length, count);
+			int start = Math.max(rowEnd, length - terminator.length + 1);
+			length += count;
+			for (int i = start; i + terminator.length <= length; i++){
+				if (this.isTerminator(i)) {
+					rowEnd = i + terminator.length;
+					rows++;
+					if (rows >= chunkSize) {
+						this.load();
+						i = -1;
+					} else {
+						i = rowEnd - 1;
+					}
+				}
+			}
+		}
+		
+		private boolean isTerminator(int index){
+			for (int j = 0; j < terminator.length; j++){
+				if (data[index + j] != terminator[j]) return false;
+			}
+			return true;
+		}
+
+		/**
+		 * Loads the complete rows in the buffer, and moves any partial row to the front.
+		 */
+		private void load() throws IOException {
+			try {
+				loadChunk(data, rowEnd, rows);
+			} catch (DataImportException e){
+				throw new IOException(e.getMessage(), e);
+			}
+			System.arraycopy(data, rowEnd, data, 0, length - rowEnd);
+			length -= rowEnd;
+			rowEnd = 0;
+			rows = 0L;
+		}
+
+		@Override 
+		public void close() throws IOException {
+			if (closed) return;
+			closed = true;
+			if (length > rowEnd) {
+				rowEnd = length;
+				rows++;
+			}
+			if (rows > 0) this.load();
+		}
+		
+	}
+	
+}
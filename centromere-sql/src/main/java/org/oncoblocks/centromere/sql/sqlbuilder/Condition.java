@@ -48,6 +48,18 @@ public class Condition {
 			case NOT_IN:
 				builder.append(" not in (?) ");
 				break;
+			case GREATER_THAN:
+				builder.append(" > ? ");
+				break;
+			case GREATER_THAN_EQUALS:
+				builder.append(" >= ? ");
+				break;
+			case LESS_THAN:
+				builder.append(" < ? ");
+				break;
+			case LESS_THAN_EQUALS:
+				builder.append(" <= ? ");
+				break;
 			default:
 				builder.append(" = ? ");
 		}
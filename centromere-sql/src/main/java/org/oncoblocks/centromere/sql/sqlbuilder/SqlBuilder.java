@@ -246,6 +246,14 @@ public class SqlBuilder {
 		return new Condition(column, value, Evaluation.NOT_IN);
 	}
 
+	public static Condition greaterThan(String column, Object value){
+		return new Condition(column, value, Evaluation.GREATER_THAN);
+	}
+
+	public static Condition lessThan(String column, Object value){
+		return new Condition(column, value, Evaluation.LESS_THAN);
+	}
+
 	public static Condition isNull(String column){
 		return new Condition(column, null, Evaluation.IS_NULL);
 	}
@@ -20,17 +20,23 @@ import org.junit.Before;
 import org.junit.FixMethodOrder;
 import org.junit.Test;
 import org.junit.runner.RunWith;
+import org.oncoblocks.centromere.core.repository.CountStrategy;
+import org.oncoblocks.centromere.core.repository.CountedPage;
 import org.oncoblocks.centromere.core.repository.Evaluation;
+import org.oncoblocks.centromere.core.repository.KeysetPage;
+import org.oncoblocks.centromere.core.repository.KeysetPageRequest;
 import org.oncoblocks.centromere.core.repository.QueryCriteria;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Sort;
+import org.springframework.data.util.CloseableIterator;
 import org.springframework.test.context.ContextConfiguration;
 import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
 import org.springframework.util.Assert;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 /**
@@ -138,6 +144,93 @@ public class GenericJdbcRepositoryTests {
 		Assert.isTrue(subject.getId().equals(4L));
 	}
 
+	@Test
+	public void streamCriteriaTest(){
+		List<QueryCriteria> queryCriterias = new ArrayList<>();
+		queryCriterias.add(new QueryCriteria("subjects.gender", "F", Evaluation.EQUALS));
+		Sort sort = new Sort(new Sort.Order(Sort.Direction.DESC, "subjects.subject_id"));
+
+		List<Subject> subjects = new ArrayList<>();
+		CloseableIterator<Subject> cursor = subjectRepository.stream(queryCriterias, sort);
+		try {
+			while (cursor.hasNext()){
+				subjects.add(cursor.next());
+			}
+		} finally {
+			cursor.close();
+		}
+		Assert.isTrue(subjects.size() == 2);
+		Assert.isTrue(subjects.get(0).getId().equals(4L));
+		Assert.isTrue(!cursor.hasNext());
+
+		cursor = subjectRepository.stream(new ArrayList<QueryCriteria>(), null);
+		Assert.isTrue(cursor.hasNext());
+		Assert.notNull(cursor.next());
+		cursor.close();
+		Assert.isTrue(!cursor.hasNext());
+	}
+
+	@Test
+	public void keysetPagedCriteriaTest(){
+		List<QueryCriteria> queryCriterias = new ArrayList<>();
+		queryCriterias.add(new QueryCriteria("subjects.species", "Homo sapiens", Evaluation.EQUALS));
+		Sort sort = new Sort(new Sort.Order(Sort.Direction.DESC, "subjects.gender"));
+		KeysetPageRequest pageRequest = new KeysetPageRequest(2, sort);
+
+		List<Subject> subjects = new ArrayList<>();
+		KeysetPage<Subject> page = subjectRepository.find(queryCriterias, pageRequest);
+		Assert.isTrue(page.getNumberOfElements() == 2);
+		Assert.isTrue(page.hasNext());
+		subjects.addAll(page.getContent());
+		while (page.hasNext()){
+			page = subjectRepository.find(queryCriterias, pageRequest.next(page.getNextToken()));
+			subjects.addAll(page.getContent());
+		}
+		Assert.isTrue(page.getNumberOfElements() == 1);
+		Assert.isTrue(subjects.size() == 5);
+		
+		List<Long> ids = new ArrayList<>();
+		for (Subject subject: subjects){
+			Assert.isTrue(!ids.contains(subject.getId()));
+			ids.add(subject.getId());
+		}
+		Assert.isTrue(ids.equals(Arrays.asList(5L, 3L, 1L, 4L, 2L)));
+
+		String token = subjectRepository.find(queryCriterias, pageRequest).getNextToken();
+		try {
+			subjectRepository.find(queryCriterias, new KeysetPageRequest(2, null, token));
+			Assert.isTrue(false, "Token issued for a different sort should be rejected.");
+		} catch (IllegalArgumentException e){
+			Assert.isTrue(e.getMessage().contains("sort"));
+		}
+	}
+
+	@Test
+	public void pagedCountStrategyTest(){
+		List<QueryCriteria> queryCriterias = new ArrayList<>();
+		queryCriterias.add(new QueryCriteria("subjects.species", "Homo sapiens", Evaluation.EQUALS));
+		Sort sort = new Sort(new Sort.Order(Sort.Direction.DESC, "subjects.subject_id"));
+
+		CountedPage<Subject> page = subjectRepository.find(queryCriterias, new PageRequest(0, 3, sort), 
+				CountStrategy.NONE);
+		Assert.isTrue(page.getCountStrategy().equals(CountStrategy.NONE));
+		Assert.isTrue(!page.isTotalExact());
+		Assert.isTrue(page.getContent().size() == 3);
+		Assert.isTrue(page.hasNext());
+		page = subjectRepository.find(queryCriterias, new PageRequest(1, 3, sort), CountStrategy.NONE);
+		Assert.isTrue(page.getContent().size() == 2);
+		Assert.isTrue(!page.hasNext());
+		Assert.isTrue(page.getTotalElements() == 5);
+
+		page = subjectRepository.find(queryCriterias, new PageRequest(0, 3, sort), CountStrategy.CACHED);
+		Assert.isTrue(page.getCountStrategy().equals(CountStrategy.CACHED));
+		Assert.isTrue(page.getTotalElements() == 5);
+		
+		page = subjectRepository.find(queryCriterias, new PageRequest(0, 3, sort), CountStrategy.ESTIMATED);
+		Assert.isTrue(page.getCountStrategy().equals(CountStrategy.EXACT));
+		Assert.isTrue(page.getTotalElements() == 5);
+	}
+
 	@Test
 	public void pagedCriteriaTest(){
 		List<QueryCriteria> queryCriterias = new ArrayList<>();
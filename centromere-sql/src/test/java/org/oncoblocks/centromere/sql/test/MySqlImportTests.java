@@ -0,0 +1,309 @@
+/*
+ * Copyright 2016 William Oemler, Blueprint Medicines
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.oncoblocks.centromere.sql.test;
+
+import org.junit.Test;
+import org.oncoblocks.centromere.core.dataimport.*;
+import org.oncoblocks.centromere.sql.MySqlImportTempFileWriter;
+import org.oncoblocks.centromere.sql.MySqlLoadDataImporter;
+import org.springframework.beans.factory.ObjectFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType;
+import org.springframework.util.Assert;
+
+import javax.sql.DataSource;
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * @author woemler
+ */
+public class MySqlImportTests {
+	
+	@Test
+	public void tempFileWriterTest() throws Exception {
+		ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+		MySqlImportTempFileWriter<Subject> writer = new MySqlImportTempFileWriter<>();
+		writer.setIgnoredFields(Arrays.asList("aliases", "attributes"));
+		writer.open(outputStream);
+		writer.writeRecord(new Subject(1L, "PersonA", "Homo sapiens", "M", "patient", null, null, null));
+		writer.writeRecord(new Subject(2L, "PersonB", "Homo sapiens", "F", "patient", "notes", null, null));
+		writer.close();
+		String[] lines = new String(outputStream.toByteArray(), StandardCharsets.UTF_8).split("\n");
+		Assert.isTrue(lines.length == 2);
+		Assert.isTrue("1\tPersonA\tHomo sapiens\tM\tpatient\tnull".equals(lines[0]));
+		Assert.isTrue("2\tPersonB\tHomo sapiens\tF\tpatient\tnotes".equals(lines[1]));
+	}
+
+	@Test
+	public void enclosedTempFileWriterTest() throws Exception {
+		ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+		MySqlImportTempFileWriter<Subject> writer = new MySqlImportTempFileWriter<>();
+		writer.setIgnoredFields(Arrays.asList("aliases", "attributes", "notes"));
+		writer.setEnclosedBy("\"").setDelimiter(",");
+		writer.open(outputStream);
+		writer.writeRecord(new Subject(1L, "Person \"A\"", "Homo sapiens", "M", "patient", null, null, null));
+		writer.close();
+		String line = new String(outputStream.toByteArray(), StandardCharsets.UTF_8);
+		Assert.isTrue("\"1\",\"Person \\\"A\\\"\",\"Homo sapiens\",\"M\",\"patient\"\n".equals(line), line);
+	}
+	
+	@Test
+	public void loadDataImportTest() throws Exception {
+		EmbeddedDatabase dataSource = new EmbeddedDatabaseBuilder().setType(EmbeddedDatabaseType.H2).build();
+		try {
+			JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+			jdbcTemplate.execute("CREATE TABLE subjects (subject_id INT NOT NULL, name VARCHAR(255) NOT NULL, "
+					+ "species VARCHAR(64) NOT NULL, PRIMARY KEY (subject_id))");
+			MySqlLoadDataImporter importer = new StandInLoadDataImporter(dataSource).setChunkSize(2);
+			Assert.isTrue(importer.getLoadStatement().startsWith("LOAD DATA LOCAL INFILE 'stream' INTO TABLE subjects"));
+			Assert.isTrue(importer.getLoadStatement().contains("FIELDS TERMINATED BY '\\t'"));
+			
+			MySqlImportTempFileWriter<Subject> writer = new MySqlImportTempFileWriter<>();
+			writer.setIgnoredFields(Arrays.asList("gender", "type", "notes", "aliases", "attributes"));
+			writer.open(importer.startStreamingImport());
+			for (int i = 1; i <= 5; i++){
+				writer.writeRecord(new Subject((long) i, "Person" + i, "Homo sapiens", null, null, null, null, null));
+			}
+			writer.close();
+			importer.finishStreamingImport();
+			Assert.isTrue(importer.getChunkRowCounts().equals(Arrays.asList(2L, 2L, 1L)));
+			Assert.isTrue(importer.getRowCount() == 5);
+			Assert.isTrue(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM subjects", Integer.class) == 5);
+			
+			File file = File.createTempFile("subjects", ".txt");
+			file.deleteOnExit();
+			Writer fileWriter = new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.UTF_8);
+			fileWriter.write("5\tPerson5\tHomo sapiens\n6\tPerson6\tHomo sapiens\n7\tPerson7\tHomo sapiens");
+			fileWriter.close();
+			
+			Exception exception = null;
+			try {
+				importer.importFile(file.getAbsolutePath());
+			} catch (DataImportException e){
+				exception = e;
+			}
+			Assert.notNull(exception);
+			Assert.isTrue(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM subjects", Integer.class) == 5);
+			
+			importer.setStopOnError(false);
+			importer.importFile(file.getAbsolutePath());
+			Assert.isTrue(importer.getFailedChunkCount() == 1);
+			Assert.isTrue(importer.getChunkRowCounts().equals(Arrays.asList(1L)));
+			Assert.isTrue(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM subjects", Integer.class) == 6);
+			
+			OutputStream stream = importer.startStreamingImport();
+			stream.write("10\tPerson10\tHomo sapiens\n11\tPerson11\tHomo sapiens\n12\tPerson12\tHomo sapiens\n"
+					.getBytes(StandardCharsets.UTF_8));
+			Assert.isTrue(importer.getChunkRowCounts().equals(Arrays.asList(2L)));
+			importer.abortStreamingImport();
+			stream.close();
+			Assert.isTrue(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM subjects", Integer.class) == 6);
+		} finally {
+			dataSource.shutdown();
+		}
+	}
+
+	@Test
+	public void lastChunkFailureTest() throws Exception {
+		final EmbeddedDatabase dataSource = new EmbeddedDatabaseBuilder().setType(EmbeddedDatabaseType.H2).build();
+		try {
+			JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+			jdbcTemplate.execute("CREATE TABLE subjects (subject_id INT NOT NULL, name VARCHAR(255) NOT NULL, "
+					+ "species VARCHAR(64) NOT NULL, PRIMARY KEY (subject_id))");
+			MySqlLoadDataImporter importer = new StandInLoadDataImporter(dataSource).setChunkSize(2);
+			
+			MySqlImportTempFileWriter<Subject> writer = new MySqlImportTempFileWriter<>();
+			writer.setIgnoredFields(Arrays.asList("gender", "type", "notes", "aliases", "attributes"));
+			writer.open(importer.startStreamingImport());
+			for (int i = 1; i <= 4; i++){
+				writer.writeRecord(new Subject((long) i, "Person" + i, "Homo sapiens", null, null, null, null, null));
+			}
+			writer.writeRecord(new Subject(1L, "Duplicate", "Homo sapiens", null, null, null, null, null));
+			writer.close();
+			Exception exception = null;
+			try {
+				importer.finishStreamingImport();
+			} catch (DataImportException e){
+				exception = e;
+			}
+			Assert.notNull(exception);
+			Assert.isTrue(importer.getFailedChunkCount() == 1);
+			Assert.isTrue(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM subjects", Integer.class) == 0);
+			
+			File file = File.createTempFile("subjects", ".txt");
+			file.deleteOnExit();
+			Writer fileWriter = new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.UTF_8);
+			fileWriter.write("subject_id\tname\tspecies\n");
+			for (int i = 1; i <= 4; i++){
+				fileWriter.write(String.format("%d\tPerson%d\tHomo sapiens\n", i, i));
+			}
+			fileWriter.write("1\tDuplicate\tHomo sapiens\n");
+			fileWriter.close();
+			
+			GenericRecordProcessor<Subject> processor = new GenericRecordProcessor<Subject>() {};
+			processor.setReader(new SubjectReader());
+			MySqlImportTempFileWriter<Subject> recordWriter = new MySqlImportTempFileWriter<>();
+			recordWriter.setIgnoredFields(Arrays.asList("gender", "type", "notes", "aliases", "attributes"));
+			processor.setWriter(recordWriter);
+			processor.setImporter(new StandInLoadDataImporter(dataSource).setChunkSize(2));
+			BasicImportOptions options = new BasicImportOptions();
+			options.setTempDirectoryPath(Files.createTempDirectory("streaming").toString());
+			options.setStreamingImport(true);
+			processor.setImportOptions(options);
+			exception = null;
+			try {
+				processor.run(file.getAbsolutePath());
+			} catch (DataImportException e){
+				exception = e;
+			}
+			Assert.notNull(exception);
+			Assert.isTrue(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM subjects", Integer.class) == 0);
+		} finally {
+			dataSource.shutdown();
+		}
+	}
+
+	@Test
+	public void chunkedLoadDataImportTest() throws Exception {
+		final EmbeddedDatabase dataSource = new EmbeddedDatabaseBuilder().setType(EmbeddedDatabaseType.H2).build();
+		try {
+			JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+			jdbcTemplate.execute("CREATE TABLE subjects (subject_id INT NOT NULL, name VARCHAR(255) NOT NULL, "
+					+ "species VARCHAR(64) NOT NULL, PRIMARY KEY (subject_id))");
+			for (int i = 100; i < 103; i++){
+				jdbcTemplate.update("INSERT INTO subjects VALUES (?, ?, ?)", i, "Stale" + i, "Homo sapiens");
+			}
+			
+			File file = File.createTempFile("subjects", ".txt");
+			file.deleteOnExit();
+			Writer fileWriter = new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.UTF_8);
+			fileWriter.write("species\tname\tsubject_id\n");
+			for (int i = 1; i <= 9; i++){
+				fileWriter.write(String.format("Homo sapiens\tPerson%d\t%d\n", i, i));
+			}
+			fileWriter.close();
+			
+			GenericRecordProcessor<Subject> processor = new GenericRecordProcessor<Subject>() {};
+			processor.setReaderFactory(new ObjectFactory<RecordReader<Subject>>() {
+				@Override public RecordReader<Subject> getObject() {
+					return new SubjectReader();
+				}
+			});
+			processor.setWriterFactory(new ObjectFactory<RecordWriter<Subject>>() {
+				@Override public RecordWriter<Subject> getObject() {
+					MySqlImportTempFileWriter<Subject> writer = new MySqlImportTempFileWriter<>();
+					writer.setIgnoredFields(Arrays.asList("gender", "type", "notes", "aliases", "attributes"));
+					return writer;
+				}
+			});
+			final AtomicInteger drops = new AtomicInteger(0);
+			processor.setImporterFactory(new ObjectFactory<RecordImporter>() {
+				@Override public RecordImporter getObject() {
+					return new StandInLoadDataImporter(dataSource) {
+						@Override public OutputStream startStreamingImport() throws DataImportException {
+							if (this.isDropCollection()) drops.incrementAndGet();
+							return super.startStreamingImport();
+						}
+						@Override public void dropCollection(String filePath) throws DataImportException {
+							drops.incrementAndGet();
+							super.dropCollection(filePath);
+						}
+					}.setChunkSize(2).setDropCollection(true);
+				}
+			});
+			BasicImportOptions options = new BasicImportOptions();
+			options.setTempDirectoryPath(Files.createTempDirectory("chunked").toString());
+			options.setImportChunks(3);
+			processor.setImportOptions(options);
+			processor.run(file.getAbsolutePath());
+			
+			Assert.isTrue(drops.get() == 1);
+			Assert.isTrue(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM subjects", Integer.class) == 9);
+			Assert.isTrue(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM subjects WHERE subject_id >= 100", 
+					Integer.class) == 0);
+		} finally {
+			dataSource.shutdown();
+		}
+	}
+
+	/**
+	 * Reads subjects from a delimited file, using its header to find the columns.
+	 */
+	public static class SubjectReader extends AbstractDelimitedRecordFileReader<Subject> {
+		
+		public SubjectReader() {
+			this.setHeaderLineCount(1);
+		}
+
+		@Override 
+		public Subject readRecord() throws DataImportException {
+			if (!this.nextLine()) return null;
+			List<String> columns = Arrays.asList(this.getHeader().get(0).split("\t"));
+			DelimitedLineReader line = this.getLineReader();
+			return new Subject(line.getField(columns.indexOf("subject_id")).toLong(), 
+					line.getField(columns.indexOf("name")).toString(), 
+					line.getField(columns.indexOf("species")).toString(), 
+					null, null, null, null, null);
+		}
+		
+	}
+
+	/**
+	 * Stands in for MySQL by inserting the tab-delimited rows of each chunk.
+	 */
+	public static class StandInLoadDataImporter extends MySqlLoadDataImporter {
+		
+		public StandInLoadDataImporter(DataSource dataSource) {
+			super(dataSource, "subjects");
+		}
+
+		@Override 
+		protected long executeLoad(Connection connection, String sql, InputStream input) throws SQLException {
+			long count = 0;
+			PreparedStatement statement = connection.prepareStatement("INSERT INTO subjects VALUES (?, ?, ?)");
+			try {
+				BufferedReader reader = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8));
+				String line = reader.readLine();
+				while (line != null){
+					String[] bits = line.split("\t");
+					statement.setInt(1, Integer.parseInt(bits[0]));
+					statement.setString(2, bits[1]);
+					statement.setString(3, bits[2]);
+					count += statement.executeUpdate();
+					line = reader.readLine();
+				}
+			} catch (IOException e){
+				throw new SQLException(e);
+			} finally {
+				statement.close();
+			}
+			return count;
+		}
+		
+	}
+	
+}